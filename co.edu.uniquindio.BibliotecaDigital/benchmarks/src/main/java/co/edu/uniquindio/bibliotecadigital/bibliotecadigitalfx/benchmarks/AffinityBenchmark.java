@@ -0,0 +1,93 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.benchmarks;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service.AffinitySystem;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construcción de las conexiones por afinidad: el cálculo exacto (SEQUENTIAL)
+ * contra MinHash/LSH (APPROXIMATE) con distintas bandas x filas.
+ *
+ * Cada construcción tarda segundos, así que se mide una por iteración. Al
+ * terminar cada configuración aproximada se imprime su recall: qué fracción de
+ * las conexiones exactas encontró (nunca agrega conexiones que no existan).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AffinityBenchmark {
+    private static final int RATINGS_PER_READER = 20;
+
+    @Param({"10000", "100000"})
+    public int readers;
+
+    // "exact" o bandas x filas de LSH
+    @Param({"exact", "32x1", "16x2", "32x2", "64x2"})
+    public String lsh;
+
+    private ArrayList<Reader> readerList;
+    private AffinitySystem.BuildMode mode;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        readerList = BenchmarkData.readersWithRatings(readers, RATINGS_PER_READER);
+        if (lsh.equals("exact")) {
+            mode = AffinitySystem.BuildMode.SEQUENTIAL;
+        } else {
+            String[] parts = lsh.split("x");
+            System.setProperty(AffinitySystem.BuildMode.LSH_BANDS_PROPERTY, parts[0]);
+            System.setProperty(AffinitySystem.BuildMode.LSH_ROWS_PROPERTY, parts[1]);
+            mode = AffinitySystem.BuildMode.APPROXIMATE;
+        }
+    }
+
+    @Benchmark
+    public Graph<Reader> build() {
+        return AffinitySystem.buildAffinityOnly(readerList, mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void reportRecall() {
+        if (mode != AffinitySystem.BuildMode.APPROXIMATE) {
+            return;
+        }
+        Graph<Reader> exact = AffinitySystem.buildAffinityOnly(readerList, AffinitySystem.BuildMode.SEQUENTIAL);
+        Graph<Reader> approximate = build();
+
+        // Las conexiones aproximadas son un subconjunto de las exactas: basta contar las encontradas
+        long found = 0;
+        for (int id = 0; id < approximate.idCapacity(); id++) {
+            Reader reader = approximate.vertexAt(id);
+            if (reader == null) {
+                continue;
+            }
+            for (int neighbor : approximate.neighborIds(id)) {
+                if (neighbor > id && exact.hasEdge(reader, approximate.vertexAt(neighbor))) {
+                    found++;
+                }
+            }
+        }
+        double recall = exact.edgeCount() == 0 ? 1.0 : (double) found / exact.edgeCount();
+        System.out.printf("📊 Recall LSH %s con %d lectores: %.3f (%d de %d conexiones)%n",
+                lsh, readers, recall, found, exact.edgeCount());
+    }
+}
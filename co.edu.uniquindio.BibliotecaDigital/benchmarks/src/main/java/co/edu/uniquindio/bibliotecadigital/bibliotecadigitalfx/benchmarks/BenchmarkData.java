@@ -0,0 +1,100 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.benchmarks;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Book;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Rating;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Datos de entrada compartidos por los benchmarks. Siempre usan la misma semilla
+ * para que las corridas de distintas versiones midan exactamente el mismo trabajo.
+ */
+final class BenchmarkData {
+    static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    // Enteros 0..size-1 en orden aleatorio
+    static Integer[] shuffledKeys(int size) {
+        Integer[] keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+        }
+        Random random = new Random(SEED);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Integer tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+        return keys;
+    }
+
+    // Claves de texto parecidas a los ids de libros y usuarios del sistema
+    static String[] stringKeys(int size) {
+        Integer[] order = shuffledKeys(size);
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "B" + order[i];
+        }
+        return keys;
+    }
+
+    static int[] priorities(int size) {
+        Random random = new Random(SEED);
+        int[] priorities = new int[size];
+        for (int i = 0; i < size; i++) {
+            priorities[i] = random.nextInt(size);
+        }
+        return priorities;
+    }
+
+    // Aristas aleatorias como pares (origen, destino); grado promedio 2 * edgesPerVertex
+    static int[][] randomEdges(int vertexCount, int edgesPerVertex) {
+        Random random = new Random(SEED);
+        int[][] edges = new int[vertexCount * edgesPerVertex][];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = new int[]{random.nextInt(vertexCount), random.nextInt(vertexCount)};
+        }
+        return edges;
+    }
+
+    /**
+     * Lectores con valoraciones parecidas a las reales: cada lector pertenece a un
+     * grupo de gustos (40 libros propios del grupo), una parte de sus lecturas son
+     * de los 100 libros más populares y el resto de todo el catálogo. Cada lector
+     * valora ratingsPerReader libros distintos con 1 a 5 estrellas.
+     */
+    static ArrayList<Reader> readersWithRatings(int readerCount, int ratingsPerReader) {
+        Random random = new Random(SEED);
+        int groups = Math.max(1, readerCount / 40);
+        int bookCount = 100 + groups * 40;
+        Book[] books = new Book[bookCount];
+        for (int i = 0; i < bookCount; i++) {
+            books[i] = new Book("B" + i, "Libro " + i, "Autor " + (i % 500), 2000, "General");
+        }
+
+        ArrayList<Reader> readers = new ArrayList<>(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            Reader reader = new Reader("Lector " + i, "lector" + i, "clave");
+            int group = random.nextInt(groups);
+            Set<Integer> rated = new HashSet<>();
+            while (rated.size() < ratingsPerReader) {
+                double kind = random.nextDouble();
+                int book = kind < 0.3 ? random.nextInt(100)
+                        : kind < 0.8 ? 100 + group * 40 + random.nextInt(40)
+                        : random.nextInt(bookCount);
+                if (rated.add(book)) {
+                    reader.getRatingsList().add(new Rating(reader, books[book], 1 + random.nextInt(5), ""));
+                }
+            }
+            readers.addEnd(reader);
+        }
+        return readers;
+    }
+}
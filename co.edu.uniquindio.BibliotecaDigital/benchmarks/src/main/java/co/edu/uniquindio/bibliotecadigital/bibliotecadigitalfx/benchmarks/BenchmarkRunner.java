@@ -0,0 +1,37 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada del jar de benchmarks.
+ *
+ * Acepta las mismas opciones de línea de comandos de JMH (por ejemplo un filtro
+ * "HashMap" o "-p size=1000"), pero si no se indica otro formato guarda los
+ * resultados en JSON en target/jmh-results.json para poder compararlos entre versiones.
+ */
+public class BenchmarkRunner {
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-results.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+
+        Options options = builder.build();
+        new Runner(options).run();
+        System.out.println("📊 Resultados guardados en " + options.getResult().orElse(DEFAULT_RESULT_FILE));
+    }
+}
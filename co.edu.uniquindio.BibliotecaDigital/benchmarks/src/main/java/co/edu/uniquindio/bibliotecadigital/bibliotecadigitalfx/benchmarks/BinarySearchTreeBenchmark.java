@@ -0,0 +1,142 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.benchmarks;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.BinarySearchTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structures.BinarySearchTree (AVL) contra java.util.TreeMap: inserción aleatoria y
+ * ordenada, búsquedas, consultas por rango y recorrido en orden.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinarySearchTreeBenchmark {
+    private static final Comparator<Integer> ORDER = Comparator.naturalOrder();
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Integer[] shuffled;
+    private Integer[] sorted;
+    private BinarySearchTree<Integer> customTree;
+    private TreeMap<Integer, Integer> jdkTree;
+    private Integer rangeFrom;
+    private Integer rangeTo;
+
+    @Setup
+    public void setup() {
+        shuffled = BenchmarkData.shuffledKeys(size);
+        sorted = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+        }
+
+        customTree = new BinarySearchTree<>(ORDER);
+        jdkTree = new TreeMap<>(ORDER);
+        for (Integer value : shuffled) {
+            customTree.insert(value);
+            jdkTree.put(value, value);
+        }
+
+        // Rango del 1% de las claves, a partir de la mitad
+        rangeFrom = size / 2;
+        rangeTo = rangeFrom + Math.max(1, size / 100);
+    }
+
+    @Benchmark
+    public BinarySearchTree<Integer> insertRandomCustom() {
+        BinarySearchTree<Integer> tree = new BinarySearchTree<>(ORDER);
+        for (Integer value : shuffled) {
+            tree.insert(value);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public TreeMap<Integer, Integer> insertRandomJdk() {
+        TreeMap<Integer, Integer> tree = new TreeMap<>(ORDER);
+        for (Integer value : shuffled) {
+            tree.put(value, value);
+        }
+        return tree;
+    }
+
+    // Entrada ya ordenada: el peor caso de un BST sin balancear
+    @Benchmark
+    public BinarySearchTree<Integer> insertSortedCustom() {
+        BinarySearchTree<Integer> tree = new BinarySearchTree<>(ORDER);
+        for (Integer value : sorted) {
+            tree.insert(value);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public TreeMap<Integer, Integer> insertSortedJdk() {
+        TreeMap<Integer, Integer> tree = new TreeMap<>(ORDER);
+        for (Integer value : sorted) {
+            tree.put(value, value);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public void searchCustom(Blackhole blackhole) {
+        for (Integer value : shuffled) {
+            blackhole.consume(customTree.searchObject(value));
+        }
+    }
+
+    @Benchmark
+    public void searchJdk(Blackhole blackhole) {
+        for (Integer value : shuffled) {
+            blackhole.consume(jdkTree.get(value));
+        }
+    }
+
+    @Benchmark
+    public int rangeQueryCustom() {
+        return customTree.rangeQuery(rangeFrom, rangeTo).size();
+    }
+
+    @Benchmark
+    public int rangeQueryJdk() {
+        return new java.util.ArrayList<>(jdkTree.subMap(rangeFrom, true, rangeTo, true).values()).size();
+    }
+
+    @Benchmark
+    public long inOrderCustom() {
+        long sum = 0;
+        for (Integer value : customTree) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long inOrderJdk() {
+        long sum = 0;
+        for (Integer value : jdkTree.keySet()) {
+            sum += value;
+        }
+        return sum;
+    }
+}
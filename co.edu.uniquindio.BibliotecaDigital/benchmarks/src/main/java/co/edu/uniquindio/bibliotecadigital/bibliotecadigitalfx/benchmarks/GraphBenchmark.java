@@ -0,0 +1,156 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.benchmarks;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structures.Graph contra una lista de adyacencia hecha con java.util
+ * (HashMap de HashSet), que es como estaba implementado el grafo antes.
+ * Grafo aleatorio no dirigido con grado promedio ~8.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+    private static final int EDGES_PER_VERTEX = 4;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Integer[] vertices;
+    private int[][] edges;
+    private Graph<Integer> customGraph;
+    private java.util.HashMap<Integer, Set<Integer>> jdkGraph;
+    private Integer source;
+    private Integer target;
+
+    @Setup
+    public void setup() {
+        vertices = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            vertices[i] = i;
+        }
+        edges = BenchmarkData.randomEdges(size, EDGES_PER_VERTEX);
+        customGraph = buildCustom();
+        jdkGraph = buildJdk();
+        source = vertices[0];
+        target = vertices[size - 1];
+    }
+
+    @Benchmark
+    public Graph<Integer> buildCustom() {
+        Graph<Integer> graph = new Graph<>();
+        for (Integer vertex : vertices) {
+            graph.addVertex(vertex);
+        }
+        for (int[] edge : edges) {
+            graph.addEdge(vertices[edge[0]], vertices[edge[1]]);
+        }
+        return graph;
+    }
+
+    @Benchmark
+    public java.util.HashMap<Integer, Set<Integer>> buildJdk() {
+        java.util.HashMap<Integer, Set<Integer>> graph = new java.util.HashMap<>();
+        for (Integer vertex : vertices) {
+            graph.put(vertex, new HashSet<>());
+        }
+        for (int[] edge : edges) {
+            graph.get(vertices[edge[0]]).add(vertices[edge[1]]);
+            graph.get(vertices[edge[1]]).add(vertices[edge[0]]);
+        }
+        return graph;
+    }
+
+    @Benchmark
+    public int shortestPathCustom() {
+        return customGraph.getShortestPath(source, target).getSize();
+    }
+
+    // BFS clásico con mapa de padres, el algoritmo que usaba el grafo con HashMap
+    @Benchmark
+    public int shortestPathJdk() {
+        java.util.HashMap<Integer, Integer> parents = new java.util.HashMap<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        parents.put(source, source);
+        queue.add(source);
+
+        while (!queue.isEmpty()) {
+            Integer current = queue.poll();
+            if (current.equals(target)) {
+                break;
+            }
+            for (Integer neighbor : jdkGraph.get(current)) {
+                if (!parents.containsKey(neighbor)) {
+                    parents.put(neighbor, current);
+                    queue.add(neighbor);
+                }
+            }
+        }
+
+        if (!parents.containsKey(target)) {
+            return 0;
+        }
+        int length = 1;
+        for (Integer step = target; !step.equals(source); step = parents.get(step)) {
+            length++;
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int connectedComponentsCustom() {
+        return customGraph.getConnectedComponents().getSize();
+    }
+
+    @Benchmark
+    public int connectedComponentsSnapshot() {
+        int[] labels = customGraph.snapshot().componentLabels();
+        int count = 0;
+        for (int label : labels) {
+            count = Math.max(count, label + 1);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int connectedComponentsJdk() {
+        Set<Integer> visited = new HashSet<>();
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        int components = 0;
+
+        for (Integer start : jdkGraph.keySet()) {
+            if (!visited.add(start)) {
+                continue;
+            }
+            components++;
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                for (Integer neighbor : jdkGraph.get(stack.pop())) {
+                    if (visited.add(neighbor)) {
+                        stack.push(neighbor);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+}
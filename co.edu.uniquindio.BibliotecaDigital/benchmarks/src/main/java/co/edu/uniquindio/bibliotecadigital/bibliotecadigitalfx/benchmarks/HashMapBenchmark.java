@@ -0,0 +1,99 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.benchmarks;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structures.HashMap contra java.util.HashMap: carga completa, búsquedas y recorrido.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashMapBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private String[] keys;
+    private HashMap<String, Integer> customMap;
+    private java.util.HashMap<String, Integer> jdkMap;
+
+    @Setup
+    public void setup() {
+        keys = BenchmarkData.stringKeys(size);
+        customMap = new HashMap<>();
+        jdkMap = new java.util.HashMap<>();
+        for (int i = 0; i < size; i++) {
+            customMap.put(keys[i], i);
+            jdkMap.put(keys[i], i);
+        }
+    }
+
+    @Benchmark
+    public HashMap<String, Integer> putCustom() {
+        HashMap<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public java.util.HashMap<String, Integer> putJdk() {
+        java.util.HashMap<String, Integer> map = new java.util.HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public void getCustom(Blackhole blackhole) {
+        for (String key : keys) {
+            blackhole.consume(customMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void getJdk(Blackhole blackhole) {
+        for (String key : keys) {
+            blackhole.consume(jdkMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public long iterateCustom() {
+        long sum = 0;
+        for (MapNode<String, Integer> entry : customMap.entries()) {
+            sum += entry.getValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long iterateJdk() {
+        long sum = 0;
+        for (Map.Entry<String, Integer> entry : jdkMap.entrySet()) {
+            sum += entry.getValue();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,139 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.benchmarks;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structures.LinkedList contra java.util.LinkedList y java.util.ArrayList:
+ * inserción al final, recorrido, búsqueda lineal y vaciado desde el inicio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinkedListBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Integer[] values;
+    private Integer missing;
+    private LinkedList<Integer> customList;
+    private java.util.LinkedList<Integer> jdkLinkedList;
+    private java.util.ArrayList<Integer> jdkArrayList;
+
+    @Setup
+    public void setup() {
+        values = BenchmarkData.shuffledKeys(size);
+        missing = size;
+        customList = new LinkedList<>();
+        jdkLinkedList = new java.util.LinkedList<>();
+        jdkArrayList = new java.util.ArrayList<>();
+        for (Integer value : values) {
+            customList.addEnd(value);
+            jdkLinkedList.add(value);
+            jdkArrayList.add(value);
+        }
+    }
+
+    @Benchmark
+    public LinkedList<Integer> addEndCustom() {
+        LinkedList<Integer> list = new LinkedList<>();
+        for (Integer value : values) {
+            list.addEnd(value);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public java.util.LinkedList<Integer> addEndJdkLinkedList() {
+        java.util.LinkedList<Integer> list = new java.util.LinkedList<>();
+        for (Integer value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public java.util.ArrayList<Integer> addEndJdkArrayList() {
+        java.util.ArrayList<Integer> list = new java.util.ArrayList<>();
+        for (Integer value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public long iterateCustom() {
+        long sum = 0;
+        for (Integer value : customList) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long iterateJdkLinkedList() {
+        long sum = 0;
+        for (Integer value : jdkLinkedList) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long iterateJdkArrayList() {
+        long sum = 0;
+        for (Integer value : jdkArrayList) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    // Peor caso de contains: el elemento no está y se recorre toda la lista
+    @Benchmark
+    public boolean containsMissingCustom() {
+        return customList.contains(missing);
+    }
+
+    @Benchmark
+    public boolean containsMissingJdkLinkedList() {
+        return jdkLinkedList.contains(missing);
+    }
+
+    @Benchmark
+    public int drainCustom() {
+        LinkedList<Integer> list = addEndCustom();
+        int count = 0;
+        while (!list.isEmpty()) {
+            list.deleteFirst();
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int drainJdkLinkedList() {
+        java.util.LinkedList<Integer> list = addEndJdkLinkedList();
+        int count = 0;
+        while (!list.isEmpty()) {
+            list.removeFirst();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,92 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.benchmarks;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.PriorityQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structures.PriorityQueue contra java.util.PriorityQueue. Para que la comparación
+ * sea justa la cola del JDK también desempata por orden de llegada (FIFO).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriorityQueueBenchmark {
+    // Prioridad y luego orden de llegada, igual que la cola propia
+    record Entry(Integer element, int priority, long sequence) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byPriority = Integer.compare(priority, other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Integer[] elements;
+    private int[] priorities;
+
+    @Setup
+    public void setup() {
+        elements = BenchmarkData.shuffledKeys(size);
+        priorities = BenchmarkData.priorities(size);
+    }
+
+    @Benchmark
+    public long enqueueDequeueCustom() {
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        for (int i = 0; i < size; i++) {
+            queue.enqueue(elements[i], priorities[i]);
+        }
+        long sum = 0;
+        while (!queue.isEmpty()) {
+            sum += queue.dequeue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long enqueueDequeueJdk() {
+        java.util.PriorityQueue<Entry> queue = new java.util.PriorityQueue<>();
+        for (int i = 0; i < size; i++) {
+            queue.add(new Entry(elements[i], priorities[i], i));
+        }
+        long sum = 0;
+        while (!queue.isEmpty()) {
+            sum += queue.poll().element();
+        }
+        return sum;
+    }
+
+    // Construcción en bloque: heapify O(n) contra el constructor por colección del JDK
+    @Benchmark
+    public PriorityQueue<Integer> heapifyCustom() {
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        queue.heapify(java.util.Arrays.asList(elements), element -> priorities[element]);
+        return queue;
+    }
+
+    @Benchmark
+    public java.util.PriorityQueue<Entry> heapifyJdk() {
+        java.util.ArrayList<Entry> entries = new java.util.ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(elements[i], priorities[elements[i]], i));
+        }
+        return new java.util.PriorityQueue<>(entries);
+    }
+}
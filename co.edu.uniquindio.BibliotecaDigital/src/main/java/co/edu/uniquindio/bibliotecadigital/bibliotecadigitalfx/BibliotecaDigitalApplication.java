@@ -4,6 +4,7 @@ import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Controller.LoginC
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Controller.ReaderController;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Library;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.GroupCommitWriter;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.Persistence;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -26,6 +27,13 @@ public class BibliotecaDigitalApplication extends Application {
         mostrarLogin();
     }
 
+    @Override
+    public void stop() {
+        // Cierre limpio: lo encolado llega a disco y la foto binaria queda al día para el próximo arranque
+        GroupCommitWriter.flushAll();
+        Library.getInstance().saveSnapshot();
+    }
+
     public static void mostrarLogin() throws IOException {
         FXMLLoader loader = new FXMLLoader(BibliotecaDigitalApplication.class.getResource("/co/edu/uniquindio/bibliotecadigital/bibliotecadigitalfx/Login.fxml"));
         Parent root = loader.load();
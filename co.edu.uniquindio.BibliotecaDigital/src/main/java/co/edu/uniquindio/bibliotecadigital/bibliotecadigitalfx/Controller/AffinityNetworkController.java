@@ -86,6 +86,23 @@ public class AffinityNetworkController {
         createAdditionalControls();
         setupGraphVisualization();
         startLayoutSimulation();
+
+        // La primera construcción del grafo puede seguir en curso: redibujar cuando termine
+        if (affinitySystem != null && !affinitySystem.isReady()) {
+            affinitySystem.ready().whenComplete((snapshot, error) -> javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    System.err.println("❌ Error construyendo el grafo de afinidad: " + error.getMessage());
+                    return;
+                }
+                if (simulationRunning && simulationTimer != null) {
+                    simulationTimer.stop();
+                    simulationRunning = false;
+                }
+                this.affinityGraph = snapshot.getGraph();
+                setupGraphVisualization();
+                startLayoutSimulation();
+            }));
+        }
     }
 
     /**
@@ -96,7 +113,7 @@ public class AffinityNetworkController {
             this.library = Library.getInstance();
 
             // CORRECCIÓN: Recrear sistema de afinidad con datos frescos
-            this.affinitySystem = new AffinitySystem(library);
+            this.affinitySystem = library.getAffinitySystem();
             this.affinityGraph = affinitySystem.getAffinityGraph();
 
             System.out.println("📊 Visualización de red de afinidad inicializada");
@@ -118,22 +135,29 @@ public class AffinityNetworkController {
                 simulationRunning = false;
             }
 
-            // CORRECCIÓN: Recrear sistema de afinidad desde cero
-            this.affinitySystem = new AffinitySystem(library);
-            this.affinityGraph = affinitySystem.getAffinityGraph();
+            // CORRECCIÓN: Recalcular el grafo de afinidad desde cero, en segundo plano
+            this.affinitySystem = library.getAffinitySystem();
+            affinitySystem.refreshAsync().whenComplete((snapshot, error) -> javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    System.err.println("❌ Error en refreshVisualization: " + error.getMessage());
+                    showAlert("Error", "Error actualizando el grafo: " + error.getMessage());
+                    return;
+                }
+                this.affinityGraph = snapshot.getGraph();
 
-            // Recrear visualización
-            setupGraphVisualization();
-            startLayoutSimulation();
+                // Recrear visualización
+                setupGraphVisualization();
+                startLayoutSimulation();
 
-            // Animación de entrada
-            javafx.animation.FadeTransition fadeIn = new javafx.animation.FadeTransition(
-                    javafx.util.Duration.millis(500), PaneGraph);
-            fadeIn.setFromValue(0.5);
-            fadeIn.setToValue(1.0);
-            fadeIn.play();
+                // Animación de entrada
+                javafx.animation.FadeTransition fadeIn = new javafx.animation.FadeTransition(
+                        javafx.util.Duration.millis(500), PaneGraph);
+                fadeIn.setFromValue(0.5);
+                fadeIn.setToValue(1.0);
+                fadeIn.play();
 
-            System.out.println("✅ Grafo actualizado desde refreshVisualization");
+                System.out.println("✅ Grafo actualizado desde refreshVisualization");
+            }));
 
         } catch (Exception e) {
             System.err.println("❌ Error en refreshVisualization: " + e.getMessage());
@@ -513,8 +537,7 @@ public class AffinityNetworkController {
             circle = new Circle(x, y, NODE_RADIUS);
 
             // Color basado en número de conexiones
-            HashSet<Reader> connections = affinityGraph.getAdjacentVertices(reader);
-            int connectionCount = connections != null ? connections.size() : 0;
+            int connectionCount = affinityGraph.degree(reader);
 
             Color nodeColor = getNodeColor(connectionCount);
             circle.setFill(nodeColor);
@@ -540,8 +563,7 @@ public class AffinityNetworkController {
         }
 
         private String createTooltipText() {
-            HashSet<Reader> connections = affinityGraph.getAdjacentVertices(reader);
-            int connectionCount = connections != null ? connections.size() : 0;
+            int connectionCount = affinityGraph.degree(reader);
             int booksRead = reader.getLoanHistoryList().getSize();
             int ratingsGiven = reader.getRatingsList().getSize();
 
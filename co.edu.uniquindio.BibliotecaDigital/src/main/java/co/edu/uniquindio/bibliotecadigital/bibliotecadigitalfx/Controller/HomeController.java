@@ -134,16 +134,8 @@ public class HomeController {
                 return;
             }
 
-            Set<Book> result = new LinkedHashSet<>();
-
-            // Búsqueda parcial por título
-            result.addAll(library.getTitleTree().searchPartialMatches(newText.toLowerCase(), Book::getTitle));
-
-            // Búsqueda parcial por autor
-            result.addAll(library.getAuthorTree().searchPartialMatches(newText.toLowerCase(), Book::getAuthor));
-
-            // Búsqueda parcial por categoría
-            result.addAll(library.getCategoryTree().searchPartialMatches(newText.toLowerCase(), Book::getCategory));
+            // Búsqueda parcial por título, autor y categoría usando el índice de texto
+            List<Book> result = library.searchBooks(newText);
 
             listBooks.clear(); // <- limpia la lista antes de actualizarla
             listBooks.setAll(result);
@@ -283,8 +275,8 @@ public class HomeController {
             HashMap<String, Persistence.LoanRecord> activeLoans = persistence.loadActiveLoans();
             LinkedList<String> loanKeys = activeLoans.keySet();
 
-            for (int i = 0; i < loanKeys.getSize(); i++) {
-                Persistence.LoanRecord loanRecord = activeLoans.get(loanKeys.getAmountNodo(i));
+            for (String loanKey : loanKeys) {
+                Persistence.LoanRecord loanRecord = activeLoans.get(loanKey);
                 String bookId = loanRecord.getBook().getIdBook();
                 if (updatedBooks.containsKey(bookId)) {
                     updatedBooks.get(bookId).setStatus(BookStatus.CHECKED_OUT);
@@ -293,19 +285,14 @@ public class HomeController {
 
             // Actualizar estructuras de la biblioteca
             library.getBooks().clear();
-            library.getTitleTree().clear();
-            library.getAuthorTree().clear();
-            library.getCategoryTree().clear();
+            library.clearBookIndexes();
 
             LinkedList<String> bookKeys = updatedBooks.keySet();
-            for (int i = 0; i < bookKeys.getSize(); i++) {
-                String key = bookKeys.getAmountNodo(i);
+            for (String key : bookKeys) {
                 Book book = updatedBooks.get(key);
 
                 library.getBooks().put(key, book);
-                library.getTitleTree().insert(book);
-                library.getAuthorTree().insert(book);
-                library.getCategoryTree().insert(book);
+                library.indexBook(book);
             }
 
             // Recargar la tabla
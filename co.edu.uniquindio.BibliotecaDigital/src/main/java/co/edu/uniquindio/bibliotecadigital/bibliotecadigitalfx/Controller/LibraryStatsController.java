@@ -4,7 +4,10 @@ import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Book;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Library;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service.AffinitySystem;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.Persistence;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.RatingColumnStore;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -12,9 +15,6 @@ import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
 import java.net.URL;
 import java.util.HashSet;
 import java.util.ResourceBundle;
@@ -110,7 +110,7 @@ public class LibraryStatsController {
             library.forceRefreshAllData();
 
             // Recrear el sistema de afinidad con datos frescos
-            this.affinitySystem = new AffinitySystem(library);
+            this.affinitySystem = library.getAffinitySystem();
 
             // Actualizar todas las interfaces
             setupComboBoxes();
@@ -127,13 +127,25 @@ public class LibraryStatsController {
     @FXML
     void initialize() {
         library = Library.getInstance();
-        affinitySystem = new AffinitySystem(library);
+        affinitySystem = library.getAffinitySystem();
 
         setupTableColumns();
         loadAllStatistics();
         setupComboBoxes();
         setupFilterListener();
 
+        // La primera construcción del grafo puede seguir en curso: recargar cuando termine
+        if (!affinitySystem.isReady()) {
+            affinitySystem.ready().whenComplete((snapshot, error) -> javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    System.err.println("❌ Error construyendo el grafo de afinidad: " + error.getMessage());
+                    return;
+                }
+                loadAllStatistics();
+                setupComboBoxes();
+            }));
+        }
+
         // CORRECCIÓN: Registrar este controlador
         ControllerRegistry.getInstance().registerController("LibraryStatsController", this);
     }
@@ -188,23 +200,15 @@ public class LibraryStatsController {
      * Complejidad: O(n log n) donde n es el número de lectores
      */
     private void loadLoanStatistics() {
-        String rutaArchivo = "src/main/resources/Archivos/Loans/Loans.txt";
         java.util.HashMap<String, Integer> conteoPrestamos = new java.util.HashMap<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(rutaArchivo))) {
-            String linea;
-            while ((linea = br.readLine()) != null) {
-                if (linea.startsWith("#") || linea.trim().isEmpty()) continue;
-
-                String[] partes = linea.split(",");
-                if (partes.length >= 1) {
-                    String correo = partes[0].trim();
-                    conteoPrestamos.put(correo, conteoPrestamos.getOrDefault(correo, 0) + 1);
-                }
+        // Préstamos vigentes con la bitácora aplicada, no solo la foto de Loans.txt
+        for (String linea : new Persistence().activeLoanLines()) {
+            String[] partes = linea.split(",");
+            if (partes.length >= 1) {
+                String correo = partes[0].trim();
+                conteoPrestamos.put(correo, conteoPrestamos.getOrDefault(correo, 0) + 1);
             }
-        } catch (IOException e) {
-            System.err.println("❌ Error leyendo préstamos: " + e.getMessage());
-            return;
         }
 
         // Convertir a lista de LoanStatistic
@@ -227,28 +231,9 @@ public class LibraryStatsController {
      * Conceptos: Manejo de promedios y ordenamiento por múltiples criterios
      */
     private void loadRatingStatistics() {
-        String rutaArchivo = "src/main/resources/Archivos/Ratings/Ratings.txt";
-        java.util.HashMap<String, java.util.List<Integer>> mapaValoraciones = new java.util.HashMap<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(rutaArchivo))) {
-            String linea;
-            while ((linea = br.readLine()) != null) {
-                if (linea.startsWith("#") || linea.trim().isEmpty()) continue;
-
-                String[] partes = linea.split(",");
-                if (partes.length >= 3) {
-                    String idLibro = partes[1].trim();
-                    int estrellas = Integer.parseInt(partes[2].trim());
-
-                    mapaValoraciones
-                            .computeIfAbsent(idLibro, k -> new java.util.ArrayList<>())
-                            .add(estrellas);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("❌ Error leyendo valoraciones: " + e.getMessage());
-            return;
-        }
+        // Promedios por libro en un solo recorrido de las columnas de valoraciones
+        RatingColumnStore columnas = library.getRatingColumns();
+        double[] promedios = columnas.averageByBook();
 
         // Obtener títulos desde la lista de libros actual (usamos el modelo para el título solamente)
         java.util.HashMap<String, String> mapaTitulos = new java.util.HashMap<>();
@@ -259,11 +244,10 @@ public class LibraryStatsController {
         // Convertir a lista de RatingStatistic con promedio
         ObservableList<RatingStatistic> stats = FXCollections.observableArrayList();
 
-        for (String idLibro : mapaValoraciones.keySet()) {
-            java.util.List<Integer> estrellas = mapaValoraciones.get(idLibro);
-            double promedio = estrellas.stream().mapToInt(i -> i).average().orElse(0.0);
+        for (int libro = 0; libro < columnas.bookCount(); libro++) {
+            String idLibro = columnas.bookKey(libro);
             String titulo = mapaTitulos.getOrDefault(idLibro, "Libro " + idLibro);
-            stats.add(new RatingStatistic(titulo, promedio));
+            stats.add(new RatingStatistic(titulo, promedios[libro]));
         }
 
         // Ordenar de mayor a menor
@@ -279,13 +263,12 @@ public class LibraryStatsController {
      * Aplicación directa de teoría de grafos: análisis de grado de vértices
      */
     private void loadConnectionStatistics(){
-        LinkedList<Reader> readers = library.getReadersList();
+        ArrayList<Reader> readers = library.getReadersList();
         LinkedList<ConnectionStatistic> connectionStats = new LinkedList<>();
 
         for (Reader reader : readers) {
             // Obtener número de conexiones del grafo
-            HashSet<Reader> connections = affinitySystem.getAffinityGraph().getAdjacentVertices(reader);
-            int connectionCount = connections != null ? connections.size() : 0;
+            int connectionCount = affinitySystem.getAffinityGraph().degree(reader);
 
             connectionStats.add(new ConnectionStatistic(reader.getName(), connectionCount));
         }
@@ -312,12 +295,13 @@ public class LibraryStatsController {
         LinkedList<HashSet<Reader>> clusters = affinitySystem.detectAffinityClusters();
         ObservableList<String> clusterDescriptions = FXCollections.observableArrayList();
 
-        for (int i = 0; i < clusters.getSize(); i++) {
-            HashSet<Reader> cluster = clusters.getAmountNodo(i);
+        int clusterNumber = 0;
+        for (HashSet<Reader> cluster : clusters) {
+            clusterNumber++;
 
             if (cluster.size() > 1) { // Solo mostrar clústeres con más de 1 miembro
                 StringBuilder description = new StringBuilder();
-                description.append("Clúster ").append(i + 1).append(" (").append(cluster.size()).append(" miembros): ");
+                description.append("Clúster ").append(clusterNumber).append(" (").append(cluster.size()).append(" miembros): ");
 
                 boolean first = true;
                 for (Reader reader : cluster) {
@@ -341,7 +325,7 @@ public class LibraryStatsController {
      * Configura los ComboBox para selección de lectores
      */
     private void setupComboBoxes() {
-        LinkedList<Reader> readers = library.getReadersList();
+        ArrayList<Reader> readers = library.getReadersList();
         ObservableList<Reader> readerList = FXCollections.observableArrayList();
 
         for (Reader reader : readers) {
@@ -415,7 +399,7 @@ public class LibraryStatsController {
             System.out.println("🔄 Refrescando estadísticas después de cargar valoraciones...");
 
             // Recrear sistema de afinidad porque las valoraciones pueden cambiar las conexiones
-            this.affinitySystem = new AffinitySystem(library);
+            this.affinitySystem = library.getAffinitySystem();
 
             // Recargar todas las estadísticas
             loadAllStatistics();
@@ -433,15 +417,20 @@ public class LibraryStatsController {
         try {
             System.out.println("🔄 Refrescando grafo después de cargar conexiones...");
 
-            // Recrear sistema de afinidad
-            this.affinitySystem = new AffinitySystem(library);
-
-            // Recargar estadísticas que dependen del grafo
-            loadConnectionStatistics();
-            loadClusterStatistics();
-            setupComboBoxes();
+            // Recalcular el grafo con las conexiones cargadas, en segundo plano
+            this.affinitySystem = library.getAffinitySystem();
+            affinitySystem.refreshAsync().whenComplete((snapshot, error) -> javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    System.err.println("❌ Error refrescando grafo: " + error.getMessage());
+                    return;
+                }
+                // Recargar estadísticas que dependen del grafo
+                loadConnectionStatistics();
+                loadClusterStatistics();
+                setupComboBoxes();
 
-            System.out.println("✅ Grafo actualizado tras cargar conexiones");
+                System.out.println("✅ Grafo actualizado tras cargar conexiones");
+            }));
 
         } catch (Exception e) {
             System.err.println("❌ Error refrescando grafo: " + e.getMessage());
@@ -505,24 +494,27 @@ public class LibraryStatsController {
 
     private LoanStatistic[] convertToArray(LinkedList<LoanStatistic> list) {
         LoanStatistic[] array = new LoanStatistic[list.getSize()];
-        for (int i = 0; i < list.getSize(); i++) {
-            array[i] = list.getAmountNodo(i);
+        int i = 0;
+        for (LoanStatistic stat : list) {
+            array[i++] = stat;
         }
         return array;
     }
 
     private RatingStatistic[] convertRatingToArray(LinkedList<RatingStatistic> list) {
         RatingStatistic[] array = new RatingStatistic[list.getSize()];
-        for (int i = 0; i < list.getSize(); i++) {
-            array[i] = list.getAmountNodo(i);
+        int i = 0;
+        for (RatingStatistic stat : list) {
+            array[i++] = stat;
         }
         return array;
     }
 
     private ConnectionStatistic[] convertConnectionToArray(LinkedList<ConnectionStatistic> list) {
         ConnectionStatistic[] array = new ConnectionStatistic[list.getSize()];
-        for (int i = 0; i < list.getSize(); i++) {
-            array[i] = list.getAmountNodo(i);
+        int i = 0;
+        for (ConnectionStatistic stat : list) {
+            array[i++] = stat;
         }
         return array;
     }
@@ -8,10 +8,14 @@ import java.net.URL;
 import java.util.ResourceBundle;
 
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Library;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.ImportPipeline;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.stage.FileChooser;
 
 public class LoadDataController {
@@ -24,6 +28,15 @@ public class LoadDataController {
     @FXML
     private Button btnLoadData;
 
+    @FXML
+    private ProgressBar importProgress;
+
+    @FXML
+    private Label lblImportStatus;
+
+    // Importación en curso (null si no hay ninguna)
+    private ImportPipeline currentImport;
+
     // Interfaz funcional para notificar actualizaciones
     public interface DataLoadListener {
         void onDataLoaded();
@@ -37,6 +50,14 @@ public class LoadDataController {
 
     @FXML
     void onLoadData(ActionEvent event) {
+        // Mientras hay una importación en curso, el botón la cancela
+        if (currentImport != null) {
+            currentImport.cancel();
+            lblImportStatus.textProperty().unbind();
+            lblImportStatus.setText("Cancelando...");
+            return;
+        }
+
         FileChooser fileChooser = createFileChooser();
         File selectedFile = fileChooser.showOpenDialog(btnLoadData.getScene().getWindow());
 
@@ -171,33 +192,15 @@ public class LoadDataController {
                 return;
             }
 
-            String fileName = selectedFile.getName().toLowerCase();
-            String dataType = determineFileType(fileName);
-
-            System.out.println("🔍 Procesando archivo: " + fileName + " (Tipo: " + dataType + ")");
-
-            // Procesar el archivo
             Library library = Library.getInstance();
-            String result = library.loadDataFromFile(selectedFile);
-
-            // CORRECCIÓN: Forzar actualización de la biblioteca
-            if (result.contains("Se cargaron") && !result.contains("0 ")) {
-                // Solo si realmente se cargaron datos
-                library.forceRefreshAllData();
-
-                // Esperar un momento para que los datos se establezcan
-                Thread.sleep(500);
-
-                // CORRECCIÓN: Notificación específica de controladores
-                notifySpecificControllers(dataType);
-
-                // Mostrar resultado
-                showAlert("Resultado de la carga", result + "\n\n✅ Interfaces actualizadas correctamente.");
-            } else {
-                showAlert("Resultado de la carga", result);
+            ImportPipeline pipeline = library.prepareImport(selectedFile);
+            if (pipeline == null) {
+                showAlert("Resultado de la carga", "⚠️ No se pudo detectar el tipo de datos de " + selectedFile.getName());
+                return;
             }
 
-            System.out.println("✅ Archivo procesado exitosamente: " + selectedFile.getName());
+            System.out.println("🔍 Procesando archivo: " + selectedFile.getName() + " (Tipo: " + pipeline.getDataType() + ")");
+            startImport(library, pipeline);
 
         } catch (Exception e) {
             showAlert("Error", "Ocurrió un error al procesar el archivo: " + e.getMessage());
@@ -206,22 +209,60 @@ public class LoadDataController {
     }
 
     /**
-     * NUEVO: Determina el tipo de archivo basándose en el nombre
+     * La importación corre en un hilo aparte; mientras dura, la barra muestra el
+     * avance y el botón sirve para cancelarla. Al terminar, la biblioteca se
+     * actualiza una sola vez y se notifica solo a los controladores afectados.
      */
-    private String determineFileType(String fileName) {
-        if (fileName.contains("lector") || fileName.contains("reader")) {
-            return "readers";
-        } else if (fileName.contains("libro") || fileName.contains("book")) {
-            return "books";
-        } else if (fileName.contains("valoracion") || fileName.contains("rating") || fileName.contains("calificacion")) {
-            return "ratings";
-        } else if (fileName.contains("conexion") || fileName.contains("connection")) {
-            return "connections";
-        } else if (fileName.contains("admin")) {
-            return "admins";
-        } else {
-            return "auto";
-        }
+    private void startImport(Library library, ImportPipeline pipeline) {
+        Task<ImportPipeline.Result> task = new Task<>() {
+            @Override
+            protected ImportPipeline.Result call() throws Exception {
+                pipeline.setProgressListener(progress -> {
+                    updateProgress(progress.getFraction(), 1.0);
+                    updateMessage(progress.getSaved() + " guardados, " + progress.getRejected() + " omitidos");
+                });
+                return pipeline.run();
+            }
+        };
+
+        task.setOnSucceeded(event -> {
+            finishImportUi();
+            ImportPipeline.Result importResult = task.getValue();
+            String result = library.finishImport(pipeline, importResult);
+
+            if (importResult.getAccepted() > 0) {
+                notifySpecificControllers(pipeline.getDataType());
+                result += "\n\n✅ Interfaces actualizadas correctamente.";
+            }
+            showAlert("Resultado de la carga", result);
+            System.out.println("✅ Archivo procesado exitosamente: " + pipeline.getFile().getName());
+        });
+
+        task.setOnFailed(event -> {
+            finishImportUi();
+            Throwable error = task.getException();
+            showAlert("Error", "Ocurrió un error al procesar el archivo: " + error.getMessage());
+            System.err.println("❌ Error en la importación: " + error.getMessage());
+        });
+
+        currentImport = pipeline;
+        btnLoadData.setText("Cancelar");
+        importProgress.setVisible(true);
+        importProgress.progressProperty().bind(task.progressProperty());
+        lblImportStatus.textProperty().bind(task.messageProperty());
+
+        Thread worker = new Thread(task, "import-" + pipeline.getDataType());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void finishImportUi() {
+        currentImport = null;
+        btnLoadData.setText("Cargar datos");
+        importProgress.progressProperty().unbind();
+        importProgress.setVisible(false);
+        lblImportStatus.textProperty().unbind();
+        lblImportStatus.setText("");
     }
 
     /**
@@ -1,18 +1,15 @@
 package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Controller;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
 import java.net.URL;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ResourceBundle;
-import java.util.Set;
 
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Enum.BookStatus;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Book;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Library;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.Persistence;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.RatingColumnStore;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -175,49 +172,25 @@ public class ManageBooksController {
 
     private java.util.Set<String> obtenerIdsPrestados() {
         java.util.Set<String> librosPrestados = new java.util.HashSet<>();
-        String ruta = "src/main/resources/Archivos/Loans/Loans.txt";
-
-        try (BufferedReader br = new BufferedReader(new FileReader(ruta))) {
-            String linea;
-            while ((linea = br.readLine()) != null) {
-                if (linea.startsWith("#") || linea.trim().isEmpty()) continue;
-                String[] partes = linea.split(",");
-                if (partes.length >= 2) {
-                    librosPrestados.add(partes[1].trim()); // ID libro
-                }
+
+        // Préstamos vigentes con la bitácora aplicada, no solo la foto de Loans.txt
+        for (String linea : new Persistence().activeLoanLines()) {
+            String[] partes = linea.split(",");
+            if (partes.length >= 2) {
+                librosPrestados.add(partes[1].trim()); // ID libro
             }
-        } catch (IOException e) {
-            System.err.println("❌ Error leyendo Loans.txt: " + e.getMessage());
         }
 
         return librosPrestados;
     }
 
     private java.util.Map<String, Double> obtenerPromediosValoraciones() {
-        java.util.Map<String, java.util.List<Integer>> acumulados = new java.util.HashMap<>();
-        String ruta = "src/main/resources/Archivos/Ratings/Ratings.txt";
-
-        try (BufferedReader br = new BufferedReader(new FileReader(ruta))) {
-            String linea;
-            while ((linea = br.readLine()) != null) {
-                if (linea.startsWith("#") || linea.trim().isEmpty()) continue;
-                String[] partes = linea.split(",");
-                if (partes.length >= 3) {
-                    String idLibro = partes[1].trim();
-                    int rating = Integer.parseInt(partes[2].trim());
-
-                    acumulados.computeIfAbsent(idLibro, k -> new java.util.ArrayList<>()).add(rating);
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("❌ Error leyendo Ratings.txt: " + e.getMessage());
-        }
+        RatingColumnStore columnas = Library.getInstance().getRatingColumns();
+        double[] promediosPorLibro = columnas.averageByBook();
 
         java.util.Map<String, Double> promedios = new java.util.HashMap<>();
-        for (String id : acumulados.keySet()) {
-            List<Integer> valores = acumulados.get(id);
-            double promedio = valores.stream().mapToInt(i -> i).average().orElse(0.0);
-            promedios.put(id, promedio);
+        for (int libro = 0; libro < columnas.bookCount(); libro++) {
+            promedios.put(columnas.bookKey(libro), promediosPorLibro[libro]);
         }
 
         return promedios;
@@ -342,16 +315,8 @@ public class ManageBooksController {
                 return;
             }
 
-            Set<Book> result = new LinkedHashSet<>();
-
-            // Búsqueda parcial por título
-            result.addAll(library.getTitleTree().searchPartialMatches(newText.toLowerCase(), Book::getTitle));
-
-            // Búsqueda parcial por autor
-            result.addAll(library.getAuthorTree().searchPartialMatches(newText.toLowerCase(), Book::getAuthor));
-
-            // Búsqueda parcial por categoría
-            result.addAll(library.getCategoryTree().searchPartialMatches(newText.toLowerCase(), Book::getCategory));
+            // Búsqueda parcial por título, autor y categoría usando el índice de texto
+            List<Book> result = library.searchBooks(newText);
 
             tableBook.getItems().clear();
             tableBook.getItems().addAll(result);
@@ -69,6 +69,17 @@ public class MessagesController {
         setupContactsList();
         setupMessageInterface();
         startMessagePolling();
+
+        // La primera construcción del grafo puede seguir en curso: recargar contactos cuando termine
+        if (affinitySystem != null && !affinitySystem.isReady()) {
+            affinitySystem.ready().whenComplete((snapshot, error) -> javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    System.err.println("❌ Error construyendo el grafo de afinidad: " + error.getMessage());
+                    return;
+                }
+                setupContactsList();
+            }));
+        }
     }
 
     /**
@@ -83,7 +94,7 @@ public class MessagesController {
             if (currentUser instanceof Reader) {
                 this.currentReader = (Reader) currentUser;
                 this.library = Library.getInstance();
-                this.affinitySystem = new AffinitySystem(library);
+                this.affinitySystem = library.getAffinitySystem();
 
                 System.out.println("Sistema de mensajería inicializado para: " + currentReader.getName());
             } else {
@@ -136,8 +147,8 @@ public class MessagesController {
             }
         });
 
-        // Mostrar mensaje si no hay contactos
-        if (contacts.isEmpty()) {
+        // Mostrar mensaje si no hay contactos (no mientras el grafo todavía se construye)
+        if (contacts.isEmpty() && affinitySystem.isReady()) {
             showAlert("Información",
                     "No tienes contactos disponibles para mensajería. " +
                             "Conecta con otros lectores a través del sistema de afinidad.");
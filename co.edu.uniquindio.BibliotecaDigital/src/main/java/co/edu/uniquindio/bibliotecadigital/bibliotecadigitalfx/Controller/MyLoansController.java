@@ -350,8 +350,7 @@ public class MyLoansController {
             LinkedList<String> loanKeys = activeLoans.keySet();
             int loansForCurrentUser = 0;
 
-            for (int i = 0; i < loanKeys.getSize(); i++) {
-                String key = loanKeys.getAmountNodo(i);
+            for (String key : loanKeys) {
                 Persistence.LoanRecord loanRecord = activeLoans.get(key);
 
                 // VERIFICACIÓN EXTRA: Comparar username exactamente
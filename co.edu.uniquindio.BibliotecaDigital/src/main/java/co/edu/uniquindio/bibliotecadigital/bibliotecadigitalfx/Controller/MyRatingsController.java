@@ -237,21 +237,20 @@ public class MyRatingsController {
 
             // CORRECCIÓN 1: Sincronizar con persistencia primero
             Persistence persistence = new Persistence();
-            HashMap<String, Rating> allRatings = persistence.loadRatings();
+            // Solo las valoraciones de este lector (recorrido por rango con el almacenamiento indexado)
+            HashMap<String, Rating> userRatings = persistence.loadRatingsOf(currentReader);
 
             // CORRECCIÓN 2: Limpiar lista del reader y recargar desde persistencia
             currentReader.getRatingsList().clear();
 
-            // CORRECCIÓN 3: Filtrar valoraciones del usuario actual
-            LinkedList<String> ratingKeys = allRatings.keySet();
+            // CORRECCIÓN 3: Recorrer las valoraciones del usuario actual
+            LinkedList<String> ratingKeys = userRatings.keySet();
             int userRatingsCount = 0;
 
-            for (int i = 0; i < ratingKeys.getSize(); i++) {
-                String key = ratingKeys.getAmountNodo(i);
-                Rating rating = allRatings.get(key);
+            for (String key : ratingKeys) {
+                Rating rating = userRatings.get(key);
 
-                if (rating != null && rating.getReader() != null &&
-                        rating.getReader().getUsername().equals(currentReader.getUsername())) {
+                if (rating != null && rating.getReader() != null) {
 
                     // Agregar a la lista del reader
                     currentReader.getRatingsList().add(rating);
@@ -430,6 +429,9 @@ public class MyRatingsController {
         if (confirmation.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
             try {
                 currentReader.getRatingsList().delete(rating);
+                if (library != null) {
+                    library.ratingRemoved(rating);
+                }
 
                 showAlert("Valoración Eliminada",
                         "La valoración de \"" + rating.getBook().getTitle() + "\" ha sido eliminada.");
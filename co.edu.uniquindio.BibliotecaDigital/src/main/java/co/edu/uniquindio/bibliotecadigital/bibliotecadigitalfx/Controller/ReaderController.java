@@ -117,14 +117,7 @@ public class ReaderController {
         String message = messageTextArea.getText();
         String recipientUsername = friendsListView.getSelectionModel().getSelectedItem();
         if (recipientUsername != null && !message.isEmpty() && library != null) {
-            Reader recipient = null;
-            for (int i = 0; i < library.getReadersList().getSize(); i++) {
-                Reader r = library.getReadersList().getAmountNodo(i);
-                if (r.getUsername().equals(recipientUsername)) {
-                    recipient = r;
-                    break;
-                }
-            }
+            Reader recipient = library.getReaderByUsername(recipientUsername);
             if (recipient != null) {
                 reader.sendMessage(recipient, message);
             }
@@ -61,6 +61,17 @@ public class SuggestedFriendsController {
 
         // Cargar sugerencias
         loadSuggestedFriends();
+
+        // La primera construcción del grafo puede seguir en curso: recargar cuando termine
+        if (affinitySystem != null && !affinitySystem.isReady()) {
+            affinitySystem.ready().whenComplete((snapshot, error) -> javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    System.err.println("❌ Error construyendo el grafo de afinidad: " + error.getMessage());
+                    return;
+                }
+                loadSuggestedFriends();
+            }));
+        }
     }
 
     /**
@@ -139,7 +150,7 @@ public class SuggestedFriendsController {
             if (currentUser instanceof Reader) {
                 this.currentReader = (Reader) currentUser;
                 this.library = Library.getInstance();
-                this.affinitySystem = new AffinitySystem(library);
+                this.affinitySystem = library.getAffinitySystem();
             } else {
                 showAlert("Error", "Solo los lectores pueden ver sugerencias de amigos.");
             }
@@ -234,8 +245,14 @@ public class SuggestedFriendsController {
      */
     public void refreshSuggestions() {
         if (affinitySystem != null) {
-            affinitySystem.updateAffinityGraph();
-            loadSuggestedFriends();
+            // Mientras se recalcula se siguen mostrando las sugerencias de la versión anterior
+            affinitySystem.refreshAsync().whenComplete((snapshot, error) -> javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    showAlert("Error", "No se pudo actualizar el grafo de afinidad: " + error.getMessage());
+                    return;
+                }
+                loadSuggestedFriends();
+            }));
         }
     }
 
@@ -257,7 +274,7 @@ public class SuggestedFriendsController {
     public void setCurrentReader(Reader reader) {
         this.currentReader = reader;
         this.library = Library.getInstance();
-        this.affinitySystem = new AffinitySystem(library);
+        this.affinitySystem = library.getAffinitySystem();
 
         // Recargar sugerencias con el nuevo usuario
         if (lvSuggestedFriends != null) {
@@ -1,15 +1,12 @@
 package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Controller;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
 
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Book;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Library;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
-import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.Persistence;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -229,7 +226,7 @@ public class UserManagementController {
             }
 
             Library library = Library.getInstance();
-            LinkedList<Reader> allReaders = library.getReaders();
+            ArrayList<Reader> allReaders = library.getReaders();
             ObservableList<Reader> filteredList = FXCollections.observableArrayList();
 
             String filter = filterText.toLowerCase().trim();
@@ -253,7 +250,7 @@ public class UserManagementController {
     public void loadReadersTable() {
         try {
             Library library = Library.getInstance();
-            LinkedList<Reader> readers = library.getReaders();
+            ArrayList<Reader> readers = library.getReaders();
             ObservableList<Reader> readersList = FXCollections.observableArrayList();
 
             // Obtener mapa de préstamos
@@ -281,22 +278,15 @@ public class UserManagementController {
     }
 
     private java.util.Map<String, Integer> obtenerPrestamosDesdeArchivo() {
-        String rutaArchivo = "src/main/resources/Archivos/Loans/Loans.txt";
         java.util.Map<String, Integer> prestamosPorUsuario = new java.util.HashMap<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(rutaArchivo))) {
-            String linea;
-            while ((linea = br.readLine()) != null) {
-                if (linea.startsWith("#") || linea.trim().isEmpty()) continue;
-
-                String[] partes = linea.split(",");
-                if (partes.length >= 1) {
-                    String correo = partes[0].trim();
-                    prestamosPorUsuario.put(correo, prestamosPorUsuario.getOrDefault(correo, 0) + 1);
-                }
+        // Préstamos vigentes con la bitácora aplicada, no solo la foto de Loans.txt
+        for (String linea : new Persistence().activeLoanLines()) {
+            String[] partes = linea.split(",");
+            if (partes.length >= 1) {
+                String correo = partes[0].trim();
+                prestamosPorUsuario.put(correo, prestamosPorUsuario.getOrDefault(correo, 0) + 1);
             }
-        } catch (IOException e) {
-            System.err.println("❌ Error leyendo préstamos: " + e.getMessage());
         }
 
         return prestamosPorUsuario;
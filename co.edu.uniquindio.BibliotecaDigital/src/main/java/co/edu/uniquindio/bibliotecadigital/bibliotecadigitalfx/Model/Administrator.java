@@ -57,8 +57,7 @@ public class Administrator extends Person {
     // Cantidad de préstamos por lector.
     public Map<Person, Integer> getLoansPerReader(){
         Map<Person, Integer> loansMap = new HashMap<>();
-        for (int i = 0; i < library.getReadersList().getSize(); i++) {
-            Reader reader = library.getReadersList().getAmountNodo(i);
+        for (Reader reader : library.getReadersList()) {
             int loans = reader.getLoanHistoryList().getSize(); // método getter necesario
             loansMap.put(reader, loans);
         }
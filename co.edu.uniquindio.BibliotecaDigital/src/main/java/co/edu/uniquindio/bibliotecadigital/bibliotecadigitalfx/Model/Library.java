@@ -4,11 +4,18 @@ import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Enum.BookStatus;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.SearchTypes.AuthorComparator;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.SearchTypes.CategoryComparator;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.SearchTypes.TitleComparator;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service.AffinitySystem;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.*;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.DataRepository;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.ImportPipeline;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.LibrarySnapshot;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.Persistence;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.RatingColumnStore;
 
 import java.io.File;
-import java.util.Comparator;
+import java.io.IOException;
+import java.util.List;
 
 public class Library {
     private static Library instance;
@@ -21,12 +28,23 @@ public class Library {
     private BinarySearchTree<Book> titleTree = new BinarySearchTree<>(new TitleComparator());
     private BinarySearchTree<Book> authorTree = new BinarySearchTree<>(new AuthorComparator());
     private BinarySearchTree<Book> categoryTree = new BinarySearchTree<>(new CategoryComparator());
+    private TextSearchIndex<Book> bookSearchIndex =
+            new TextSearchIndex<>(Book::getTitle, Book::getAuthor, Book::getCategory);
     private PriorityQueue<Book> booksOnHold = new PriorityQueue<>();
     private HashMap<String, Book> loanBooks = new HashMap<>();
 
     private HashMap<String, Administrator> administrators = new HashMap<>();
     private Graph<String> readerConnections = new Graph<>();
 
+    // Grafo de afinidad compartido; se arma al primer uso y después se actualiza con cada cambio
+    private AffinitySystem affinitySystem;
+
+    // Versión de cada tabla de Persistence ya aplicada en los mapas (-1: comparar todo)
+    private long readersVersion = -1;
+    private long booksVersion = -1;
+    private long administratorsVersion = -1;
+    private long ratingsVersion = -1;
+
     // CONSTRUCTOR PRIVADO para Singleton
     public Library() {
         // SOLUCIÓN: Asignar instance ANTES de cargar datos
@@ -69,6 +87,8 @@ public class Library {
         Book book2 = new Book("002", "Cien Años de Soledad", "Gabriel García Márquez", 1967, "Realismo Mágico");
         books.put("001", book1);
         books.put("002", book2);
+        indexBook(book1);
+        indexBook(book2);
 
         System.out.println("✅ Datos por defecto creados exitosamente");
     }
@@ -90,14 +110,9 @@ public class Library {
     }
 
     // CORREGIDO: Obtener lista de lectores (conversión desde HashMap)
-    public LinkedList<Reader> getReadersList() {
-        LinkedList<Reader> list = new LinkedList<>();
-        LinkedList<String> keys = readers.keySet();
-
-        for (int i = 0; i < keys.getSize(); i++) {
-            list.addEnd(readers.get(keys.getAmountNodo(i)));
-        }
-
+    public ArrayList<Reader> getReadersList() {
+        ArrayList<Reader> list = new ArrayList<>(readers.size());
+        readers.forEach((username, reader) -> list.addEnd(reader));
         return list;
     }
 
@@ -127,6 +142,22 @@ public class Library {
         }
     }
 
+    /**
+     * Prepara la importación por etapas de un archivo externo (null si no se reconoce
+     * el tipo). run() se ejecuta fuera del hilo de la interfaz y luego finishImport.
+     */
+    public ImportPipeline prepareImport(File file) throws IOException {
+        return persistence.prepareImport(file);
+    }
+
+    // Aplica en memoria lo importado (una sola recarga) y devuelve el mensaje para el usuario
+    public String finishImport(ImportPipeline pipeline, ImportPipeline.Result result) {
+        if (result.getAccepted() > 0) {
+            forceRefreshAllData();
+        }
+        return persistence.describeImport(pipeline, result);
+    }
+
     // NUEVO: Método para refrescar datos desde persistencia
     private void refreshDataFromPersistence() {
         try {
@@ -139,25 +170,13 @@ public class Library {
             administrators = persistence.loadAdministrators();
 
             // Reestablecer referencias de forma segura
-            LinkedList<String> readerKeys = readers.keySet();
-            for (int i = 0; i < readerKeys.getSize(); i++) {
-                Reader reader = readers.get(readerKeys.getAmountNodo(i));
-                reader.setLibrary(this);
-            }
+            readers.forEach((username, reader) -> reader.setLibrary(this));
 
-            // LIMPIAR los árboles antes de volver a insertar
-            titleTree.clear();
-            authorTree.clear();
-            categoryTree.clear();
-
-            // REINSERTAR los libros en los árboles
-            LinkedList<String> bookKeys = books.keySet();
-            for (int i = 0; i < bookKeys.getSize(); i++) {
-                Book b = books.get(bookKeys.getAmountNodo(i));
-                titleTree.insert(b);
-                authorTree.insert(b);
-                categoryTree.insert(b);
-            }
+            // LIMPIAR los índices antes de volver a insertar
+            clearBookIndexes();
+
+            // REINSERTAR los libros en los árboles y en el índice de texto
+            books.forEach((id, b) -> indexBook(b));
 
         } catch (Exception e) {
             System.err.println("Error refreshing data: " + e.getMessage());
@@ -177,13 +196,17 @@ public class Library {
         }
 
         ratings.put(key, rating);
+        ratingRecorded(rating);
 
-        try {
-            return persistence != null ? persistence.saveRating(rating) : true;
-        } catch (Exception e) {
-            System.err.println("Warning: Could not persist rating: " + e.getMessage());
-            return true; // Mantener en memoria aunque no se persista
+        // No se espera al disco: el escritor agrupa esta valoración con las que lleguen a la vez
+        if (persistence != null) {
+            persistence.saveRatingAsync(rating).thenAccept(saved -> {
+                if (!saved) {
+                    System.err.println("Warning: Could not persist rating: " + key);
+                }
+            });
         }
+        return true; // Mantener en memoria aunque no se persista
     }
 
     // CORREGIDO: Método para agregar conexión entre lectores
@@ -205,13 +228,19 @@ public class Library {
         }
 
         readerConnections.addEdge(username1, username2);
+        AffinitySystem affinity = affinitySystem;
+        if (affinity != null) {
+            affinity.onConnectionAdded(readers.get(username1), readers.get(username2));
+        }
 
-        try {
-            return persistence != null ? persistence.saveConnection(username1, username2) : true;
-        } catch (Exception e) {
-            System.err.println("Warning: Could not persist connection: " + e.getMessage());
-            return true; // Mantener en memoria aunque no se persista
+        if (persistence != null) {
+            persistence.saveConnectionAsync(username1, username2).thenAccept(saved -> {
+                if (!saved) {
+                    System.err.println("Warning: Could not persist connection: " + username1 + " <-> " + username2);
+                }
+            });
         }
+        return true; // Mantener en memoria aunque no se persista
     }
 
     /**
@@ -251,27 +280,21 @@ public class Library {
 
         // Guardar en memoria
         books.put(cleanId, newBook);
-        titleTree.insert(newBook);
-        authorTree.insert(newBook);
-        categoryTree.insert(newBook);
+        indexBook(newBook);
 
         // CORRECCIÓN: Persistir inmediatamente
         try {
             if (!persistence.saveBook(newBook)) {
                 // Rollback si falla la persistencia
                 books.remove(cleanId);
-                titleTree.delete(newBook);
-                authorTree.delete(newBook);
-                categoryTree.delete(newBook);
+                unindexBook(newBook);
                 throw new RuntimeException("Failed to save book to persistence");
             }
             System.out.println("✅ Libro creado y persistido: " + title);
         } catch (Exception e) {
             // Rollback
             books.remove(cleanId);
-            titleTree.delete(newBook);
-            authorTree.delete(newBook);
-            categoryTree.delete(newBook);
+            unindexBook(newBook);
             System.err.println("❌ Error persistiendo libro: " + e.getMessage());
             throw new RuntimeException("Failed to persist book", e);
         }
@@ -312,6 +335,10 @@ public class Library {
                 System.err.println("❌ Error persistiendo lector");
                 return false;
             }
+            AffinitySystem affinity = affinitySystem;
+            if (affinity != null) {
+                affinity.onReaderAdded(reader);
+            }
             System.out.println("✅ Lector registrado y persistido: " + name.trim());
             return true;
         } catch (Exception e) {
@@ -323,23 +350,20 @@ public class Library {
 
     private void loadDataFromPersistence() {
         try {
-            readers = persistence.loadReaders();
-            books = persistence.loadBooks();
-            titleTree = persistence.loadBooksTree(Comparator.comparing(book -> book.getTitle().toLowerCase()));
-            authorTree = persistence.loadBooksTree(Comparator.comparing(book -> book.getAuthor().toLowerCase()));
-            categoryTree = persistence.loadBooksTree(Comparator.comparing(book -> book.getCategory().toLowerCase()));
-            administrators = persistence.loadAdministrators();
+            // Huellas de los archivos antes de leerlos: la foto que se guarde describe esta versión
+            LibrarySnapshot.Fingerprints fingerprints = persistence.librarySnapshot().currentFingerprints();
 
-            // NUEVO: Cargar valoraciones después de lectores y libros
-            ratings = persistence.loadRatings();
+            // La foto binaria evita releer el texto y reconstruir los árboles uno por uno
+            if (!loadFromSnapshot()) {
+                loadFromTextFiles();
 
-            // Establecer referencias DESPUÉS de cargar todo
-            LinkedList<String> readerKeys = readers.keySet();
-            for (int i = 0; i < readerKeys.getSize(); i++) {
-                Reader reader = readers.get(readerKeys.getAmountNodo(i));
-                reader.setLibrary(this);
+                // El próximo arranque ya puede usar la foto
+                writeSnapshot(fingerprints);
             }
 
+            // Establecer referencias DESPUÉS de cargar todo
+            readers.forEach((username, reader) -> reader.setLibrary(this));
+
             System.out.println("✅ Biblioteca inicializada completamente:");
             System.out.println("   - Lectores: " + readers.size());
             System.out.println("   - Libros: " + books.size());
@@ -352,22 +376,69 @@ public class Library {
         }
     }
 
+    private void loadFromTextFiles() {
+        readers = persistence.loadReaders();
+        books = persistence.loadBooks();
+        // Los índices usan las mismas instancias del mapa para que removeBook las encuentre
+        clearBookIndexes();
+        books.forEach((id, book) -> indexBook(book));
+        administrators = persistence.loadAdministrators();
+
+        // NUEVO: Cargar valoraciones después de lectores y libros, enlazadas a los mismos objetos
+        ratings = persistence.loadRatings(readers, books);
+    }
+
+    private boolean loadFromSnapshot() {
+        LibrarySnapshot.State state = persistence.librarySnapshot().load();
+        if (state == null) {
+            return false;
+        }
+
+        readers = state.getReaders();
+        books = state.getBooks();
+        administrators = state.getAdministrators();
+        ratings = state.getRatings();
+        readerConnections = state.getConnections();
+
+        // Los árboles se arman directamente desde el orden guardado
+        titleTree.buildFromSorted(state.getTitleOrder());
+        authorTree.buildFromSorted(state.getAuthorOrder());
+        categoryTree.buildFromSorted(state.getCategoryOrder());
+        bookSearchIndex.clear();
+        books.forEach((id, book) -> bookSearchIndex.add(book));
+
+        System.out.println("⚡ Biblioteca cargada desde la foto binaria");
+        return true;
+    }
+
+    /**
+     * Guarda la foto binaria del estado actual (se llama al cerrar la aplicación).
+     * Primero toma las huellas de los archivos y aplica lo que cambió en ellos, así
+     * una edición a mano hecha después de la carga queda en la foto o la invalida.
+     */
+    public synchronized boolean saveSnapshot() {
+        LibrarySnapshot.Fingerprints fingerprints = persistence.librarySnapshot().currentFingerprints();
+        refreshChangedData();
+        return writeSnapshot(fingerprints);
+    }
+
+    // fingerprints: huellas tomadas antes de la última lectura de los archivos
+    private synchronized boolean writeSnapshot(LibrarySnapshot.Fingerprints fingerprints) {
+        LibrarySnapshot.State state = new LibrarySnapshot.State(readers, administrators, books, ratings,
+                readerConnections, titleTree.obtenerListainOrder(), authorTree.obtenerListainOrder(),
+                categoryTree.obtenerListainOrder());
+        return persistence.librarySnapshot().write(state, fingerprints);
+    }
+
     // AGREGAR: Método específico para refrescar valoraciones
     public void refreshRatingsFromFile() {
         try {
             System.out.println("🔄 Actualizando valoraciones desde archivo...");
 
-            // Limpiar valoraciones actuales de los lectores
-            LinkedList<String> readerKeys = readers.keySet();
-            for (int i = 0; i < readerKeys.getSize(); i++) {
-                Reader reader = readers.get(readerKeys.getAmountNodo(i));
-                reader.getRatingsList().clear();
-            }
-
-            // Recargar valoraciones desde persistencia
-            ratings = persistence.loadRatings();
+            persistence.refreshFromFiles();
+            int applied = applyRatingChanges();
 
-            System.out.println("✅ Valoraciones actualizadas: " + ratings.size());
+            System.out.println("✅ Valoraciones actualizadas: " + ratings.size() + " (" + applied + " cambios)");
 
         } catch (Exception e) {
             System.err.println("❌ Error actualizando valoraciones: " + e.getMessage());
@@ -397,18 +468,14 @@ public class Library {
 
         // Remover de memoria
         books.remove(cleanId);
-        titleTree.delete(book);
-        authorTree.delete(book);
-        categoryTree.delete(book);
+        unindexBook(book);
 
-        // CORRECCIÓN: Persistir cambios reescribiendo todo el archivo
+        // Con almacenamiento indexado solo se borra el registro; con texto se reescribe el archivo
         try {
-            if (!persistence.saveAllBooks(books)) {
+            if (!persistence.deleteBook(cleanId, books)) {
                 // Rollback si falla
                 books.put(cleanId, book);
-                titleTree.insert(book);
-                authorTree.insert(book);
-                categoryTree.insert(book);
+                indexBook(book);
                 System.err.println("❌ Error persistiendo eliminación de libro");
                 return false;
             }
@@ -417,9 +484,7 @@ public class Library {
         } catch (Exception e) {
             // Rollback
             books.put(cleanId, book);
-            titleTree.insert(book);
-            authorTree.insert(book);
-            categoryTree.insert(book);
+            indexBook(book);
             System.err.println("❌ Error en persistencia de eliminación: " + e.getMessage());
             return false;
         }
@@ -450,6 +515,10 @@ public class Library {
                 System.err.println("❌ Error persistiendo eliminación de lector");
                 return false;
             }
+            AffinitySystem affinity = affinitySystem;
+            if (affinity != null) {
+                affinity.onReaderRemoved(reader);
+            }
             System.out.println("✅ Lector eliminado y cambios persistidos: " + reader.getName());
             return true;
         } catch (Exception e) {
@@ -506,51 +575,10 @@ public class Library {
 
     public void forceRefreshAllData() {
         try {
-            System.out.println("🔄 Forzando actualización completa de datos...");
-
-            // Crear nueva instancia de persistencia para asegurar datos frescos
-            Persistence freshPersistence = new Persistence();
-
-            // Recargar TODOS los datos desde persistencia
-            HashMap<String, Reader> newReaders = freshPersistence.loadReaders();
-            HashMap<String, Book> newBooks = freshPersistence.loadBooks();
-            HashMap<String, Administrator> newAdmins = freshPersistence.loadAdministrators();
-            HashMap<String, Rating> newRatings = freshPersistence.loadRatings();
-
-            // PASO 1: Limpiar estructuras actuales
-            readers.clear();
-            books.clear();
-            administrators.clear();
-            ratings.clear();
-
-            // PASO 2: Reestablecer datos
-            readers = newReaders;
-            books = newBooks;
-            administrators = newAdmins;
-            ratings = newRatings;
-
-            // PASO 3: Establecer referencias de biblioteca en lectores
-            LinkedList<String> readerKeys = readers.keySet();
-            for (int i = 0; i < readerKeys.getSize(); i++) {
-                Reader reader = readers.get(readerKeys.getAmountNodo(i));
-                reader.setLibrary(this);
-            }
-
-            // PASO 4: Reconstruir árboles de búsqueda
-            titleTree.clear();
-            authorTree.clear();
-            categoryTree.clear();
-
-            LinkedList<String> bookKeys = books.keySet();
-            for (int i = 0; i < bookKeys.getSize(); i++) {
-                Book book = books.get(bookKeys.getAmountNodo(i));
-                titleTree.insert(book);
-                authorTree.insert(book);
-                categoryTree.insert(book);
-            }
+            System.out.println("🔄 Actualizando datos desde los archivos...");
 
-            // PASO 5: CORRECCIÓN CRÍTICA - Reestablecer valoraciones en lectores
-            reestablishRatingsInReaders();
+            // Solo se leen las partes de los archivos que cambiaron y solo eso se aplica
+            refreshChangedData();
 
             System.out.println("✅ Actualización completa terminada:");
             System.out.println("   - Lectores: " + readers.size());
@@ -564,51 +592,216 @@ public class Library {
         }
     }
 
-    private void reestablishRatingsInReaders() {
-        try {
-            System.out.println("🔄 Reestableciendo valoraciones en lectores...");
+    // ==================== REFRESCO POR DIFERENCIAS ====================
 
-            // Primero limpiar todas las listas de valoraciones de los lectores
-            LinkedList<String> readerKeys = readers.keySet();
-            for (int i = 0; i < readerKeys.getSize(); i++) {
-                Reader reader = readers.get(readerKeys.getAmountNodo(i));
-                reader.getRatingsList().clear();
+    /**
+     * Pone los mapas y árboles al día con los archivos aplicando solo lo que
+     * cambió: un libro editado se saca de los árboles y se vuelve a insertar, los
+     * demás no se tocan. Los objetos que no cambiaron se conservan, así que las
+     * valoraciones y las conexiones siguen apuntando a ellos.
+     */
+    public void refreshChangedData() {
+        persistence.refreshFromFiles();
+        int changed = applyReaderChanges() + applyBookChanges() + applyAdministratorChanges() + applyRatingChanges();
+        System.out.println("🔄 Cambios aplicados desde los archivos: " + changed);
+    }
+
+    public int applyReaderChanges() {
+        DataRepository.Changes changes = persistence.changesSince("readers", readersVersion);
+        int applied = 0;
+
+        for (java.util.Map.Entry<String, String[]> entry : withRemovals(readers, changes).entrySet()) {
+            String[] row = entry.getValue();
+            Reader reader = readers.get(entry.getKey());
+            if (row == null) {
+                if (reader != null) {
+                    for (Rating rating : reader.getRatingsList()) {
+                        ratings.remove(reader.getUsername() + "|" + rating.getBook().getIdBook());
+                    }
+                    readers.remove(entry.getKey());
+                    if (affinitySystem != null) {
+                        affinitySystem.onReaderRemoved(reader);
+                    }
+                    applied++;
+                }
+            } else if (reader == null) {
+                reader = new Reader(row[0], row[1], row[2]);
+                reader.setLibrary(this);
+                readers.put(row[1], reader);
+                if (affinitySystem != null) {
+                    affinitySystem.onReaderAdded(reader);
+                }
+                applied++;
+            } else if (!row[0].equals(reader.getName()) || !row[2].equals(reader.getPassword())) {
+                reader.setName(row[0]);
+                reader.setPassword(row[2]);
+                applied++;
             }
+        }
 
-            // Luego redistribuir las valoraciones desde el HashMap global
-            LinkedList<String> ratingKeys = ratings.keySet();
-            int ratingsProcessed = 0;
-
-            for (int i = 0; i < ratingKeys.getSize(); i++) {
-                Rating rating = ratings.get(ratingKeys.getAmountNodo(i));
-                if (rating != null && rating.getReader() != null) {
-                    String username = rating.getReader().getUsername();
-                    Reader reader = readers.get(username);
-
-                    if (reader != null) {
-                        // Verificar que no esté duplicada
-                        boolean alreadyExists = false;
-                        LinkedList<Rating> readerRatings = reader.getRatingsList();
-                        for (Rating existingRating : readerRatings) {
-                            if (existingRating.getBook().getIdBook().equals(rating.getBook().getIdBook())) {
-                                alreadyExists = true;
-                                break;
-                            }
-                        }
-
-                        if (!alreadyExists) {
-                            reader.getRatingsList().add(rating);
-                            ratingsProcessed++;
-                        }
-                    }
+        readersVersion = changes.getVersion();
+        return applied;
+    }
+
+    public int applyBookChanges() {
+        DataRepository.Changes changes = persistence.changesSince("books", booksVersion);
+        java.util.Set<String> removedIds = new java.util.HashSet<>();
+        int applied = 0;
+
+        for (java.util.Map.Entry<String, String[]> entry : withRemovals(books, changes).entrySet()) {
+            String[] row = entry.getValue();
+            Book book = books.get(entry.getKey());
+            if (row == null) {
+                if (book != null) {
+                    unindexBook(book);
+                    books.remove(entry.getKey());
+                    removedIds.add(entry.getKey());
+                    applied++;
                 }
+                continue;
             }
 
-            System.out.println("✅ Valoraciones reestablecidas: " + ratingsProcessed + " valoraciones procesadas");
+            int year = Integer.parseInt(row[3]);
+            if (book == null) {
+                book = new Book(row[0], row[1], row[2], year, row[4]);
+                books.put(row[0], book);
+                indexBook(book);
+                applied++;
+            } else if (!row[1].equals(book.getTitle()) || !row[2].equals(book.getAuthor())
+                    || year != book.getYear() || !row[4].equals(book.getCategory())) {
+                // Se saca con los datos viejos: los árboles lo buscan por su comparador
+                unindexBook(book);
+                book.setTitle(row[1]);
+                book.setAuthor(row[2]);
+                book.setYear(year);
+                book.setCategory(row[4]);
+                indexBook(book);
+                applied++;
+            }
+        }
 
-        } catch (Exception e) {
-            System.err.println("❌ Error reestableciendo valoraciones: " + e.getMessage());
+        // Las valoraciones de libros que ya no existen se quitan en un solo recorrido
+        if (!removedIds.isEmpty()) {
+            java.util.List<String> orphaned = new java.util.ArrayList<>();
+            for (MapNode<String, Rating> entry : ratings.entries()) {
+                if (removedIds.contains(entry.getValue().getBook().getIdBook())) {
+                    orphaned.add(entry.getKey());
+                }
+            }
+            for (String key : orphaned) {
+                removeRating(key);
+            }
+        }
+
+        booksVersion = changes.getVersion();
+        return applied;
+    }
+
+    public int applyAdministratorChanges() {
+        DataRepository.Changes changes = persistence.changesSince("administrators", administratorsVersion);
+        int applied = 0;
+
+        for (java.util.Map.Entry<String, String[]> entry : withRemovals(administrators, changes).entrySet()) {
+            String[] row = entry.getValue();
+            Administrator admin = administrators.get(entry.getKey());
+            if (row == null) {
+                if (admin != null) {
+                    administrators.remove(entry.getKey());
+                    applied++;
+                }
+            } else if (admin == null) {
+                administrators.put(row[1], new Administrator(row[0], row[1], row[2]));
+                applied++;
+            } else if (!row[0].equals(admin.getName()) || !row[2].equals(admin.getPassword())) {
+                admin.setName(row[0]);
+                admin.setPassword(row[2]);
+                applied++;
+            }
+        }
+
+        administratorsVersion = changes.getVersion();
+        return applied;
+    }
+
+    public int applyRatingChanges() {
+        DataRepository.Changes changes = persistence.changesSince("ratings", ratingsVersion);
+        int applied = 0;
+
+        for (java.util.Map.Entry<String, String[]> entry : withRemovals(ratings, changes).entrySet()) {
+            String key = entry.getKey();
+            String[] row = entry.getValue();
+            Reader reader = row != null ? readers.get(row[0]) : null;
+            Book book = row != null ? books.get(row[1]) : null;
+
+            if (reader == null || book == null) {
+                // Borrada, o su lector o libro ya no existen
+                if (removeRating(key)) {
+                    applied++;
+                }
+                continue;
+            }
+
+            int stars = Integer.parseInt(row[2]);
+            Rating current = ratings.get(key);
+            if (current != null && current.getReader() == reader && current.getBook() == book
+                    && current.getStars() == stars && row[3].equals(current.getComment())) {
+                continue;
+            }
+
+            removeRating(key);
+            Rating rating = new Rating(reader, book, stars, row[3]);
+            ratings.put(key, rating);
+            reader.getRatingsList().add(rating);
+            ratingRecorded(rating);
+            applied++;
+        }
+
+        ratingsVersion = changes.getVersion();
+        return applied;
+    }
+
+    // Quita la valoración del mapa y de la lista de su lector
+    private boolean removeRating(String key) {
+        Rating rating = ratings.get(key);
+        if (rating == null) {
+            return false;
+        }
+        ratings.remove(key);
+
+        Rating inList = null;
+        for (Rating existing : rating.getReader().getRatingsList()) {
+            if (existing.getBook().getIdBook().equals(rating.getBook().getIdBook())) {
+                inList = existing;
+                break;
+            }
+        }
+        if (inList != null) {
+            rating.getReader().getRatingsList().delete(inList);
+        }
+        ratingRemoved(rating);
+        return true;
+    }
+
+    /**
+     * Filas que cambiaron; si llegó la tabla completa, se agregan como borradas
+     * (null) las claves del mapa que ya no están. Una tabla completa vacía se
+     * ignora para no vaciar la biblioteca por un archivo ilegible.
+     */
+    private <T> java.util.Map<String, String[]> withRemovals(HashMap<String, T> current, DataRepository.Changes changes) {
+        java.util.Map<String, String[]> rows = changes.getRows();
+        if (!changes.isComplete()) {
+            return rows;
+        }
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        java.util.Map<String, String[]> result = new java.util.LinkedHashMap<>(rows);
+        for (MapNode<String, T> entry : current.entries()) {
+            if (!rows.containsKey(entry.getKey())) {
+                result.put(entry.getKey(), null);
+            }
         }
+        return result;
     }
 
     /**
@@ -618,17 +811,10 @@ public class Library {
         try {
             System.out.println("🔄 Refrescando solo valoraciones...");
 
-            Persistence persistence = new Persistence();
-            HashMap<String, Rating> newRatings = persistence.loadRatings();
+            persistence.refreshFromFiles();
+            int applied = applyRatingChanges();
 
-            // Actualizar valoraciones
-            ratings.clear();
-            ratings = newRatings;
-
-            // Reestablecer en lectores
-            reestablishRatingsInReaders();
-
-            System.out.println("✅ Valoraciones refrescadas: " + ratings.size());
+            System.out.println("✅ Valoraciones refrescadas: " + ratings.size() + " (" + applied + " cambios)");
 
         } catch (Exception e) {
             System.err.println("❌ Error refrescando valoraciones: " + e.getMessage());
@@ -636,29 +822,19 @@ public class Library {
     }
 
     // MÉTODOS GETTER CORREGIDOS
-    public LinkedList<Reader> getReaders() {
+    public ArrayList<Reader> getReaders() {
         return getReadersList(); // Usar el método que convierte desde HashMap
     }
 
-    public LinkedList<Book> getBookssList() {
-        LinkedList<Book> list = new LinkedList<>();
-        LinkedList<String> keys = books.keySet();
-
-        for (int i = 0; i < keys.getSize(); i++) {
-            list.addEnd(books.get(keys.getAmountNodo(i)));
-        }
-
+    public ArrayList<Book> getBookssList() {
+        ArrayList<Book> list = new ArrayList<>(books.size());
+        books.forEach((id, book) -> list.addEnd(book));
         return list;
     }
 
     public LinkedList<Administrator> getAdministrators() {
         LinkedList<Administrator> list = new LinkedList<>();
-        LinkedList<String> keys = administrators.keySet();
-
-        for (int i = 0; i < keys.getSize(); i++) {
-            list.addEnd(administrators.get(keys.getAmountNodo(i)));
-        }
-
+        administrators.forEach((username, admin) -> list.addEnd(admin));
         return list;
     }
 
@@ -673,6 +849,51 @@ public class Library {
         return ratings;
     }
 
+    /**
+     * Valoraciones en columnas (enteros y bytes) para promedios y recomendaciones;
+     * se arman de nuevo solo cuando cambian las valoraciones guardadas.
+     */
+    public RatingColumnStore getRatingColumns() {
+        if (persistence != null) {
+            return persistence.loadRatingColumns();
+        }
+        List<String[]> rows = new java.util.ArrayList<>(ratings.size());
+        for (MapNode<String, Rating> entry : ratings.entries()) {
+            Rating rating = entry.getValue();
+            rows.add(new String[]{rating.getReader().getUsername(), rating.getBook().getIdBook(),
+                    String.valueOf(rating.getStars()), rating.getComment()});
+        }
+        return RatingColumnStore.build(rows);
+    }
+
+    /**
+     * Sistema de afinidad de larga vida: el grafo se arma una vez y luego se
+     * mantiene con cada valoración, lector o conexión nueva (ver ratingRecorded).
+     * La primera construcción corre en segundo plano; hasta que termina
+     * (AffinitySystem.ready()) las consultas ven a los lectores sin conexiones.
+     */
+    public synchronized AffinitySystem getAffinitySystem() {
+        if (affinitySystem == null) {
+            affinitySystem = AffinitySystem.startInBackground(this);
+        }
+        return affinitySystem;
+    }
+
+    // Avisa al grafo de afinidad (si ya se armó) de una valoración nueva o cambiada
+    public void ratingRecorded(Rating rating) {
+        AffinitySystem affinity = affinitySystem;
+        if (affinity != null) {
+            affinity.onRatingAdded(rating);
+        }
+    }
+
+    public void ratingRemoved(Rating rating) {
+        AffinitySystem affinity = affinitySystem;
+        if (affinity != null) {
+            affinity.onRatingRemoved(rating);
+        }
+    }
+
     // Devuelve el árbol binario de búsqueda que organiza los libros por autor.
     public BinarySearchTree<Book> getAuthorTree() {
         return authorTree;
@@ -688,6 +909,40 @@ public class Library {
         return titleTree;
     }
 
+    // Devuelve el índice de texto (título, autor, categoría) usado por la búsqueda en vivo.
+    public TextSearchIndex<Book> getBookSearchIndex() {
+        return bookSearchIndex;
+    }
+
+    // Búsqueda parcial en título, autor y categoría, ordenada por calidad de coincidencia.
+    public List<Book> searchBooks(String query) {
+        return bookSearchIndex.search(query);
+    }
+
+    // Agrega un libro a los tres árboles y al índice de texto.
+    public void indexBook(Book book) {
+        titleTree.insert(book);
+        authorTree.insert(book);
+        categoryTree.insert(book);
+        bookSearchIndex.add(book);
+    }
+
+    // Quita un libro de los tres árboles y del índice de texto.
+    public void unindexBook(Book book) {
+        titleTree.delete(book);
+        authorTree.delete(book);
+        categoryTree.delete(book);
+        bookSearchIndex.remove(book);
+    }
+
+    // Vacía los árboles y el índice de texto antes de una recarga completa.
+    public void clearBookIndexes() {
+        titleTree.clear();
+        authorTree.clear();
+        categoryTree.clear();
+        bookSearchIndex.clear();
+    }
+
     // Devuelve la cola de prioridad que contiene los libros que están en espera (por ejemplo, solicitados por usuarios).
     public PriorityQueue<Book> getBooksOnHold() {
         return booksOnHold;
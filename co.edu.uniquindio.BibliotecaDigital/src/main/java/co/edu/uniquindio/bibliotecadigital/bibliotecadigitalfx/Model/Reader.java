@@ -3,8 +3,10 @@ package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Enum.BookStatus;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service.AffinitySystem;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service.BookRecommendationSystem;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.Persistence;
 
 /**
@@ -56,11 +58,10 @@ public class Reader extends Person {
             return null; // Retorna null en lugar de lanzar excepción
         }
 
-        LinkedList<Book> allBooks = library.getBookssList();
+        ArrayList<Book> allBooks = library.getBookssList();
 
         // Búsqueda lineal por el título (case-insensitive)
-        for (int i = 0; i < allBooks.getSize(); i++) {
-            Book book = allBooks.getAmountNodo(i);
+        for (Book book : allBooks) {
             if (book != null && book.getTitle() != null &&
                     book.getTitle().equalsIgnoreCase(title.trim())) {
                 return book;
@@ -80,11 +81,11 @@ public class Reader extends Person {
      */
     public LinkedList<Book> getBooksByAuthor(String author) {
         LinkedList<Book> results = new LinkedList<>();
-        LinkedList<Book> allBooks = library.getBookssList();
 
-        for (int i = 0; i < allBooks.getSize(); i++) {
-            Book book = allBooks.getAmountNodo(i);
-            if (book.getAuthor().toLowerCase().contains(author.toLowerCase())) {
+        // Coincidencia parcial por nombre, recorriendo el índice por autor en orden
+        String lowerAuthor = author.toLowerCase();
+        for (Book book : library.getAuthorTree()) {
+            if (book.getAuthor().toLowerCase().contains(lowerAuthor)) {
                 results.add(book);
             }
         }
@@ -96,13 +97,11 @@ public class Reader extends Person {
      */
     public LinkedList<Book> getBooksByCategory(String category) {
         LinkedList<Book> results = new LinkedList<>();
-        LinkedList<Book> allBooks = library.getBookssList();
 
-        for (int i = 0; i < allBooks.getSize(); i++) {
-            Book book = allBooks.getAmountNodo(i);
-            if (book.getCategory().equalsIgnoreCase(category)) {
-                results.add(book);
-            }
+        // CategoryComparator ignora mayúsculas, igual que el equalsIgnoreCase anterior
+        Book probe = new Book(null, "", "", 0, category);
+        for (Book book : library.getCategoryTree().searchAll(probe)) {
+            results.add(book);
         }
         return results;
     }
@@ -140,8 +139,7 @@ public class Reader extends Person {
         }
 
         // Usar el sistema de afinidad para encontrar lectores similares
-        AffinitySystem affinitySystem = new AffinitySystem(library);
-        return affinitySystem.getSuggestedFriends(this);
+        return library.getAffinitySystem().getSuggestedFriends(this);
     }
 
     /**
@@ -161,10 +159,12 @@ public class Reader extends Person {
 
         // Verificar que están conectados en el grafo de afinidad
         if (library != null) {
-            AffinitySystem affinitySystem = new AffinitySystem(library);
-            LinkedList<Reader> path = affinitySystem.getShortestPath(this, recipient);
+            AffinitySystem affinitySystem = library.getAffinitySystem();
 
-            if (path.getSize() == 0) {
+            if (!affinitySystem.isReady()) {
+                throw new RuntimeException("El grafo de afinidad todavía se está construyendo, intenta de nuevo en unos segundos");
+            }
+            if (!affinitySystem.isReachable(this, recipient)) {
                 throw new RuntimeException("No estás conectado con este lector");
             }
         }
@@ -189,8 +189,8 @@ public class Reader extends Person {
 
         // Verificar que ha leído el libro (está en su historial)
         boolean hasRead = false;
-        for (int i = 0; i < loanHistoryList.getSize(); i++) {
-            if (loanHistoryList.getAmountNodo(i).getIdBook().equals(book.getIdBook())) {
+        for (Book loanedBook : loanHistoryList) {
+            if (loanedBook.getIdBook().equals(book.getIdBook())) {
                 hasRead = true;
                 break;
             }
@@ -201,8 +201,7 @@ public class Reader extends Person {
         }
 
         // Verificar si ya valoró este libro
-        for (int i = 0; i < ratingsList.getSize(); i++) {
-            Rating existingRating = ratingsList.getAmountNodo(i);
+        for (Rating existingRating : ratingsList) {
             if (existingRating.getBook().getIdBook().equals(book.getIdBook())) {
                 throw new RuntimeException("Ya has valorado este libro");
             }
@@ -232,6 +231,7 @@ public class Reader extends Person {
             if (library != null) {
                 String ratingKey = this.getUsername() + "|" + book.getIdBook();
                 library.getRatings().put(ratingKey, rating);
+                library.ratingRecorded(rating);
             }
 
             System.out.println("✅ Valoración guardada y persistida: " + this.getName() +
@@ -257,8 +257,7 @@ public class Reader extends Person {
         LinkedList<String> preferredCategories = new LinkedList<>();
 
         // Analizar valoraciones positivas (4-5 estrellas)
-        for (int i = 0; i < ratingsList.getSize(); i++) {
-            Rating rating = ratingsList.getAmountNodo(i);
+        for (Rating rating : ratingsList) {
             if (rating.getStars() >= 4) {
                 Book likedBook = rating.getBook();
 
@@ -273,9 +272,8 @@ public class Reader extends Person {
         }
 
         // Buscar libros de autores y categorías preferidas que no haya leído
-        LinkedList<Book> allBooks = library.getBookssList();
-        for (int i = 0; i < allBooks.getSize(); i++) {
-            Book book = allBooks.getAmountNodo(i);
+        ArrayList<Book> allBooks = library.getBookssList();
+        for (Book book : allBooks) {
 
             // Verificar que el usuario no lo ha leído
             if (!hasReadBook(book)) {
@@ -367,10 +365,9 @@ public class Reader extends Person {
             Persistence persistence = new Persistence();
 
             // CORRECCIÓN: Verificar en persistencia en lugar de memoria
-            HashMap<String, Persistence.LoanRecord> activeLoans = persistence.loadActiveLoans();
             String loanKey = this.getUsername() + "|" + book.getIdBook();
 
-            if (!activeLoans.containsKey(loanKey)) {
+            if (!persistence.hasActiveLoan(this.getUsername(), book.getIdBook())) {
                 throw new RuntimeException("No se encontró un préstamo activo de este libro en tu cuenta.");
             }
 
@@ -416,8 +413,8 @@ public class Reader extends Person {
      * Verifica si el lector ha leído un libro
      */
     private boolean hasReadBook(Book book) {
-        for (int i = 0; i < loanHistoryList.getSize(); i++) {
-            if (loanHistoryList.getAmountNodo(i).getIdBook().equals(book.getIdBook())) {
+        for (Book loanedBook : loanHistoryList) {
+            if (loanedBook.getIdBook().equals(book.getIdBook())) {
                 return true;
             }
         }
@@ -433,10 +430,8 @@ public class Reader extends Person {
             this.loanHistoryList.clear();
 
             // Agregar préstamos activos desde persistencia
-            LinkedList<String> loanKeys = activeLoans.keySet();
-            for (int i = 0; i < loanKeys.getSize(); i++) {
-                String key = loanKeys.getAmountNodo(i);
-                Persistence.LoanRecord loanRecord = activeLoans.get(key);
+            for (MapNode<String, Persistence.LoanRecord> entry : activeLoans.entries()) {
+                Persistence.LoanRecord loanRecord = entry.getValue();
 
                 if (loanRecord.getReader().getUsername().equals(this.getUsername())) {
                     Book book = loanRecord.getBook();
@@ -457,8 +452,8 @@ public class Reader extends Person {
      * Método auxiliar para verificar si una lista contiene un string
      */
     private boolean containsString(LinkedList<String> list, String item) {
-        for (int i = 0; i < list.getSize(); i++) {
-            if (list.getAmountNodo(i).equalsIgnoreCase(item)) {
+        for (String element : list) {
+            if (element.equalsIgnoreCase(item)) {
                 return true;
             }
         }
@@ -475,8 +470,7 @@ public class Reader extends Person {
             return new LinkedList<>();
         }
 
-        AffinitySystem affinitySystem = new AffinitySystem(library);
-        return affinitySystem.getSuggestedFriends(this);
+        return library.getAffinitySystem().getSuggestedFriends(this);
     }
     
 
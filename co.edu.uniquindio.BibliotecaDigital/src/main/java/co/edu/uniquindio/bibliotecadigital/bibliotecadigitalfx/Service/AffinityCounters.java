@@ -0,0 +1,195 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Rating;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Valoraciones que mantiene AffinitySystem para actualizar el grafo con cada
+ * valoración, sin reconstruirlo.
+ *
+ * Guarda por lector sus libros (como enteros) y estrellas, y por libro quiénes
+ * lo valoraron. Cuando un lector valora un libro solo cambian sus pares con los
+ * otros lectores de ese libro; el contador de cada uno de esos pares se vuelve
+ * a calcular marcando los libros del lector en un arreglo por libro y
+ * recorriendo las valoraciones del otro. No se guarda un contador por cada par
+ * del grafo: con muchos lectores serían decenas de millones.
+ */
+final class AffinityCounters {
+    private final HashMap<Reader, Integer> readerIds = new HashMap<>();
+    private final java.util.ArrayList<Reader> readers = new java.util.ArrayList<>();
+    private final java.util.ArrayList<Entries> ratingsOf = new java.util.ArrayList<>();
+
+    private final HashMap<String, Integer> bookIds = new HashMap<>();
+    private final java.util.ArrayList<Entries> ratersOf = new java.util.ArrayList<>();
+
+    // Estrellas del lector marcado, por libro; markEpoch evita limpiar el arreglo entre lectores
+    private int[] markEpoch = new int[16];
+    private byte[] markStars = new byte[16];
+    private int epoch;
+
+    // Arma los contadores desde las listas de valoraciones de los lectores
+    static AffinityCounters build(Iterable<Reader> readers) {
+        AffinityCounters counters = new AffinityCounters();
+        for (Reader reader : readers) {
+            counters.idOf(reader);
+            for (Rating rating : reader.getRatingsList()) {
+                counters.setRating(reader, rating.getBook().getIdBook(), rating.getStars());
+            }
+        }
+        return counters;
+    }
+
+    // Guarda (o reemplaza) las estrellas que el lector dio al libro
+    void setRating(Reader reader, String bookId, int stars) {
+        int readerId = idOf(reader);
+        int book = bookIdOf(bookId);
+        Entries books = ratingsOf.get(readerId);
+        int position = books.indexOf(book);
+        if (position >= 0) {
+            books.stars[position] = (byte) stars;
+        } else {
+            books.add(book, stars);
+            ratersOf.get(book).add(readerId, stars);
+        }
+    }
+
+    void removeRating(Reader reader, String bookId) {
+        Integer readerId = readerIds.get(reader);
+        Integer book = bookIds.get(bookId);
+        if (readerId == null || book == null) {
+            return;
+        }
+        ratingsOf.get(readerId).remove(book);
+        ratersOf.get(book).remove(readerId);
+    }
+
+    void removeReader(Reader reader) {
+        Integer readerId = readerIds.remove(reader);
+        if (readerId == null) {
+            return;
+        }
+        Entries books = ratingsOf.get(readerId);
+        for (int i = 0; i < books.size; i++) {
+            ratersOf.get(books.items[i]).remove(readerId);
+        }
+        // El id no se reutiliza; el lugar queda vacío
+        readers.set(readerId, null);
+        ratingsOf.set(readerId, new Entries());
+    }
+
+    // Los otros lectores que valoraron el libro
+    List<Reader> coRaters(String bookId, Reader except) {
+        List<Reader> result = new java.util.ArrayList<>();
+        Integer book = bookIds.get(bookId);
+        if (book == null) {
+            return result;
+        }
+        Entries raters = ratersOf.get(book);
+        for (int i = 0; i < raters.size; i++) {
+            Reader other = readers.get(raters.items[i]);
+            if (other != null && other != except) {
+                result.add(other);
+            }
+        }
+        return result;
+    }
+
+    // Marca los libros del lector para contar coincidencias con countMarked
+    void mark(Reader reader) {
+        epoch++;
+        Integer readerId = readerIds.get(reader);
+        if (readerId == null) {
+            return;
+        }
+        Entries books = ratingsOf.get(readerId);
+        for (int i = 0; i < books.size; i++) {
+            markEpoch[books.items[i]] = epoch;
+            markStars[books.items[i]] = books.stars[i];
+        }
+    }
+
+    // Libros del otro lector valorados con diferencia de a lo sumo una estrella respecto del marcado
+    int countMarked(Reader other) {
+        Integer readerId = readerIds.get(other);
+        if (readerId == null) {
+            return 0;
+        }
+        Entries books = ratingsOf.get(readerId);
+        int similar = 0;
+        for (int i = 0; i < books.size; i++) {
+            int book = books.items[i];
+            if (markEpoch[book] == epoch && Math.abs(markStars[book] - books.stars[i]) <= 1) {
+                similar++;
+            }
+        }
+        return similar;
+    }
+
+    private int idOf(Reader reader) {
+        Integer id = readerIds.get(reader);
+        if (id == null) {
+            id = readers.size();
+            readerIds.put(reader, id);
+            readers.add(reader);
+            ratingsOf.add(new Entries());
+        }
+        return id;
+    }
+
+    private int bookIdOf(String bookId) {
+        Integer id = bookIds.get(bookId);
+        if (id == null) {
+            id = ratersOf.size();
+            bookIds.put(bookId, id);
+            ratersOf.add(new Entries());
+            if (id == markEpoch.length) {
+                markEpoch = Arrays.copyOf(markEpoch, id * 2);
+                markStars = Arrays.copyOf(markStars, id * 2);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Lista de enteros con sus estrellas: libros de un lector o lectores de un
+     * libro. Son listas cortas, así que se buscan recorriéndolas.
+     */
+    private static final class Entries {
+        private int[] items = new int[4];
+        private byte[] stars = new byte[4];
+        private int size;
+
+        int indexOf(int item) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == item) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void add(int item, int itemStars) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                stars = Arrays.copyOf(stars, size * 2);
+            }
+            items[size] = item;
+            stars[size] = (byte) itemStars;
+            size++;
+        }
+
+        // El último ocupa el lugar del quitado; el orden no importa
+        void remove(int item) {
+            int position = indexOf(item);
+            if (position >= 0) {
+                size--;
+                items[position] = items[size];
+                stars[position] = stars[size];
+            }
+        }
+    }
+}
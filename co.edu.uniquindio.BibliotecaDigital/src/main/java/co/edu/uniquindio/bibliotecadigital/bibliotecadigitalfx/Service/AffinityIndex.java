@@ -0,0 +1,207 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Rating;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
+
+import java.util.Arrays;
+
+/**
+ * Valoraciones de los lectores en columnas, para calcular afinidades.
+ *
+ * Las valoraciones se guardan agrupadas por lector (readerStart[r] ..
+ * readerStart[r + 1] - 1) y además en un índice invertido libro → (lector,
+ * estrellas) armado por conteo. collectEdges recorre, para cada lector de un
+ * rango, solo los otros lectores de sus mismos libros; así los rangos pueden
+ * procesarse por separado (en paralelo) y el resultado no depende de cómo se
+ * repartan.
+ */
+final class AffinityIndex {
+    private final Reader[] readers;
+    private final int[] readerStart;
+    private final int[] bookOf;
+    private final byte[] starsOf;
+    private final int[] bookStart;
+    private final int[] raters;
+    private final byte[] stars;
+
+    private AffinityIndex(Reader[] readers, int[] readerStart, int[] bookOf, byte[] starsOf,
+                          int[] bookStart, int[] raters, byte[] stars) {
+        this.readers = readers;
+        this.readerStart = readerStart;
+        this.bookOf = bookOf;
+        this.starsOf = starsOf;
+        this.bookStart = bookStart;
+        this.raters = raters;
+        this.stars = stars;
+    }
+
+    // Arma el índice desde las listas de valoraciones de los lectores (en el orden dado)
+    static AffinityIndex build(ArrayList<Reader> readerList) {
+        int readerCount = readerList.getSize();
+        Reader[] readers = new Reader[readerCount];
+        int total = 0;
+        int position = 0;
+        for (Reader reader : readerList) {
+            readers[position++] = reader;
+            total += reader.getRatingsList().getSize();
+        }
+
+        java.util.HashMap<String, Integer> bookIndex = new java.util.HashMap<>();
+        int[] readerStart = new int[readerCount + 1];
+        int[] bookOf = new int[total];
+        byte[] starsOf = new byte[total];
+        int count = 0;
+        for (int r = 0; r < readerCount; r++) {
+            for (Rating rating : readers[r].getRatingsList()) {
+                Integer book = bookIndex.get(rating.getBook().getIdBook());
+                if (book == null) {
+                    book = bookIndex.size();
+                    bookIndex.put(rating.getBook().getIdBook(), book);
+                }
+                bookOf[count] = book;
+                starsOf[count] = (byte) rating.getStars();
+                count++;
+            }
+            readerStart[r + 1] = count;
+        }
+
+        // Índice invertido: las valoraciones del libro b son bookStart[b] .. bookStart[b + 1] - 1
+        int bookCount = bookIndex.size();
+        int[] bookStart = new int[bookCount + 1];
+        for (int i = 0; i < count; i++) {
+            bookStart[bookOf[i] + 1]++;
+        }
+        for (int b = 0; b < bookCount; b++) {
+            bookStart[b + 1] += bookStart[b];
+        }
+        int[] next = Arrays.copyOf(bookStart, bookCount);
+        int[] raters = new int[count];
+        byte[] stars = new byte[count];
+        for (int r = 0; r < readerCount; r++) {
+            for (int i = readerStart[r]; i < readerStart[r + 1]; i++) {
+                int slot = next[bookOf[i]]++;
+                raters[slot] = r;
+                stars[slot] = starsOf[i];
+            }
+        }
+
+        return new AffinityIndex(readers, readerStart, bookOf, starsOf, bookStart, raters, stars);
+    }
+
+    int readerCount() {
+        return readers.length;
+    }
+
+    int ratingCount() {
+        return bookOf.length;
+    }
+
+    Reader reader(int index) {
+        return readers[index];
+    }
+
+    int bookCount() {
+        return bookStart.length - 1;
+    }
+
+    // Las valoraciones del lector r son ratingStart(r) .. ratingStart(r + 1) - 1
+    int ratingStart(int reader) {
+        return readerStart[reader];
+    }
+
+    int bookAt(int rating) {
+        return bookOf[rating];
+    }
+
+    int starsAt(int rating) {
+        return starsOf[rating];
+    }
+
+    /**
+     * Agrega a out los pares (r, otro) con from <= r < to, otro > r y al menos
+     * minSimilar libros en común valorados con diferencia de a lo sumo una
+     * estrella. Para cada r los pares salen ordenados por otro.
+     */
+    void collectEdges(int from, int to, int minSimilar, Scratch scratch, EdgeBuffer out) {
+        int[] similar = scratch.similar;
+        int[] touched = scratch.touched;
+        int[] qualified = scratch.qualified;
+
+        for (int r = from; r < to; r++) {
+            int touchedCount = 0;
+            for (int i = readerStart[r]; i < readerStart[r + 1]; i++) {
+                int book = bookOf[i];
+                for (int k = bookStart[book]; k < bookStart[book + 1]; k++) {
+                    int other = raters[k];
+                    // Cada par se cuenta una sola vez, desde el lector de menor índice
+                    if (other > r && Math.abs(stars[k] - starsOf[i]) <= 1) {
+                        if (similar[other]++ == 0) {
+                            touched[touchedCount++] = other;
+                        }
+                    }
+                }
+            }
+
+            int qualifiedCount = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int other = touched[t];
+                if (similar[other] >= minSimilar) {
+                    qualified[qualifiedCount++] = other;
+                }
+                similar[other] = 0;
+            }
+
+            Arrays.sort(qualified, 0, qualifiedCount);
+            for (int t = 0; t < qualifiedCount; t++) {
+                out.add(r, qualified[t]);
+            }
+        }
+    }
+
+    /**
+     * Arreglos de trabajo de collectEdges (uno por hilo): contador por lector y
+     * la lista de los que se tocaron, para limpiar solo esos.
+     */
+    static final class Scratch {
+        private final int[] similar;
+        private final int[] touched;
+        private final int[] qualified;
+
+        Scratch(int readerCount) {
+            similar = new int[readerCount];
+            touched = new int[readerCount];
+            qualified = new int[readerCount];
+        }
+    }
+
+    /**
+     * Aristas como pares de índices de lector en un arreglo de int, sin un
+     * objeto por arista.
+     */
+    static final class EdgeBuffer {
+        private int[] pairs = new int[64];
+        private int size;
+
+        void add(int reader1, int reader2) {
+            if (size * 2 + 2 > pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[size * 2] = reader1;
+            pairs[size * 2 + 1] = reader2;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int first(int edge) {
+            return pairs[edge * 2];
+        }
+
+        int second(int edge) {
+            return pairs[edge * 2 + 1];
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Conexiones por afinidad aproximadas con MinHash y LSH (modo APPROXIMATE).
+ *
+ * De cada lector se calcula una firma MinHash de bands * rows valores sobre el
+ * conjunto de libros que valoró. La firma se parte en bandas de rows valores y
+ * dos lectores son candidatos si coinciden en alguna banda completa. Solo a los
+ * candidatos se les aplica la regla exacta (al menos minSimilar libros con
+ * diferencia de a lo sumo una estrella), así que nunca aparece una conexión
+ * falsa; lo que se puede perder son pares que no cayeron juntos en ninguna
+ * banda.
+ *
+ * Un par con similitud de Jaccard J entre sus conjuntos de libros queda como
+ * candidato con probabilidad 1 - (1 - J^rows)^bands: más bandas o menos filas
+ * por banda encuentran más pares a cambio de más candidatos por verificar.
+ *
+ * Con una sola fila por banda las cubetas de los libros populares son enormes y
+ * verificar cuesta más que el cálculo exacto, así que por defecto se usan 32
+ * bandas de 2 filas. Cada banda guarda unos 8 bytes por lector (orden y
+ * posición) más un bit de inicio de cubeta: unos 260 bytes por lector en total.
+ */
+final class AffinityLsh {
+    private static final int DEFAULT_BANDS = 32;
+    private static final int DEFAULT_ROWS = 2;
+
+    // En una cubeta muy grande cada lector se compara solo con los MAX_BUCKET que le siguen
+    private static final int MAX_BUCKET = 256;
+
+    // Semilla fija: el mismo conjunto de datos da siempre el mismo grafo
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final int bands;
+    private final int rows;
+
+    AffinityLsh(int bands, int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("Bandas y filas deben ser al menos 1");
+        }
+        this.bands = bands;
+        this.rows = rows;
+    }
+
+    // Bandas y filas de las propiedades del sistema (32 x 2 por defecto)
+    static AffinityLsh configured() {
+        return new AffinityLsh(intProperty(AffinitySystem.BuildMode.LSH_BANDS_PROPERTY, DEFAULT_BANDS),
+                intProperty(AffinitySystem.BuildMode.LSH_ROWS_PROPERTY, DEFAULT_ROWS));
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ " + name + "=" + value + " no es un número, se usa " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return bands + "x" + rows;
+    }
+
+    /**
+     * Agrega a out los pares (r, otro) con r < otro que son candidatos y cumplen
+     * la regla, ordenados por r y luego por otro (el mismo orden que
+     * AffinityIndex.collectEdges). Devuelve cuántos candidatos se verificaron.
+     */
+    long collectEdges(AffinityIndex index, int minSimilar, AffinityIndex.EdgeBuffer out) {
+        int readerCount = index.readerCount();
+
+        // Con menos valoraciones que minSimilar un lector no puede tener conexiones
+        int eligibleCount = 0;
+        int[] eligible = new int[readerCount];
+        for (int r = 0; r < readerCount; r++) {
+            if (index.ratingStart(r + 1) - index.ratingStart(r) >= minSimilar) {
+                eligible[eligibleCount++] = r;
+            }
+        }
+
+        /*
+         * Por banda, los lectores ordenados por la clave de la banda y luego por
+         * índice: cada cubeta queda contigua y, dentro de ella, los que siguen a
+         * un lector tienen índice mayor. order[band][p] es el lector en la
+         * posición p, el bit p de bucketStarts[band] marca dónde empieza una
+         * cubeta y position[band][e] es dónde quedó el e-ésimo lector elegible.
+         * Para ordenar se usa un solo arreglo de trabajo (clave << 32 | lector).
+         */
+        int[][] order = new int[bands][eligibleCount];
+        long[][] bucketStarts = new long[bands][(eligibleCount + 63) >>> 6];
+        int[][] position = new int[bands][eligibleCount];
+        long[] buckets = new long[eligibleCount];
+        int[] bookHashes = new int[index.bookCount() * rows];
+        int[] eligibleOf = new int[readerCount];
+        for (int e = 0; e < eligibleCount; e++) {
+            eligibleOf[eligible[e]] = e;
+        }
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        for (int band = 0; band < bands; band++) {
+            // Valor de cada libro para las rows funciones hash de esta banda
+            for (int row = 0; row < rows; row++) {
+                long multiplier = random.nextLong() | 1L;
+                long offset = random.nextLong();
+                for (int book = 0; book < index.bookCount(); book++) {
+                    bookHashes[book * rows + row] = (int) (mix(book * multiplier + offset) >>> 32);
+                }
+            }
+
+            for (int e = 0; e < eligibleCount; e++) {
+                buckets[e] = ((long) bandKey(index, eligible[e], bookHashes) << 32) | eligible[e];
+            }
+            Arrays.sort(buckets);
+            for (int p = 0; p < eligibleCount; p++) {
+                int reader = (int) buckets[p];
+                order[band][p] = reader;
+                position[band][eligibleOf[reader]] = p;
+                if (p == 0 || (buckets[p] >>> 32) != (buckets[p - 1] >>> 32)) {
+                    bucketStarts[band][p >>> 6] |= 1L << p;
+                }
+            }
+        }
+
+        return verify(index, minSimilar, eligible, eligibleCount, order, bucketStarts, position, out);
+    }
+
+    // Combina los mínimos de las rows funciones de la banda sobre los libros del lector
+    private int bandKey(AffinityIndex index, int reader, int[] bookHashes) {
+        long key = 0;
+        for (int row = 0; row < rows; row++) {
+            int minimum = Integer.MAX_VALUE;
+            for (int i = index.ratingStart(reader); i < index.ratingStart(reader + 1); i++) {
+                minimum = Math.min(minimum, bookHashes[index.bookAt(i) * rows + row]);
+            }
+            key = mix(key * 31 + minimum);
+        }
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Para cada lector junta, sin repetir, los que le siguen en su cubeta de
+     * cada banda (a lo sumo MAX_BUCKET por banda) y les aplica la regla exacta:
+     * los libros del lector se marcan una vez y cada candidato solo recorre sus
+     * propias valoraciones.
+     */
+    private static long verify(AffinityIndex index, int minSimilar, int[] eligible, int eligibleCount,
+                               int[][] order, long[][] bucketStarts, int[][] position,
+                               AffinityIndex.EdgeBuffer out) {
+        int readerCount = index.readerCount();
+        int[] seenBy = new int[readerCount];
+        int[] candidates = new int[readerCount];
+        int[] qualified = new int[readerCount];
+        int[] markEpoch = new int[index.bookCount()];
+        byte[] markStars = new byte[index.bookCount()];
+        long verified = 0;
+
+        for (int e = 0; e < eligibleCount; e++) {
+            int reader = eligible[e];
+            int stamp = reader + 1;
+
+            int candidateCount = 0;
+            for (int band = 0; band < order.length; band++) {
+                int[] readers = order[band];
+                long[] starts = bucketStarts[band];
+                int p = position[band][e];
+                int limit = Math.min(eligibleCount, p + 1 + MAX_BUCKET);
+                for (int q = p + 1; q < limit && (starts[q >>> 6] & (1L << q)) == 0; q++) {
+                    int other = readers[q];
+                    if (seenBy[other] != stamp) {
+                        seenBy[other] = stamp;
+                        candidates[candidateCount++] = other;
+                    }
+                }
+            }
+            if (candidateCount == 0) {
+                continue;
+            }
+            verified += candidateCount;
+
+            for (int i = index.ratingStart(reader); i < index.ratingStart(reader + 1); i++) {
+                markEpoch[index.bookAt(i)] = stamp;
+                markStars[index.bookAt(i)] = (byte) index.starsAt(i);
+            }
+
+            int qualifiedCount = 0;
+            for (int c = 0; c < candidateCount; c++) {
+                int other = candidates[c];
+                int similar = 0;
+                for (int i = index.ratingStart(other); i < index.ratingStart(other + 1); i++) {
+                    int book = index.bookAt(i);
+                    if (markEpoch[book] == stamp && Math.abs(markStars[book] - index.starsAt(i)) <= 1) {
+                        similar++;
+                    }
+                }
+                if (similar >= minSimilar) {
+                    qualified[qualifiedCount++] = other;
+                }
+            }
+
+            Arrays.sort(qualified, 0, qualifiedCount);
+            for (int t = 0; t < qualifiedCount; t++) {
+                out.add(reader, qualified[t]);
+            }
+        }
+        return verified;
+    }
+
+    // Mezcla de bits de SplitMix64
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,184 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Graph;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.GraphSnapshot;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Versión inmutable del grafo de afinidad que publica AffinitySystem.
+ *
+ * El grafo es una copia propia que nadie vuelve a modificar, así que varios
+ * hilos pueden consultarla a la vez sin bloquearse. Los recorridos (caminos,
+ * alcanzabilidad, grupos) se hacen sobre la forma CSR del grafo con arreglos
+ * propios de cada llamada, porque los de Graph reutilizan arreglos internos.
+ */
+public final class AffinitySnapshot {
+    private final long version;
+    private final Graph<Reader> graph;
+    // Forma CSR; se arma con la primera consulta que la necesita, no al publicar
+    private volatile GraphSnapshot<Reader> csr;
+
+    AffinitySnapshot(long version, Graph<Reader> graph) {
+        this.version = version;
+        this.graph = graph;
+    }
+
+    private GraphSnapshot<Reader> csr() {
+        GraphSnapshot<Reader> result = csr;
+        if (result == null) {
+            synchronized (this) {
+                result = csr;
+                if (result == null) {
+                    result = graph.snapshot();
+                    csr = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Crece con cada publicación; sirve para saber si hubo cambios desde la última consulta
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Grafo de esta versión. Es de solo lectura: modificarlo rompería la foto
+     * para los demás hilos. Para caminos y grupos usar los métodos de esta clase.
+     */
+    public Graph<Reader> getGraph() {
+        return graph;
+    }
+
+    public int edgeCount() {
+        return graph.edgeCount();
+    }
+
+    // Amigos de amigos que todavía no son amigos directos
+    public LinkedList<Reader> getSuggestedFriends(Reader reader) {
+        GraphSnapshot<Reader> csr = csr();
+        LinkedList<Reader> suggestions = new LinkedList<>();
+        int readerId = graph.vertexId(reader);
+        if (readerId < 0) {
+            return suggestions;
+        }
+
+        Set<Integer> visited = new HashSet<>();
+        visited.add(readerId);
+        for (int i = csr.neighborStart(readerId); i < csr.neighborEnd(readerId); i++) {
+            visited.add(csr.target(i));
+        }
+
+        for (int i = csr.neighborStart(readerId); i < csr.neighborEnd(readerId); i++) {
+            int friend = csr.target(i);
+            for (int k = csr.neighborStart(friend); k < csr.neighborEnd(friend); k++) {
+                int candidate = csr.target(k);
+                if (visited.add(candidate)) {
+                    suggestions.add(csr.vertexAt(candidate));
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    // Camino más corto (BFS); vacío si no hay camino o algún extremo no existe
+    public LinkedList<Reader> getShortestPath(Reader start, Reader end) {
+        GraphSnapshot<Reader> csr = csr();
+        LinkedList<Reader> path = new LinkedList<>();
+        int[] parent = search(graph.vertexId(start), graph.vertexId(end));
+        if (parent == null) {
+            return path;
+        }
+        for (int at = graph.vertexId(end); at >= 0; at = parent[at]) {
+            path.addBeginning(csr.vertexAt(at));
+        }
+        return path;
+    }
+
+    public boolean isReachable(Reader start, Reader end) {
+        return search(graph.vertexId(start), graph.vertexId(end)) != null;
+    }
+
+    /**
+     * BFS desde startId hasta encontrar endId. Devuelve los padres (-1 en el
+     * inicio) o null si no se llega.
+     */
+    private int[] search(int startId, int endId) {
+        GraphSnapshot<Reader> csr = csr();
+        if (startId < 0 || endId < 0) {
+            return null;
+        }
+        int[] parent = new int[csr.idCount()];
+        Arrays.fill(parent, -2);
+        parent[startId] = -1;
+        if (startId == endId) {
+            return parent;
+        }
+
+        int[] queue = new int[csr.idCount()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = startId;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int i = csr.neighborStart(current); i < csr.neighborEnd(current); i++) {
+                int neighbor = csr.target(i);
+                if (parent[neighbor] != -2) {
+                    continue;
+                }
+                parent[neighbor] = current;
+                if (neighbor == endId) {
+                    return parent;
+                }
+                queue[tail++] = neighbor;
+            }
+        }
+        return null;
+    }
+
+    // Grupos de lectores conectados, en el orden de los ids del grafo
+    public LinkedList<HashSet<Reader>> detectAffinityClusters() {
+        GraphSnapshot<Reader> csr = csr();
+        int[] labels = csr.componentLabels();
+        java.util.ArrayList<HashSet<Reader>> byLabel = new java.util.ArrayList<>();
+        for (int id = 0; id < labels.length; id++) {
+            if (labels[id] < 0) {
+                continue;
+            }
+            if (labels[id] == byLabel.size()) {
+                byLabel.add(new HashSet<>());
+            }
+            byLabel.get(labels[id]).add(csr.vertexAt(id));
+        }
+
+        LinkedList<HashSet<Reader>> clusters = new LinkedList<>();
+        for (HashSet<Reader> cluster : byLabel) {
+            clusters.add(cluster);
+        }
+        return clusters;
+    }
+
+    // Lectores de mayor a menor cantidad de conexiones; los empates conservan el orden del grafo
+    public LinkedList<Reader> getMostConnectedReaders() {
+        GraphSnapshot<Reader> csr = csr();
+        int count = 0;
+        Integer[] ids = new Integer[graph.vertexCount()];
+        for (int id = 0; id < csr.idCount(); id++) {
+            if (csr.isVertex(id)) {
+                ids[count++] = id;
+            }
+        }
+        Arrays.sort(ids, 0, count, (a, b) -> Integer.compare(csr.degree(b), csr.degree(a)));
+
+        LinkedList<Reader> sortedReaders = new LinkedList<>();
+        for (int i = 0; i < count; i++) {
+            sortedReaders.add(csr.vertexAt(ids[i]));
+        }
+        return sortedReaders;
+    }
+}
@@ -2,8 +2,9 @@ package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Service;
 
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Book;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Library;
-import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Rating;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Graph;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.Persistence;
@@ -16,49 +17,256 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Sistema mejorado para gestionar la afinidad entre lectores
  * CORRECCIÓN: Ahora incluye conexiones explícitas desde archivos
+ *
+ * Las consultas se responden sobre la última versión publicada
+ * (AffinitySnapshot), que se lee de una referencia atómica sin esperar a nadie.
+ * Los cambios se aplican a un grafo de trabajo propio y un hilo de fondo
+ * publica la versión siguiente; una reconstrucción completa (refreshAsync) se
+ * calcula también en segundo plano mientras se sigue consultando la anterior.
+ * Con startInBackground ni siquiera la primera construcción bloquea: se publica
+ * de inmediato una versión sin conexiones y ready() avisa cuando está la real.
  */
 public class AffinitySystem {
+    /**
+     * Cómo se calculan las conexiones por afinidad. PARALLEL reparte los lectores
+     * en el ForkJoinPool común; el grafo resultante es el mismo en ambos modos.
+     * APPROXIMATE solo verifica los pares que propone MinHash/LSH (ver
+     * AffinityLsh): puede perder algunas conexiones, nunca agrega de más. Sus
+     * bandas y filas se ajustan con biblioteca.affinity.lsh.bands y .rows.
+     * Por defecto se usa la propiedad del sistema biblioteca.affinity.build
+     * ("sequential", "parallel" o "approximate").
+     */
+    public enum BuildMode {
+        SEQUENTIAL, PARALLEL, APPROXIMATE;
+
+        public static final String PROPERTY = "biblioteca.affinity.build";
+        public static final String LSH_BANDS_PROPERTY = "biblioteca.affinity.lsh.bands";
+        public static final String LSH_ROWS_PROPERTY = "biblioteca.affinity.lsh.rows";
+
+        public static BuildMode configured() {
+            String mode = System.getProperty(PROPERTY, "sequential").trim();
+            if (mode.equalsIgnoreCase("parallel")) {
+                return PARALLEL;
+            }
+            if (mode.equalsIgnoreCase("approximate")) {
+                return APPROXIMATE;
+            }
+            if (!mode.equalsIgnoreCase("sequential")) {
+                System.err.println("⚠️ " + PROPERTY + "=" + mode + " no reconocido, se construye en secuencia");
+            }
+            return SEQUENTIAL;
+        }
+    }
+
+    // Libros en común con valoraciones similares necesarios para conectar a dos lectores
+    private static final int MIN_SIMILAR_BOOKS = 3;
+
+    // Hilos compartidos por todas las instancias: uno publica versiones y otro reconstruye
+    private static final ExecutorService PUBLISHER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "afinidad-publicar");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ExecutorService REBUILDER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "afinidad-reconstruir");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private Library library;
+    private final BuildMode buildMode;
+
+    // Grafo de trabajo: solo se modifica con el candado de this
     private Graph<Reader> affinityGraph;
 
+    // Para actualizar el grafo con cada valoración; se arman con el primer cambio
+    private AffinityCounters counters;
+    // Pares con conexión explícita ("usuario1|usuario2" en orden): no se quitan por falta de afinidad
+    private Set<String> explicitPairs = new HashSet<>();
+
+    // Última versión publicada; las consultas la leen sin candado
+    private final AtomicReference<AffinitySnapshot> current = new AtomicReference<>();
+    private long version;
+    private boolean dirty;
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+
+    /*
+     * Reconstrucciones en curso. Los eventos que llegan después de tomar los
+     * datos de una reconstrucción se guardan y se repiten sobre el grafo nuevo
+     * (repetirlos no cambia el resultado). Si terminan dos a la vez, solo se
+     * instala la que tomó los datos más recientes.
+     */
+    private int rebuildsInProgress;
+    private long captureSequence;
+    private long installedSequence;
+    private boolean replaying;
+    private final java.util.ArrayList<Runnable> pendingEvents = new java.util.ArrayList<>();
+
+    // Primera construcción; ya completada si se construyó en el constructor
+    private volatile CompletableFuture<AffinitySnapshot> initialBuild;
+
     public AffinitySystem(Library library) {
+        this(library, BuildMode.configured());
+    }
+
+    // Construye el grafo en el hilo que llama y publica el resultado antes de volver
+    public AffinitySystem(Library library, BuildMode buildMode) {
         this.library = library;
+        this.buildMode = buildMode;
         this.affinityGraph = new Graph<>();
         buildAffinityGraph();
+        this.initialBuild = CompletableFuture.completedFuture(current.get());
+    }
+
+    private AffinitySystem(Library library, BuildMode buildMode, ArrayList<Reader> readers) {
+        this.library = library;
+        this.buildMode = buildMode;
+        this.affinityGraph = new Graph<>();
+        for (Reader reader : readers) {
+            affinityGraph.addVertex(reader);
+        }
+    }
+
+    /**
+     * Crea el sistema sin esperar la primera construcción: publica enseguida una
+     * versión con los lectores y sin conexiones, y arma el grafo con refreshAsync.
+     * Pensado para el hilo de la interfaz, que no debe quedarse esperando.
+     */
+    public static AffinitySystem startInBackground(Library library) {
+        AffinitySystem system = new AffinitySystem(library, BuildMode.configured(), library.getReadersList());
+        system.publishNow();
+        system.initialBuild = system.refreshAsync();
+        return system;
+    }
+
+    // Se completa cuando la primera construcción está publicada
+    public CompletableFuture<AffinitySnapshot> ready() {
+        return initialBuild;
+    }
+
+    public boolean isReady() {
+        return initialBuild.isDone() && !initialBuild.isCompletedExceptionally();
     }
 
     /**
-     * MÉTODO CORREGIDO: Construye el grafo considerando tanto valoraciones como conexiones explícitas
+     * MÉTODO CORREGIDO: Construye el grafo considerando tanto valoraciones como conexiones explícitas.
+     * Lo hace en el hilo que llama y publica el resultado antes de volver.
      */
     public void buildAffinityGraph() {
-        LinkedList<Reader> readers = library.getReadersList();
+        Capture capture = capture();
+        Built built;
+        try {
+            built = build(capture);
+        } catch (RuntimeException e) {
+            abandon();
+            throw e;
+        }
+        install(built);
+    }
 
-        // Añadir todos los lectores como vértices
+    /**
+     * Reconstruye el grafo en segundo plano. Los datos se toman en el hilo que
+     * llama (es rápido: solo las valoraciones de cada lector); mientras se
+     * calculan las conexiones las consultas siguen viendo la versión anterior.
+     */
+    public CompletableFuture<AffinitySnapshot> refreshAsync() {
+        Capture capture = capture();
+        return CompletableFuture.supplyAsync(() -> {
+            Built built;
+            try {
+                built = build(capture);
+            } catch (RuntimeException e) {
+                abandon();
+                throw e;
+            }
+            return install(built);
+        }, REBUILDER);
+    }
+
+    // Datos que necesita una reconstrucción, tomados de Library en el hilo que llama
+    private synchronized Capture capture() {
+        rebuildsInProgress++;
+        ArrayList<Reader> readers = library.getReadersList();
+        java.util.HashMap<String, Reader> byUsername = new java.util.HashMap<>();
         for (Reader reader : readers) {
-            affinityGraph.addVertex(reader);
+            byUsername.put(reader.getUsername(), reader);
+        }
+        return new Capture(++captureSequence, readers, AffinityIndex.build(readers), byUsername);
+    }
+
+    private Built build(Capture capture) {
+        Graph<Reader> graph = new Graph<>();
+        Set<String> explicit = new HashSet<>();
+
+        // Añadir todos los lectores como vértices
+        for (Reader reader : capture.readers) {
+            graph.addVertex(reader);
         }
 
         System.out.println("🔄 Construyendo grafo de afinidad...");
 
         // PASO 1: Añadir conexiones basadas en valoraciones similares
-        int affinityConnections = addAffinityBasedConnections(readers);
+        int affinityConnections = addAffinityBasedConnections(graph, capture.index, buildMode);
 
         // PASO 2: NUEVO - Añadir conexiones explícitas desde archivo
-        int explicitConnections = addExplicitConnections();
+        int explicitConnections = addExplicitConnections(graph, capture.byUsername, explicit);
 
         System.out.println("✅ Grafo construido: " + affinityConnections + " conexiones por afinidad + " +
                 explicitConnections + " conexiones explícitas");
+        return new Built(capture.sequence, graph, explicit);
+    }
+
+    // Reemplaza el grafo de trabajo, repite los eventos que llegaron mientras tanto y publica
+    private synchronized AffinitySnapshot install(Built built) {
+        java.util.ArrayList<Runnable> replay = new java.util.ArrayList<>(pendingEvents);
+        if (--rebuildsInProgress == 0) {
+            pendingEvents.clear();
+        }
+        if (built.sequence < installedSequence) {
+            return current.get();
+        }
+
+        installedSequence = built.sequence;
+        affinityGraph = built.graph;
+        explicitPairs = built.explicitPairs;
+        counters = null;
+
+        replaying = true;
+        try {
+            for (Runnable event : replay) {
+                event.run();
+            }
+        } finally {
+            replaying = false;
+        }
+        return publishNow();
+    }
+
+    private synchronized void abandon() {
+        if (--rebuildsInProgress == 0) {
+            pendingEvents.clear();
+        }
     }
 
     /**
      * NUEVO: Añade conexiones explícitas desde el archivo de conexiones
      */
-    private int addExplicitConnections() {
+    private int addExplicitConnections(Graph<Reader> affinityGraph, java.util.HashMap<String, Reader> byUsername,
+                                       Set<String> explicitPairs) {
         int count = 0;
 
         try {
@@ -77,16 +285,15 @@ public class AffinitySystem {
                         String username1 = parts[0].trim();
                         String username2 = parts[1].trim();
 
-                        Reader reader1 = library.getReaderByUsername(username1);
-                        Reader reader2 = library.getReaderByUsername(username2);
+                        Reader reader1 = byUsername.get(username1);
+                        Reader reader2 = byUsername.get(username2);
 
                         if (reader1 != null && reader2 != null && !reader1.equals(reader2)) {
                             // Verificar si la conexión ya existe (para evitar duplicados)
-                            HashSet<Reader> connections1 = affinityGraph.getAdjacentVertices(reader1);
-                            if (connections1 == null || !connections1.contains(reader2)) {
+                            explicitPairs.add(pairKey(reader1, reader2));
+                            if (!affinityGraph.hasEdge(reader1, reader2)) {
                                 affinityGraph.addEdge(reader1, reader2);
                                 count++;
-                                System.out.println("🤝 Conexión explícita añadida: " + username1 + " <-> " + username2);
                             }
                         } else {
                             System.err.println("⚠️ No se pudo crear conexión: " + username1 + " <-> " + username2);
@@ -129,130 +336,302 @@ public class AffinitySystem {
     }
 
     /**
-     * MÉTODO SEPARADO: Añade conexiones basadas en afinidad de valoraciones
+     * MÉTODO SEPARADO: Añade conexiones basadas en afinidad de valoraciones.
+     *
+     * En lugar de comparar cada par de lectores se usa un índice invertido libro →
+     * (lector, estrellas): cada lector recorre solo a los otros lectores de sus
+     * mismos libros (ver AffinityIndex). En modo PARALLEL los lectores se reparten
+     * en rangos; cada rango junta sus aristas en un arreglo propio y al final se
+     * agregan al grafo en el orden de los rangos, así que el resultado es idéntico.
+     * En modo APPROXIMATE solo se verifican los pares candidatos de LSH.
      */
-    private int addAffinityBasedConnections(LinkedList<Reader> readers) {
-        int count = 0;
-
-        // Comparar cada par de lectores para determinar afinidad
-        for (int i = 0; i < readers.getSize(); i++) {
-            for (int j = i + 1; j < readers.getSize(); j++) {
-                Reader reader1 = readers.getAmountNodo(i);
-                Reader reader2 = readers.getAmountNodo(j);
+    private static int addAffinityBasedConnections(Graph<Reader> affinityGraph, AffinityIndex index,
+                                                   BuildMode buildMode) {
+        int readerCount = index.readerCount();
+        String detail = buildMode.toString();
+
+        List<AffinityIndex.EdgeBuffer> buffers;
+        if (buildMode == BuildMode.APPROXIMATE) {
+            AffinityLsh lsh = AffinityLsh.configured();
+            AffinityIndex.EdgeBuffer edges = new AffinityIndex.EdgeBuffer();
+            long verified = lsh.collectEdges(index, MIN_SIMILAR_BOOKS, edges);
+            buffers = new java.util.ArrayList<>();
+            buffers.add(edges);
+            detail += " " + lsh + ", " + verified + " candidatos";
+        } else if (buildMode == BuildMode.PARALLEL && readerCount > 1) {
+            int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            int grain = Math.max(16, readerCount / (parallelism * 32));
+            buffers = ForkJoinPool.commonPool().invoke(new EdgeTask(index, 0, readerCount, grain,
+                    new ConcurrentLinkedQueue<>()));
+        } else {
+            AffinityIndex.EdgeBuffer edges = new AffinityIndex.EdgeBuffer();
+            index.collectEdges(0, readerCount, MIN_SIMILAR_BOOKS, new AffinityIndex.Scratch(readerCount), edges);
+            buffers = new java.util.ArrayList<>();
+            buffers.add(edges);
+        }
 
-                if (haveAffinity(reader1, reader2)) {
-                    affinityGraph.addEdge(reader1, reader2);
-                    count++;
-                    System.out.println("⭐ Conexión por afinidad: " + reader1.getName() + " <-> " + reader2.getName());
-                }
+        int connections = 0;
+        for (AffinityIndex.EdgeBuffer edges : buffers) {
+            for (int e = 0; e < edges.size(); e++) {
+                affinityGraph.addEdge(index.reader(edges.first(e)), index.reader(edges.second(e)));
             }
+            connections += edges.size();
         }
 
-        return count;
+        System.out.println("⭐ Conexiones por afinidad: " + connections + " (" + index.ratingCount() +
+                " valoraciones de " + readerCount + " lectores, " + detail + ")");
+        return connections;
     }
 
     /**
-     * Determina si dos lectores tienen afinidad basándose en valoraciones similares
-     * (método sin cambios)
+     * Solo las conexiones por afinidad entre los lectores dados, sin Library ni
+     * el archivo de conexiones. Sirve para comparar los modos entre sí (por
+     * ejemplo, cuántas conexiones encuentra APPROXIMATE respecto de SEQUENTIAL).
      */
-    private boolean haveAffinity(Reader reader1, Reader reader2) {
-        int commonBooksWithSimilarRatings = 0;
-
-        LinkedList<Rating> ratings1 = reader1.getRatingsList();
-        LinkedList<Rating> ratings2 = reader2.getRatingsList();
-
-        // Comparar valoraciones de libros comunes
-        for (Rating rating1 : ratings1) {
-            for (Rating rating2 : ratings2) {
-                // Si valoraron el mismo libro
-                if (rating1.getBook().getIdBook().equals(rating2.getBook().getIdBook())) {
-                    // Si las valoraciones son similares (diferencia ≤ 1)
-                    if (Math.abs(rating1.getStars() - rating2.getStars()) <= 1) {
-                        commonBooksWithSimilarRatings++;
-                    }
+    public static Graph<Reader> buildAffinityOnly(ArrayList<Reader> readers, BuildMode buildMode) {
+        Graph<Reader> graph = new Graph<>();
+        for (Reader reader : readers) {
+            graph.addVertex(reader);
+        }
+        addAffinityBasedConnections(graph, AffinityIndex.build(readers), buildMode);
+        return graph;
+    }
+
+    // Parte el rango de lectores en mitades; cada hoja toma prestados unos arreglos de trabajo libres
+    private static final class EdgeTask extends RecursiveTask<List<AffinityIndex.EdgeBuffer>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient AffinityIndex index;
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final ConcurrentLinkedQueue<AffinityIndex.Scratch> scratch;
+
+        EdgeTask(AffinityIndex index, int from, int to, int grain, ConcurrentLinkedQueue<AffinityIndex.Scratch> scratch) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.scratch = scratch;
+        }
+
+        @Override
+        protected List<AffinityIndex.EdgeBuffer> compute() {
+            if (to - from <= grain) {
+                AffinityIndex.Scratch arrays = scratch.poll();
+                if (arrays == null) {
+                    arrays = new AffinityIndex.Scratch(index.readerCount());
                 }
+                AffinityIndex.EdgeBuffer edges = new AffinityIndex.EdgeBuffer();
+                index.collectEdges(from, to, MIN_SIMILAR_BOOKS, arrays, edges);
+                scratch.offer(arrays);
+                List<AffinityIndex.EdgeBuffer> result = new java.util.ArrayList<>();
+                result.add(edges);
+                return result;
             }
+
+            int middle = (from + to) >>> 1;
+            EdgeTask left = new EdgeTask(index, from, middle, grain, scratch);
+            EdgeTask right = new EdgeTask(index, middle, to, grain, scratch);
+            left.fork();
+            List<AffinityIndex.EdgeBuffer> result = right.compute();
+            result.addAll(0, left.join());
+            return result;
+        }
+    }
+
+    // ==================== ACTUALIZACIÓN POR EVENTOS ====================
+
+    /*
+     * Library avisa cada cambio (ver Library.getAffinitySystem()): en lugar de
+     * reconstruir el grafo, solo se revisan los pares del lector con quienes
+     * valoraron el mismo libro, y se agrega o quita la arista si cruzan el umbral.
+     */
+
+    // Valoración nueva o con estrellas cambiadas
+    public synchronized void onRatingAdded(Rating rating) {
+        if (rating == null || rating.getReader() == null || rating.getBook() == null) {
+            return;
         }
+        Reader reader = rating.getReader();
+        String bookId = rating.getBook().getIdBook();
 
-        // Requieren al menos 3 libros en común con valoraciones similares
-        return commonBooksWithSimilarRatings >= 3;
+        affinityGraph.addVertex(reader);
+        counters().setRating(reader, bookId, rating.getStars());
+        updatePairs(reader, counters.coRaters(bookId, reader));
+        changed(() -> onRatingAdded(rating));
     }
 
-    // RESTO DE MÉTODOS SIN CAMBIOS...
-    public LinkedList<Reader> getSuggestedFriends(Reader reader) {
-        LinkedList<Reader> suggestions = new LinkedList<>();
-        Set<Reader> visited = new HashSet<>();
+    public synchronized void onRatingRemoved(Rating rating) {
+        if (rating == null || rating.getReader() == null || rating.getBook() == null) {
+            return;
+        }
+        Reader reader = rating.getReader();
+        String bookId = rating.getBook().getIdBook();
+
+        // Los otros lectores se buscan antes de quitar la valoración
+        List<Reader> others = counters().coRaters(bookId, reader);
+        counters.removeRating(reader, bookId);
+        updatePairs(reader, others);
+        changed(() -> onRatingRemoved(rating));
+    }
+
+    public synchronized void onReaderAdded(Reader reader) {
+        affinityGraph.addVertex(reader);
+        changed(() -> onReaderAdded(reader));
+    }
 
-        HashSet<Reader> directFriends = affinityGraph.getAdjacentVertices(reader);
-        if (directFriends == null) {
-            return suggestions;
+    public synchronized void onReaderRemoved(Reader reader) {
+        affinityGraph.removeVertex(reader);
+        if (counters != null) {
+            counters.removeReader(reader);
         }
+        changed(() -> onReaderRemoved(reader));
+    }
 
-        visited.add(reader);
-        visited.addAll(directFriends);
+    public synchronized void onConnectionAdded(Reader reader1, Reader reader2) {
+        if (reader1 == null || reader2 == null || reader1 == reader2) {
+            return;
+        }
+        explicitPairs.add(pairKey(reader1, reader2));
+        affinityGraph.addEdge(reader1, reader2);
+        changed(() -> onConnectionAdded(reader1, reader2));
+    }
 
-        for (Reader friend : directFriends) {
-            HashSet<Reader> friendsOfFriend = affinityGraph.getAdjacentVertices(friend);
-            if (friendsOfFriend != null) {
-                for (Reader candidate : friendsOfFriend) {
-                    if (!visited.contains(candidate)) {
-                        suggestions.add(candidate);
-                        visited.add(candidate);
-                    }
-                }
-            }
+    // Guarda el evento si hay una reconstrucción en curso y programa la publicación
+    private void changed(Runnable replay) {
+        if (rebuildsInProgress > 0 && !replaying) {
+            pendingEvents.add(replay);
+        }
+        dirty = true;
+        if (!replaying && publishScheduled.compareAndSet(false, true)) {
+            // Varios cambios seguidos se publican juntos en una sola copia
+            PUBLISHER.execute(() -> {
+                publishScheduled.set(false);
+                publishIfChanged();
+            });
         }
+    }
 
-        return suggestions;
+    private synchronized void publishIfChanged() {
+        if (dirty) {
+            publishNow();
+        }
     }
 
-    public LinkedList<Reader> getShortestPath(Reader start, Reader end) {
-        return affinityGraph.getShortestPath(start, end);
+    /**
+     * Publica ya una copia del grafo de trabajo (sin esperar al hilo de fondo) y
+     * la devuelve. Útil cuando se necesita ver un cambio recién hecho. La copia
+     * comparte las listas de vecinos con el grafo de trabajo (ver Graph.copy()),
+     * así que cuesta en proporción a los lectores y no a las conexiones.
+     */
+    public synchronized AffinitySnapshot publishNow() {
+        AffinitySnapshot snapshot = new AffinitySnapshot(++version, affinityGraph.copy());
+        dirty = false;
+        current.set(snapshot);
+        return snapshot;
     }
 
-    public LinkedList<HashSet<Reader>> detectAffinityClusters() {
-        return affinityGraph.getConnectedComponents();
+    // Versión publicada actual; no bloquea
+    public AffinitySnapshot snapshot() {
+        return current.get();
     }
 
-    public LinkedList<Reader> getMostConnectedReaders() {
-        LinkedList<Reader> allReaders = affinityGraph.getVertices();
-        LinkedList<Reader> sortedReaders = new LinkedList<>();
-
-        for (Reader reader : allReaders) {
-            HashSet<Reader> connections = affinityGraph.getAdjacentVertices(reader);
-            int connectionCount = connections != null ? connections.size() : 0;
-
-            boolean inserted = false;
-            for (int i = 0; i < sortedReaders.getSize(); i++) {
-                Reader other = sortedReaders.getAmountNodo(i);
-                HashSet<Reader> otherConnections = affinityGraph.getAdjacentVertices(other);
-                int otherCount = otherConnections != null ? otherConnections.size() : 0;
-
-                if (connectionCount > otherCount) {
-                    sortedReaders.add(i, reader);
-                    inserted = true;
-                    break;
-                }
-            }
+    private AffinityCounters counters() {
+        if (counters == null) {
+            counters = AffinityCounters.build(library.getReadersList());
+        }
+        return counters;
+    }
 
-            if (!inserted) {
-                sortedReaders.add(reader);
+    // Vuelve a contar los libros parecidos del lector con cada uno de los otros
+    private void updatePairs(Reader reader, List<Reader> others) {
+        counters.mark(reader);
+        int added = 0;
+        int removed = 0;
+        for (Reader other : others) {
+            boolean affinity = counters.countMarked(other) >= MIN_SIMILAR_BOOKS;
+            boolean connected = affinityGraph.hasEdge(reader, other);
+            if (affinity && !connected) {
+                affinityGraph.addEdge(reader, other);
+                added++;
+            } else if (!affinity && connected && !explicitPairs.contains(pairKey(reader, other))) {
+                affinityGraph.removeEdge(reader, other);
+                removed++;
             }
         }
+        if (added > 0 || removed > 0) {
+            System.out.println("⭐ Afinidad de " + reader.getUsername() + ": +" + added + " / -" + removed + " conexiones");
+        }
+    }
+
+    private static String pairKey(Reader reader1, Reader reader2) {
+        String username1 = reader1.getUsername();
+        String username2 = reader2.getUsername();
+        return username1.compareTo(username2) <= 0 ? username1 + "|" + username2 : username2 + "|" + username1;
+    }
+
+    // Consultas: todas sobre la versión publicada, sin candado
+    public LinkedList<Reader> getSuggestedFriends(Reader reader) {
+        return current.get().getSuggestedFriends(reader);
+    }
 
-        return sortedReaders;
+    public LinkedList<Reader> getShortestPath(Reader start, Reader end) {
+        return current.get().getShortestPath(start, end);
     }
 
+    // Verifica si dos lectores están conectados sin construir el camino
+    public boolean isReachable(Reader start, Reader end) {
+        return current.get().isReachable(start, end);
+    }
+
+    public LinkedList<HashSet<Reader>> detectAffinityClusters() {
+        return current.get().detectAffinityClusters();
+    }
+
+    public LinkedList<Reader> getMostConnectedReaders() {
+        return current.get().getMostConnectedReaders();
+    }
+
+    // Grafo de la versión publicada; es de solo lectura (ver AffinitySnapshot.getGraph())
     public Graph<Reader> getAffinityGraph() {
-        return affinityGraph;
+        return current.get().getGraph();
     }
 
     /**
-     * MÉTODO MEJORADO: Actualiza el grafo cuando se añaden nuevos datos
+     * MÉTODO MEJORADO: Actualiza el grafo cuando se añaden nuevos datos.
+     * Se reconstruye en segundo plano (ver refreshAsync).
      */
-    public void updateAffinityGraph() {
+    public CompletableFuture<AffinitySnapshot> updateAffinityGraph() {
         System.out.println("🔄 Actualizando grafo de afinidad...");
-        affinityGraph = new Graph<>();
-        buildAffinityGraph();
+        return refreshAsync();
+    }
+
+    // Lo que toma capture() para una reconstrucción
+    private static final class Capture {
+        private final long sequence;
+        private final ArrayList<Reader> readers;
+        private final AffinityIndex index;
+        private final java.util.HashMap<String, Reader> byUsername;
+
+        Capture(long sequence, ArrayList<Reader> readers, AffinityIndex index,
+                java.util.HashMap<String, Reader> byUsername) {
+            this.sequence = sequence;
+            this.readers = readers;
+            this.index = index;
+            this.byUsername = byUsername;
+        }
+    }
+
+    private static final class Built {
+        private final long sequence;
+        private final Graph<Reader> graph;
+        private final Set<String> explicitPairs;
+
+        Built(long sequence, Graph<Reader> graph, Set<String> explicitPairs) {
+            this.sequence = sequence;
+            this.graph = graph;
+            this.explicitPairs = explicitPairs;
+        }
     }
 }
\ No newline at end of file
@@ -5,7 +5,9 @@ import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Library;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Rating;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util.RatingColumnStore;
 
 import java.util.HashSet;
 
@@ -34,7 +36,7 @@ public class BookRecommendationSystem {
 
     public BookRecommendationSystem(Library library) {
         this.library = library;
-        this.affinitySystem = new AffinitySystem(library);
+        this.affinitySystem = library.getAffinitySystem();
     }
 
     /**
@@ -92,8 +94,11 @@ public class BookRecommendationSystem {
         LinkedList<BookRecommendation> result = new LinkedList<>();
         int count = Math.min(maxRecommendations, finalRecommendations.getSize());
 
-        for (int i = 0; i < count; i++) {
-            result.add(finalRecommendations.getAmountNodo(i));
+        for (BookRecommendation recommendation : finalRecommendations) {
+            if (result.getSize() >= count) {
+                break;
+            }
+            result.add(recommendation);
         }
 
         return result;
@@ -128,27 +133,36 @@ public class BookRecommendationSystem {
         // Analizar valoraciones de usuarios similares
         HashMap<String, CollaborativeScore> bookScores = new HashMap<>();
 
+        // Las valoraciones de cada usuario similar se recorren en las columnas (enteros), sin objetos Rating
+        RatingColumnStore columns = library.getRatingColumns();
+
         for (Reader similarUser : similarUsers) {
-            LinkedList<Rating> userRatings = similarUser.getRatingsList();
+            int reader = columns.readerIndex(similarUser.getUsername());
+            if (reader < 0) {
+                continue;
+            }
 
-            for (Rating rating : userRatings) {
-                String bookId = rating.getBook().getIdBook();
+            columns.forEachRatingOf(reader, (book, stars) -> {
+                String bookId = columns.bookKey(book);
 
                 // Solo considerar libros no leídos por el usuario objetivo
-                if (!alreadyReadBooks.contains(bookId) && rating.getStars() >= 4) {
+                if (!alreadyReadBooks.contains(bookId) && stars >= 4) {
 
                     if (bookScores.containsKey(bookId)) {
                         // Acumular puntuación
                         CollaborativeScore existing = bookScores.get(bookId);
-                        existing.addRating(rating.getStars(), similarUser.getName());
+                        existing.addRating(stars, similarUser.getName());
                     } else {
                         // Nueva entrada
-                        CollaborativeScore newScore = new CollaborativeScore(rating.getBook());
-                        newScore.addRating(rating.getStars(), similarUser.getName());
-                        bookScores.put(bookId, newScore);
+                        Book ratedBook = library.getBookById(bookId);
+                        if (ratedBook != null) {
+                            CollaborativeScore newScore = new CollaborativeScore(ratedBook);
+                            newScore.addRating(stars, similarUser.getName());
+                            bookScores.put(bookId, newScore);
+                        }
                     }
                 }
-            }
+            });
         }
 
         // Convertir puntuaciones a recomendaciones
@@ -191,7 +205,7 @@ public class BookRecommendationSystem {
 
         // Obtener libros que el usuario no ha leído
         HashSet<String> alreadyReadBooks = getBooksReadByUser(targetReader);
-        LinkedList<Book> allBooks = library.getBookssList();
+        ArrayList<Book> allBooks = library.getBookssList();
 
         for (Book book : allBooks) {
             if (!alreadyReadBooks.contains(book.getIdBook())) {
@@ -321,8 +335,9 @@ public class BookRecommendationSystem {
 
         // Convertir a array para ordenamiento eficiente
         BookRecommendation[] array = new BookRecommendation[recommendations.getSize()];
-        for (int i = 0; i < recommendations.getSize(); i++) {
-            array[i] = recommendations.getAmountNodo(i);
+        int index = 0;
+        for (BookRecommendation recommendation : recommendations) {
+            array[index++] = recommendation;
         }
 
         // Ordenamiento por inserción (descendente)
@@ -0,0 +1,222 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lista respaldada por un arreglo que crece según se necesite.
+ *
+ * Ofrece los mismos métodos que LinkedList (add, getAmountNodo, getSize, delete...)
+ * para que los recorridos por índice puedan cambiar de estructura sin reescribirse,
+ * pero con acceso aleatorio O(1) en lugar de recorrer nodos desde el inicio.
+ */
+public class ArrayList<T> implements Iterable<T> {
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final Object[] EMPTY = {};
+
+    private Object[] elements;
+    private int size;
+    private int modCount;
+
+    public ArrayList() {
+        elements = EMPTY;
+    }
+
+    public ArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacidad inválida: " + initialCapacity);
+        }
+        elements = initialCapacity == 0 ? EMPTY : new Object[initialCapacity];
+    }
+
+    public ArrayList(Iterable<? extends T> source) {
+        this();
+        for (T element : source) {
+            append(element);
+        }
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            int newCapacity = Math.max(DEFAULT_CAPACITY, elements.length + (elements.length >> 1));
+            if (newCapacity < minCapacity) {
+                newCapacity = minCapacity;
+            }
+            elements = Arrays.copyOf(elements, newCapacity);
+        }
+    }
+
+    public void add(T element) {
+        addEnd(element);
+    }
+
+    public void addEnd(T element) {
+        append(element);
+    }
+
+    // Privado para que el constructor no dependa de métodos que una subclase pueda redefinir
+    private void append(T element) {
+        ensureCapacity(size + 1);
+        elements[size++] = element;
+        modCount++;
+    }
+
+    public void addBeginning(T element) {
+        add(0, element);
+    }
+
+    public void add(int index, T element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Índice inválido: " + index);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        validIndex(index);
+        return (T) elements[index];
+    }
+
+    // Mismo nombre que en LinkedList para facilitar el cambio de estructura
+    public T getAmountNodo(int index) {
+        return get(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T set(int index, T element) {
+        validIndex(index);
+        T previous = (T) elements[index];
+        elements[index] = element;
+        return previous;
+    }
+
+    public void changeNodo(int index, T newElement) {
+        set(index, newElement);
+    }
+
+    private void validIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new RuntimeException("Indice no válido");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T remove(int index) {
+        validIndex(index);
+        T removed = (T) elements[index];
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(elements, index + 1, elements, index, moved);
+        }
+        elements[--size] = null;
+        modCount++;
+        return removed;
+    }
+
+    // Igual que LinkedList.delete: compara por referencia y falla si no existe
+    public T delete(T element) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == element) {
+                remove(i);
+                return element;
+            }
+        }
+        throw new RuntimeException("Elemento no existe");
+    }
+
+    public T deleteFirst() {
+        if (isEmpty()) {
+            throw new RuntimeException("Lista vacia");
+        }
+        return remove(0);
+    }
+
+    public T poll() {
+        return isEmpty() ? null : remove(0);
+    }
+
+    public int getNodoPosition(T element) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] != null && elements[i].equals(element)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(T element) {
+        return getNodoPosition(element) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    public Object[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    public void printList() {
+        for (int i = 0; i < size; i++) {
+            System.out.println(elements[i] + "\t");
+        }
+        System.out.println();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final int expectedModCount = modCount;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (position >= size) {
+                    throw new NoSuchElementException();
+                }
+                return (T) elements[position++];
+            }
+        };
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliterator(this.iterator(), size, Spliterator.ORDERED | Spliterator.SIZED),
+                false
+        );
+    }
+}
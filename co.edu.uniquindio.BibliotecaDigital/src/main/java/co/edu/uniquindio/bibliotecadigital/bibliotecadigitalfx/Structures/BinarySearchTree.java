@@ -7,10 +7,27 @@ import java.util.*;
 import java.util.LinkedList;
 import java.util.function.Function;
 
-public class BinarySearchTree<T> {
+/**
+ * Árbol binario de búsqueda auto-balanceado (AVL).
+ *
+ * Los libros suelen cargarse ya ordenados desde archivo, lo que convertía el árbol
+ * en una lista. Con las rotaciones AVL la altura queda acotada a ~1.44·log2(n),
+ * así que insert/search/delete son O(log n) y los recorridos son iterativos.
+ *
+ * Funciona como multimapa ordenado: los elementos que el comparador considera
+ * iguales (mismo autor, misma categoría) se guardan todos en el mismo nodo,
+ * y size() cuenta elementos, no claves.
+ */
+public class BinarySearchTree<T> implements Iterable<T> {
+
+    // Posición de un elemento dentro de su nodo: DATA, índice en duplicates o NOT_FOUND
+    private static final int DATA = -1;
+    private static final int NOT_FOUND = -2;
 
     private NodeTree<T> root;
     private Comparator<T> comparator;
+    private int size;
+    private int modCount;
 
     public BinarySearchTree(Comparator<T> comparator) {
         this.comparator = comparator;
@@ -25,8 +42,11 @@ public class BinarySearchTree<T> {
         root = insertRecursive(root, value);
     }
 
+    // La recursión está acotada por la altura AVL (≈30 niveles para 1M de nodos)
     private NodeTree<T> insertRecursive(NodeTree<T> current, T value) {
         if (current == null) {
+            size++;
+            modCount++;
             return new NodeTree<>(value);
         }
 
@@ -36,97 +56,292 @@ public class BinarySearchTree<T> {
             current.setLeft(insertRecursive(current.getLeft(), value));
         } else if (cmp > 0) {
             current.setRight(insertRecursive(current.getRight(), value));
+        } else {
+            // Misma clave: se agrega al nodo existente salvo que sea el mismo objeto
+            if (indexOfItem(current, value) == NOT_FOUND) {
+                if (current.getDuplicates() == null) {
+                    current.setDuplicates(new ArrayList<>());
+                }
+                current.getDuplicates().add(value);
+                size++;
+                modCount++;
+            }
+            return current;
         }
-        // Si cmp == 0 no insertamos (o manejar duplicados si quieres)
 
-        return current;
+        return rebalance(current);
     }
 
-    // Buscar un valor
-    public boolean search(T value) {
-        return searchRecursive(root, value);
+    private int indexOfItem(NodeTree<T> node, T value) {
+        if (node.getData() == value) {
+            return DATA;
+        }
+        ArrayList<T> duplicates = node.getDuplicates();
+        if (duplicates != null) {
+            for (int i = 0; i < duplicates.getSize(); i++) {
+                if (duplicates.get(i) == value) {
+                    return i;
+                }
+            }
+        }
+        return NOT_FOUND;
     }
 
-    private boolean searchRecursive(NodeTree<T> current, T value) {
-        if (current == null) {
-            return false;
+    private int indexOfEqualItem(NodeTree<T> node, T value) {
+        int index = indexOfItem(node, value);
+        if (index != NOT_FOUND || value == null) {
+            return index;
         }
+        if (value.equals(node.getData())) {
+            return DATA;
+        }
+        ArrayList<T> duplicates = node.getDuplicates();
+        if (duplicates != null) {
+            for (int i = 0; i < duplicates.getSize(); i++) {
+                if (value.equals(duplicates.get(i))) {
+                    return i;
+                }
+            }
+        }
+        return NOT_FOUND;
+    }
 
-        int cmp = comparator.compare(value, current.getData());
-
-        if (cmp == 0) return true;
-        if (cmp < 0) return searchRecursive(current.getLeft(), value);
-        else return searchRecursive(current.getRight(), value);
+    // Buscar un valor
+    public boolean search(T value) {
+        return findNode(value) != null;
     }
 
     public T searchObject(T value) {
-        return searchRecursiveobject(root, value);
+        NodeTree<T> node = findNode(value);
+        return node != null ? node.getData() : null;
     }
 
-    private T searchRecursiveobject(NodeTree<T> node, T value) {
-        if (node == null) {
-            return null; // No encontrado
+    // Todos los elementos con la misma clave que value, en orden de inserción
+    public List<T> searchAll(T value) {
+        List<T> result = new java.util.ArrayList<>();
+        NodeTree<T> node = findNode(value);
+        if (node != null) {
+            addItems(node, result);
         }
+        return result;
+    }
 
-        int cmp = comparator.compare(value, node.getData());
+    private void addItems(NodeTree<T> node, List<T> result) {
+        result.add(node.getData());
+        if (node.hasDuplicates()) {
+            for (T duplicate : node.getDuplicates()) {
+                result.add(duplicate);
+            }
+        }
+    }
 
-        if (cmp == 0) {
-            return node.getData(); // ¡Encontrado!
-        } else if (cmp < 0) {
-            return searchRecursiveobject(node.getLeft(), value);
-        } else {
-            return searchRecursiveobject(node.getRight(), value);
+    /**
+     * Elementos cuya clave está entre from y to (ambos inclusive), en orden.
+     * Solo se visitan las ramas que pueden contener claves del rango: O(log n + k).
+     */
+    public List<T> rangeQuery(T from, T to) {
+        List<T> result = new java.util.ArrayList<>();
+        Deque<NodeTree<T>> stack = new ArrayDeque<>();
+        NodeTree<T> current = root;
+
+        while (current != null || !stack.isEmpty()) {
+            while (current != null) {
+                if (comparator.compare(current.getData(), from) < 0) {
+                    current = current.getRight();
+                } else {
+                    stack.push(current);
+                    current = current.getLeft();
+                }
+            }
+            if (stack.isEmpty()) {
+                break;
+            }
+            current = stack.pop();
+            if (comparator.compare(current.getData(), to) > 0) {
+                break;
+            }
+            addItems(current, result);
+            current = current.getRight();
         }
+        return result;
     }
 
+    // Mayor clave menor o igual que value (null si no hay)
+    public T floor(T value) {
+        T result = null;
+        NodeTree<T> current = root;
+        while (current != null) {
+            int cmp = comparator.compare(value, current.getData());
+            if (cmp == 0) {
+                return current.getData();
+            }
+            if (cmp < 0) {
+                current = current.getLeft();
+            } else {
+                result = current.getData();
+                current = current.getRight();
+            }
+        }
+        return result;
+    }
+
+    // Menor clave mayor o igual que value (null si no hay)
+    public T ceiling(T value) {
+        T result = null;
+        NodeTree<T> current = root;
+        while (current != null) {
+            int cmp = comparator.compare(value, current.getData());
+            if (cmp == 0) {
+                return current.getData();
+            }
+            if (cmp > 0) {
+                current = current.getRight();
+            } else {
+                result = current.getData();
+                current = current.getLeft();
+            }
+        }
+        return result;
+    }
 
-    // Eliminar un valor
+    private NodeTree<T> findNode(T value) {
+        NodeTree<T> current = root;
+        while (current != null) {
+            int cmp = comparator.compare(value, current.getData());
+            if (cmp == 0) {
+                return current;
+            }
+            current = cmp < 0 ? current.getLeft() : current.getRight();
+        }
+        return null;
+    }
+
+    /**
+     * Eliminar un valor: se quita ese elemento concreto (por referencia, o por
+     * equals si no está la misma instancia). Los demás con la misma clave se conservan.
+     */
     public void delete(T value) {
-        root = deleteRecursive(root, value);
+        NodeTree<T> node = findNode(value);
+        if (node == null) {
+            return;
+        }
+
+        int index = indexOfEqualItem(node, value);
+        if (index == NOT_FOUND) {
+            return;
+        }
+
+        if (index == DATA) {
+            if (node.hasDuplicates()) {
+                node.setData(node.getDuplicates().remove(0));
+            } else {
+                root = deleteNode(root, node.getData());
+            }
+        } else {
+            node.getDuplicates().remove(index);
+        }
+        size--;
+        modCount++;
     }
 
-    private NodeTree<T> deleteRecursive(NodeTree<T> current, T value) {
+    // Quita el nodo completo con esa clave, rebalanceando el camino
+    private NodeTree<T> deleteNode(NodeTree<T> current, T key) {
         if (current == null) return null;
 
-        int cmp = comparator.compare(value, current.getData());
+        int cmp = comparator.compare(key, current.getData());
 
         if (cmp < 0) {
-            current.setLeft(deleteRecursive(current.getLeft(), value));
+            current.setLeft(deleteNode(current.getLeft(), key));
         } else if (cmp > 0) {
-            current.setRight(deleteRecursive(current.getRight(), value));
+            current.setRight(deleteNode(current.getRight(), key));
         } else {
             // Nodo con un solo hijo o sin hijos
-            if (current.getLeft() == null) return current.getRight();
-            if (current.getRight() == null) return current.getLeft();
-
-            // Nodo con dos hijos: buscar el sucesor mínimo
-            T smallest = findMin(current.getRight());
-            current.setData(smallest);
-            current.setRight(deleteRecursive(current.getRight(), smallest));
+            if (current.getLeft() == null || current.getRight() == null) {
+                return current.getLeft() != null ? current.getLeft() : current.getRight();
+            }
+
+            // Nodo con dos hijos: traer el sucesor mínimo con todos sus elementos
+            NodeTree<T> successor = findMinNode(current.getRight());
+            current.setData(successor.getData());
+            current.setDuplicates(successor.getDuplicates());
+            current.setRight(deleteNode(current.getRight(), successor.getData()));
         }
 
-        return current;
+        return rebalance(current);
     }
 
-    private T findMin(NodeTree<T> node) {
+    private NodeTree<T> findMinNode(NodeTree<T> node) {
         while (node.getLeft() != null) {
             node = node.getLeft();
         }
-        return node.getData();
+        return node;
     }
 
-    // Recorridos
-    public void inOrder() {
-        inOrderRecursive(root);
-        System.out.println();
+    // ================== BALANCEO AVL ==================
+
+    private int heightOf(NodeTree<T> node) {
+        return node == null ? 0 : node.getHeight();
     }
 
-    private void inOrderRecursive(NodeTree<T> node) {
-        if (node != null) {
-            inOrderRecursive(node.getLeft());
-            System.out.print(node.getData() + " ");
-            inOrderRecursive(node.getRight());
+    private void updateHeight(NodeTree<T> node) {
+        node.setHeight(1 + Math.max(heightOf(node.getLeft()), heightOf(node.getRight())));
+    }
+
+    private int balanceFactor(NodeTree<T> node) {
+        return heightOf(node.getLeft()) - heightOf(node.getRight());
+    }
+
+    private NodeTree<T> rotateRight(NodeTree<T> node) {
+        NodeTree<T> pivot = node.getLeft();
+        node.setLeft(pivot.getRight());
+        pivot.setRight(node);
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    private NodeTree<T> rotateLeft(NodeTree<T> node) {
+        NodeTree<T> pivot = node.getRight();
+        node.setRight(pivot.getLeft());
+        pivot.setLeft(node);
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    private NodeTree<T> rebalance(NodeTree<T> node) {
+        updateHeight(node);
+        int balance = balanceFactor(node);
+
+        if (balance > 1) {
+            if (balanceFactor(node.getLeft()) < 0) {
+                node.setLeft(rotateLeft(node.getLeft()));
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (balanceFactor(node.getRight()) > 0) {
+                node.setRight(rotateRight(node.getRight()));
+            }
+            return rotateLeft(node);
         }
+        return node;
+    }
+
+    // Recorridos
+    public void inOrder() {
+        Deque<NodeTree<T>> stack = new ArrayDeque<>();
+        NodeTree<T> current = root;
+        while (current != null || !stack.isEmpty()) {
+            while (current != null) {
+                stack.push(current);
+                current = current.getLeft();
+            }
+            current = stack.pop();
+            System.out.print(current.getData() + " ");
+            current = current.getRight();
+        }
+        System.out.println();
     }
 
     public void preOrder() {
@@ -172,27 +387,58 @@ public class BinarySearchTree<T> {
     }
 
     public int size() {
-        return sizeRecursive(root);
+        return size;
     }
 
-    private int sizeRecursive(NodeTree<T> node) {
-        if (node == null) {
-            return 0;
-        }
-        return 1 + sizeRecursive(node.getLeft()) + sizeRecursive(node.getRight());
-    }
-
-    // Altura del árbol
+    // Altura del árbol (-1 si está vacío, 0 con un solo nodo)
     public int height() {
-        return heightRecursive(root);
+        return heightOf(root) - 1;
     }
 
-    private int heightRecursive(NodeTree<T> node) {
-        if (node == null) return -1;
-        return 1 + Math.max(heightRecursive(node.getLeft()), heightRecursive(node.getRight()));
-    }
     public void clear() {
         root = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Reemplaza el contenido con elementos que ya vienen en el orden del comparador
+     * (por ejemplo el recorrido inorder guardado en una foto). Los elementos iguales
+     * consecutivos van al mismo nodo y el árbol se arma balanceado en O(n), sin
+     * comparaciones de búsqueda ni rotaciones.
+     */
+    public void buildFromSorted(List<T> sorted) {
+        java.util.ArrayList<NodeTree<T>> nodes = new java.util.ArrayList<>();
+        NodeTree<T> current = null;
+
+        for (T value : sorted) {
+            if (current != null && comparator.compare(current.getData(), value) == 0) {
+                if (current.getDuplicates() == null) {
+                    current.setDuplicates(new ArrayList<>());
+                }
+                current.getDuplicates().add(value);
+            } else {
+                current = new NodeTree<>(value);
+                nodes.add(current);
+            }
+        }
+
+        root = linkBalanced(nodes, 0, nodes.size() - 1);
+        size = sorted.size();
+        modCount++;
+    }
+
+    // La recursión baja por la mitad del rango: profundidad log2(n)
+    private NodeTree<T> linkBalanced(java.util.ArrayList<NodeTree<T>> nodes, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        NodeTree<T> node = nodes.get(middle);
+        node.setLeft(linkBalanced(nodes, from, middle - 1));
+        node.setRight(linkBalanced(nodes, middle + 1, to));
+        updateHeight(node);
+        return node;
     }
 
 
@@ -202,43 +448,76 @@ public class BinarySearchTree<T> {
     }
 
     public List<T> obtenerListainOrder() {
-        List<T> list = new ArrayList<>();
-        inOrderRecursive(root, list);
+        List<T> list = new java.util.ArrayList<>(size);
+        for (T data : this) {
+            list.add(data);  // aquí agregamos el dato a la lista
+        }
         return list;
     }
 
-    private void inOrderRecursive(NodeTree<T> node, List<T> list) {
-        if (node != null) {
-            inOrderRecursive(node.getLeft(), list);
-            list.add(node.getData());  // aquí agregamos el dato a la lista
-            inOrderRecursive(node.getRight(), list);
-        }
+    /**
+     * Recorrido en orden perezoso: solo guarda la pila del camino actual
+     * (O(log n)) en lugar de copiar todo el árbol a una lista.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Deque<NodeTree<T>> stack = new ArrayDeque<>();
+            private final int expectedModCount = modCount;
+            private NodeTree<T> node;
+            private int duplicateIndex = DATA;
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(NodeTree<T> current) {
+                while (current != null) {
+                    stack.push(current);
+                    current = current.getLeft();
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (node != null && node.hasDuplicates() && duplicateIndex + 1 < node.getDuplicates().getSize()) {
+                    return true;
+                }
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (node != null && node.hasDuplicates() && duplicateIndex + 1 < node.getDuplicates().getSize()) {
+                    duplicateIndex++;
+                    return node.getDuplicates().get(duplicateIndex);
+                }
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                node = stack.pop();
+                duplicateIndex = DATA;
+                pushLeft(node.getRight());
+                return node.getData();
+            }
+        };
     }
 
     // Método genérico para buscar coincidencias parciales usando un extractor de clave
     public List<T> searchPartialMatches(String text, Function<T, String> keyExtractor) {
-        List<T> result = new ArrayList<>();
-        searchPartialRecursive(root, text.toLowerCase(), result, keyExtractor);
-        return result;
-    }
-
-
-    private void searchPartialRecursive(NodeTree<T> node, String text, List<T> result, Function<T, String> keyExtractor) {
-        if (node == null) return;
-
-        searchPartialRecursive(node.getLeft(), text, result, keyExtractor);
-
-        String key = keyExtractor.apply(node.getData());
-        if (key != null && key.toLowerCase().contains(text)) {
-            result.add(node.getData());
+        List<T> result = new java.util.ArrayList<>();
+        String lowerText = text.toLowerCase();
+
+        for (T data : this) {
+            String key = keyExtractor.apply(data);
+            if (key != null && key.toLowerCase().contains(lowerText)) {
+                result.add(data);
+            }
         }
-
-        searchPartialRecursive(node.getRight(), text, result, keyExtractor);
+        return result;
     }
 
 }
-
-
-
-
-
@@ -1,99 +1,457 @@
 package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures;
 
-import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.*;
-import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Grafo no dirigido con vértices internados a ids enteros densos.
+ *
+ * Cada vértice recibe un id (0..capacidad) y sus vecinos se guardan como arreglos
+ * de int, sin objetos por arista. Los ids de vértices eliminados se reutilizan.
+ * Los vértices con muchos vecinos tienen además un índice hash vecino -> posición,
+ * así que hasEdge, addEdge y removeEdge no recorren la lista completa.
+ * Para consultas de solo lectura sobre grafos grandes, snapshot() congela la
+ * estructura en formato CSR (GraphSnapshot).
+ */
 public class Graph<T> {
+    private static final int[] NO_NEIGHBORS = new int[0];
 
-    private final HashMap<T, HashSet<T>> adjacencyList = new HashMap<>();
+    // Grado a partir del cual un vértice indexa sus vecinos en una tabla hash
+    private static final int INDEX_THRESHOLD = 16;
+
+    private final HashMap<T, Integer> ids = new HashMap<>();
+    private Object[] vertices = new Object[16];
+    private int[][] neighbors = new int[16][];
+    private int[] degrees = new int[16];
+    private NeighborIndex[] indexes = new NeighborIndex[16];
+    // true si la lista de vecinos (y su índice) también la usa una copia: se duplica antes de modificarla
+    private boolean[] shared = new boolean[16];
+
+    // Ids libres por eliminación de vértices (pila)
+    private int[] freeIds = new int[4];
+    private int freeCount;
+    private int nextId;
+
+    private int edgeCount;
+    private int modCount;
+    private GraphSnapshot<T> snapshot;
+    private int snapshotModCount = -1;
 
     public void addVertex(T vertex) {
-        if (!adjacencyList.containsKey(vertex)) {
-            adjacencyList.put(vertex, new HashSet<>());
+        internVertex(vertex);
+    }
+
+    private int internVertex(T vertex) {
+        Integer existing = ids.get(vertex);
+        if (existing != null) {
+            return existing;
         }
+
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == vertices.length) {
+                int newCapacity = id * 2;
+                vertices = Arrays.copyOf(vertices, newCapacity);
+                neighbors = Arrays.copyOf(neighbors, newCapacity);
+                degrees = Arrays.copyOf(degrees, newCapacity);
+                indexes = Arrays.copyOf(indexes, newCapacity);
+                shared = Arrays.copyOf(shared, newCapacity);
+            }
+        }
+
+        vertices[id] = vertex;
+        neighbors[id] = NO_NEIGHBORS;
+        degrees[id] = 0;
+        indexes[id] = null;
+        shared[id] = false;
+        ids.put(vertex, id);
+        modCount++;
+        return id;
     }
 
+    // Solo recorre los vecinos del vértice, no todo el grafo
     public void removeVertex(T vertex) {
-        adjacencyList.remove(vertex);
-        for (T v : adjacencyList.keySet()) {
-            adjacencyList.get(v).remove(vertex);
+        Integer boxedId = ids.get(vertex);
+        if (boxedId == null) {
+            return;
         }
+        int id = boxedId;
+
+        int[] adjacent = neighbors[id];
+        for (int i = 0; i < degrees[id]; i++) {
+            int neighbor = adjacent[i];
+            if (neighbor != id) {
+                removeFromList(neighbor, id);
+            }
+        }
+        edgeCount -= degrees[id];
+
+        ids.remove(vertex);
+        vertices[id] = null;
+        neighbors[id] = null;
+        degrees[id] = 0;
+        indexes[id] = null;
+        shared[id] = false;
+
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+        modCount++;
     }
 
     public void addEdge(T v1, T v2) {
-        addVertex(v1);
-        addVertex(v2);
-        adjacencyList.get(v1).add(v2);
-        adjacencyList.get(v2).add(v1);
+        int id1 = internVertex(v1);
+        int id2 = internVertex(v2);
+
+        if (indexOf(id1, id2) >= 0) {
+            return;
+        }
+        appendToList(id1, id2);
+        if (id1 != id2) {
+            appendToList(id2, id1);
+        }
+        edgeCount++;
+        modCount++;
     }
 
     public void removeEdge(T v1, T v2) {
-        if (adjacencyList.containsKey(v1)) {
-            adjacencyList.get(v1).remove(v2);
+        Integer id1 = ids.get(v1);
+        Integer id2 = ids.get(v2);
+        if (id1 == null || id2 == null || indexOf(id1, id2) < 0) {
+            return;
         }
-        if (adjacencyList.containsKey(v2)) {
-            adjacencyList.get(v2).remove(v1);
+
+        removeFromList(id1, id2);
+        if (!id1.equals(id2)) {
+            removeFromList(id2, id1);
         }
+        edgeCount--;
+        modCount++;
     }
 
+    public boolean hasEdge(T v1, T v2) {
+        Integer id1 = ids.get(v1);
+        Integer id2 = ids.get(v2);
+        return id1 != null && id2 != null && indexOf(id1, id2) >= 0;
+    }
+
+    public boolean containsVertex(T vertex) {
+        return ids.containsKey(vertex);
+    }
+
+    /**
+     * Copia de los vecinos del vértice, o null si el vértice no existe.
+     * Para solo contar conexiones usar degree(), que no crea objetos.
+     */
     public HashSet<T> getAdjacentVertices(T vertex) {
-        return adjacencyList.get(vertex);
+        Integer id = ids.get(vertex);
+        if (id == null) {
+            return null;
+        }
+
+        HashSet<T> result = new HashSet<>();
+        int[] adjacent = neighbors[id];
+        for (int i = 0; i < degrees[id]; i++) {
+            result.add(vertexAt(adjacent[i]));
+        }
+        return result;
+    }
+
+    // Número de vecinos (0 si el vértice no existe)
+    public int degree(T vertex) {
+        Integer id = ids.get(vertex);
+        return id == null ? 0 : degrees[id];
     }
 ////////////////////////////
     public LinkedList<T> getVertices() {
-        return adjacencyList.keySet();
+        LinkedList<T> result = new LinkedList<>();
+        for (int id = 0; id < nextId; id++) {
+            if (vertices[id] != null) {
+                result.add(vertexAt(id));
+            }
+        }
+        return result;
     }
 ////////////////////////////
 
-    // BFS para camino más corto
-    public LinkedList<T> getShortestPath(T start, T end) {
-        HashMap<T, T> prev = new HashMap<>();
-        HashSet<T> visited = new HashSet<>();
-        LinkedList<T> queue = new LinkedList<>();
-        queue.add(start);
-        visited.add(start);
-
-        while (!queue.isEmpty()) {
-            T current = queue.poll();
-            if (current.equals(end)) break;
-
-            for (T neighbor : getAdjacentVertices(current)) {
-                if (!visited.contains(neighbor)) {
-                    visited.add(neighbor);
-                    prev.put(neighbor, current);
-                    queue.add(neighbor);
+    // ================== ACCESO POR ID ==================
+
+    // Id interno del vértice, o -1 si no existe
+    public int vertexId(T vertex) {
+        Integer id = ids.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T vertexAt(int id) {
+        return (T) vertices[id];
+    }
+
+    // Límite superior (exclusivo) de los ids en uso; puede haber huecos
+    public int idCapacity() {
+        return nextId;
+    }
+
+    public int degreeOf(int id) {
+        return degrees[id];
+    }
+
+    public int[] neighborIds(int id) {
+        return Arrays.copyOf(neighbors[id], degrees[id]);
+    }
+
+    public int vertexCount() {
+        return ids.size();
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Copia independiente con los mismos ids: los cambios en una no afectan a la
+     * otra. Las listas de vecinos no se copian, se comparten y cada grafo duplica
+     * una lista recién cuando la va a modificar, así que copiar cuesta en
+     * proporción a los vértices y no a las aristas.
+     */
+    public Graph<T> copy() {
+        Graph<T> copy = new Graph<>();
+        int capacity = Math.max(16, nextId);
+        copy.vertices = Arrays.copyOf(vertices, capacity);
+        copy.neighbors = Arrays.copyOf(neighbors, capacity);
+        copy.degrees = Arrays.copyOf(degrees, capacity);
+        copy.indexes = Arrays.copyOf(indexes, capacity);
+        copy.shared = new boolean[capacity];
+        for (int id = 0; id < nextId; id++) {
+            if (vertices[id] != null) {
+                if (neighbors[id] != NO_NEIGHBORS) {
+                    shared[id] = true;
+                    copy.shared[id] = true;
                 }
+                copy.ids.put(vertexAt(id), id);
             }
         }
+        copy.freeIds = Arrays.copyOf(freeIds, freeIds.length);
+        copy.freeCount = freeCount;
+        copy.nextId = nextId;
+        copy.edgeCount = edgeCount;
+        return copy;
+    }
 
-        // reconstruir camino
-        LinkedList<T> path = new LinkedList<>();
-        T at = end;
-        while (prev.containsKey(at)) {
-            path.addBeginning(at);
-            at = prev.get(at);
+    /**
+     * Congela el grafo en formato CSR. Se reutiliza mientras el grafo no cambie.
+     */
+    public GraphSnapshot<T> snapshot() {
+        if (snapshot == null || snapshotModCount != modCount) {
+            snapshot = new GraphSnapshot<>(vertices, neighbors, degrees, nextId);
+            snapshotModCount = modCount;
         }
+        return snapshot;
+    }
+
+    // ================== RECORRIDOS ==================
+
+    /**
+     * Marca de "visitado" reutilizable: en lugar de limpiar un arreglo por búsqueda,
+     * cada búsqueda usa un número de época nuevo y un id está visitado si su marca
+     * coincide. Los arreglos solo se reservan cuando crece el grafo.
+     * Por esto los recorridos no son seguros si se llaman desde varios hilos a la vez.
+     */
+    private int[] forwardMark = new int[0];
+    private int[] backwardMark = new int[0];
+    private int[] forwardParent = new int[0];
+    private int[] backwardParent = new int[0];
+    private int[] forwardQueue = new int[0];
+    private int[] backwardQueue = new int[0];
+    private int epoch;
+
+    private void prepareSearch() {
+        if (forwardMark.length < nextId) {
+            int capacity = Math.max(nextId, forwardMark.length * 2);
+            forwardMark = new int[capacity];
+            backwardMark = new int[capacity];
+            forwardParent = new int[capacity];
+            backwardParent = new int[capacity];
+            forwardQueue = new int[capacity];
+            backwardQueue = new int[capacity];
+            epoch = 0;
+        }
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(forwardMark, 0);
+            Arrays.fill(backwardMark, 0);
+            epoch = 1;
+        }
+    }
 
-        if (at.equals(start)) {
-            path.addBeginning(start);
+    // Camino más corto (BFS bidireccional); vacío si no hay camino o algún extremo no existe
+    public LinkedList<T> getShortestPath(T start, T end) {
+        LinkedList<T> path = new LinkedList<>();
+        int meeting = bidirectionalSearch(vertexId(start), vertexId(end));
+        if (meeting < 0) {
             return path;
         }
 
-        return new LinkedList<>(); // vacío si no hay camino
+        // reconstruir camino: mitad hacia el inicio y mitad hacia el final
+        for (int at = meeting; at >= 0; at = forwardParent[at]) {
+            path.addBeginning(vertexAt(at));
+        }
+        for (int at = backwardParent[meeting]; at >= 0; at = backwardParent[at]) {
+            path.addEnd(vertexAt(at));
+        }
+        return path;
     }
 
-    // Componentes conectados (DFS)
+    // Solo indica si hay camino, sin construir la lista
+    public boolean isReachable(T start, T end) {
+        return bidirectionalSearch(vertexId(start), vertexId(end)) >= 0;
+    }
+
+    /**
+     * BFS desde ambos extremos, expandiendo siempre el nivel más pequeño, y se
+     * detiene al terminar el nivel en que las dos búsquedas se encuentran.
+     * Devuelve el id del vértice de encuentro del camino más corto, o -1.
+     */
+    private int bidirectionalSearch(int startId, int endId) {
+        if (startId < 0 || endId < 0) {
+            return -1;
+        }
+
+        prepareSearch();
+        forwardMark[startId] = epoch;
+        forwardParent[startId] = -1;
+        backwardMark[endId] = epoch;
+        backwardParent[endId] = -1;
+        if (startId == endId) {
+            return startId;
+        }
+
+        int forwardHead = 0, forwardTail = 0;
+        int backwardHead = 0, backwardTail = 0;
+        forwardQueue[forwardTail++] = startId;
+        backwardQueue[backwardTail++] = endId;
+
+        while (forwardHead < forwardTail && backwardHead < backwardTail) {
+            boolean expandForward = forwardTail - forwardHead <= backwardTail - backwardHead;
+            int[] queue = expandForward ? forwardQueue : backwardQueue;
+            int[] mark = expandForward ? forwardMark : backwardMark;
+            int[] parent = expandForward ? forwardParent : backwardParent;
+            int[] otherMark = expandForward ? backwardMark : forwardMark;
+            int head = expandForward ? forwardHead : backwardHead;
+            int tail = expandForward ? forwardTail : backwardTail;
+            int levelEnd = tail;
+
+            int meeting = -1;
+            int bestLength = Integer.MAX_VALUE;
+
+            while (head < levelEnd) {
+                int current = queue[head++];
+                int[] adjacent = neighbors[current];
+                for (int i = 0; i < degrees[current]; i++) {
+                    int neighbor = adjacent[i];
+                    if (mark[neighbor] == epoch) {
+                        continue;
+                    }
+                    mark[neighbor] = epoch;
+                    parent[neighbor] = current;
+                    queue[tail++] = neighbor;
+
+                    if (otherMark[neighbor] == epoch) {
+                        int length = depth(neighbor, forwardParent) + depth(neighbor, backwardParent);
+                        if (length < bestLength) {
+                            bestLength = length;
+                            meeting = neighbor;
+                        }
+                    }
+                }
+            }
+
+            if (meeting >= 0) {
+                return meeting;
+            }
+
+            if (expandForward) {
+                forwardHead = head;
+                forwardTail = tail;
+            } else {
+                backwardHead = head;
+                backwardTail = tail;
+            }
+        }
+        return -1;
+    }
+
+    private int depth(int id, int[] parent) {
+        int depth = 0;
+        for (int at = parent[id]; at >= 0; at = parent[at]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Distancia en aristas desde source a cada id del grafo (-1 si no es alcanzable
+     * o el id está libre). Útil para consultas en lote sin repetir BFS por destino.
+     */
+    public int[] distancesFrom(T source) {
+        int[] distances = new int[nextId];
+        Arrays.fill(distances, -1);
+        int sourceId = vertexId(source);
+        if (sourceId < 0) {
+            return distances;
+        }
+
+        prepareSearch();
+        int head = 0, tail = 0;
+        forwardQueue[tail++] = sourceId;
+        distances[sourceId] = 0;
+
+        while (head < tail) {
+            int current = forwardQueue[head++];
+            int[] adjacent = neighbors[current];
+            for (int i = 0; i < degrees[current]; i++) {
+                int neighbor = adjacent[i];
+                if (distances[neighbor] < 0) {
+                    distances[neighbor] = distances[current] + 1;
+                    forwardQueue[tail++] = neighbor;
+                }
+            }
+        }
+        return distances;
+    }
+
+    // Componentes conectados (DFS iterativo con pila explícita)
     public LinkedList<HashSet<T>> getConnectedComponents() {
-        HashSet<T> visited = new HashSet<>();
         LinkedList<HashSet<T>> components = new LinkedList<>();
+        prepareSearch();
+        int[] stack = forwardQueue;
 
-        for (T vertex : getVertices()) {
-            if (!visited.contains(vertex)) {
+        for (int id = 0; id < nextId; id++) {
+            if (vertices[id] != null && forwardMark[id] != epoch) {
                 HashSet<T> component = new HashSet<>();
-                dfs(vertex, visited, component);
+                int top = 0;
+                stack[top++] = id;
+                forwardMark[id] = epoch;
+
+                while (top > 0) {
+                    int current = stack[--top];
+                    component.add(vertexAt(current));
+                    int[] adjacent = neighbors[current];
+                    for (int i = 0; i < degrees[current]; i++) {
+                        int neighbor = adjacent[i];
+                        if (forwardMark[neighbor] != epoch) {
+                            forwardMark[neighbor] = epoch;
+                            stack[top++] = neighbor;
+                        }
+                    }
+                }
                 components.add(component);
             }
         }
@@ -101,23 +459,190 @@ public class Graph<T> {
         return components;
     }
 
-    private void dfs(T current, HashSet<T> visited, HashSet<T> component) {
-        visited.add(current);
-        component.add(current);
-        for (T neighbor : getAdjacentVertices(current)) {
-            if (!visited.contains(neighbor)) {
-                dfs(neighbor, visited, component);
+    // Copia del grafo como mapa estándar (vértice -> vecinos)
+    public Map<T, Set<T>> getAdjacencyList() {
+        Map<T, Set<T>> copy = new LinkedHashMap<>();
+        for (int id = 0; id < nextId; id++) {
+            if (vertices[id] != null) {
+                copy.put(vertexAt(id), getAdjacentVertices(vertexAt(id)));
             }
         }
+        return copy;
     }
 
-    // Método opcional para exponer el mapa interno si lo necesitas
-    public Map<T, Set<T>> getAdjacencyList() {
-        return (Map<T, Set<T>>) adjacencyList;
+    // ================== LISTAS DE VECINOS ==================
+
+    private int indexOf(int id, int neighbor) {
+        if (indexes[id] != null) {
+            return indexes[id].get(neighbor);
+        }
+        int[] adjacent = neighbors[id];
+        for (int i = 0; i < degrees[id]; i++) {
+            if (adjacent[i] == neighbor) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Antes de modificar una lista compartida con una copia, se duplica (con su índice)
+    private void ownList(int id) {
+        if (shared[id]) {
+            neighbors[id] = Arrays.copyOf(neighbors[id], neighbors[id].length);
+            if (indexes[id] != null) {
+                indexes[id] = indexes[id].copy();
+            }
+            shared[id] = false;
+        }
+    }
+
+    private void appendToList(int id, int neighbor) {
+        ownList(id);
+        int[] adjacent = neighbors[id];
+        if (degrees[id] == adjacent.length) {
+            adjacent = Arrays.copyOf(adjacent, Math.max(4, adjacent.length * 2));
+            neighbors[id] = adjacent;
+        }
+        int position = degrees[id]++;
+        adjacent[position] = neighbor;
+
+        if (indexes[id] != null) {
+            indexes[id].put(neighbor, position);
+        } else if (degrees[id] >= INDEX_THRESHOLD) {
+            NeighborIndex index = new NeighborIndex(degrees[id]);
+            for (int i = 0; i < degrees[id]; i++) {
+                index.put(adjacent[i], i);
+            }
+            indexes[id] = index;
+        }
+    }
+
+    // El orden de los vecinos no importa: se reemplaza por el último
+    private void removeFromList(int id, int neighbor) {
+        int index = indexOf(id, neighbor);
+        if (index >= 0) {
+            ownList(id);
+            int last = --degrees[id];
+            int moved = neighbors[id][last];
+            neighbors[id][index] = moved;
+
+            NeighborIndex neighborIndex = indexes[id];
+            if (neighborIndex != null) {
+                neighborIndex.remove(neighbor);
+                if (index != last) {
+                    neighborIndex.put(moved, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tabla hash de direccionamiento abierto vecino -> posición en la lista de
+     * vecinos. Las claves se guardan sumando 1 para que 0 marque una casilla vacía.
+     */
+    private static final class NeighborIndex {
+        private int[] keys;
+        private int[] positions;
+        private int size;
+
+        NeighborIndex(int expected) {
+            int capacity = 16;
+            while (capacity < expected * 2) {
+                capacity <<= 1;
+            }
+            keys = new int[capacity];
+            positions = new int[capacity];
+        }
+
+        private NeighborIndex(int[] keys, int[] positions, int size) {
+            this.keys = keys;
+            this.positions = positions;
+            this.size = size;
+        }
+
+        NeighborIndex copy() {
+            return new NeighborIndex(keys.clone(), positions.clone(), size);
+        }
+
+        private static int slot(int neighbor, int mask) {
+            int h = neighbor * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        int get(int neighbor) {
+            int mask = keys.length - 1;
+            for (int i = slot(neighbor, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == neighbor + 1) {
+                    return positions[i];
+                }
+            }
+            return -1;
+        }
+
+        // Inserta o actualiza la posición del vecino
+        void put(int neighbor, int position) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = slot(neighbor, mask);
+            while (keys[i] != 0 && keys[i] != neighbor + 1) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                keys[i] = neighbor + 1;
+                size++;
+            }
+            positions[i] = position;
+        }
+
+        // Borrado con desplazamiento hacia atrás, igual que en HashMap
+        void remove(int neighbor) {
+            int mask = keys.length - 1;
+            int hole = slot(neighbor, mask);
+            while (keys[hole] != neighbor + 1) {
+                if (keys[hole] == 0) {
+                    return;
+                }
+                hole = (hole + 1) & mask;
+            }
+            size--;
+
+            int j = hole;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == 0) {
+                    break;
+                }
+                int ideal = slot(keys[j] - 1, mask);
+                boolean staysInPlace = hole <= j
+                        ? (hole < ideal && ideal <= j)
+                        : (hole < ideal || ideal <= j);
+                if (!staysInPlace) {
+                    keys[hole] = keys[j];
+                    positions[hole] = positions[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = 0;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            int[] oldPositions = positions;
+            keys = new int[oldKeys.length * 2];
+            positions = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i] - 1, oldPositions[i]);
+                }
+            }
+        }
     }
 
     @Override
     public String toString() {
-        return adjacencyList.toString();
+        return getAdjacencyList().toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures;
+
+import java.util.Arrays;
+
+/**
+ * Foto inmutable de un Graph en formato CSR (compressed sparse row).
+ *
+ * Los vecinos del id v están en targets[offsets[v] .. offsets[v + 1]), todos en un
+ * solo arreglo contiguo, lo que hace los recorridos de solo lectura (BFS,
+ * componentes) rápidos y con poca memoria. Los ids son los mismos del grafo
+ * de origen; los huecos de vértices eliminados quedan sin vecinos.
+ */
+public class GraphSnapshot<T> {
+    private final Object[] vertices;
+    private final int[] offsets;
+    private final int[] targets;
+
+    GraphSnapshot(Object[] sourceVertices, int[][] sourceNeighbors, int[] sourceDegrees, int idCount) {
+        this.vertices = Arrays.copyOf(sourceVertices, idCount);
+        this.offsets = new int[idCount + 1];
+
+        for (int id = 0; id < idCount; id++) {
+            offsets[id + 1] = offsets[id] + (sourceVertices[id] != null ? sourceDegrees[id] : 0);
+        }
+
+        this.targets = new int[offsets[idCount]];
+        for (int id = 0; id < idCount; id++) {
+            if (sourceVertices[id] != null) {
+                System.arraycopy(sourceNeighbors[id], 0, targets, offsets[id], sourceDegrees[id]);
+            }
+        }
+    }
+
+    // Cantidad de ids (incluye huecos de vértices eliminados)
+    public int idCount() {
+        return vertices.length;
+    }
+
+    public boolean isVertex(int id) {
+        return vertices[id] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T vertexAt(int id) {
+        return (T) vertices[id];
+    }
+
+    public int degree(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    // Inicio (inclusive) de los vecinos de id dentro de targets
+    public int neighborStart(int id) {
+        return offsets[id];
+    }
+
+    // Fin (exclusivo) de los vecinos de id dentro de targets
+    public int neighborEnd(int id) {
+        return offsets[id + 1];
+    }
+
+    public int target(int index) {
+        return targets[index];
+    }
+
+    /**
+     * Etiqueta de componente conexa para cada id (-1 en los huecos).
+     * BFS iterativo sobre los arreglos, sin estructuras por vértice.
+     */
+    public int[] componentLabels() {
+        int n = vertices.length;
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        int[] queue = new int[n];
+        int component = 0;
+
+        for (int source = 0; source < n; source++) {
+            if (vertices[source] == null || labels[source] >= 0) {
+                continue;
+            }
+
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            labels[source] = component;
+
+            while (head < tail) {
+                int current = queue[head++];
+                for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                    int neighbor = targets[i];
+                    if (labels[neighbor] < 0) {
+                        labels[neighbor] = component;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            component++;
+        }
+        return labels;
+    }
+}
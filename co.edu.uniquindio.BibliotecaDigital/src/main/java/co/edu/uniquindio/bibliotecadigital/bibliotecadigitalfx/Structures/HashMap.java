@@ -2,108 +2,307 @@ package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures;
 
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
 
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
+/**
+ * Tabla hash de direccionamiento abierto con sondeo lineal.
+ *
+ * La capacidad siempre es potencia de dos y se duplica cuando se supera el
+ * factor de carga. El redimensionamiento es incremental: la tabla anterior se
+ * conserva y sus entradas se migran unas pocas en cada escritura, de modo que
+ * ninguna operación individual paga el costo de re-insertar todo el mapa.
+ */
 public class HashMap<K, V> {
-    private static final int SIZE = 100;
-    private MapNode<K, V>[] table;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // Posiciones de la tabla anterior que se migran en cada put/remove
+    private static final int MIGRATION_STEP = 4;
+
+    // Marca el valor de una entrada de la tabla anterior que ya no está viva
+    // (fue migrada, actualizada o eliminada). La clave se conserva para no
+    // romper las cadenas de sondeo de esa tabla.
+    private static final Object MOVED = new Object();
+
+    private Object[] keys;
+    private Object[] values;
+    private int used;       // entradas en la tabla actual
+    private int threshold;
+
+    // Tabla anterior mientras hay un redimensionamiento en curso
+    private Object[] oldKeys;
+    private Object[] oldValues;
+    private int oldLive;    // entradas vivas pendientes de migrar
+    private int migrationIndex;
+
     private int size;
 
-    @SuppressWarnings("unchecked")
+    // Cambia con cada modificación estructural; lo usan los iteradores y el cursor de getKey
+    private int modCount;
+
+    // Cursor de getKey(index): recuerda la última posición para que los
+    // recorridos secuenciales por índice no vuelvan a escanear desde cero
+    private int cursorIndex = -1;
+    private int cursorSlot;
+    private boolean cursorInOld;
+    private int cursorModCount;
+
     public HashMap() {
-        table = new MapNode[SIZE];
-        size = 0;
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HashMap(int expectedSize) {
+        allocate(tableSizeFor((int) Math.min(MAXIMUM_CAPACITY, Math.ceil(expectedSize / LOAD_FACTOR))));
     }
 
-    private int hash(K key) {
-        return Math.abs(key.hashCode()) % SIZE;
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        used = 0;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = DEFAULT_CAPACITY;
+        while (n < capacity && n < MAXIMUM_CAPACITY) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    // Mezcla los bits del hashCode para que la máscara de potencia de dos
+    // no dependa solo de los bits bajos
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static int indexOf(Object[] table, Object key, int hash) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        Object current;
+        while ((current = table[i]) != null) {
+            if (current == key || current.equals(key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
     }
 
     public void put(K key, V value) {
-        int index = hash(key);
-        MapNode<K, V> current = table[index];
+        int hash = spread(key);
+        int index = indexOf(keys, key, hash);
+
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
 
-        while (current != null) {
-            if (current.getKey().equals(key)) {
-                current.setValue(value);
+        // Actualizar una clave que sigue en la tabla anterior no es un cambio
+        // estructural: se reemplaza el valor ahí mismo, sin migrar ni crecer
+        if (oldKeys != null) {
+            int oldIndex = indexOf(oldKeys, key, hash);
+            if (oldIndex >= 0 && oldValues[oldIndex] != MOVED) {
+                oldValues[oldIndex] = value;
                 return;
             }
-            current = current.getNext();
         }
 
-        MapNode<K, V> newNode = new MapNode<>(key, value);
-        newNode.setNext(table[index]);
-        table[index] = newNode;
+        if (used >= threshold) {
+            grow();
+        }
+        insert(key, value, hash);
         size++;
+
+        migrate(MIGRATION_STEP);
     }
 
+    @SuppressWarnings("unchecked")
     public V get(K key) {
-        int index = hash(key);
-        MapNode<K, V> current = table[index];
+        int hash = spread(key);
+        int index = indexOf(keys, key, hash);
+        if (index >= 0) {
+            return (V) values[index];
+        }
 
-        while (current != null) {
-            if (current.getKey().equals(key)) {
-                return current.getValue();
+        if (oldKeys != null) {
+            int oldIndex = indexOf(oldKeys, key, hash);
+            if (oldIndex >= 0 && oldValues[oldIndex] != MOVED) {
+                return (V) oldValues[oldIndex];
             }
-            current = current.getNext();
         }
 
         return null;
     }
 
     public boolean containsKey(K key) {
-        return get(key) != null;
+        int hash = spread(key);
+        if (indexOf(keys, key, hash) >= 0) {
+            return true;
+        }
+        if (oldKeys != null) {
+            int oldIndex = indexOf(oldKeys, key, hash);
+            return oldIndex >= 0 && oldValues[oldIndex] != MOVED;
+        }
+        return false;
     }
 
     public void remove(K key) {
-        int index = hash(key);
-        MapNode<K, V> current = table[index];
-        MapNode<K, V> previous = null;
-
-        while (current != null) {
-            if (current.getKey().equals(key)) {
-                if (previous == null) {
-                    table[index] = current.getNext();
-                } else {
-                    previous.setNext(current.getNext());
-                }
+        int hash = spread(key);
+        int index = indexOf(keys, key, hash);
+
+        if (index >= 0) {
+            deleteAt(index);
+            used--;
+            size--;
+        } else if (oldKeys != null) {
+            int oldIndex = indexOf(oldKeys, key, hash);
+            if (oldIndex >= 0 && oldValues[oldIndex] != MOVED) {
+                oldValues[oldIndex] = MOVED;
+                oldLive--;
+                modCount++;
                 size--;
+            }
+        }
+
+        migrate(MIGRATION_STEP);
+    }
+
+    // Inserta una clave que se sabe ausente en la tabla actual
+    private void insert(Object key, Object value, int hash) {
+        int mask = keys.length - 1;
+        int i = hash & mask;
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        used++;
+        modCount++;
+    }
+
+    // Borrado con desplazamiento hacia atrás: evita lápidas en la tabla actual
+    private void deleteAt(int hole) {
+        int mask = keys.length - 1;
+        int j = hole;
+
+        while (true) {
+            j = (j + 1) & mask;
+            Object current = keys[j];
+            if (current == null) {
+                break;
+            }
+
+            int ideal = spread(current) & mask;
+            boolean staysInPlace = hole <= j
+                    ? (hole < ideal && ideal <= j)
+                    : (hole < ideal || ideal <= j);
+
+            if (!staysInPlace) {
+                keys[hole] = current;
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+
+        keys[hole] = null;
+        values[hole] = null;
+        modCount++;
+    }
+
+    // Inicia un redimensionamiento: la tabla actual pasa a ser la anterior
+    private void grow() {
+        if (oldKeys != null) {
+            // Caso excepcional: terminar la migración pendiente antes de crecer otra vez
+            migrate(Integer.MAX_VALUE);
+        }
+        if (keys.length >= MAXIMUM_CAPACITY) {
+            threshold = Integer.MAX_VALUE;
+            return;
+        }
+
+        oldKeys = keys;
+        oldValues = values;
+        oldLive = used;
+        migrationIndex = 0;
+        allocate(keys.length << 1);
+    }
+
+    private void migrate(int steps) {
+        while (oldKeys != null && steps-- > 0) {
+            if (oldLive == 0 || migrationIndex >= oldKeys.length) {
+                oldKeys = null;
+                oldValues = null;
+                modCount++;
                 return;
             }
-            previous = current;
-            current = current.getNext();
+
+            Object key = oldKeys[migrationIndex];
+            Object value = oldValues[migrationIndex];
+            if (key != null && value != MOVED) {
+                insert(key, value, spread(key));
+                oldValues[migrationIndex] = MOVED;
+                oldLive--;
+            }
+            migrationIndex++;
         }
     }
 
+    @SuppressWarnings("unchecked")
     public LinkedList<V> values() {
         LinkedList<V> result = new LinkedList<>();
 
-        for (MapNode<K, V> node : table) {
-            while (node != null) {
-                result.add(node.getValue());
-                node = node.getNext();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                result.add((V) values[i]);
+            }
+        }
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null && oldValues[i] != MOVED) {
+                    result.add((V) oldValues[i]);
+                }
             }
         }
 
         return result;
     }
 
-    public void clear(){
-        table = new MapNode[SIZE];
+    public void clear() {
+        allocate(DEFAULT_CAPACITY);
+        oldKeys = null;
+        oldValues = null;
+        oldLive = 0;
         size = 0;
+        modCount++;
     }
 
-
+    @SuppressWarnings("unchecked")
     public LinkedList<K> keySet() {
-        LinkedList<K> keys = new LinkedList<>();
+        LinkedList<K> result = new LinkedList<>();
 
-        for (MapNode<K, V> node : table) {
-            while (node != null) {
-                keys.add(node.getKey());
-                node = node.getNext();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                result.add((K) keys[i]);
+            }
+        }
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null && oldValues[i] != MOVED) {
+                    result.add((K) oldKeys[i]);
+                }
             }
         }
 
-        return keys;
+        return result;
     }
 
     public int size() {
@@ -111,28 +310,145 @@ public class HashMap<K, V> {
     }
 
     // Method to get the key at a specific index
+    // Los accesos con índices crecientes continúan desde la posición anterior,
+    // así el patrón for (i < size) map.getKey(i) es lineal en total
+    @SuppressWarnings("unchecked")
     public K getKey(int index) {
         if (index < 0 || index >= size) {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
         }
 
-        int currentIndex = 0;
-        for (int i = 0; i < table.length; i++) {
-            MapNode<K, V> current = table[i];
-            while (current != null) {
-                if (currentIndex == index) {
-                    return current.getKey();
+        int currentIndex;
+        int slot;
+        boolean inOld;
+
+        if (cursorIndex >= 0 && cursorModCount == modCount && cursorIndex <= index) {
+            currentIndex = cursorIndex;
+            slot = cursorSlot;
+            inOld = cursorInOld;
+        } else {
+            currentIndex = -1;
+            slot = -1;
+            inOld = false;
+        }
+
+        while (currentIndex < index) {
+            slot++;
+            if (!inOld && slot >= keys.length) {
+                if (oldKeys == null) {
+                    return null; // Should not reach here if index is valid
                 }
+                inOld = true;
+                slot = 0;
+            }
+            if (inOld && slot >= oldKeys.length) {
+                return null;
+            }
+            if (isLive(inOld, slot)) {
                 currentIndex++;
-                current = current.getNext();
             }
         }
 
-        return null; // Should not reach here if index is valid
+        cursorIndex = currentIndex;
+        cursorSlot = slot;
+        cursorInOld = inOld;
+        cursorModCount = modCount;
+
+        return (K) (inOld ? oldKeys[slot] : keys[slot]);
     }
 
+    private boolean isLive(boolean inOld, int slot) {
+        return inOld
+                ? oldKeys[slot] != null && oldValues[slot] != MOVED
+                : keys[slot] != null;
+    }
 
-}
+    /**
+     * Recorre todas las entradas sin crear listas intermedias.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expected = modCount;
 
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], (V) values[i]);
+            }
+        }
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null && oldValues[i] != MOVED) {
+                    action.accept((K) oldKeys[i], (V) oldValues[i]);
+                }
+            }
+        }
+
+        if (expected != modCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Vista viva (sin copia) de las entradas del mapa.
+     * Cada iterador reutiliza un único MapNode que se actualiza en cada next(),
+     * por lo que no se debe guardar la referencia al nodo entre iteraciones.
+     * Actualizar con put el valor de una clave existente durante el recorrido está
+     * permitido (no migra ni redimensiona); insertar o eliminar claves lanza
+     * ConcurrentModificationException.
+     */
+    public Iterable<MapNode<K, V>> entries() {
+        return EntryIterator::new;
+    }
+
+    private class EntryIterator implements Iterator<MapNode<K, V>> {
+        private final MapNode<K, V> entry = new MapNode<>(null, null);
+        private final int expectedModCount = modCount;
+        private int slot = -1;
+        private boolean inOld;
+        private boolean ready;
+
+        @Override
+        public boolean hasNext() {
+            if (ready) {
+                return true;
+            }
+            checkForComodification();
 
+            while (true) {
+                slot++;
+                if (!inOld && slot >= keys.length) {
+                    if (oldKeys == null) {
+                        return false;
+                    }
+                    inOld = true;
+                    slot = 0;
+                }
+                if (inOld && slot >= oldKeys.length) {
+                    return false;
+                }
+                if (isLive(inOld, slot)) {
+                    ready = true;
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MapNode<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            entry.setKey((K) (inOld ? oldKeys[slot] : keys[slot]));
+            entry.setValue((V) (inOld ? oldValues[slot] : values[slot]));
+            return entry;
+        }
 
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
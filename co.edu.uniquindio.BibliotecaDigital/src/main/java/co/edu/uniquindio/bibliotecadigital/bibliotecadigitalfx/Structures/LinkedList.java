@@ -24,7 +24,7 @@ public class LinkedList<T> implements Iterable<T> {
         ListNode<T> newNodo = new ListNode<>(amountNodo);
 
         if(isEmpty()){
-            firstNode = newNodo;
+            firstNode = lastNode = newNodo;
 
         } else {
             newNodo.setNextNodo(firstNode);
@@ -4,6 +4,16 @@ public class Node<T> {
     public T element;
     public int priority;
 
+    // Orden de llegada: desempata prioridades iguales (FIFO)
+    public long sequence;
+    // Posición actual dentro del arreglo del montículo (-1 si ya salió)
+    public int index = -1;
+    // Anterior y siguiente nodo con el mismo elemento, en orden de llegada
+    public Node<T> previousSame;
+    public Node<T> nextSame;
+    // Último nodo de la cadena; solo se mantiene en el primero
+    public Node<T> lastSame;
+
     public Node(T element, int priority) {
         this.element = element;
         this.priority = priority;
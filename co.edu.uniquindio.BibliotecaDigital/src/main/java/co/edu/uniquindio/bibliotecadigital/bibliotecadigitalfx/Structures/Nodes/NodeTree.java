@@ -1,13 +1,20 @@
 package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes;
 
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.ArrayList;
+
 public class NodeTree<T> {
     private T data;
     private NodeTree<T> left, right;
+    // Altura del subárbol (una hoja tiene altura 1), usada para el balanceo AVL
+    private int height;
+    // Demás elementos con la misma clave que data (null mientras no haya repetidos)
+    private ArrayList<T> duplicates;
 
     public NodeTree(T data) {
         this.data = data;
         this.left = null;
         this.right = null;
+        this.height = 1;
     }
 
     // Getters y setters
@@ -34,5 +41,25 @@ public class NodeTree<T> {
     public void setRight(NodeTree<T> right) {
         this.right = right;
     }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public ArrayList<T> getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(ArrayList<T> duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public boolean hasDuplicates() {
+        return duplicates != null && !duplicates.isEmpty();
+    }
 }
 
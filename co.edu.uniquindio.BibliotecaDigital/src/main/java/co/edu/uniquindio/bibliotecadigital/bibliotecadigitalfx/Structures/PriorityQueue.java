@@ -2,71 +2,275 @@ package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures;
 
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.Node;
 
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cola de prioridad implementada como montículo 4-ario sobre un arreglo.
+ *
+ * Menor número = mayor prioridad. Entre prioridades iguales se respeta el orden
+ * de llegada (FIFO). Un índice elemento -> nodo permite decreaseKey y remove
+ * en O(log n) sin recorrer la cola.
+ */
 public class PriorityQueue<T> {
+    private static final int ARITY = 4;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Node<T>[] heap;
+    private int size;
+    private long nextSequence;
 
-    private LinkedList<Node<T>> queue;
+    /*
+     * Primer nodo (el más antiguo) de cada elemento; los repetidos forman una
+     * lista doble (previousSame/nextSame) y el primero guarda el último, así
+     * que agregar o quitar una ocurrencia no recorre la cadena.
+     */
+    private final HashMap<T, Node<T>> positions;
 
+    @SuppressWarnings("unchecked")
     public PriorityQueue() {
-        this.queue = new LinkedList<>();
+        this.heap = (Node<T>[]) new Node<?>[DEFAULT_CAPACITY];
+        this.positions = new HashMap<>();
     }
 
     // Agregar un elemento con prioridad
     public void enqueue(T element, int priority) {
-        Node<T> newNode = new Node<>(element, priority);
-
-        if (queue.isEmpty()) {
-            queue.add(newNode);
-            return;
-        }
-
-        int i = 0;
-
-        while (i < queue.getSize() && queue.getAmountNodo(i).priority <= priority) {
-            i++;
-        }
-
-        queue.add(i, newNode); // insertar en la posición adecuada
+        Node<T> newNode = newNode(element, priority);
+        ensureCapacity(size + 1);
+        heap[size] = newNode;
+        newNode.index = size;
+        size++;
+        siftUp(newNode.index);
     }
 
     // Eliminar y devolver el elemento de mayor prioridad
     public T dequeue() {
-        if (queue.isEmpty()) {
+        if (size == 0) {
             return null;
         }
 
-        Node<T> node = queue.getAmountNodo(0);
-        queue.delete(node);
+        Node<T> node = heap[0];
+        removeAt(0);
         return node.element;
     }
 
     // Ver el elemento de mayor prioridad sin eliminarlo
     public T peek() {
-        if (queue.isEmpty()) {
+        if (size == 0) {
             return null;
         }
 
-        return queue.getAmountNodo(0).element;
+        return heap[0].element;
+    }
+
+    /**
+     * Mejora la prioridad de la ocurrencia más antigua del elemento.
+     * Falla si el elemento no está en la cola o si la nueva prioridad es peor.
+     */
+    public void decreaseKey(T element, int newPriority) {
+        Node<T> node = element != null ? positions.get(element) : null;
+        if (node == null) {
+            throw new RuntimeException("Elemento no existe");
+        }
+        if (newPriority > node.priority) {
+            throw new IllegalArgumentException("La nueva prioridad (" + newPriority +
+                    ") es peor que la actual (" + node.priority + ")");
+        }
+
+        node.priority = newPriority;
+        siftUp(node.index);
+    }
+
+    // Eliminar la ocurrencia más antigua de un elemento; false si no estaba
+    public boolean remove(T element) {
+        Node<T> node = element != null ? positions.get(element) : null;
+        if (node == null) {
+            return false;
+        }
+
+        removeAt(node.index);
+        return true;
+    }
+
+    public boolean contains(T element) {
+        return element != null && positions.containsKey(element);
+    }
+
+    /**
+     * Inserta en bloque todos los elementos y reconstruye el montículo en O(n)
+     * en lugar de hacer n inserciones de O(log n). El orden de la colección
+     * define el desempate entre prioridades iguales.
+     */
+    public void heapify(Iterable<? extends T> elements, ToIntFunction<? super T> priorityFunction) {
+        for (T element : elements) {
+            ensureCapacity(size + 1);
+            Node<T> node = newNode(element, priorityFunction.applyAsInt(element));
+            heap[size] = node;
+            node.index = size;
+            size++;
+        }
+
+        if (size > 1) {
+            for (int i = (size - 2) / ARITY; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        positions.clear();
     }
 
     // Verificar si está vacía
     public boolean isEmpty() {
-        return queue.isEmpty();
+        return size == 0;
     }
 
     // Obtener tamaño
     public int size() {
-        return queue.getSize();
+        return size;
+    }
+
+    // ================== MÉTODOS INTERNOS DEL MONTÍCULO ==================
+
+    private Node<T> newNode(T element, int priority) {
+        Node<T> node = new Node<>(element, priority);
+        node.sequence = nextSequence++;
+
+        if (element != null) {
+            Node<T> first = positions.get(element);
+            if (first == null) {
+                node.lastSame = node;
+                positions.put(element, node);
+            } else {
+                Node<T> last = first.lastSame;
+                last.nextSame = node;
+                node.previousSame = last;
+                first.lastSame = node;
+            }
+        }
+        return node;
+    }
+
+    private void removeAt(int index) {
+        Node<T> removed = heap[index];
+        unlink(removed);
+
+        size--;
+        if (index == size) {
+            heap[size] = null;
+        } else {
+            Node<T> last = heap[size];
+            heap[size] = null;
+            heap[index] = last;
+            last.index = index;
+            // El nodo movido puede tener que subir o bajar según su prioridad
+            if (index > 0 && less(last, heap[(index - 1) / ARITY])) {
+                siftUp(index);
+            } else {
+                siftDown(index);
+            }
+        }
+        removed.index = -1;
     }
 
-    // Mostrar la cola (para depuración)
+    // Quita el nodo de la cadena de ocurrencias de su elemento
+    private void unlink(Node<T> node) {
+        if (node.element == null) {
+            return;
+        }
+
+        Node<T> next = node.nextSame;
+        if (node.previousSame == null) {
+            // Era el primero: el siguiente hereda la referencia al último
+            if (next == null) {
+                positions.remove(node.element);
+            } else {
+                next.previousSame = null;
+                next.lastSame = node.lastSame;
+                positions.put(node.element, next);
+            }
+        } else {
+            node.previousSame.nextSame = next;
+            if (next != null) {
+                next.previousSame = node.previousSame;
+            } else {
+                positions.get(node.element).lastSame = node.previousSame;
+            }
+        }
+        node.previousSame = null;
+        node.nextSame = null;
+        node.lastSame = null;
+    }
+
+    private void siftUp(int index) {
+        Node<T> node = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / ARITY;
+            Node<T> parentNode = heap[parent];
+            if (!less(node, parentNode)) {
+                break;
+            }
+            heap[index] = parentNode;
+            parentNode.index = index;
+            index = parent;
+        }
+        heap[index] = node;
+        node.index = index;
+    }
+
+    private void siftDown(int index) {
+        Node<T> node = heap[index];
+        while (true) {
+            int firstChild = index * ARITY + 1;
+            if (firstChild >= size) {
+                break;
+            }
+
+            int best = firstChild;
+            int lastChild = Math.min(firstChild + ARITY, size);
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                if (less(heap[child], heap[best])) {
+                    best = child;
+                }
+            }
+
+            if (!less(heap[best], node)) {
+                break;
+            }
+            heap[index] = heap[best];
+            heap[index].index = index;
+            index = best;
+        }
+        heap[index] = node;
+        node.index = index;
+    }
+
+    private boolean less(Node<T> a, Node<T> b) {
+        if (a.priority != b.priority) {
+            return a.priority < b.priority;
+        }
+        return a.sequence < b.sequence;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > heap.length) {
+            heap = Arrays.copyOf(heap, Math.max(minCapacity, heap.length * 2));
+        }
+    }
+
+    // Mostrar la cola en orden de salida (para depuración)
     @Override
     public String toString() {
+        Node<T>[] ordered = Arrays.copyOf(heap, size);
+        Arrays.sort(ordered, (a, b) -> less(a, b) ? -1 : (less(b, a) ? 1 : 0));
+
         StringBuilder sb = new StringBuilder("PriorityQueue: ");
-        for (int i = 0; i < queue.getSize(); i++) {
-            Node<T> node = queue.getAmountNodo(i);
+        for (Node<T> node : ordered) {
             sb.append("[").append(node.element).append(", p=").append(node.priority).append("] ");
         }
         return sb.toString();
     }
 }
-
@@ -0,0 +1,324 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de texto para búsqueda parcial ("contiene") sobre varios campos de un objeto.
+ *
+ * Cada campo se normaliza (minúsculas y sin tildes) y se parte en trigramas; cada
+ * trigrama guarda la lista ordenada de documentos que lo contienen. Una consulta
+ * intersecta las listas de sus trigramas, verifica los candidatos contra el texto
+ * normalizado y los ordena por calidad de coincidencia, así que el costo depende
+ * de los resultados y no del tamaño del catálogo. Las letras y pares de letras
+ * también tienen su lista, para que las consultas de uno o dos caracteres no
+ * tengan que revisar todos los documentos.
+ *
+ * Los campos se pasan en orden de importancia (por ejemplo título, autor, categoría).
+ * Las eliminaciones marcan el documento como borrado y el índice se reconstruye
+ * cuando los borrados superan a los vivos.
+ */
+public class TextSearchIndex<T> {
+    private static final int GRAM = 3;
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    // Calidad de coincidencia, de mejor a peor
+    private static final int EXACT = 4;
+    private static final int PREFIX = 3;
+    private static final int WORD_PREFIX = 2;
+    private static final int CONTAINS = 1;
+
+    private final List<Function<T, String>> fields;
+
+    // Documentos por id denso; null si fue eliminado
+    private Object[] documents = new Object[16];
+    private String[][] normalizedFields = new String[16][];
+    private int nextId;
+    private int removedCount;
+
+    private HashMap<T, Integer> idsByDocument = new HashMap<>();
+    private HashMap<String, IntList> postings = new HashMap<>();
+
+    @SafeVarargs
+    public TextSearchIndex(Function<T, String>... fields) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("Se necesita al menos un campo para indexar");
+        }
+        // Copia elemento por elemento: el arreglo de varargs no se guarda
+        List<Function<T, String>> copy = new java.util.ArrayList<>(fields.length);
+        for (Function<T, String> field : fields) {
+            copy.add(field);
+        }
+        this.fields = copy;
+    }
+
+    // ================== MANTENIMIENTO ==================
+
+    public void add(T document) {
+        if (document == null || idsByDocument.containsKey(document)) {
+            return;
+        }
+
+        int id = nextId++;
+        if (id == documents.length) {
+            documents = Arrays.copyOf(documents, id * 2);
+            normalizedFields = Arrays.copyOf(normalizedFields, id * 2);
+        }
+
+        String[] normalized = new String[fields.size()];
+        for (int f = 0; f < normalized.length; f++) {
+            normalized[f] = normalize(fields.get(f).apply(document));
+        }
+        documents[id] = document;
+        normalizedFields[id] = normalized;
+        idsByDocument.put(document, id);
+
+        // Un documento aparece una sola vez en cada lista aunque repita el gramo
+        for (String text : normalized) {
+            for (int length = 1; length <= GRAM; length++) {
+                for (int i = 0; i + length <= text.length(); i++) {
+                    String gram = text.substring(i, i + length);
+                    IntList list = postings.get(gram);
+                    if (list == null) {
+                        list = new IntList();
+                        postings.put(gram, list);
+                    }
+                    if (list.size == 0 || list.last() != id) {
+                        list.add(id);
+                    }
+                }
+            }
+        }
+    }
+
+    public void remove(T document) {
+        Integer id = document != null ? idsByDocument.get(document) : null;
+        if (id == null) {
+            return;
+        }
+        idsByDocument.remove(document);
+
+        documents[id] = null;
+        normalizedFields[id] = null;
+        removedCount++;
+
+        if (removedCount > 64 && removedCount > idsByDocument.size()) {
+            rebuild();
+        }
+    }
+
+    // Reindexar un documento cuyos campos cambiaron
+    public void update(T document) {
+        remove(document);
+        add(document);
+    }
+
+    public void clear() {
+        documents = new Object[16];
+        normalizedFields = new String[16][];
+        nextId = 0;
+        removedCount = 0;
+        idsByDocument = new HashMap<>();
+        postings = new HashMap<>();
+    }
+
+    public int size() {
+        return idsByDocument.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rebuild() {
+        Object[] live = new Object[idsByDocument.size()];
+        int count = 0;
+        for (int id = 0; id < nextId; id++) {
+            if (documents[id] != null) {
+                live[count++] = documents[id];
+            }
+        }
+
+        clear();
+        for (int i = 0; i < count; i++) {
+            add((T) live[i]);
+        }
+    }
+
+    // ================== CONSULTAS ==================
+
+    public List<T> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Devuelve los documentos que contienen la consulta en algún campo, ordenados
+     * por calidad (exacto, prefijo, inicio de palabra, contiene), luego por la
+     * importancia del campo y por último en orden de inserción.
+     */
+    public List<T> search(String query, int maxResults) {
+        List<T> results = new java.util.ArrayList<>();
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty() || maxResults <= 0) {
+            return results;
+        }
+
+        int[] candidates = candidatesFor(normalizedQuery);
+        int[] scores = new int[candidates.length];
+        int maxScore = EXACT * (fields.size() + 1) + fields.size();
+        int[] countByScore = new int[maxScore + 1];
+
+        for (int i = 0; i < candidates.length; i++) {
+            String[] normalized = normalizedFields[candidates[i]];
+            if (normalized != null) {
+                scores[i] = score(normalized, normalizedQuery);
+                countByScore[scores[i]]++;
+            }
+        }
+
+        // Hay pocos puntajes posibles: ordenamiento por conteo, de mayor a menor.
+        // Los candidatos ya vienen por id, así que cada grupo conserva el orden de inserción.
+        int[] start = new int[maxScore + 1];
+        int matches = 0;
+        for (int score = maxScore; score > 0; score--) {
+            start[score] = matches;
+            matches += countByScore[score];
+        }
+
+        int[] ordered = new int[matches];
+        for (int i = 0; i < candidates.length; i++) {
+            if (scores[i] > 0) {
+                ordered[start[scores[i]]++] = candidates[i];
+            }
+        }
+
+        int limit = Math.min(matches, maxResults);
+        for (int i = 0; i < limit; i++) {
+            results.add(documentAt(ordered[i]));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T documentAt(int id) {
+        return (T) documents[id];
+    }
+
+    // Intersección de las listas de trigramas; una consulta más corta usa directamente su lista
+    private int[] candidatesFor(String normalizedQuery) {
+        if (normalizedQuery.length() < GRAM) {
+            IntList list = postings.get(normalizedQuery);
+            return list == null ? new int[0] : Arrays.copyOf(list.values, list.size);
+        }
+
+        int gramCount = normalizedQuery.length() - GRAM + 1;
+        IntList[] lists = new IntList[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            IntList list = postings.get(normalizedQuery.substring(i, i + GRAM));
+            if (list == null) {
+                return new int[0];
+            }
+            lists[i] = list;
+        }
+
+        // Empezar por la lista más corta para que las intersecciones sean baratas
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] current = Arrays.copyOf(lists[0].values, lists[0].size);
+        int currentSize = current.length;
+
+        for (int l = 1; l < lists.length && currentSize > 0; l++) {
+            currentSize = intersect(current, currentSize, lists[l]);
+        }
+        return Arrays.copyOf(current, currentSize);
+    }
+
+    // Deja en target los ids presentes también en other; ambas listas están ordenadas
+    private int intersect(int[] target, int targetSize, IntList other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < targetSize && j < other.size; i++) {
+            int id = target[i];
+            while (j < other.size && other.values[j] < id) {
+                j++;
+            }
+            if (j < other.size && other.values[j] == id) {
+                target[kept++] = id;
+            }
+        }
+        return kept;
+    }
+
+    private int score(String[] normalized, String query) {
+        int best = 0;
+        for (int f = 0; f < normalized.length; f++) {
+            String text = normalized[f];
+            int position = text.indexOf(query);
+            if (position < 0) {
+                continue;
+            }
+
+            int quality;
+            if (text.length() == query.length()) {
+                quality = EXACT;
+            } else if (position == 0) {
+                quality = PREFIX;
+            } else if (startsWord(text, query)) {
+                quality = WORD_PREFIX;
+            } else {
+                quality = CONTAINS;
+            }
+
+            // La calidad pesa más que el campo: un prefijo en autor gana a un "contiene" en título
+            int score = quality * (fields.size() + 1) + (fields.size() - f);
+            if (score > best) {
+                best = score;
+            }
+        }
+        return best;
+    }
+
+    private boolean startsWord(String text, String query) {
+        int position = text.indexOf(query);
+        while (position > 0) {
+            if (!Character.isLetterOrDigit(text.charAt(position - 1))) {
+                return true;
+            }
+            position = text.indexOf(query, position + 1);
+        }
+        return position == 0;
+    }
+
+    // Minúsculas y sin tildes: "Márquez" y "marquez" indexan igual
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        boolean ascii = true;
+        for (int i = 0; i < trimmed.length() && ascii; i++) {
+            ascii = trimmed.charAt(i) < 128;
+        }
+        if (!ascii) {
+            trimmed = ACCENTS.matcher(Normalizer.normalize(trimmed, Normalizer.Form.NFD)).replaceAll("");
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    // Lista creciente de enteros sin boxing para las listas de gramos
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+    }
+}
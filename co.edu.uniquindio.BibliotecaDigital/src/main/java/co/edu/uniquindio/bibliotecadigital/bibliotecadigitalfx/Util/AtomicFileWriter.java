@@ -0,0 +1,160 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reemplazo atómico de archivos de datos.
+ *
+ * El contenido nuevo se escribe completo en "archivo.tmp" con una sola escritura,
+ * se fuerza a disco, se renombra a "archivo.ready" y luego se mueve encima del
+ * original con ATOMIC_MOVE. Si el proceso muere en cualquier punto, el archivo
+ * queda con la versión anterior o con la nueva, nunca a medias.
+ *
+ * Al arrancar, recover() revisa lo que haya quedado de una escritura
+ * interrumpida. Un .tmp pudo quedar a medias y siempre se borra; un .ready ya
+ * estaba completo en disco y, si el original no existe, se usa como copia.
+ *
+ * Mientras se reemplaza un archivo se tiene su candado de GroupCommitWriter,
+ * así nadie abre un escritor sobre el archivo viejo entre release y el movimiento.
+ */
+public final class AtomicFileWriter {
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Temporal ya forzado a disco: completo, solo falta moverlo
+    private static final String READY_SUFFIX = ".ready";
+
+    // Carpetas ya revisadas en este proceso
+    private static final Set<Path> RECOVERED = ConcurrentHashMap.newKeySet();
+
+    private AtomicFileWriter() {
+    }
+
+    /**
+     * Reemplaza target con el encabezado y las líneas dadas
+     */
+    public static void write(Path target, String header, List<String> lines) throws IOException {
+        int size = header.length() + 1;
+        for (String line : lines) {
+            size += line.length() + 1;
+        }
+
+        StringBuilder content = new StringBuilder(size);
+        content.append(header).append('\n');
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        write(target, content);
+    }
+
+    /**
+     * Reemplaza target con content. Las líneas que otros hilos hayan encolado con
+     * GroupCommitWriter y aún no estén en el archivo se pierden: quien reemplaza
+     * debe incluirlas en content
+     */
+    public static void write(Path target, CharSequence content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = siblingWithSuffix(target, TEMP_SUFFIX);
+        Path ready = siblingWithSuffix(target, READY_SUFFIX);
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(content.toString());
+
+        // El candado también evita que dos reemplazos del mismo archivo compartan el temporal
+        synchronized (GroupCommitWriter.lockFor(target)) {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            // Solo después del force el temporal cuenta como completo para recover()
+            move(temp, ready);
+
+            // Lo que esté encolado para agregar al archivo viejo se escribe antes de reemplazarlo
+            GroupCommitWriter.release(target);
+            move(ready, target);
+            forceDirectory(target.getParent());
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Limpia lo que haya dejado una escritura interrumpida dentro de la carpeta
+     * (una sola vez por proceso). Devuelve cuántos temporales se resolvieron.
+     */
+    public static int recover(Path baseDirectory) {
+        Path directory = baseDirectory.toAbsolutePath().normalize();
+        if (!RECOVERED.add(directory) || !Files.isDirectory(directory)) {
+            return 0;
+        }
+
+        List<Path> leftovers;
+        try (Stream<Path> files = Files.walk(directory)) {
+            leftovers = files.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX)
+                            || path.getFileName().toString().endsWith(READY_SUFFIX))
+                    .filter(Files::isRegularFile)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            System.err.println("❌ Error revisando archivos temporales: " + e.getMessage());
+            return 0;
+        }
+
+        int resolved = 0;
+        for (Path temp : leftovers) {
+            String name = temp.getFileName().toString();
+            boolean ready = name.endsWith(READY_SUFFIX);
+            String suffix = ready ? READY_SUFFIX : TEMP_SUFFIX;
+            Path target = temp.resolveSibling(name.substring(0, name.length() - suffix.length()));
+            try {
+                if (!ready) {
+                    // Pudo quedar a medias: nunca se confirmó que estuviera completo en disco
+                    Files.delete(temp);
+                    System.out.println("🧹 Temporal incompleto descartado: " + directory.relativize(temp));
+                } else if (Files.exists(target)) {
+                    // El reemplazo no llegó a hacerse: el original sigue completo
+                    Files.delete(temp);
+                    System.out.println("🧹 Temporal descartado: " + directory.relativize(temp));
+                } else {
+                    // No hay original: la copia completa es lo único que queda
+                    Files.move(temp, target);
+                    System.out.println("♻️ Archivo recuperado desde temporal: " + directory.relativize(target));
+                }
+                resolved++;
+            } catch (IOException e) {
+                System.err.println("❌ No se pudo resolver " + temp + ": " + e.getMessage());
+            }
+        }
+        return resolved;
+    }
+
+    private static Path siblingWithSuffix(Path target, String suffix) {
+        return target.resolveSibling(target.getFileName() + suffix);
+    }
+
+    // Asegura que el cambio de nombre también quede en disco (no todos los sistemas lo permiten)
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Sin soporte para abrir carpetas (por ejemplo en Windows): el movimiento ya es atómico
+        }
+    }
+}
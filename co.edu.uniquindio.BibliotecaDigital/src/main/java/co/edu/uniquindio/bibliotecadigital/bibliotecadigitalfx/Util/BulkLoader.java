@@ -0,0 +1,302 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Lectura masiva de los archivos CSV de Archivos/.
+ *
+ * El archivo se divide en trozos que terminan en fin de línea y cada trozo se
+ * mapea en memoria (FileChannel.map) y se procesa en paralelo en el ForkJoinPool
+ * común. El tokenizador recorre los bytes del mapa directamente: no crea un
+ * String por línea ni usa split, solo un String por campo útil. Los resultados
+ * de los trozos se unen en el orden del archivo, así que "el primero gana"
+ * sigue funcionando igual que con la lectura línea por línea.
+ *
+ * Las líneas vacías y las que empiezan con '#' se ignoran. Cada registro tiene
+ * exactamente fieldCount campos sin espacios alrededor: las líneas con menos de
+ * requiredFields campos se descartan, los opcionales que falten quedan como ""
+ * y los campos de más se ignoran (igual que usar parts[i] tras split).
+ */
+public final class BulkLoader {
+    // Por debajo de este tamaño no vale la pena repartir el trabajo
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    // Cada trozo se mapea por separado; así se soportan archivos de más de 2 GB
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+
+    private BulkLoader() {
+    }
+
+    /**
+     * Lee un archivo del disco y devuelve sus registros en el orden del archivo.
+     */
+    public static List<String[]> readRecords(Path file, int requiredFields, int fieldCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readRegion(channel, 0, channel.size(), requiredFields, fieldCount);
+        }
+    }
+
+    /**
+     * Lee solo los bytes from..to del archivo (por ejemplo lo agregado desde la
+     * última lectura). from debe ser el inicio de una línea.
+     */
+    public static List<String[]> readRecords(Path file, long from, long to, int requiredFields, int fieldCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readRegion(channel, from, Math.min(to, channel.size()), requiredFields, fieldCount);
+        }
+    }
+
+    private static List<String[]> readRegion(FileChannel channel, long from, long to, int requiredFields, int fieldCount) throws IOException {
+        if (to <= from) {
+            return new ArrayList<>();
+        }
+
+        long[] bounds = chunkBounds(channel, from, to);
+        ChunkSource[] chunks = new ChunkSource[bounds.length - 1];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = bounds[i];
+            long length = bounds[i + 1] - start;
+            chunks[i] = () -> channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+        return parseChunks(chunks, requiredFields, fieldCount);
+    }
+
+    /**
+     * Igual que readRecords pero para un recurso del classpath (no se puede mapear):
+     * se lee completo a memoria y se procesa en un solo trozo.
+     */
+    public static List<String[]> readRecords(InputStream input, int requiredFields, int fieldCount) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(input.readAllBytes());
+        return parseChunks(new ChunkSource[]{() -> buffer}, requiredFields, fieldCount);
+    }
+
+    // Límites de los trozos: cada uno (salvo el último) termina justo después de un '\n'
+    private static long[] chunkBounds(FileChannel channel, long from, long to) throws IOException {
+        long size = to - from;
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long byParallelism = Math.max(1, Math.min(size / MIN_CHUNK_SIZE, parallelism * 4L));
+        long bySize = (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE;
+        int chunkCount = (int) Math.max(byParallelism, bySize);
+
+        long[] bounds = new long[chunkCount + 1];
+        bounds[0] = from;
+        int count = 1;
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+
+        for (int i = 1; i < chunkCount; i++) {
+            long candidate = Math.max(from + size * i / chunkCount, bounds[count - 1]);
+            long boundary = nextLineStart(channel, candidate, to, probe);
+            if (boundary > bounds[count - 1] && boundary < to) {
+                bounds[count++] = boundary;
+            }
+        }
+        bounds[count++] = to;
+
+        long[] result = new long[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // ==================== PROCESAMIENTO EN PARALELO ====================
+
+    private interface ChunkSource {
+        ByteBuffer open() throws IOException;
+    }
+
+    private static List<String[]> parseChunks(ChunkSource[] chunks, int requiredFields, int fieldCount) throws IOException {
+        List<List<String[]>> parts;
+        if (chunks.length == 1) {
+            parts = new ArrayList<>();
+            parts.add(parseChunk(chunks[0].open(), requiredFields, fieldCount));
+        } else {
+            try {
+                parts = ForkJoinPool.commonPool().invoke(new ParseTask(chunks, 0, chunks.length, requiredFields, fieldCount));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        int total = 0;
+        for (List<String[]> part : parts) {
+            total += part.size();
+        }
+        List<String[]> records = new ArrayList<>(total);
+        for (List<String[]> part : parts) {
+            records.addAll(part);
+        }
+        return records;
+    }
+
+    // Divide el rango de trozos en mitades hasta llegar a uno; el resultado queda en orden
+    private static final class ParseTask extends RecursiveTask<List<List<String[]>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ChunkSource[] chunks;
+        private final int from;
+        private final int to;
+        private final int requiredFields;
+        private final int fieldCount;
+
+        ParseTask(ChunkSource[] chunks, int from, int to, int requiredFields, int fieldCount) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.requiredFields = requiredFields;
+            this.fieldCount = fieldCount;
+        }
+
+        @Override
+        protected List<List<String[]>> compute() {
+            if (to - from == 1) {
+                List<List<String[]>> result = new ArrayList<>(1);
+                try {
+                    result.add(parseChunk(chunks[from].open(), requiredFields, fieldCount));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return result;
+            }
+
+            int middle = (from + to) >>> 1;
+            ParseTask left = new ParseTask(chunks, from, middle, requiredFields, fieldCount);
+            ParseTask right = new ParseTask(chunks, middle, to, requiredFields, fieldCount);
+            left.fork();
+            List<List<String[]>> result = right.compute();
+            result.addAll(0, left.join());
+            return result;
+        }
+    }
+
+    // ==================== TOKENIZADOR ====================
+
+    /**
+     * Recorre el trozo byte a byte. Solo se guardan las posiciones de inicio y fin
+     * de cada campo; el String se crea al final de la línea y únicamente si la
+     * línea es válida.
+     */
+    static List<String[]> parseChunk(ByteBuffer buffer, int requiredFields, int fieldCount) {
+        List<String[]> records = new ArrayList<>();
+        int[] starts = new int[fieldCount];
+        int[] ends = new int[fieldCount];
+        byte[] scratch = new byte[256];
+
+        int limit = buffer.limit();
+        int position = buffer.position();
+
+        while (position < limit) {
+            // Saltar espacios iniciales para detectar líneas vacías o comentarios
+            int lineStart = position;
+            while (lineStart < limit && isBlank(buffer.get(lineStart))) {
+                lineStart++;
+            }
+            if (lineStart < limit && buffer.get(lineStart) == '#') {
+                position = skipLine(buffer, lineStart, limit);
+                continue;
+            }
+
+            int field = 0;
+            int fieldStart = lineStart;
+            int cursor = lineStart;
+            boolean lineEnded = false;
+
+            while (cursor < limit && !lineEnded) {
+                byte b = buffer.get(cursor);
+                if (b == '\n') {
+                    lineEnded = true;
+                } else if (b == ',') {
+                    if (field < fieldCount) {
+                        starts[field] = fieldStart;
+                        ends[field] = cursor;
+                    }
+                    field++;
+                    fieldStart = cursor + 1;
+                }
+                cursor++;
+            }
+
+            int lineEnd = lineEnded ? cursor - 1 : cursor;
+            if (field < fieldCount) {
+                starts[field] = fieldStart;
+                ends[field] = lineEnd;
+            }
+            field++;
+
+            // lineStart ya saltó los espacios: si llegó al fin de línea, la línea está vacía
+            if (lineStart < lineEnd && field >= requiredFields) {
+                String[] record = new String[fieldCount];
+                for (int f = 0; f < fieldCount; f++) {
+                    if (f < field) {
+                        scratch = ensureCapacity(scratch, ends[f] - starts[f]);
+                        record[f] = decodeTrimmed(buffer, starts[f], ends[f], scratch);
+                    } else {
+                        record[f] = "";
+                    }
+                }
+                records.add(record);
+            }
+            position = cursor;
+        }
+        return records;
+    }
+
+    private static int skipLine(ByteBuffer buffer, int position, int limit) {
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        return position + 1;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static byte[] ensureCapacity(byte[] scratch, int length) {
+        return length <= scratch.length ? scratch : new byte[Math.max(length, scratch.length * 2)];
+    }
+
+    // Equivale a new String(...).trim() pero recortando sobre los bytes
+    private static String decodeTrimmed(ByteBuffer buffer, int from, int to, byte[] scratch) {
+        while (from < to && isBlank(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+
+        int length = to - from;
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(from + i);
+            scratch[i] = b;
+            ascii &= b >= 0;
+        }
+        return new String(scratch, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+}
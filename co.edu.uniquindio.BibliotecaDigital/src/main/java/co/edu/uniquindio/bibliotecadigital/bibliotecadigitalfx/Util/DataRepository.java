@@ -0,0 +1,264 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
+
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Copia en memoria de los archivos de datos, indexada por clave.
+ *
+ * Cada archivo se lee una sola vez (la primera vez que se necesita) y se guarda
+ * como filas de texto ya validadas: administradores y lectores por usuario,
+ * libros por ID y valoraciones por "usuario|libroID". Persistence consulta aquí
+ * en lugar de volver a leer el archivo y, cada vez que escribe, actualiza la
+ * tabla correspondiente (write-through), así que ambas copias no se separan.
+ *
+ * Se guardan filas y no objetos del modelo para que cada carga siga entregando
+ * objetos nuevos, como antes.
+ */
+public class DataRepository {
+    private static final ConcurrentHashMap<Path, DataRepository> INSTANCES = new ConcurrentHashMap<>();
+
+    private final Table administrators = new Table();
+    private final Table readers = new Table();
+    private final Table books = new Table();
+    private final Table ratings = new Table();
+
+    // Columnas de valoraciones y la versión de la tabla con que se armaron
+    private RatingColumnStore ratingColumns;
+    private long ratingColumnsVersion = -1;
+
+    private DataRepository() {
+    }
+
+    // Repositorio compartido para la carpeta de datos indicada
+    public static DataRepository forDirectory(Path baseDirectory) {
+        return INSTANCES.computeIfAbsent(baseDirectory.toAbsolutePath().normalize(), path -> new DataRepository());
+    }
+
+    // Nombre, Usuario, Contraseña
+    public Table administrators() {
+        return administrators;
+    }
+
+    // Nombre, Usuario, Contraseña
+    public Table readers() {
+        return readers;
+    }
+
+    // ID, Título, Autor, Año, Categoría
+    public Table books() {
+        return books;
+    }
+
+    // Usuario, LibroID, Estrellas, Comentario
+    public Table ratings() {
+        return ratings;
+    }
+
+    /**
+     * Valoraciones por columnas; se arman de nuevo solo si la tabla cambió desde la última vez.
+     * La tabla ya debe estar cargada.
+     */
+    public synchronized RatingColumnStore ratingColumns() {
+        long version = ratings.version();
+        if (ratingColumns == null || ratingColumnsVersion != version) {
+            ratingColumns = RatingColumnStore.build(ratings.rows());
+            ratingColumnsVersion = version;
+        }
+        return ratingColumns;
+    }
+
+    // Obliga a leer de nuevo todos los archivos en el próximo acceso
+    public void invalidateAll() {
+        administrators.invalidate();
+        readers.invalidate();
+        books.invalidate();
+        ratings.invalidate();
+    }
+
+    /**
+     * Filas de un archivo indexadas por clave. Mientras no se haya cargado, las
+     * escrituras se ignoran: la carga posterior las leerá del archivo.
+     *
+     * Además guarda qué claves cambiaron en cada versión, para que Library pueda
+     * aplicar solo la diferencia (changesSince) en lugar de recargarlo todo.
+     */
+    public static class Table {
+        // Tope del registro de cambios; si se pasa, el siguiente pedido recibe la tabla completa
+        private static final int MAX_CHANGE_LOG = 100_000;
+
+        private HashMap<String, String[]> rows = new HashMap<>();
+        private boolean loaded;
+        // Aumenta con cada cambio, para saber si lo derivado de la tabla sigue al día
+        private long version;
+        // changedKeys.get(i) es la clave que cambió al pasar a la versión changeBase + i + 1
+        private java.util.ArrayList<String> changedKeys = new java.util.ArrayList<>();
+        private long changeBase;
+
+        // Carga la tabla con el lector dado si todavía no se cargó
+        public synchronized Table ensureLoaded(Supplier<HashMap<String, String[]>> loader) {
+            if (!loaded) {
+                rows = loader.get();
+                loaded = true;
+                resetChanges();
+            }
+            return this;
+        }
+
+        public synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        public synchronized String[] get(String key) {
+            return rows.get(key);
+        }
+
+        public synchronized boolean contains(String key) {
+            return rows.containsKey(key);
+        }
+
+        public synchronized void put(String key, String[] row) {
+            if (loaded) {
+                rows.put(key, row);
+                changed(key);
+            }
+        }
+
+        // Como put, pero no cuenta como cambio si la fila ya era igual
+        public synchronized boolean putIfChanged(String key, String[] row) {
+            if (!loaded || java.util.Arrays.equals(rows.get(key), row)) {
+                return false;
+            }
+            rows.put(key, row);
+            changed(key);
+            return true;
+        }
+
+        public synchronized void remove(String key) {
+            if (loaded) {
+                rows.remove(key);
+                changed(key);
+            }
+        }
+
+        // Reemplaza todo el contenido tras reescribir el archivo completo
+        public synchronized void replaceAll(HashMap<String, String[]> newRows) {
+            rows = newRows;
+            loaded = true;
+            resetChanges();
+        }
+
+        /**
+         * Deja la tabla igual a newRows tocando solo las claves que difieren, así el
+         * registro de cambios sigue sirviendo. Devuelve cuántas claves cambiaron.
+         */
+        public synchronized int applyDiff(HashMap<String, String[]> newRows) {
+            if (!loaded) {
+                replaceAll(newRows);
+                return newRows.size();
+            }
+            int count = 0;
+            java.util.List<String> removed = new java.util.ArrayList<>();
+            for (MapNode<String, String[]> entry : rows.entries()) {
+                if (!newRows.containsKey(entry.getKey())) {
+                    removed.add(entry.getKey());
+                }
+            }
+            for (String key : removed) {
+                rows.remove(key);
+                changed(key);
+                count++;
+            }
+            for (MapNode<String, String[]> entry : newRows.entries()) {
+                if (putIfChanged(entry.getKey(), entry.getValue())) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public synchronized long version() {
+            return version;
+        }
+
+        /**
+         * Claves que cambiaron después de la versión dada, con su fila actual (null
+         * si se borró). Si el registro ya no llega tan atrás, devuelve todas las filas
+         * y Changes.isComplete() es true: quien lo usa debe quitar lo que no aparezca.
+         */
+        public synchronized Changes changesSince(long sinceVersion) {
+            java.util.LinkedHashMap<String, String[]> changed = new java.util.LinkedHashMap<>();
+            if (sinceVersion < changeBase || sinceVersion > version) {
+                for (MapNode<String, String[]> entry : rows.entries()) {
+                    changed.put(entry.getKey(), entry.getValue());
+                }
+                return new Changes(version, changed, true);
+            }
+            for (int i = (int) (sinceVersion - changeBase); i < changedKeys.size(); i++) {
+                String key = changedKeys.get(i);
+                changed.put(key, rows.get(key));
+            }
+            return new Changes(version, changed, false);
+        }
+
+        public synchronized int size() {
+            return rows.size();
+        }
+
+        // Copia de las filas para recorrerlas sin mantener el bloqueo
+        public synchronized java.util.List<String[]> rows() {
+            java.util.List<String[]> copy = new java.util.ArrayList<>(rows.size());
+            for (MapNode<String, String[]> entry : rows.entries()) {
+                copy.add(entry.getValue());
+            }
+            return copy;
+        }
+
+        public synchronized void invalidate() {
+            rows = new HashMap<>();
+            loaded = false;
+            resetChanges();
+        }
+
+        private void changed(String key) {
+            version++;
+            if (changedKeys.size() >= MAX_CHANGE_LOG) {
+                changedKeys = new java.util.ArrayList<>();
+                changeBase = version;
+            } else {
+                changedKeys.add(key);
+            }
+        }
+
+        // Tras un reemplazo completo no se sabe qué claves cambiaron
+        private void resetChanges() {
+            version++;
+            changedKeys = new java.util.ArrayList<>();
+            changeBase = version;
+        }
+    }
+
+    /**
+     * Resultado de Table.changesSince: filas por clave (null = borrada) y la versión
+     * de la tabla a la que corresponden.
+     */
+    public static final class Changes {
+        private final long version;
+        private final java.util.Map<String, String[]> rows;
+        private final boolean complete;
+
+        Changes(long version, java.util.Map<String, String[]> rows, boolean complete) {
+            this.version = version;
+            this.rows = rows;
+            this.complete = complete;
+        }
+
+        public long getVersion() { return version; }
+        public java.util.Map<String, String[]> getRows() { return rows; }
+        public boolean isComplete() { return complete; }
+    }
+}
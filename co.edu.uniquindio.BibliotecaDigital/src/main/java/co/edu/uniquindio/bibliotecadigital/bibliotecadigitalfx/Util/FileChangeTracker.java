@@ -0,0 +1,306 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Detecta qué cambió en los archivos de datos desde la última lectura.
+ *
+ * De cada archivo leído se guarda el tamaño, la fecha de modificación, el
+ * identificador del archivo en el sistema (cambia si se reemplazó por otro), el
+ * final de la última línea completa y una suma CRC del primer y del último
+ * bloque leídos. Con eso check() distingue tres casos:
+ *   - UNCHANGED: mismo tamaño y fecha.
+ *   - APPENDED: el principio y el final de lo ya leído siguen iguales y el
+ *     archivo creció; solo hay que leer desde el final de la última línea.
+ *   - REWRITTEN: cualquier otro cambio (reemplazo, recorte, edición); hay que
+ *     leerlo completo.
+ *
+ * Un WatchService sobre las carpetas de los archivos evita incluso consultar el
+ * disco cuando no llegó ningún evento. Si el sistema no tiene avisos nativos
+ * (el JDK los simula revisando cada tantos segundos) o se pierden eventos, se
+ * revisa siempre el tamaño y la fecha.
+ */
+public final class FileChangeTracker {
+    public enum Kind { UNCHANGED, APPENDED, REWRITTEN }
+
+    // Bytes del principio y del final que se comparan para confiar en un agregado
+    private static final int SAMPLE_SIZE = 4096;
+
+    private static final ConcurrentHashMap<Path, FileChangeTracker> INSTANCES = new ConcurrentHashMap<>();
+
+    private final Path base;
+    private final ConcurrentHashMap<String, State> recorded = new ConcurrentHashMap<>();
+
+    // Avisos del sistema: cantidad de eventos por archivo (ruta absoluta)
+    private final ConcurrentHashMap<Path, AtomicLong> events = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Boolean> watchedDirectories = new ConcurrentHashMap<>();
+    private final AtomicLong overflows = new AtomicLong();
+    private volatile WatchService watcher;
+    private volatile boolean nativeEvents;
+
+    private FileChangeTracker(Path base) {
+        this.base = base;
+        startWatcher();
+    }
+
+    // Seguimiento compartido para la carpeta de datos indicada
+    public static FileChangeTracker forDirectory(Path baseDirectory) {
+        return INSTANCES.computeIfAbsent(baseDirectory.toAbsolutePath().normalize(), FileChangeTracker::new);
+    }
+
+    /**
+     * Estado actual del archivo, o null si no existe. Lee a lo sumo dos bloques
+     * pequeños además de consultar los atributos.
+     */
+    public State observe(String relativePath) throws IOException {
+        Path file = base.resolve(relativePath);
+        // El contador se toma antes de leer: un evento posterior obliga a revisar de nuevo
+        long eventCount = eventCount(file);
+        boolean watched = watchedDirectories.containsKey(file.getParent());
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = Math.min(attributes.size(), channel.size());
+            long lineEnd = lastLineEnd(channel, size);
+            long head = crc(channel, 0, Math.min(SAMPLE_SIZE, lineEnd));
+            long tailStart = Math.max(0, lineEnd - SAMPLE_SIZE);
+            long tail = crc(channel, tailStart, lineEnd - tailStart);
+            return new State(attributes.fileKey(), size, attributes.lastModifiedTime(), lineEnd, head, tail,
+                    eventCount, overflows.get(), watched && nativeEvents);
+        }
+    }
+
+    /**
+     * Compara el archivo con lo registrado la última vez. Si nunca se registró,
+     * el cambio es REWRITTEN (hay que leerlo completo).
+     */
+    public Change check(String relativePath) throws IOException {
+        State previous = recorded.get(relativePath);
+        Path file = base.resolve(relativePath);
+
+        if (previous != null && previous.watched && previous.eventCount == eventCount(file)
+                && previous.overflows == overflows.get()) {
+            return new Change(Kind.UNCHANGED, previous.lineEnd, previous.lineEnd, previous);
+        }
+
+        State current = observe(relativePath);
+        if (previous == null || current == null) {
+            return new Change(Kind.REWRITTEN, 0, current != null ? current.size : 0, current);
+        }
+        if (current.size == previous.size && current.modified.equals(previous.modified)
+                && Objects.equals(current.fileKey, previous.fileKey)) {
+            return new Change(Kind.UNCHANGED, previous.lineEnd, previous.lineEnd, current);
+        }
+        if (!Objects.equals(current.fileKey, previous.fileKey) || current.size <= previous.size
+                || !samePrefix(file, previous)) {
+            return new Change(Kind.REWRITTEN, 0, current.size, current);
+        }
+        return new Change(Kind.APPENDED, previous.lineEnd, current.lineEnd, current);
+    }
+
+    // Guarda el estado con que quedó sincronizada la copia en memoria
+    public void record(String relativePath, State state) {
+        if (state == null) {
+            recorded.remove(relativePath);
+            return;
+        }
+        recorded.put(relativePath, state);
+        watch(base.resolve(relativePath).getParent());
+    }
+
+    // Vuelve a revisar el archivo completo en el próximo check
+    public void forget(String relativePath) {
+        recorded.remove(relativePath);
+    }
+
+    // El principio y el final de lo leído antes siguen iguales
+    private boolean samePrefix(Path file, State previous) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long tailStart = Math.max(0, previous.lineEnd - SAMPLE_SIZE);
+            return crc(channel, 0, Math.min(SAMPLE_SIZE, previous.lineEnd)) == previous.head
+                    && crc(channel, tailStart, previous.lineEnd - tailStart) == previous.tail;
+        }
+    }
+
+    // Posición justo después del último '\n' antes de size (0 si no hay ninguno)
+    private static long lastLineEnd(FileChannel channel, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long end = size;
+        while (end > 0) {
+            long start = Math.max(0, end - probe.capacity());
+            probe.clear();
+            probe.limit((int) (end - start));
+            readFully(channel, probe, start);
+            for (int i = probe.limit() - 1; i >= 0; i--) {
+                if (probe.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    private static long crc(FileChannel channel, long position, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        readFully(channel, buffer, position);
+        buffer.flip();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                // El archivo se achicó mientras se leía: lo que falta queda en cero y la suma no coincidirá
+                break;
+            }
+            position += read;
+        }
+    }
+
+    // ==================== AVISOS DEL SISTEMA ====================
+
+    private void startWatcher() {
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            // Sin avisos nativos el JDK revisa las carpetas cada varios segundos: no sirve para confiar en él
+            nativeEvents = !watcher.getClass().getName().contains("Polling");
+        } catch (IOException | UnsupportedOperationException e) {
+            watcher = null;
+            return;
+        }
+
+        Thread thread = new Thread(this::watchLoop, "archivos-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(Path directory) {
+        WatchService service = watcher;
+        if (service == null || directory == null || watchedDirectories.containsKey(directory)) {
+            return;
+        }
+        try {
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.put(directory, Boolean.TRUE);
+        } catch (IOException | ClosedWatchServiceException e) {
+            System.err.println("⚠️ No se pudo vigilar " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflows.incrementAndGet();
+                } else {
+                    Path file = directory.resolve((Path) event.context());
+                    events.computeIfAbsent(file, path -> new AtomicLong()).incrementAndGet();
+                }
+            }
+            if (!key.reset()) {
+                // La carpeta dejó de existir: ya no llegan avisos de ella
+                watchedDirectories.remove(directory);
+                overflows.incrementAndGet();
+            }
+        }
+    }
+
+    private long eventCount(Path file) {
+        AtomicLong count = events.get(file);
+        return count != null ? count.get() : 0;
+    }
+
+    // ==================== RESULTADOS ====================
+
+    /**
+     * Lo que se sabe de un archivo en un momento dado. lineEnd es hasta dónde hay
+     * líneas completas: una lectura por agregado empieza ahí.
+     */
+    public static final class State {
+        private final Object fileKey;
+        private final long size;
+        private final FileTime modified;
+        private final long lineEnd;
+        private final long head;
+        private final long tail;
+        private final long eventCount;
+        private final long overflows;
+        private final boolean watched;
+
+        private State(Object fileKey, long size, FileTime modified, long lineEnd, long head, long tail,
+                      long eventCount, long overflows, boolean watched) {
+            this.fileKey = fileKey;
+            this.size = size;
+            this.modified = modified;
+            this.lineEnd = lineEnd;
+            this.head = head;
+            this.tail = tail;
+            this.eventCount = eventCount;
+            this.overflows = overflows;
+            this.watched = watched;
+        }
+
+        public long getSize() { return size; }
+        public long getLineEnd() { return lineEnd; }
+    }
+
+    /**
+     * Resultado de check(): para APPENDED, from..to son las líneas nuevas; para
+     * REWRITTEN, to es el tamaño a leer. state es lo que hay que registrar después.
+     */
+    public static final class Change {
+        private final Kind kind;
+        private final long from;
+        private final long to;
+        private final State state;
+
+        private Change(Kind kind, long from, long to, State state) {
+            this.kind = kind;
+            this.from = from;
+            this.to = to;
+            this.state = state;
+        }
+
+        public Kind getKind() { return kind; }
+        public long getFrom() { return from; }
+        public long getTo() { return to; }
+        public State getState() { return state; }
+    }
+}
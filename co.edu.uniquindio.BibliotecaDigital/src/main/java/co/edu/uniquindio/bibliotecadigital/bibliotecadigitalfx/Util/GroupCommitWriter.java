@@ -0,0 +1,283 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritor con confirmación en grupo (group commit) para archivos de solo agregar.
+ *
+ * Cada archivo tiene un único hilo que escribe. Las líneas que llegan mientras
+ * se espera la ventana de agrupación (o mientras se escribe el lote anterior)
+ * se juntan y se guardan con un solo write y un solo force. Así, muchas
+ * valoraciones o préstamos simultáneos cuestan un acceso a disco, no uno por
+ * registro. append devuelve un CompletableFuture que se completa cuando la
+ * línea ya está en disco, o con error si la escritura falló.
+ */
+public class GroupCommitWriter {
+    // Tiempo que se espera tras el primer registro para juntar otros
+    private static final long BATCH_WINDOW_MICROS = 2_000;
+    // Tope de un lote para no retener demasiada memoria
+    private static final int MAX_BATCH_BYTES = 1 << 20;
+
+    private static final ConcurrentHashMap<Path, GroupCommitWriter> INSTANCES = new ConcurrentHashMap<>();
+    // Un candado por archivo: se abre un escritor o se reemplaza el archivo, nunca las dos cosas a la vez
+    private static final ConcurrentHashMap<Path, Object> FILE_LOCKS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final FileChannel channel;
+    // Archivo del escritor compartido (forFile); null si el canal lo abrió otro
+    private final Path sharedFile;
+    private final LinkedBlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private boolean closed;
+
+    /**
+     * Usa un canal ya abierto (por ejemplo el de la bitácora). Quien lo abrió debe
+     * llamar a flush() antes de truncarlo o moverlo.
+     */
+    public GroupCommitWriter(String name, FileChannel channel) {
+        this(name, channel, null);
+    }
+
+    private GroupCommitWriter(String name, FileChannel channel, Path sharedFile) {
+        this.name = name;
+        this.channel = channel;
+        this.sharedFile = sharedFile;
+
+        Thread appender = new Thread(this::appendLoop, "group-commit-" + name);
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    // Escritor compartido para agregar al final del archivo indicado
+    public static GroupCommitWriter forFile(Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+        GroupCommitWriter existing = INSTANCES.get(normalized);
+        if (existing != null) {
+            return existing;
+        }
+        // Si el archivo se está reemplazando se espera: el canal debe abrirse sobre el nuevo
+        synchronized (lockFor(normalized)) {
+            return INSTANCES.computeIfAbsent(normalized, path -> {
+                try {
+                    Files.createDirectories(path.getParent());
+                    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    return new GroupCommitWriter(path.getFileName().toString(), channel, path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("No se pudo abrir " + path + " para escritura", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Candado del archivo. Quien reemplaza el archivo completo lo tiene desde
+     * release hasta terminar de moverlo; forFile lo toma antes de abrir un canal.
+     */
+    public static Object lockFor(Path file) {
+        return FILE_LOCKS.computeIfAbsent(file.toAbsolutePath().normalize(), path -> new Object());
+    }
+
+    /**
+     * Vacía y cierra el escritor compartido del archivo, si lo hay. Se usa antes de
+     * reemplazar el archivo completo: el canal abierto apunta al archivo viejo.
+     * Debe llamarse con el candado del archivo (lockFor) hasta terminar el reemplazo.
+     */
+    public static void release(Path file) throws IOException {
+        GroupCommitWriter writer = INSTANCES.remove(file.toAbsolutePath().normalize());
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    // Espera a que todos los escritores compartidos vacíen lo pendiente (al cerrar la aplicación)
+    public static void flushAll() {
+        for (GroupCommitWriter writer : INSTANCES.values()) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("❌ Error vaciando " + writer.name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Agrega una línea (sin salto de línea final)
+    public CompletableFuture<Void> append(String line) {
+        return enqueue((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Agrega varias líneas como un solo registro: quedan juntas en el archivo
+    public CompletableFuture<Void> append(List<String> lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return enqueue(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Bloquea hasta que todo lo agregado antes de esta llamada esté en disco.
+     */
+    public void flush() throws IOException {
+        await(enqueue(new byte[0]));
+    }
+
+    /**
+     * Espera un resultado de append y convierte el fallo en IOException, para los
+     * métodos que siguen siendo síncronos.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+        }
+    }
+
+    // Escribe lo pendiente, cierra el canal y termina el hilo escritor
+    private void close() throws IOException {
+        PendingWrite last;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            last = new PendingWrite(null);
+            queue.add(last);
+        }
+        await(last.done);
+    }
+
+    private CompletableFuture<Void> enqueue(byte[] bytes) {
+        synchronized (this) {
+            if (!closed) {
+                PendingWrite write = new PendingWrite(bytes);
+                queue.add(write);
+                return write.done;
+            }
+        }
+        if (sharedFile != null) {
+            // El archivo se reemplazó después de obtener este escritor: va al del archivo nuevo
+            return forFile(sharedFile).enqueue(bytes);
+        }
+        return CompletableFuture.failedFuture(new IOException("Escritor " + name + " cerrado"));
+    }
+
+    // ==================== HILO ESCRITOR ====================
+
+    private void appendLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+
+        while (true) {
+            boolean closing;
+            try {
+                batch.add(queue.take());
+                closing = batch.get(0).bytes == null || collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failAll(batch, new IOException("Escritor " + name + " interrumpido"));
+                return;
+            }
+
+            try {
+                writeBatch(batch);
+                if (closing) {
+                    channel.close();
+                }
+                for (PendingWrite write : batch) {
+                    write.done.complete(null);
+                }
+            } catch (IOException e) {
+                System.err.println("❌ Error escribiendo lote en " + name + ": " + e.getMessage());
+                failAll(batch, e);
+            }
+            batch.clear();
+            if (closing) {
+                return;
+            }
+        }
+    }
+
+    // Junta lo que llegue dentro de la ventana, sin pasar del tope del lote; true si llegó el cierre
+    private boolean collectBatch(List<PendingWrite> batch) throws InterruptedException {
+        long bytes = batch.get(0).bytes.length;
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(BATCH_WINDOW_MICROS);
+
+        while (bytes < MAX_BATCH_BYTES) {
+            PendingWrite next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+            }
+            batch.add(next);
+            if (next.bytes == null) {
+                return true;
+            }
+            bytes += next.bytes.length;
+        }
+        return false;
+    }
+
+    private void writeBatch(List<PendingWrite> batch) throws IOException {
+        int total = 0;
+        for (PendingWrite write : batch) {
+            total += write.length();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (PendingWrite write : batch) {
+            if (write.bytes != null) {
+                buffer.put(write.bytes);
+            }
+        }
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private void failAll(List<PendingWrite> batch, IOException error) {
+        for (PendingWrite write : batch) {
+            write.done.completeExceptionally(error);
+        }
+    }
+
+    private static final class PendingWrite {
+        private final byte[] bytes;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        // bytes == null marca el cierre del escritor
+        PendingWrite(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int length() {
+            return bytes != null ? bytes.length : 0;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Importación de un archivo externo por etapas, pensada para correr fuera del hilo de JavaFX.
+ *
+ * Etapas:
+ *  1. Lectura (hilo "import-reader"): lee líneas y las agrupa en lotes.
+ *  2. Separación y validación (hilo que llama a run()): separa los campos y se los
+ *     pasa al RecordHandler, que valida y descarta repetidos con índices hash.
+ *  3. Guardado (hilo "import-commit"): escribe cada lote aceptado de una vez.
+ *
+ * Las etapas se comunican con colas acotadas, así que si el disco es lento la
+ * lectura se frena en lugar de llenar la memoria. cancel() detiene las tres
+ * etapas; lo ya guardado se conserva. El progreso se informa después de cada lote.
+ */
+public class ImportPipeline {
+    private static final int BATCH_SIZE = 2048;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final long POLL_MILLIS = 100;
+
+    // Marca de fin en las colas (se compara por identidad)
+    private static final List<String> END_OF_LINES = new ArrayList<>();
+    private static final List<String[]> END_OF_ROWS = new ArrayList<>();
+
+    /**
+     * Lógica de un tipo de dato (libros, lectores, valoraciones...).
+     * accept se llama en orden desde un solo hilo y commit desde otro, también en orden.
+     */
+    public interface RecordHandler {
+        // Arma los índices de validación; se llama al comenzar run(), ya fuera del hilo de la interfaz
+        default void prepare() {
+        }
+
+        // Devuelve la fila a guardar, o null si el registro es inválido o repetido
+        String[] accept(String[] fields);
+
+        // Guarda un lote de filas aceptadas
+        void commit(List<String[]> batch) throws IOException;
+    }
+
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    private final File file;
+    private final String dataType;
+    private final int requiredFields;
+    private final int fieldCount;
+    private final RecordHandler handler;
+    private ProgressListener progressListener;
+
+    private volatile boolean stopped;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong linesRead = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+
+    private final BlockingQueue<List<String>> lineBatches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<List<String[]>> rowBatches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    /**
+     * @param dataType       "books", "readers", "ratings" o "connections"
+     * @param requiredFields campos mínimos para que una línea se considere
+     * @param fieldCount     campos que se entregan al handler (los que falten quedan como "")
+     */
+    public ImportPipeline(File file, String dataType, int requiredFields, int fieldCount, RecordHandler handler) {
+        this.file = file;
+        this.dataType = dataType;
+        this.requiredFields = requiredFields;
+        this.fieldCount = fieldCount;
+        this.handler = handler;
+    }
+
+    public ImportPipeline setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    public String getDataType() {
+        return dataType;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Se puede llamar desde cualquier hilo
+    public void cancel() {
+        stopped = true;
+    }
+
+    public boolean isCancelled() {
+        return stopped && failure.get() == null;
+    }
+
+    /**
+     * Ejecuta la importación completa y bloquea hasta que termina o se cancela.
+     */
+    public Result run() throws IOException {
+        handler.prepare();
+        Thread readerThread = startStage("import-reader", this::readLines);
+        Thread commitThread = startStage("import-commit", this::commitRows);
+
+        try {
+            validateLines();
+        } finally {
+            offer(rowBatches, END_OF_ROWS);
+            join(readerThread);
+            join(commitThread);
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error != null) {
+            throw new IOException(error.getMessage(), error);
+        }
+
+        Result result = new Result(dataType, linesRead.get(), committed.get(), rejected.get(), stopped);
+        System.out.println("📥 Importación " + dataType + (stopped ? " cancelada" : " terminada") + ": "
+                + result.getAccepted() + " guardados, " + result.getRejected() + " descartados de "
+                + result.getLinesRead() + " líneas");
+        return result;
+    }
+
+    // ==================== ETAPAS ====================
+
+    private void readLines() {
+        try (CountingInputStream counting = new CountingInputStream(new FileInputStream(file));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8))) {
+
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            String line;
+            while (!stopped && (line = reader.readLine()) != null) {
+                batch.add(line);
+                if (batch.size() == BATCH_SIZE) {
+                    linesRead.addAndGet(batch.size());
+                    bytesRead.set(counting.count);
+                    if (!offer(lineBatches, batch)) {
+                        return;
+                    }
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            linesRead.addAndGet(batch.size());
+            bytesRead.set(counting.count);
+            if (!batch.isEmpty()) {
+                offer(lineBatches, batch);
+            }
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            offer(lineBatches, END_OF_LINES);
+        }
+    }
+
+    private void validateLines() {
+        String[] fields = new String[fieldCount];
+        List<String[]> rows = new ArrayList<>(BATCH_SIZE);
+
+        while (true) {
+            List<String> lines = poll(lineBatches);
+            if (lines == null || lines == END_OF_LINES) {
+                break;
+            }
+            for (String line : lines) {
+                String[] row = split(line.trim(), fields) ? handler.accept(fields.clone()) : null;
+                if (row != null) {
+                    rows.add(row);
+                } else if (!line.isBlank() && !line.trim().startsWith("#")) {
+                    rejected.incrementAndGet();
+                }
+            }
+            if (rows.size() >= BATCH_SIZE) {
+                if (!offer(rowBatches, rows)) {
+                    return;
+                }
+                rows = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            offer(rowBatches, rows);
+        }
+    }
+
+    private void commitRows() {
+        try {
+            while (true) {
+                List<String[]> rows = poll(rowBatches);
+                if (rows == null || rows == END_OF_ROWS) {
+                    return;
+                }
+                handler.commit(rows);
+                committed.addAndGet(rows.size());
+                reportProgress();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    // Igual que split(",") + trim, sin expresiones regulares; false si la línea no sirve
+    private boolean split(String line, String[] fields) {
+        if (line.isEmpty() || line.startsWith("#")) {
+            return false;
+        }
+
+        int field = 0;
+        int start = 0;
+        for (int i = 0; i <= line.length() && field < fieldCount; i++) {
+            if (i == line.length() || line.charAt(i) == ',') {
+                fields[field++] = line.substring(start, i).trim();
+                start = i + 1;
+            }
+        }
+        if (field < requiredFields) {
+            return false;
+        }
+        for (int f = field; f < fieldCount; f++) {
+            fields[f] = "";
+        }
+        return true;
+    }
+
+    // ==================== COORDINACIÓN ====================
+
+    private Thread startStage(String name, Runnable stage) {
+        Thread thread = new Thread(stage, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void fail(Throwable error) {
+        failure.compareAndSet(null, error);
+        stopped = true;
+    }
+
+    // Bloquea mientras la cola está llena (contrapresión); false si se detuvo el proceso
+    private <E> boolean offer(BlockingQueue<E> queue, E item) {
+        try {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (stopped && item != END_OF_LINES && item != END_OF_ROWS) {
+                    return false;
+                }
+                if (stopped) {
+                    queue.clear();
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+            return false;
+        }
+    }
+
+    // Siguiente elemento de la cola; null si el proceso se detuvo
+    private <E> E poll(BlockingQueue<E> queue) {
+        try {
+            while (true) {
+                E item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (item != null) {
+                    return stopped && item != END_OF_LINES && item != END_OF_ROWS ? null : item;
+                }
+                if (stopped) {
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+            return null;
+        }
+    }
+
+    private void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+    }
+
+    private void reportProgress() {
+        if (progressListener != null) {
+            progressListener.onProgress(new Progress(bytesRead.get(), file.length(), linesRead.get(),
+                    committed.get(), rejected.get()));
+        }
+    }
+
+    // Cuenta los bytes leídos del archivo para calcular el avance
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    // ==================== RESULTADOS ====================
+
+    public static class Progress {
+        private final long bytesRead;
+        private final long totalBytes;
+        private final long linesRead;
+        private final long saved;
+        private final long rejected;
+
+        Progress(long bytesRead, long totalBytes, long linesRead, long saved, long rejected) {
+            this.bytesRead = bytesRead;
+            this.totalBytes = totalBytes;
+            this.linesRead = linesRead;
+            this.saved = saved;
+            this.rejected = rejected;
+        }
+
+        public long getBytesRead() { return bytesRead; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getLinesRead() { return linesRead; }
+        public long getSaved() { return saved; }
+        public long getRejected() { return rejected; }
+
+        // Avance entre 0 y 1 según los bytes leídos
+        public double getFraction() {
+            return totalBytes > 0 ? Math.min(1.0, (double) bytesRead / totalBytes) : 1.0;
+        }
+    }
+
+    public static class Result {
+        private final String dataType;
+        private final long linesRead;
+        private final long accepted;
+        private final long rejected;
+        private final boolean cancelled;
+
+        Result(String dataType, long linesRead, long accepted, long rejected, boolean cancelled) {
+            this.dataType = dataType;
+            this.linesRead = linesRead;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.cancelled = cancelled;
+        }
+
+        public String getDataType() { return dataType; }
+        public long getLinesRead() { return linesRead; }
+        // Registros efectivamente guardados
+        public long getAccepted() { return accepted; }
+        public long getRejected() { return rejected; }
+        public boolean isCancelled() { return cancelled; }
+    }
+}
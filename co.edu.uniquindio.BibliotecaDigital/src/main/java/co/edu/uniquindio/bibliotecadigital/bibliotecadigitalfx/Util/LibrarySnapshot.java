@@ -0,0 +1,448 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Enum.BookStatus;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Administrator;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Book;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Rating;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Graph;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.GraphSnapshot;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Foto binaria del estado completo de la biblioteca para arrancar sin releer los
+ * archivos de texto.
+ *
+ * Guarda lectores, administradores, libros (con su estado), valoraciones, el grafo
+ * de conexiones y el orden inorder de los tres árboles como arreglos de posiciones,
+ * de modo que los árboles se arman en O(n) con buildFromSorted en vez de insertar
+ * uno por uno. Se lee con un solo mapeo del archivo.
+ *
+ * Formato: cabecera (magia, versión, largo y CRC32 del contenido) seguida del
+ * contenido. La foto también guarda el tamaño y la fecha de modificación de los
+ * archivos de texto de los que salió: si alguno cambió desde entonces (se editó a
+ * mano, se importó un archivo o la aplicación no cerró bien) la foto se descarta
+ * y se vuelve a cargar desde el texto, que sigue siendo el formato de
+ * importación/exportación. Se escribe en un .tmp y se renombra de forma atómica.
+ *
+ * Esas huellas se toman antes de leer los archivos (currentFingerprints) y se
+ * pasan a write: si se tomaran al guardar, un cambio hecho a mano después de la
+ * carga quedaría marcado como incluido en una foto que no lo tiene.
+ */
+public class LibrarySnapshot {
+    private static final String SNAPSHOT_FILE = "Snapshot/library.snap";
+
+    private static final int MAGIC = 0x42444C53; // "BDLS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+
+    private final Path baseDirectory;
+    private final Path snapshotPath;
+    private final String[] sourceFiles;
+
+    /**
+     * @param baseDirectory carpeta Archivos/
+     * @param sourceFiles   archivos (relativos a baseDirectory) cuyo cambio invalida la foto
+     */
+    public LibrarySnapshot(Path baseDirectory, String... sourceFiles) {
+        this.baseDirectory = baseDirectory;
+        this.snapshotPath = baseDirectory.resolve(SNAPSHOT_FILE);
+        this.sourceFiles = sourceFiles;
+    }
+
+    // ==================== ESCRITURA ====================
+
+    /**
+     * Huellas actuales de los archivos de texto. Se toman antes de leerlos para
+     * que describan, como mucho, una versión anterior a la que quedó en memoria.
+     */
+    public Fingerprints currentFingerprints() {
+        long[][] values = new long[sourceFiles.length][];
+        for (int i = 0; i < sourceFiles.length; i++) {
+            values[i] = fingerprint(sourceFiles[i]);
+        }
+        return new Fingerprints(values);
+    }
+
+    /**
+     * @param fingerprints huellas tomadas antes de leer los archivos de los que
+     *                     sale el estado (ver currentFingerprints)
+     */
+    public boolean write(State state, Fingerprints fingerprints) {
+        if (fingerprints == null || fingerprints.values.length != sourceFiles.length) {
+            System.err.println("❌ Foto de la biblioteca sin huellas de los archivos, no se guarda");
+            return false;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+                writeFingerprints(out, fingerprints);
+                writeState(out, state);
+            }
+            byte[] payload = bytes.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(payload.length).putLong(crc.getValue());
+            header.flip();
+
+            Files.createDirectories(snapshotPath.getParent());
+            Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer body = ByteBuffer.wrap(payload);
+                while (header.hasRemaining() || body.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, body});
+                }
+                channel.force(true);
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            System.out.println("💾 Foto de la biblioteca guardada (" + (payload.length / 1024) + " KB)");
+            return true;
+
+        } catch (IOException e) {
+            System.err.println("❌ Error guardando foto de la biblioteca: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeFingerprints(DataOutputStream out, Fingerprints fingerprints) throws IOException {
+        out.writeInt(sourceFiles.length);
+        for (int i = 0; i < sourceFiles.length; i++) {
+            writeString(out, sourceFiles[i]);
+            long[] fingerprint = fingerprints.values[i];
+            out.writeLong(fingerprint[0]);
+            out.writeLong(fingerprint[1]);
+        }
+    }
+
+    private void writeState(DataOutputStream out, State state) throws IOException {
+        out.writeInt(state.getReaders().size());
+        for (MapNode<String, Reader> entry : state.getReaders().entries()) {
+            Reader reader = entry.getValue();
+            writeString(out, reader.getName());
+            writeString(out, reader.getUsername());
+            writeString(out, reader.getPassword());
+        }
+
+        out.writeInt(state.getAdministrators().size());
+        for (MapNode<String, Administrator> entry : state.getAdministrators().entries()) {
+            Administrator admin = entry.getValue();
+            writeString(out, admin.getName());
+            writeString(out, admin.getUsername());
+            writeString(out, admin.getPassword());
+        }
+
+        // Los árboles se guardan como posiciones dentro de esta lista de libros
+        IdentityHashMap<Book, Integer> positions = new IdentityHashMap<>(state.getBooks().size() * 2);
+        out.writeInt(state.getBooks().size());
+        for (MapNode<String, Book> entry : state.getBooks().entries()) {
+            Book book = entry.getValue();
+            positions.put(book, positions.size());
+            writeString(out, book.getIdBook());
+            writeString(out, book.getTitle());
+            writeString(out, book.getAuthor());
+            out.writeInt(book.getYear());
+            writeString(out, book.getCategory());
+            out.writeByte(book.getStatus() != null ? book.getStatus().ordinal() : -1);
+        }
+
+        out.writeInt(state.getRatings().size());
+        for (MapNode<String, Rating> entry : state.getRatings().entries()) {
+            Rating rating = entry.getValue();
+            writeString(out, rating.getReader().getUsername());
+            writeString(out, rating.getBook().getIdBook());
+            out.writeInt(rating.getStars());
+            writeString(out, rating.getComment());
+        }
+
+        writeConnections(out, state.getConnections());
+
+        writeOrder(out, state.getTitleOrder(), positions);
+        writeOrder(out, state.getAuthorOrder(), positions);
+        writeOrder(out, state.getCategoryOrder(), positions);
+    }
+
+    // Vértices en orden de id y cada arista una sola vez (id menor → id mayor)
+    private void writeConnections(DataOutputStream out, Graph<String> connections) throws IOException {
+        GraphSnapshot<String> graph = connections.snapshot();
+        int[] ordinal = new int[graph.idCount()];
+        int vertexCount = 0;
+        for (int id = 0; id < graph.idCount(); id++) {
+            if (graph.isVertex(id)) {
+                ordinal[id] = vertexCount++;
+            }
+        }
+
+        out.writeInt(vertexCount);
+        for (int id = 0; id < graph.idCount(); id++) {
+            if (graph.isVertex(id)) {
+                writeString(out, graph.vertexAt(id));
+            }
+        }
+
+        out.writeInt(connections.edgeCount());
+        for (int id = 0; id < graph.idCount(); id++) {
+            for (int i = graph.neighborStart(id); i < graph.neighborEnd(id); i++) {
+                int neighbor = graph.target(i);
+                if (id < neighbor) {
+                    out.writeInt(ordinal[id]);
+                    out.writeInt(ordinal[neighbor]);
+                }
+            }
+        }
+    }
+
+    private void writeOrder(DataOutputStream out, List<Book> order, IdentityHashMap<Book, Integer> positions)
+            throws IOException {
+        int[] indexes = new int[order.size()];
+        int count = 0;
+        for (Book book : order) {
+            Integer position = positions.get(book);
+            if (position != null) {
+                indexes[count++] = position;
+            }
+        }
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(indexes[i]);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Carga la foto si existe, es válida y sigue al día con los archivos de texto;
+     * en cualquier otro caso devuelve null y hay que cargar desde el texto.
+     */
+    public State load() {
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                System.err.println("⚠️ Foto de la biblioteca incompleta, se ignora");
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            long length = buffer.getLong();
+            long expectedCrc = buffer.getLong();
+
+            if (magic != MAGIC || version != VERSION) {
+                System.out.println("ℹ️ Foto de la biblioteca con formato distinto, se ignora");
+                return null;
+            }
+            if (length != channel.size() - HEADER_SIZE) {
+                System.err.println("⚠️ Foto de la biblioteca incompleta, se ignora");
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != expectedCrc) {
+                System.err.println("⚠️ Foto de la biblioteca dañada (CRC), se ignora");
+                return null;
+            }
+
+            if (!fingerprintsMatch(buffer)) {
+                System.out.println("ℹ️ Los archivos cambiaron desde la última foto, se cargará desde texto");
+                return null;
+            }
+
+            return readState(buffer);
+
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ No se pudo leer la foto de la biblioteca: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean fingerprintsMatch(ByteBuffer in) {
+        int count = in.getInt();
+        if (count != sourceFiles.length) {
+            return false;
+        }
+        for (String file : sourceFiles) {
+            String stored = readString(in);
+            long size = in.getLong();
+            long modified = in.getLong();
+            long[] current = fingerprint(file);
+            if (!file.equals(stored) || size != current[0] || modified != current[1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private State readState(ByteBuffer in) {
+        int readerCount = in.getInt();
+        HashMap<String, Reader> readers = new HashMap<>(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            Reader reader = new Reader(readString(in), readString(in), readString(in));
+            readers.put(reader.getUsername(), reader);
+        }
+
+        int adminCount = in.getInt();
+        HashMap<String, Administrator> administrators = new HashMap<>(adminCount);
+        for (int i = 0; i < adminCount; i++) {
+            Administrator admin = new Administrator(readString(in), readString(in), readString(in));
+            administrators.put(admin.getUsername(), admin);
+        }
+
+        int bookCount = in.getInt();
+        HashMap<String, Book> books = new HashMap<>(bookCount);
+        Book[] byPosition = new Book[bookCount];
+        BookStatus[] statuses = BookStatus.values();
+        for (int i = 0; i < bookCount; i++) {
+            String id = readString(in);
+            String title = readString(in);
+            String author = readString(in);
+            int year = in.getInt();
+            String category = readString(in);
+            int status = in.get();
+            Book book = new Book(id, title, author, year, category, status >= 0 ? statuses[status] : null);
+            byPosition[i] = book;
+            books.put(id, book);
+        }
+
+        int ratingCount = in.getInt();
+        HashMap<String, Rating> ratings = new HashMap<>(ratingCount);
+        for (int i = 0; i < ratingCount; i++) {
+            String username = readString(in);
+            String bookId = readString(in);
+            int stars = in.getInt();
+            String comment = readString(in);
+            Reader reader = readers.get(username);
+            Book book = books.get(bookId);
+            if (reader != null && book != null) {
+                ratings.put(username + "|" + bookId, new Rating(reader, book, stars, comment));
+            }
+        }
+
+        Graph<String> connections = new Graph<>();
+        int vertexCount = in.getInt();
+        String[] vertices = new String[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            vertices[i] = readString(in);
+            connections.addVertex(vertices[i]);
+        }
+        int edgeCount = in.getInt();
+        for (int i = 0; i < edgeCount; i++) {
+            connections.addEdge(vertices[in.getInt()], vertices[in.getInt()]);
+        }
+
+        return new State(readers, administrators, books, ratings, connections,
+                readOrder(in, byPosition), readOrder(in, byPosition), readOrder(in, byPosition));
+    }
+
+    private List<Book> readOrder(ByteBuffer in, Book[] byPosition) {
+        int count = in.getInt();
+        List<Book> order = new java.util.ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            order.add(byPosition[in.getInt()]);
+        }
+        return order;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] encoded = new byte[length];
+        in.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    // Tamaño y fecha de modificación (-1, -1 si el archivo no existe)
+    private long[] fingerprint(String relativePath) {
+        Path file = baseDirectory.resolve(relativePath);
+        try {
+            if (Files.exists(file)) {
+                return new long[]{Files.size(file), Files.getLastModifiedTime(file).toMillis()};
+            }
+        } catch (IOException e) {
+            // Se trata como archivo ausente: la foto no coincidirá
+        }
+        return new long[]{-1, -1};
+    }
+
+    // Tamaño y fecha de modificación de cada archivo de texto, en el orden de sourceFiles
+    public static final class Fingerprints {
+        private final long[][] values;
+
+        private Fingerprints(long[][] values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * Estado de la biblioteca que entra en la foto. Los órdenes son los recorridos
+     * inorder de los árboles por título, autor y categoría.
+     */
+    public static class State {
+        private final HashMap<String, Reader> readers;
+        private final HashMap<String, Administrator> administrators;
+        private final HashMap<String, Book> books;
+        private final HashMap<String, Rating> ratings;
+        private final Graph<String> connections;
+        private final List<Book> titleOrder;
+        private final List<Book> authorOrder;
+        private final List<Book> categoryOrder;
+
+        public State(HashMap<String, Reader> readers, HashMap<String, Administrator> administrators,
+                     HashMap<String, Book> books, HashMap<String, Rating> ratings, Graph<String> connections,
+                     List<Book> titleOrder, List<Book> authorOrder, List<Book> categoryOrder) {
+            this.readers = readers;
+            this.administrators = administrators;
+            this.books = books;
+            this.ratings = ratings;
+            this.connections = connections;
+            this.titleOrder = titleOrder;
+            this.authorOrder = authorOrder;
+            this.categoryOrder = categoryOrder;
+        }
+
+        public HashMap<String, Reader> getReaders() { return readers; }
+        public HashMap<String, Administrator> getAdministrators() { return administrators; }
+        public HashMap<String, Book> getBooks() { return books; }
+        public HashMap<String, Rating> getRatings() { return ratings; }
+        public Graph<String> getConnections() { return connections; }
+        public List<Book> getTitleOrder() { return titleOrder; }
+        public List<Book> getAuthorOrder() { return authorOrder; }
+        public List<Book> getCategoryOrder() { return categoryOrder; }
+    }
+}
@@ -0,0 +1,152 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StorageBackend sobre un PageStore: un árbol B+ por tabla, con la clave de la
+ * tabla (usuario, ID de libro o "usuario|libroID") y la fila codificada como
+ * campos de texto con su largo. Cada operación termina con un sync, así que al
+ * volver ya está en disco.
+ *
+ * replaceAll arma la tabla nueva en un árbol aparte y al final la pone en lugar
+ * de la vieja: si se interrumpe, la tabla sigue completa con su contenido anterior.
+ */
+public class PageStorageBackend implements StorageBackend {
+    private static final String STORE_FILE = "Store/library.db";
+    // Cada cuántas filas se escribe a disco durante una carga masiva, para no retener todas las páginas
+    private static final int SYNC_EVERY = 50_000;
+    // Árbol donde replaceAll arma la tabla nueva antes de cambiarla por la vieja
+    private static final String STAGING_SUFFIX = "~nueva";
+
+    private static final ConcurrentHashMap<Path, PageStorageBackend> INSTANCES = new ConcurrentHashMap<>();
+
+    private final PageStore store;
+
+    private PageStorageBackend(PageStore store) {
+        this.store = store;
+    }
+
+    public static PageStorageBackend forDirectory(Path baseDirectory) {
+        return INSTANCES.computeIfAbsent(baseDirectory.toAbsolutePath().normalize(), path -> {
+            try {
+                PageStorageBackend backend = new PageStorageBackend(new PageStore(path.resolve(STORE_FILE)));
+                System.out.println("🗄️ Almacenamiento indexado: " + path.resolve(STORE_FILE));
+                return backend;
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo abrir " + STORE_FILE, e);
+            }
+        });
+    }
+
+    @Override
+    public Path getFile() {
+        return store.getFile();
+    }
+
+    @Override
+    public HashMap<String, String[]> load(String table) throws IOException {
+        if (!store.hasTree(table)) {
+            return null;
+        }
+        HashMap<String, String[]> rows = new HashMap<>(store.size(table));
+        store.scan(table, null, null, (key, value) ->
+                rows.put(new String(key, StandardCharsets.UTF_8), decode(value)));
+        return rows;
+    }
+
+    @Override
+    public void put(String table, String key, String[] row) throws IOException {
+        synchronized (store) {
+            store.put(table, bytes(key), encode(row));
+            store.sync();
+        }
+    }
+
+    @Override
+    public void putAll(String table, List<String> keys, List<String[]> rows) throws IOException {
+        synchronized (store) {
+            for (int i = 0; i < keys.size(); i++) {
+                store.put(table, bytes(keys.get(i)), encode(rows.get(i)));
+                if ((i + 1) % SYNC_EVERY == 0) {
+                    store.sync();
+                }
+            }
+            store.sync();
+        }
+    }
+
+    @Override
+    public void remove(String table, String key) throws IOException {
+        synchronized (store) {
+            store.remove(table, bytes(key));
+            store.sync();
+        }
+    }
+
+    @Override
+    public void replaceAll(String table, HashMap<String, String[]> rows) throws IOException {
+        String staging = table + STAGING_SUFFIX;
+        synchronized (store) {
+            // También libera lo que haya quedado de un reemplazo interrumpido
+            store.clear(staging);
+            int count = 0;
+            for (MapNode<String, String[]> entry : rows.entries()) {
+                store.put(staging, bytes(entry.getKey()), encode(entry.getValue()));
+                if (++count % SYNC_EVERY == 0) {
+                    store.sync();
+                }
+            }
+            store.replaceTree(table, staging);
+            store.sync();
+        }
+    }
+
+    @Override
+    public List<String[]> scan(String table, String fromKey, String toKey) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        store.scan(table, fromKey != null ? bytes(fromKey) : null, toKey != null ? bytes(toKey) : null,
+                (key, value) -> rows.add(decode(value)));
+        return rows;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Cantidad de campos y cada campo como (largo, bytes UTF-8)
+    private static byte[] encode(String[] row) {
+        byte[][] fields = new byte[row.length][];
+        int size = 2;
+        for (int i = 0; i < row.length; i++) {
+            fields[i] = bytes(row[i] != null ? row[i] : "");
+            size += 2 + fields[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putShort((short) row.length);
+        for (byte[] field : fields) {
+            buffer.putShort((short) field.length).put(field);
+        }
+        return buffer.array();
+    }
+
+    private static String[] decode(byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        String[] row = new String[buffer.getShort()];
+        for (int i = 0; i < row.length; i++) {
+            byte[] field = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(field);
+            row[i] = new String(field, StandardCharsets.UTF_8);
+        }
+        return row;
+    }
+}
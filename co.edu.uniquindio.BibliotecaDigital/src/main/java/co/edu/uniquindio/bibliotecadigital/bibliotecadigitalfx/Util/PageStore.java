@@ -0,0 +1,662 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo único dividido en páginas de 4 KB que guarda varios árboles B+ con nombre
+ * (uno por tabla). Las claves y los valores son bytes; las claves se comparan
+ * byte a byte, que para texto UTF-8 es el mismo orden que el de los caracteres.
+ *
+ * Página 0: encabezado con el catálogo de árboles (nombre, raíz, cantidad) y la
+ * lista de páginas libres. Las hojas están enlazadas para recorrer rangos.
+ *
+ * Los nodos leídos se guardan en una caché LRU. Los modificados quedan aparte
+ * hasta sync(), que escribe solo esas páginas y el encabezado y hace un force:
+ * una actualización puntual toca O(log n) páginas, no el archivo completo.
+ * Al borrar no se fusionan hojas (pueden quedar medio vacías); clear() devuelve
+ * todas las páginas del árbol a la lista libre.
+ *
+ * Para que un sync interrumpido no deje el árbol a medias, las páginas se
+ * escriben primero en la bitácora "archivo.journal" (con su CRC32) y se fuerza;
+ * solo entonces se sobrescriben en su lugar y la bitácora se vacía. Al abrir, una
+ * bitácora completa se vuelve a aplicar y una incompleta se descarta: el archivo
+ * queda con todo lo del último sync o con nada de él.
+ */
+public class PageStore implements Closeable {
+    static final int PAGE_SIZE = 4096;
+    private static final int MAGIC = 0x42445047; // "BDPG"
+    private static final int VERSION = 1;
+    private static final int CACHE_PAGES = 512;
+    // Con registros de hasta un cuarto de página, una división siempre deja dos mitades válidas
+    static final int MAX_ENTRY_BYTES = PAGE_SIZE / 4;
+
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+    private static final byte FREE = 3;
+    private static final int NODE_HEADER = 7; // tipo + cantidad + siguiente/primer hijo
+
+    private static final int JOURNAL_MAGIC = 0x42444A4C; // "BDJL"
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileChannel journal;
+    private int pageCount;
+    private int freeHead = -1;
+    // nombre -> {raíz, cantidad de registros}
+    private final LinkedHashMap<String, int[]> catalog = new LinkedHashMap<>();
+    private boolean headerDirty;
+
+    private final Map<Integer, Node> dirty = new HashMap<>();
+    private final LinkedHashMap<Integer, Node> cache = new LinkedHashMap<>(CACHE_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Node> eldest) {
+            return size() > CACHE_PAGES;
+        }
+    };
+
+    public PageStore(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal = FileChannel.open(file.resolveSibling(file.getFileName() + JOURNAL_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recoverJournal();
+
+        if (channel.size() == 0) {
+            pageCount = 1;
+            headerDirty = true;
+            syncPages();
+        } else {
+            readHeader();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized boolean hasTree(String name) {
+        return catalog.containsKey(name);
+    }
+
+    public synchronized int size(String tree) {
+        int[] entry = catalog.get(tree);
+        return entry != null ? entry[1] : 0;
+    }
+
+    public synchronized byte[] get(String tree, byte[] key) throws IOException {
+        int[] entry = catalog.get(tree);
+        if (entry == null) {
+            return null;
+        }
+        Node leaf = findLeaf(entry[0], key);
+        int index = search(leaf.keys, key);
+        return index >= 0 ? leaf.values.get(index) : null;
+    }
+
+    /**
+     * Inserta o reemplaza (en su misma hoja) el valor de la clave. Crea el árbol si no existe.
+     */
+    public synchronized void put(String tree, byte[] key, byte[] value) throws IOException {
+        if (key.length + value.length + 4 > MAX_ENTRY_BYTES) {
+            throw new IOException("Registro demasiado grande para una página (" + (key.length + value.length) + " bytes)");
+        }
+        int[] entry = treeEntry(tree);
+
+        Split split = insert(entry[0], key, value, entry);
+        if (split != null) {
+            Node root = allocate(false);
+            root.keys.add(split.separator);
+            root.children.add(entry[0]);
+            root.children.add(split.right);
+            entry[0] = root.page;
+        }
+        headerDirty = true;
+    }
+
+    public synchronized boolean remove(String tree, byte[] key) throws IOException {
+        int[] entry = catalog.get(tree);
+        if (entry == null) {
+            return false;
+        }
+        Node leaf = findLeaf(entry[0], key);
+        int index = search(leaf.keys, key);
+        if (index < 0) {
+            return false;
+        }
+        leaf.keys.remove(index);
+        leaf.values.remove(index);
+        markDirty(leaf);
+        entry[1]--;
+        headerDirty = true;
+        return true;
+    }
+
+    /**
+     * Recorre en orden las claves en [from, to). null en un extremo significa sin límite.
+     */
+    public synchronized void scan(String tree, byte[] from, byte[] to, BiConsumer<byte[], byte[]> visitor) throws IOException {
+        int[] entry = catalog.get(tree);
+        if (entry == null) {
+            return;
+        }
+
+        Node leaf = from != null ? findLeaf(entry[0], from) : leftmostLeaf(entry[0]);
+        int index = from != null ? lowerBound(leaf.keys, from) : 0;
+        while (true) {
+            for (; index < leaf.keys.size(); index++) {
+                byte[] key = leaf.keys.get(index);
+                if (to != null && Arrays.compareUnsigned(key, to) >= 0) {
+                    return;
+                }
+                visitor.accept(key, leaf.values.get(index));
+            }
+            if (leaf.next < 0) {
+                return;
+            }
+            leaf = read(leaf.next);
+            index = 0;
+        }
+    }
+
+    /**
+     * Pone en tree el contenido del árbol replacement, que deja de existir, y
+     * libera las páginas viejas de tree. Como solo cambia el catálogo, el próximo
+     * sync lo deja en disco de una vez: se ve el árbol anterior o el nuevo completo.
+     */
+    public synchronized void replaceTree(String tree, String replacement) throws IOException {
+        int[] source = catalog.remove(replacement);
+        if (source == null) {
+            throw new IOException("No existe el árbol " + replacement);
+        }
+        int[] entry = catalog.get(tree);
+        if (entry != null) {
+            release(entry[0]);
+            entry[0] = source[0];
+            entry[1] = source[1];
+        } else {
+            catalog.put(tree, source);
+        }
+        headerDirty = true;
+    }
+
+    // Vacía el árbol y devuelve sus páginas a la lista libre
+    public synchronized void clear(String tree) throws IOException {
+        int[] entry = treeEntry(tree);
+        release(entry[0]);
+        entry[0] = allocate(true).page;
+        entry[1] = 0;
+        headerDirty = true;
+    }
+
+    /**
+     * Escribe en disco las páginas modificadas y el encabezado: primero en la
+     * bitácora y después en su lugar
+     */
+    public synchronized void sync() throws IOException {
+        syncPages();
+    }
+
+    // Privado para poder usarlo desde el constructor sin pasar por un método redefinible
+    private void syncPages() throws IOException {
+        if (dirty.isEmpty() && !headerDirty) {
+            return;
+        }
+        int[] pages = new int[dirty.size() + 1];
+        ByteBuffer[] contents = new ByteBuffer[pages.length];
+        int count = 0;
+        for (Node node : dirty.values()) {
+            pages[count] = node.page;
+            contents[count++] = node.encode();
+        }
+        pages[count] = 0;
+        contents[count] = encodeHeader();
+
+        writeJournal(pages, contents);
+        for (int i = 0; i < pages.length; i++) {
+            writePage(pages[i], contents[i].duplicate());
+        }
+        channel.force(false);
+        // Las páginas ya están en su lugar: la bitácora no hace falta
+        journal.truncate(0);
+
+        for (Node node : dirty.values()) {
+            cache.put(node.page, node);
+        }
+        dirty.clear();
+        headerDirty = false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        channel.close();
+        journal.close();
+    }
+
+    // ==================== BITÁCORA ====================
+
+    // Magia y cantidad, luego (página, contenido) por cada una y al final el CRC32 de todo lo anterior
+    private void writeJournal(int[] pages, ByteBuffer[] contents) throws IOException {
+        CRC32 crc = new CRC32();
+        long position = writeJournalPart(ByteBuffer.allocate(8).putInt(JOURNAL_MAGIC).putInt(pages.length).flip(),
+                0, crc);
+        for (int i = 0; i < pages.length; i++) {
+            position = writeJournalPart(ByteBuffer.allocate(4).putInt(pages[i]).flip(), position, crc);
+            position = writeJournalPart(contents[i].duplicate(), position, crc);
+        }
+        position = writeJournalPart(ByteBuffer.allocate(8).putLong(crc.getValue()).flip(), position, null);
+        journal.truncate(position);
+        journal.force(false);
+    }
+
+    private long writeJournalPart(ByteBuffer buffer, long position, CRC32 crc) throws IOException {
+        if (crc != null) {
+            crc.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            position += journal.write(buffer, position);
+        }
+        return position;
+    }
+
+    // Vuelve a aplicar la bitácora de un sync interrumpido si quedó completa; si no, la descarta
+    private void recoverJournal() throws IOException {
+        long size = journal.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer buffer = size <= Integer.MAX_VALUE ? ByteBuffer.allocate((int) size) : null;
+        if (buffer != null) {
+            while (buffer.hasRemaining()) {
+                if (journal.read(buffer, buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+        }
+
+        if (buffer == null || !journalComplete(buffer)) {
+            System.err.println("🧹 Bitácora incompleta de " + file.getFileName() + " descartada");
+            journal.truncate(0);
+            journal.force(false);
+            return;
+        }
+
+        int count = buffer.getInt(4);
+        int position = 8;
+        for (int i = 0; i < count; i++) {
+            int page = buffer.getInt(position);
+            ByteBuffer content = buffer.duplicate();
+            content.position(position + 4).limit(position + 4 + PAGE_SIZE);
+            writePage(page, content.slice());
+            position += 4 + PAGE_SIZE;
+        }
+        channel.force(false);
+        journal.truncate(0);
+        journal.force(false);
+        System.out.println("♻️ " + count + " páginas recuperadas de la bitácora de " + file.getFileName());
+    }
+
+    private static boolean journalComplete(ByteBuffer buffer) {
+        if (buffer.remaining() < 16 || buffer.getInt(0) != JOURNAL_MAGIC) {
+            return false;
+        }
+        long count = buffer.getInt(4);
+        if (count <= 0 || buffer.remaining() != 8 + count * (4 + PAGE_SIZE) + 8) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(buffer.remaining() - 8));
+        return crc.getValue() == buffer.getLong(buffer.remaining() - 8);
+    }
+
+    // ==================== ÁRBOL ====================
+
+    private int[] treeEntry(String tree) throws IOException {
+        int[] entry = catalog.get(tree);
+        if (entry == null) {
+            if (tree.getBytes(StandardCharsets.UTF_8).length > 255) {
+                throw new IOException("Nombre de árbol demasiado largo: " + tree);
+            }
+            entry = new int[]{allocate(true).page, 0};
+            catalog.put(tree, entry);
+            headerDirty = true;
+        }
+        return entry;
+    }
+
+    private Split insert(int page, byte[] key, byte[] value, int[] entry) throws IOException {
+        Node node = read(page);
+
+        if (node.leaf) {
+            int index = search(node.keys, key);
+            if (index >= 0) {
+                node.values.set(index, value);
+            } else {
+                index = -index - 1;
+                node.keys.add(index, key);
+                node.values.add(index, value);
+                entry[1]++;
+            }
+            markDirty(node);
+            return node.encodedSize() > PAGE_SIZE ? splitLeaf(node) : null;
+        }
+
+        int child = childIndex(node.keys, key);
+        Split split = insert(node.children.get(child), key, value, entry);
+        if (split == null) {
+            return null;
+        }
+        node.keys.add(child, split.separator);
+        node.children.add(child + 1, split.right);
+        markDirty(node);
+        return node.encodedSize() > PAGE_SIZE ? splitInternal(node) : null;
+    }
+
+    private Split splitLeaf(Node left) throws IOException {
+        int mid = splitPoint(left);
+        Node right = allocate(true);
+        right.keys.addAll(left.keys.subList(mid, left.keys.size()));
+        right.values.addAll(left.values.subList(mid, left.values.size()));
+        left.keys.subList(mid, left.keys.size()).clear();
+        left.values.subList(mid, left.values.size()).clear();
+        right.next = left.next;
+        left.next = right.page;
+        return new Split(right.keys.get(0), right.page);
+    }
+
+    private Split splitInternal(Node left) throws IOException {
+        int mid = splitPoint(left);
+        Node right = allocate(false);
+        byte[] separator = left.keys.get(mid);
+        right.keys.addAll(left.keys.subList(mid + 1, left.keys.size()));
+        right.children.addAll(left.children.subList(mid + 1, left.children.size()));
+        left.keys.subList(mid, left.keys.size()).clear();
+        left.children.subList(mid + 1, left.children.size()).clear();
+        return new Split(separator, right.page);
+    }
+
+    // Índice donde los bytes acumulados pasan la mitad de la página
+    private int splitPoint(Node node) {
+        int half = node.encodedSize() / 2;
+        int bytes = NODE_HEADER;
+        for (int i = 0; i < node.keys.size(); i++) {
+            bytes += node.entrySize(i);
+            if (bytes >= half) {
+                return Math.max(1, Math.min(i, node.keys.size() - 2));
+            }
+        }
+        return node.keys.size() / 2;
+    }
+
+    private Node findLeaf(int page, byte[] key) throws IOException {
+        Node node = read(page);
+        while (!node.leaf) {
+            node = read(node.children.get(childIndex(node.keys, key)));
+        }
+        return node;
+    }
+
+    private Node leftmostLeaf(int page) throws IOException {
+        Node node = read(page);
+        while (!node.leaf) {
+            node = read(node.children.get(0));
+        }
+        return node;
+    }
+
+    private void release(int page) throws IOException {
+        Node node = read(page);
+        if (!node.leaf) {
+            for (int child : node.children) {
+                release(child);
+            }
+        }
+        node.makeFree(freeHead);
+        freeHead = page;
+        markDirty(node);
+    }
+
+    // Hijo que cubre la clave: cantidad de separadores menores o iguales
+    private static int childIndex(List<byte[]> keys, byte[] key) {
+        int low = 0;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keys.get(mid), key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(List<byte[]> keys, byte[] key) {
+        int index = search(keys, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // Igual que Collections.binarySearch: índice, o -(punto de inserción) - 1
+    private static int search(List<byte[]> keys, byte[] key) {
+        int low = 0;
+        int high = keys.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Arrays.compareUnsigned(keys.get(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // ==================== PÁGINAS ====================
+
+    private Node read(int page) throws IOException {
+        Node node = dirty.get(page);
+        if (node == null) {
+            node = cache.get(page);
+        }
+        if (node == null) {
+            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            readPage(page, buffer);
+            node = Node.decode(page, buffer);
+            cache.put(page, node);
+        }
+        return node;
+    }
+
+    private Node allocate(boolean leaf) throws IOException {
+        int page;
+        if (freeHead >= 0) {
+            page = freeHead;
+            Node free = read(page);
+            freeHead = free.next;
+        } else {
+            page = pageCount++;
+        }
+        headerDirty = true;
+
+        Node node = new Node(page, leaf);
+        cache.remove(page);
+        markDirty(node);
+        return node;
+    }
+
+    private void markDirty(Node node) {
+        dirty.put(node.page, node);
+    }
+
+    private void readPage(int page, ByteBuffer buffer) throws IOException {
+        long position = (long) page * PAGE_SIZE;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Página " + page + " fuera del archivo " + file.getFileName());
+            }
+        }
+        buffer.flip();
+    }
+
+    private void writePage(int page, ByteBuffer buffer) throws IOException {
+        long position = (long) page * PAGE_SIZE;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private ByteBuffer encodeHeader() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(pageCount).putInt(freeHead).putInt(catalog.size());
+        for (Map.Entry<String, int[]> entry : catalog.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < name.length + 9) {
+                throw new IOException("Demasiados árboles en " + file.getFileName());
+            }
+            buffer.put((byte) name.length).put(name).putInt(entry.getValue()[0]).putInt(entry.getValue()[1]);
+        }
+        buffer.position(PAGE_SIZE).flip();
+        return buffer;
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        readPage(0, buffer);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Archivo de páginas no reconocido: " + file.getFileName());
+        }
+        pageCount = buffer.getInt();
+        freeHead = buffer.getInt();
+        int trees = buffer.getInt();
+        for (int i = 0; i < trees; i++) {
+            byte[] name = new byte[buffer.get() & 0xFF];
+            buffer.get(name);
+            catalog.put(new String(name, StandardCharsets.UTF_8), new int[]{buffer.getInt(), buffer.getInt()});
+        }
+    }
+
+    private static final class Split {
+        private final byte[] separator;
+        private final int right;
+
+        Split(byte[] separator, int right) {
+            this.separator = separator;
+            this.right = right;
+        }
+    }
+
+    /**
+     * Nodo decodificado. Hoja: claves, valores y la hoja siguiente.
+     * Interno: claves separadoras e hijos (uno más que claves).
+     */
+    private static final class Node {
+        private final int page;
+        private boolean leaf;
+        private boolean free;
+        private int next = -1;
+        private final List<byte[]> keys = new ArrayList<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private final List<Integer> children = new ArrayList<>();
+
+        Node(int page, boolean leaf) {
+            this.page = page;
+            this.leaf = leaf;
+        }
+
+        void makeFree(int nextFree) {
+            free = true;
+            leaf = false;
+            next = nextFree;
+            keys.clear();
+            values.clear();
+            children.clear();
+        }
+
+        int entrySize(int index) {
+            return leaf ? 4 + keys.get(index).length + values.get(index).length : 6 + keys.get(index).length;
+        }
+
+        int encodedSize() {
+            int size = NODE_HEADER;
+            for (int i = 0; i < keys.size(); i++) {
+                size += entrySize(i);
+            }
+            return size;
+        }
+
+        ByteBuffer encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            if (free) {
+                buffer.put(FREE).putShort((short) 0).putInt(next);
+            } else if (leaf) {
+                buffer.put(LEAF).putShort((short) keys.size()).putInt(next);
+                for (int i = 0; i < keys.size(); i++) {
+                    byte[] key = keys.get(i);
+                    byte[] value = values.get(i);
+                    buffer.putShort((short) key.length).put(key).putShort((short) value.length).put(value);
+                }
+            } else {
+                buffer.put(INTERNAL).putShort((short) keys.size()).putInt(children.get(0));
+                for (int i = 0; i < keys.size(); i++) {
+                    byte[] key = keys.get(i);
+                    buffer.putShort((short) key.length).put(key).putInt(children.get(i + 1));
+                }
+            }
+            buffer.position(PAGE_SIZE).flip();
+            return buffer;
+        }
+
+        static Node decode(int page, ByteBuffer buffer) throws IOException {
+            byte type = buffer.get();
+            int count = buffer.getShort() & 0xFFFF;
+            int link = buffer.getInt();
+
+            Node node = new Node(page, type == LEAF);
+            if (type == FREE) {
+                node.makeFree(link);
+            } else if (type == LEAF) {
+                node.next = link;
+                for (int i = 0; i < count; i++) {
+                    node.keys.add(readBytes(buffer));
+                    node.values.add(readBytes(buffer));
+                }
+            } else if (type == INTERNAL) {
+                node.children.add(link);
+                for (int i = 0; i < count; i++) {
+                    node.keys.add(readBytes(buffer));
+                    node.children.add(buffer.getInt());
+                }
+            } else {
+                throw new IOException("Página " + page + " dañada (tipo " + type + ")");
+            }
+            return node;
+        }
+
+        private static byte[] readBytes(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -7,7 +7,7 @@ import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.*;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Reader;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.BinarySearchTree;
 import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
-import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.LinkedList;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -16,6 +16,8 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class Persistence {
     private static Person currentUser;
@@ -31,10 +33,27 @@ public class Persistence {
     private static final String RATINGS_FILE = "Ratings/Ratings.txt";
     private static final String CONNECTIONS_FILE = "Connections/Connections.txt";
     private static final String LOANS_FILE = "Loans/Loans.txt";
+    // Archivos de la bitácora (WriteAheadLog); también invalidan la foto binaria
+    private static final String JOURNAL_FILE = "Journal/journal.log";
+    private static final String STATUS_FILE = "Books/BookStatus.txt";
+    private static final String ADMINS_HEADER = "# Archivo de administradores - Nombre,Usuario,Contraseña";
+    private static final String READERS_HEADER = "# Archivo de lectores - Nombre,Usuario,Contraseña";
+    private static final String BOOKS_HEADER = "# Archivo de libros - ID,Título,Autor,Año,Categoría";
+    private static final String RATINGS_HEADER = "# Archivo de valoraciones - Usuario,LibroID,Estrellas,Comentario";
+    // Archivo del almacenamiento indexado (solo con -Dbiblioteca.storage=btree)
+    private static final String STORE_FILE = "Store/library.db";
+
+    // Nombres de las tablas en el almacenamiento indexado
+    private static final String ADMINS_TABLE = "administrators";
+    private static final String READERS_TABLE = "readers";
+    private static final String BOOKS_TABLE = "books";
+    private static final String RATINGS_TABLE = "ratings";
 
     public Persistence() {
         System.out.println("🔄 Inicializando sistema de persistencia corregido...");
         ensureDirectoriesExist();
+        // Temporales de una reescritura interrumpida (solo la primera vez en el proceso)
+        AtomicFileWriter.recover(Paths.get(BASE_PATH));
         verifyAndCreateFiles();
         verifyLoansFile();
     }
@@ -44,7 +63,7 @@ public class Persistence {
      */
     private void ensureDirectoriesExist() {
         try {
-            String[] directories = {"Readers", "Administrators", "Books", "Ratings", "Connections", "Loans"};
+            String[] directories = {"Readers", "Administrators", "Books", "Ratings", "Connections", "Loans", "Journal"};
 
             for (String dir : directories) {
                 Path dirPath = Paths.get(BASE_PATH + dir);
@@ -62,10 +81,10 @@ public class Persistence {
      * SOLUCIÓN 2: Verificar y crear archivos con headers si no existen
      */
     private void verifyAndCreateFiles() {
-        createFileIfNotExists(ADMINS_FILE, "# Archivo de administradores - Nombre,Usuario,Contraseña");
-        createFileIfNotExists(READERS_FILE, "# Archivo de lectores - Nombre,Usuario,Contraseña");
-        createFileIfNotExists(BOOKS_FILE, "# Archivo de libros - ID,Título,Autor,Año,Categoría");
-        createFileIfNotExists(RATINGS_FILE, "# Archivo de valoraciones - Usuario,LibroID,Estrellas,Comentario");
+        createFileIfNotExists(ADMINS_FILE, ADMINS_HEADER);
+        createFileIfNotExists(READERS_FILE, READERS_HEADER);
+        createFileIfNotExists(BOOKS_FILE, BOOKS_HEADER);
+        createFileIfNotExists(RATINGS_FILE, RATINGS_HEADER);
         createFileIfNotExists(CONNECTIONS_FILE, "# Archivo de conexiones - Usuario1,Usuario2");
         createFileIfNotExists(LOANS_FILE, "# Archivo de préstamos - Usuario,LibroID,FechaPrestamo,FechaVencimiento");
     }
@@ -84,25 +103,131 @@ public class Persistence {
     }
 
     /**
-     * SOLUCIÓN 3: Método unificado de lectura de archivos
+     * Bitácora compartida de préstamos y estados de libros
      */
-    private BufferedReader getFileReader(String relativePath) throws IOException {
-        // Prioridad 1: Leer desde filesystem (desarrollo)
-        Path filesystemPath = Paths.get(BASE_PATH + relativePath);
-        if (Files.exists(filesystemPath)) {
-            System.out.println("✅ Leyendo " + relativePath + " desde filesystem");
-            return Files.newBufferedReader(filesystemPath);
+    private WriteAheadLog journal() {
+        return WriteAheadLog.forDirectory(Paths.get(BASE_PATH));
+    }
+
+    /**
+     * Foto binaria de la biblioteca; queda invalidada si cambia cualquiera de los archivos de datos
+     */
+    public LibrarySnapshot librarySnapshot() {
+        return new LibrarySnapshot(Paths.get(BASE_PATH), READERS_FILE, ADMINS_FILE, BOOKS_FILE,
+                RATINGS_FILE, CONNECTIONS_FILE, LOANS_FILE, JOURNAL_FILE, STATUS_FILE, STORE_FILE);
+    }
+
+    /**
+     * Almacenamiento indexado configurado, o null si los datos son los archivos de texto
+     */
+    private StorageBackend storage() {
+        return StorageBackend.configured(Paths.get(BASE_PATH));
+    }
+
+    /**
+     * Copia en memoria de los archivos, compartida por todas las instancias
+     */
+    private DataRepository repository() {
+        return DataRepository.forDirectory(Paths.get(BASE_PATH));
+    }
+
+    /**
+     * Descarta la copia en memoria para que la próxima carga lea los archivos otra vez
+     * (por ejemplo si se editaron fuera de la aplicación)
+     */
+    public void reloadFromDisk() {
+        repository().invalidateAll();
+        System.out.println("🔄 Copia en memoria descartada, se releerán los archivos");
+    }
+
+    /**
+     * Qué cambió en los archivos de datos desde la última lectura
+     */
+    private FileChangeTracker changeTracker() {
+        return FileChangeTracker.forDirectory(Paths.get(BASE_PATH));
+    }
+
+    /**
+     * Pone la copia en memoria al día con los archivos leyendo solo lo que cambió:
+     * las líneas agregadas al final o, si el archivo se reescribió, el archivo
+     * completo comparado fila por fila. Las tablas registran qué claves cambiaron
+     * (ver changesSince). Con almacenamiento indexado los archivos de texto son
+     * solo una exportación y no hay nada que leer.
+     */
+    public void refreshFromFiles() {
+        if (storage() != null) {
+            return;
         }
+        DataRepository repository = repository();
+        syncTable(repository.administrators(), ADMINS_FILE, 3, 3, Persistence::personKey, false, this::readAdministratorsFile);
+        syncTable(repository.readers(), READERS_FILE, 3, 3, Persistence::personKey, false, this::readReadersFile);
+        syncTable(repository.books(), BOOKS_FILE, 5, 5, Persistence::bookKey, false, this::readBooksFile);
+        syncTable(repository.ratings(), RATINGS_FILE, 3, 4, Persistence::ratingKey, true, this::readRatingsFile);
+    }
 
-        // Prioridad 2: Leer desde classpath (producción)
-        InputStream classPathStream = getClass().getClassLoader()
-                .getResourceAsStream(RESOURCES_PACKAGE + relativePath);
-        if (classPathStream != null) {
-            System.out.println("✅ Leyendo " + relativePath + " desde classpath");
-            return new BufferedReader(new InputStreamReader(classPathStream));
+    private void syncTable(DataRepository.Table table, String relativePath, int requiredFields, int fieldCount,
+                           java.util.function.Function<String[], String> keyOf, boolean firstWins,
+                           java.util.function.Supplier<HashMap<String, String[]>> fullReader) {
+        if (!table.isLoaded()) {
+            // Todavía no se leyó: el primer acceso lo leerá completo
+            return;
+        }
+        try {
+            FileChangeTracker.Change change = changeTracker().check(relativePath);
+            switch (change.getKind()) {
+                case UNCHANGED:
+                    return;
+                case APPENDED:
+                    int added = 0;
+                    List<String[]> records = BulkLoader.readRecords(Paths.get(BASE_PATH + relativePath),
+                            change.getFrom(), change.getTo(), requiredFields, fieldCount);
+                    for (String[] fields : records) {
+                        String key = keyOf.apply(fields);
+                        if (key == null || (firstWins && table.contains(key))) {
+                            continue;
+                        }
+                        if (table.putIfChanged(key, fields)) {
+                            added++;
+                        }
+                    }
+                    changeTracker().record(relativePath, change.getState());
+                    if (added > 0) {
+                        System.out.println("📥 " + relativePath + ": " + added + " registros nuevos al final del archivo");
+                    }
+                    return;
+                case REWRITTEN:
+                    // La lectura completa registra el estado del archivo
+                    HashMap<String, String[]> rows = fullReader.get();
+                    if (rows.size() == 0 && table.size() > 0) {
+                        System.err.println("⚠️ " + relativePath + " vacío o ilegible, se conserva la copia en memoria");
+                        return;
+                    }
+                    int changed = table.applyDiff(rows);
+                    System.out.println("🔄 " + relativePath + " reescrito: " + changed + " registros distintos");
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error revisando cambios en " + relativePath + ": " + e.getMessage());
+            changeTracker().forget(relativePath);
         }
+    }
 
-        throw new IOException("❌ No se puede encontrar " + relativePath);
+    /**
+     * Filas de la tabla ("administrators", "readers", "books" o "ratings") que
+     * cambiaron después de la versión dada; ver DataRepository.Table.changesSince.
+     */
+    public DataRepository.Changes changesSince(String tableName, long version) {
+        switch (tableName) {
+            case ADMINS_TABLE:
+                return administratorsTable().changesSince(version);
+            case READERS_TABLE:
+                return readersTable().changesSince(version);
+            case BOOKS_TABLE:
+                return booksTable().changesSince(version);
+            case RATINGS_TABLE:
+                return ratingsTable().changesSince(version);
+            default:
+                throw new IllegalArgumentException("Tabla desconocida: " + tableName);
+        }
     }
 
     /**
@@ -125,42 +250,22 @@ public class Persistence {
         }
     }
 
+    /**
+     * Reescritura completa a prueba de caídas: archivo temporal + force + movimiento atómico
+     */
+    private void replaceFile(String relativePath, String header, List<String> lines) throws IOException {
+        AtomicFileWriter.write(Paths.get(BASE_PATH + relativePath), header, lines);
+        // La copia en memoria ya tiene lo escrito: el próximo refresco no necesita releerlo
+        changeTracker().record(relativePath, changeTracker().observe(relativePath));
+    }
+
     // ==================== MÉTODOS DE CARGA CORREGIDOS ====================
 
     public HashMap<String, Administrator> loadAdministrators() {
         HashMap<String, Administrator> admins = new HashMap<>();
 
-        try (BufferedReader reader = getFileReader(ADMINS_FILE)) {
-            String line;
-            int validCount = 0;
-
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
-
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    String name = parts[0].trim();
-                    String username = parts[1].trim();
-                    String password = parts[2].trim();
-
-                    if (!name.isEmpty() && !username.isEmpty() && !password.isEmpty()) {
-                        Administrator admin = new Administrator(name, username, password);
-                        admins.put(username, admin);
-                        validCount++;
-                        System.out.println("👤 Admin cargado: " + name);
-                    }
-                }
-            }
-
-            System.out.println("✅ Administradores cargados: " + validCount);
-
-        } catch (IOException e) {
-            System.err.println("⚠️ Error leyendo administradores, creando por defecto: " + e.getMessage());
-            createDefaultAdministrators(admins);
+        for (String[] row : administratorsTable().rows()) {
+            admins.put(row[1], new Administrator(row[0], row[1], row[2]));
         }
 
         // Si no hay administradores, crear por defecto
@@ -174,37 +279,8 @@ public class Persistence {
     public HashMap<String, Reader> loadReaders() {
         HashMap<String, Reader> readers = new HashMap<>();
 
-        try (BufferedReader reader = getFileReader(READERS_FILE)) {
-            String line;
-            int validCount = 0;
-
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
-
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    String name = parts[0].trim();
-                    String username = parts[1].trim();
-                    String password = parts[2].trim();
-
-                    if (!name.isEmpty() && !username.isEmpty() && !password.isEmpty()) {
-                        Reader readerObj = new Reader(name, username, password);
-                        readers.put(username, readerObj);
-                        validCount++;
-                        System.out.println("📚 Lector cargado: " + name);
-                    }
-                }
-            }
-
-            System.out.println("✅ Lectores cargados: " + validCount);
-
-        } catch (IOException e) {
-            System.err.println("⚠️ Error leyendo lectores, creando por defecto: " + e.getMessage());
-            createDefaultReaders(readers);
+        for (String[] row : readersTable().rows()) {
+            readers.put(row[1], new Reader(row[0], row[1], row[2]));
         }
 
         // Si no hay lectores, crear por defecto
@@ -218,53 +294,228 @@ public class Persistence {
     public HashMap<String, Book> loadBooks() {
         HashMap<String, Book> books = new HashMap<>();
 
-        try (BufferedReader reader = getFileReader(BOOKS_FILE)) {
-            String line;
-            int validCount = 0;
+        for (String[] row : booksTable().rows()) {
+            books.put(row[0], toBook(row));
+        }
 
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
+        // Si no hay libros, crear por defecto
+        if (books.size() == 0) {
+            createDefaultBooks(books);
+        }
 
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
+        // Los estados (prestado/disponible) viven en la bitácora, no en Books.txt
+        journal().applyStatuses(books);
+
+        return books;
+    }
+
+    private Book toBook(String[] row) {
+        return new Book(row[0], row[1], row[2], Integer.parseInt(row[3]), row[4]);
+    }
+
+    // ==================== LECTURA DE ARCHIVOS (UNA VEZ POR ARCHIVO) ====================
+
+    private DataRepository.Table administratorsTable() {
+        return repository().administrators().ensureLoaded(() -> loadTable(ADMINS_TABLE, this::readAdministratorsFile));
+    }
+
+    private DataRepository.Table readersTable() {
+        return repository().readers().ensureLoaded(() -> loadTable(READERS_TABLE, this::readReadersFile));
+    }
+
+    private DataRepository.Table booksTable() {
+        return repository().books().ensureLoaded(() -> loadTable(BOOKS_TABLE, this::readBooksFile));
+    }
+
+    private DataRepository.Table ratingsTable() {
+        return repository().ratings().ensureLoaded(() -> loadTable(RATINGS_TABLE, this::readRatingsFile));
+    }
+
+    /**
+     * Con almacenamiento indexado, lee la tabla de ahí; la primera vez se llena
+     * desde el archivo de texto. Sin él, lee el archivo de texto como siempre.
+     */
+    private HashMap<String, String[]> loadTable(String table, java.util.function.Supplier<HashMap<String, String[]>> textReader) {
+        StorageBackend storage = storage();
+        if (storage == null) {
+            return textReader.get();
+        }
+        try {
+            HashMap<String, String[]> rows = storage.load(table);
+            if (rows == null) {
+                rows = textReader.get();
+                storage.replaceAll(table, rows);
+                System.out.println("🗄️ Tabla " + table + " importada al almacenamiento indexado: " + rows.size());
+            }
+            return rows;
+        } catch (IOException e) {
+            System.err.println("❌ Error leyendo tabla " + table + " del almacenamiento indexado: " + e.getMessage());
+            return textReader.get();
+        }
+    }
+
+    /**
+     * SOLUCIÓN 3: Método unificado de lectura de archivos (lectura masiva con BulkLoader):
+     * desde el filesystem si existe (desarrollo) y, si no, desde el classpath (producción)
+     */
+    private List<String[]> readRecords(String relativePath, int requiredFields, int fieldCount) throws IOException {
+        Path filesystemPath = Paths.get(BASE_PATH + relativePath);
+        if (Files.exists(filesystemPath)) {
+            System.out.println("✅ Leyendo " + relativePath + " desde filesystem");
+            // Se lee hasta el tamaño observado; lo que se agregue mientras tanto lo toma el próximo refresco
+            FileChangeTracker.State state = changeTracker().observe(relativePath);
+            List<String[]> records = BulkLoader.readRecords(filesystemPath, 0,
+                    state != null ? state.getSize() : Long.MAX_VALUE, requiredFields, fieldCount);
+            changeTracker().record(relativePath, state);
+            return records;
+        }
+
+        try (InputStream classPathStream = getClass().getClassLoader()
+                .getResourceAsStream(RESOURCES_PACKAGE + relativePath)) {
+            if (classPathStream != null) {
+                System.out.println("✅ Leyendo " + relativePath + " desde classpath");
+                return BulkLoader.readRecords(classPathStream, requiredFields, fieldCount);
+            }
+        }
+
+        throw new IOException("❌ No se puede encontrar " + relativePath);
+    }
+
+    private HashMap<String, String[]> readAdministratorsFile() {
+        HashMap<String, String[]> rows = new HashMap<>();
+
+        try {
+            for (String[] fields : readRecords(ADMINS_FILE, 3, 3)) {
+                String key = personKey(fields);
+                if (key != null) {
+                    rows.put(key, fields);
                 }
+            }
 
-                String[] parts = line.split(",");
-                if (parts.length >= 5) {
-                    String id = parts[0].trim();
-                    String title = parts[1].trim();
-                    String author = parts[2].trim();
-                    String yearStr = parts[3].trim();
-                    String category = parts[4].trim();
+            System.out.println("✅ Administradores cargados: " + rows.size());
 
-                    try {
-                        int year = Integer.parseInt(yearStr);
+        } catch (IOException e) {
+            System.err.println("⚠️ Error leyendo administradores, creando por defecto: " + e.getMessage());
+        }
 
-                        if (!id.isEmpty() && !title.isEmpty() && !author.isEmpty() && !category.isEmpty()) {
-                            Book book = new Book(id, title, author, year, category);
-                            books.put(id, book);
-                            validCount++;
-                            System.out.println("📖 Libro cargado: " + title);
-                        }
-                    } catch (NumberFormatException e) {
-                        System.err.println("⚠️ Año inválido para libro: " + line);
-                    }
+        return rows;
+    }
+
+    private HashMap<String, String[]> readReadersFile() {
+        HashMap<String, String[]> rows = new HashMap<>();
+
+        try {
+            List<String[]> records = readRecords(READERS_FILE, 3, 3);
+            rows = new HashMap<>(records.size());
+
+            for (String[] fields : records) {
+                String key = personKey(fields);
+                if (key != null) {
+                    rows.put(key, fields);
+                }
+            }
+
+            System.out.println("✅ Lectores cargados: " + rows.size());
+
+        } catch (IOException e) {
+            System.err.println("⚠️ Error leyendo lectores, creando por defecto: " + e.getMessage());
+        }
+
+        return rows;
+    }
+
+    private HashMap<String, String[]> readBooksFile() {
+        HashMap<String, String[]> rows = new HashMap<>();
+
+        try {
+            List<String[]> records = readRecords(BOOKS_FILE, 5, 5);
+            rows = new HashMap<>(records.size());
+
+            for (String[] fields : records) {
+                String key = bookKey(fields);
+                if (key != null) {
+                    rows.put(key, fields);
                 }
             }
 
-            System.out.println("✅ Libros cargados: " + validCount);
+            System.out.println("✅ Libros cargados: " + rows.size());
 
         } catch (IOException e) {
             System.err.println("⚠️ Error leyendo libros, creando por defecto: " + e.getMessage());
-            createDefaultBooks(books);
         }
 
-        // Si no hay libros, crear por defecto
-        if (books.size() == 0) {
-            createDefaultBooks(books);
+        return rows;
+    }
+
+    // Guarda las filas tal como están; lector y libro se validan al construir los objetos
+    private HashMap<String, String[]> readRatingsFile() {
+        HashMap<String, String[]> rows = new HashMap<>();
+
+        try {
+            List<String[]> records = readRecords(RATINGS_FILE, 3, 4);
+            rows = new HashMap<>(records.size());
+            int duplicates = 0;
+            int invalid = 0;
+
+            for (String[] fields : records) {
+                String key = ratingKey(fields);
+                if (key == null) {
+                    invalid++;
+                    continue;
+                }
+
+                // CORRECCIÓN: Evitar duplicados (gana la primera línea)
+                if (!rows.containsKey(key)) {
+                    rows.put(key, fields);
+                } else {
+                    duplicates++;
+                }
+            }
+
+            System.out.println("✅ Valoraciones leídas desde archivo: " + rows.size() +
+                    (duplicates > 0 ? " (" + duplicates + " duplicadas omitidas)" : "") +
+                    (invalid > 0 ? " (" + invalid + " con puntuación inválida)" : ""));
+
+        } catch (IOException e) {
+            System.err.println("⚠️ Error leyendo valoraciones (archivo puede no existir): " + e.getMessage());
+            // Crear archivo vacío si no existe
+            createFileIfNotExists(RATINGS_FILE, "# Archivo de valoraciones - Usuario,LibroID,Estrellas,Comentario");
         }
 
-        return books;
+        return rows;
+    }
+
+    // Nombre, Usuario, Contraseña: clave = usuario, o null si falta algún campo
+    private static String personKey(String[] fields) {
+        if (!fields[0].isEmpty() && !fields[1].isEmpty() && !fields[2].isEmpty()) {
+            return fields[1];
+        }
+        return null;
+    }
+
+    // ID, Título, Autor, Año, Categoría: clave = ID, o null si la línea no es válida
+    private static String bookKey(String[] fields) {
+        try {
+            Integer.parseInt(fields[3]);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Año inválido para libro: " + String.join(",", fields));
+            return null;
+        }
+        if (!fields[0].isEmpty() && !fields[1].isEmpty() && !fields[2].isEmpty() && !fields[4].isEmpty()) {
+            return fields[0];
+        }
+        return null;
+    }
+
+    // Usuario, LibroID, Estrellas, Comentario (opcional): clave = "usuario|libroID"
+    private static String ratingKey(String[] fields) {
+        try {
+            Integer.parseInt(fields[2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        fields[3] = fields[3].replace(";", ",");
+        return fields[0] + "|" + fields[1];
     }
 
     public BinarySearchTree<Book> loadBooksTree(Comparator<Book> comparator) {
@@ -272,11 +523,7 @@ public class Persistence {
         HashMap<String, Book> books = loadBooks();
 
         // Insertar todos los libros en el árbol
-        LinkedList<String> keys = books.keySet();
-        for (int i = 0; i < keys.getSize(); i++) {
-            Book book = books.get(keys.getAmountNodo(i));
-            booksTree.insert(book);
-        }
+        books.forEach((id, book) -> booksTree.insert(book));
 
         System.out.println("🌳 Árbol de libros creado con " + booksTree.size() + " elementos");
         return booksTree;
@@ -292,14 +539,20 @@ public class Persistence {
             return false;
         }
 
-        try (BufferedWriter writer = getFileWriter(READERS_FILE, true)) {
-            String line = String.format("%s,%s,%s",
-                    reader.getName(),
-                    reader.getUsername(),
-                    reader.getPassword());
-            writer.write(line);
-            writer.newLine();
-            writer.flush();
+        String[] row = {reader.getName(), reader.getUsername(), reader.getPassword()};
+        try {
+            StorageBackend storage = storage();
+            if (storage != null) {
+                storage.put(READERS_TABLE, reader.getUsername(), row);
+            } else {
+                try (BufferedWriter writer = getFileWriter(READERS_FILE, true)) {
+                    writer.write(String.join(",", row));
+                    writer.newLine();
+                    writer.flush();
+                }
+            }
+
+            readersTable().put(reader.getUsername(), row);
 
             System.out.println("💾 Lector guardado: " + reader.getUsername());
             return true;
@@ -318,16 +571,20 @@ public class Persistence {
             return false;
         }
 
-        try (BufferedWriter writer = getFileWriter(BOOKS_FILE, true)) {
-            String line = String.format("%s,%s,%s,%d,%s",
-                    book.getIdBook(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getYear(),
-                    book.getCategory());
-            writer.write(line);
-            writer.newLine();
-            writer.flush();
+        String[] row = bookRow(book);
+        try {
+            StorageBackend storage = storage();
+            if (storage != null) {
+                storage.put(BOOKS_TABLE, book.getIdBook(), row);
+            } else {
+                try (BufferedWriter writer = getFileWriter(BOOKS_FILE, true)) {
+                    writer.write(String.join(",", row));
+                    writer.newLine();
+                    writer.flush();
+                }
+            }
+
+            booksTable().put(book.getIdBook(), row);
 
             System.out.println("💾 Libro guardado: " + book.getTitle());
             return true;
@@ -342,26 +599,24 @@ public class Persistence {
      * SOLUCIÓN 7: Reescribir todos los lectores (para updates/deletes)
      */
     public boolean saveAllReaders(HashMap<String, Reader> readers) {
-        try (BufferedWriter writer = getFileWriter(READERS_FILE, false)) {
-            writer.write("# Archivo de lectores - Nombre,Usuario,Contraseña");
-            writer.newLine();
-
-            LinkedList<String> keys = readers.keySet();
-            for (int i = 0; i < keys.getSize(); i++) {
-                String key = keys.getAmountNodo(i);
-                Reader reader = readers.get(key);
+        try {
+            HashMap<String, String[]> rows = new HashMap<>(readers.size());
+            List<String> lines = new ArrayList<>(readers.size());
+            for (MapNode<String, Reader> entry : readers.entries()) {
+                Reader reader = entry.getValue();
                 if (reader != null) {
-                    String line = String.format("%s,%s,%s",
-                            reader.getName(),
-                            reader.getUsername(),
-                            reader.getPassword());
-                    writer.write(line);
-                    writer.newLine();
+                    lines.add(reader.getName() + "," + reader.getUsername() + "," + reader.getPassword());
+                    rows.put(reader.getUsername(), new String[]{reader.getName(), reader.getUsername(), reader.getPassword()});
                 }
             }
-            writer.flush();
+            if (storage() != null) {
+                storage().replaceAll(READERS_TABLE, rows);
+            } else {
+                replaceFile(READERS_FILE, READERS_HEADER, lines);
+            }
+            repository().readers().applyDiff(rows);
 
-            System.out.println("💾 Todos los lectores guardados: " + keys.getSize());
+            System.out.println("💾 Todos los lectores guardados: " + readers.size());
             return true;
 
         } catch (IOException e) {
@@ -374,28 +629,25 @@ public class Persistence {
      * SOLUCIÓN 8: Reescribir todos los libros (para updates/deletes)
      */
     public boolean saveAllBooks(HashMap<String, Book> books) {
-        try (BufferedWriter writer = getFileWriter(BOOKS_FILE, false)) {
-            writer.write("# Archivo de libros - ID,Título,Autor,Año,Categoría");
-            writer.newLine();
-
-            LinkedList<String> keys = books.keySet();
-            for (int i = 0; i < keys.getSize(); i++) {
-                String key = keys.getAmountNodo(i);
-                Book book = books.get(key);
+        try {
+            HashMap<String, String[]> rows = new HashMap<>(books.size());
+            List<String> lines = new ArrayList<>(books.size());
+            for (MapNode<String, Book> entry : books.entries()) {
+                Book book = entry.getValue();
                 if (book != null) {
-                    String line = String.format("%s,%s,%s,%d,%s",
-                            book.getIdBook(),
-                            book.getTitle(),
-                            book.getAuthor(),
-                            book.getYear(),
-                            book.getCategory());
-                    writer.write(line);
-                    writer.newLine();
+                    String[] row = bookRow(book);
+                    rows.put(book.getIdBook(), row);
+                    lines.add(String.join(",", row));
                 }
             }
-            writer.flush();
+            if (storage() != null) {
+                storage().replaceAll(BOOKS_TABLE, rows);
+            } else {
+                replaceFile(BOOKS_FILE, BOOKS_HEADER, lines);
+            }
+            repository().books().applyDiff(rows);
 
-            System.out.println("💾 Todos los libros guardados: " + keys.getSize());
+            System.out.println("💾 Todos los libros guardados: " + books.size());
             return true;
 
         } catch (IOException e) {
@@ -404,9 +656,24 @@ public class Persistence {
         }
     }
 
+    private String[] bookRow(Book book) {
+        return new String[]{book.getIdBook(), book.getTitle(), book.getAuthor(),
+                String.valueOf(book.getYear()), book.getCategory()};
+    }
+
     // ==================== OPERACIONES CRUD ====================
 
     public boolean updateReader(String username, String newName, String newPassword) {
+        if (storage() != null) {
+            String[] row = readersTable().get(username.trim());
+            if (row == null) {
+                System.err.println("❌ Lector no encontrado: " + username);
+                return false;
+            }
+            // Solo se reescribe la hoja del árbol donde está el lector
+            return storeReaderRow(username.trim(), new String[]{newName.trim(), row[1], newPassword.trim()});
+        }
+
         HashMap<String, Reader> readers = loadReaders();
         if (!readers.containsKey(username.trim())) {
             System.err.println("❌ Lector no encontrado: " + username);
@@ -421,6 +688,14 @@ public class Persistence {
     }
 
     public boolean deleteReader(String username) {
+        if (storage() != null) {
+            if (!readersTable().contains(username.trim())) {
+                System.err.println("❌ Lector no encontrado para eliminar: " + username);
+                return false;
+            }
+            return storeReaderRow(username.trim(), null);
+        }
+
         HashMap<String, Reader> readers = loadReaders();
         if (!readers.containsKey(username.trim())) {
             System.err.println("❌ Lector no encontrado para eliminar: " + username);
@@ -431,65 +706,144 @@ public class Persistence {
         return saveAllReaders(readers);
     }
 
+    // Actualiza (o borra, con row null) un lector en el almacenamiento indexado
+    private boolean storeReaderRow(String username, String[] row) {
+        try {
+            if (row != null) {
+                storage().put(READERS_TABLE, username, row);
+                readersTable().put(username, row);
+            } else {
+                storage().remove(READERS_TABLE, username);
+                readersTable().remove(username);
+            }
+            System.out.println("💾 Lector " + (row != null ? "actualizado: " : "eliminado: ") + username);
+            return true;
+        } catch (IOException e) {
+            System.err.println("❌ Error guardando lector: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Elimina un libro. Con almacenamiento indexado se borra solo su registro del
+     * árbol; con archivos de texto se reescribe el archivo con los libros restantes.
+     */
+    public boolean deleteBook(String bookId, HashMap<String, Book> remainingBooks) {
+        if (storage() == null) {
+            return saveAllBooks(remainingBooks);
+        }
+        try {
+            storage().remove(BOOKS_TABLE, bookId);
+            booksTable().remove(bookId);
+            System.out.println("💾 Libro eliminado: " + bookId);
+            return true;
+        } catch (IOException e) {
+            System.err.println("❌ Error eliminando libro: " + e.getMessage());
+            return false;
+        }
+    }
+
     // ==================== OTROS TIPOS DE DATOS ====================
 
     public boolean saveRating(Rating rating) {
+        return awaitSaved(saveRatingAsync(rating), "valoración");
+    }
+
+    /**
+     * Registra la valoración en la copia en memoria al instante y la encola para
+     * disco. El futuro se completa con true cuando la línea ya está guardada (las
+     * valoraciones simultáneas comparten una sola escritura).
+     */
+    public CompletableFuture<Boolean> saveRatingAsync(Rating rating) {
         if (rating == null || rating.getReader() == null || rating.getBook() == null) {
             System.err.println("❌ Datos de valoración inválidos");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         try {
-            // CORRECCIÓN 1: Verificar si ya existe esta valoración
-            String checkKey = rating.getReader().getUsername() + "|" + rating.getBook().getIdBook();
-            HashMap<String, Rating> existingRatings = loadRatings();
-
-            if (existingRatings.containsKey(checkKey)) {
-                System.out.println("⚠️ Valoración ya existe, no se duplicará: " + checkKey);
-                return true; // No es error, simplemente ya existe
+            String username = rating.getReader().getUsername();
+            String bookId = rating.getBook().getIdBook();
+            String checkKey = username + "|" + bookId;
+            String comment = rating.getComment() != null ? rating.getComment().replace(",", ";") : "";
+            DataRepository.Table ratings = ratingsTable();
+            CompletableFuture<Void> durable;
+
+            // Revisar y registrar juntos para que dos hilos no guarden la misma valoración
+            synchronized (ratings) {
+                if (ratings.contains(checkKey)) {
+                    System.out.println("⚠️ Valoración ya existe, no se duplicará: " + checkKey);
+                    return CompletableFuture.completedFuture(true); // No es error, simplemente ya existe
+                }
+                String[] row = {username, bookId, String.valueOf(rating.getStars()), comment.replace(";", ",")};
+                ratings.put(checkKey, row);
+                StorageBackend storage = storage();
+                if (storage != null) {
+                    durable = new CompletableFuture<>();
+                    try {
+                        storage.put(RATINGS_TABLE, checkKey, row);
+                        durable.complete(null);
+                    } catch (IOException e) {
+                        durable.completeExceptionally(e);
+                    }
+                } else {
+                    durable = appender(RATINGS_FILE).append(String.format("%s,%s,%d,%s",
+                            username, bookId, rating.getStars(), comment));
+                }
             }
 
-            // CORRECCIÓN 2: Guardar en archivo
-            try (BufferedWriter writer = getFileWriter(RATINGS_FILE, true)) {
-                String line = String.format("%s,%s,%d,%s",
-                        rating.getReader().getUsername(),
-                        rating.getBook().getIdBook(),
-                        rating.getStars(),
-                        rating.getComment() != null ? rating.getComment().replace(",", ";") : "");
-                writer.write(line);
-                writer.newLine();
-                writer.flush();
-
-                System.out.println("💾 Valoración guardada: " + rating.getReader().getUsername() +
+            return durable.handle((done, error) -> {
+                if (error != null) {
+                    ratings.remove(checkKey);
+                    System.err.println("❌ Error escribiendo valoración: " + error.getMessage());
+                    return false;
+                }
+                System.out.println("💾 Valoración guardada: " + username +
                         " -> " + rating.getBook().getTitle() + " (" + rating.getStars() + "★)");
                 return true;
-
-            } catch (IOException e) {
-                System.err.println("❌ Error escribiendo valoración: " + e.getMessage());
-                return false;
-            }
+            });
 
         } catch (Exception e) {
             System.err.println("❌ Error en saveRating: " + e.getMessage());
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
     public boolean saveConnection(String user1, String user2) {
+        return awaitSaved(saveConnectionAsync(user1, user2), "conexión");
+    }
+
+    public CompletableFuture<Boolean> saveConnectionAsync(String user1, String user2) {
         if (user1 == null || user2 == null || user1.trim().isEmpty() || user2.trim().isEmpty()) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
-        try (BufferedWriter writer = getFileWriter(CONNECTIONS_FILE, true)) {
-            writer.write(user1.trim() + "," + user2.trim());
-            writer.newLine();
-            writer.flush();
+        try {
+            return appender(CONNECTIONS_FILE).append(user1.trim() + "," + user2.trim())
+                    .handle((done, error) -> {
+                        if (error != null) {
+                            System.err.println("❌ Error guardando conexión: " + error.getMessage());
+                            return false;
+                        }
+                        System.out.println("💾 Conexión guardada: " + user1 + " <-> " + user2);
+                        return true;
+                    });
+        } catch (UncheckedIOException e) {
+            System.err.println("❌ Error guardando conexión: " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+    }
 
-            System.out.println("💾 Conexión guardada: " + user1 + " <-> " + user2);
-            return true;
+    // Escritor compartido del archivo: un solo hilo agrega líneas y agrupa las que llegan juntas
+    private GroupCommitWriter appender(String relativePath) {
+        return GroupCommitWriter.forFile(Paths.get(BASE_PATH + relativePath));
+    }
 
-        } catch (IOException e) {
-            System.err.println("❌ Error guardando conexión: " + e.getMessage());
+    // Versión síncrona de los métodos *Async: espera a que el registro esté en disco
+    private boolean awaitSaved(CompletableFuture<Boolean> saved, String description) {
+        try {
+            return saved.join();
+        } catch (CompletionException e) {
+            System.err.println("❌ Error guardando " + description + ": " + e.getMessage());
             return false;
         }
     }
@@ -512,6 +866,7 @@ public class Persistence {
             }
             writer.flush();
         }
+        repository().administrators().invalidate();
         return count;
     }
 
@@ -530,19 +885,25 @@ public class Persistence {
 
         System.out.println("🔐 Intentando login: " + cleanUsername);
 
-        // Intentar como administrador
-        HashMap<String, Administrator> administrators = loadAdministrators();
-        Administrator admin = administrators.get(cleanUsername);
-        if (admin != null && admin.getPassword().equals(cleanPassword)) {
+        // Intentar como administrador (búsqueda directa por usuario, sin leer archivos)
+        if (administratorsTable().size() == 0) {
+            loadAdministrators(); // crea los administradores por defecto
+        }
+        String[] adminRow = administratorsTable().get(cleanUsername);
+        if (adminRow != null && adminRow[2].equals(cleanPassword)) {
+            Administrator admin = new Administrator(adminRow[0], adminRow[1], adminRow[2]);
             currentUser = admin;
             System.out.println("✅ Login exitoso como administrador: " + admin.getName());
             return admin;
         }
 
         // Intentar como lector
-        HashMap<String, Reader> readers = loadReaders();
-        Reader reader = readers.get(cleanUsername);
-        if (reader != null && reader.getPassword().equals(cleanPassword)) {
+        if (readersTable().size() == 0) {
+            loadReaders(); // crea los lectores por defecto
+        }
+        String[] readerRow = readersTable().get(cleanUsername);
+        if (readerRow != null && readerRow[2].equals(cleanPassword)) {
+            Reader reader = new Reader(readerRow[0], readerRow[1], readerRow[2]);
             currentUser = reader;
             try {
                 reader.setLibrary(Library.getInstance());
@@ -559,46 +920,27 @@ public class Persistence {
 
     // ==================== MÉTODO PRINCIPAL CORREGIDO ====================
 
+    /**
+     * Importa un archivo externo de forma síncrona. Para no bloquear la interfaz,
+     * usar prepareImport y ejecutar la importación en otro hilo.
+     */
     public String loadDataFromFile(File file) {
         if (file == null || !file.exists() || !file.canRead()) {
             return "❌ Archivo inválido o no se puede leer";
         }
 
         try {
-            String fileName = file.getName().toLowerCase();
-            int recordsLoaded = 0;
-            String resultMessage = "";
-            String dataType = "";
-
-            if (fileName.contains("lector") || fileName.contains("reader")) {
-                recordsLoaded = loadReadersFromExternalFile(file);
-                resultMessage = "✅ Se cargaron " + recordsLoaded + " lectores desde " + file.getName();
-                dataType = "readers";
-            }
-            else if (fileName.contains("libro") || fileName.contains("book")) {
-                recordsLoaded = loadBooksFromExternalFile(file);
-                resultMessage = "✅ Se cargaron " + recordsLoaded + " libros desde " + file.getName();
-                dataType = "books";
-            }
-            else if (fileName.contains("valoracion") || fileName.contains("rating") || fileName.contains("calificacion")) {
-                recordsLoaded = loadRatingsFromExternalFile(file);
-                resultMessage = "✅ Se cargaron " + recordsLoaded + " valoraciones desde " + file.getName();
-                dataType = "ratings";
-            }
-            else if (fileName.contains("conexion") || fileName.contains("connection")) {
-                recordsLoaded = loadConnectionsFromExternalFile(file);
-                resultMessage = "✅ Se cargaron " + recordsLoaded + " conexiones desde " + file.getName();
-                dataType = "connections";
-            }
-            else {
-                recordsLoaded = detectAndLoadFromContent(file);
-                resultMessage = "✅ Se detectó y cargó " + recordsLoaded + " registros desde " + file.getName();
-                dataType = "auto";
+            ImportPipeline pipeline = prepareImport(file);
+            if (pipeline == null) {
+                return "⚠️ No se pudo detectar el tipo de datos de " + file.getName();
             }
 
+            ImportPipeline.Result result = pipeline.run();
+            String resultMessage = describeImport(pipeline, result);
+
             // CORRECCIÓN: Actualización selectiva según el tipo de datos
-            if (recordsLoaded > 0) {
-                refreshSpecificData(dataType);
+            if (result.getAccepted() > 0) {
+                refreshSpecificData(pipeline.getDataType());
                 resultMessage += "\n🔄 Datos específicos actualizados.";
             }
 
@@ -609,6 +951,100 @@ public class Persistence {
         }
     }
 
+    /**
+     * Prepara la importación de un archivo externo según su nombre o, si el nombre
+     * no lo dice, según su primera línea de datos. Devuelve null si no se reconoce.
+     */
+    public ImportPipeline prepareImport(File file) throws IOException {
+        String dataType = detectDataType(file);
+        if (dataType == null) {
+            System.out.println("⚠️ No se pudo detectar el tipo de archivo automáticamente");
+            return null;
+        }
+
+        switch (dataType) {
+            case "readers":
+                return new ImportPipeline(file, dataType, 3, 3, new ReaderImport());
+            case "books":
+                return new ImportPipeline(file, dataType, 5, 5, new BookImport());
+            case "ratings":
+                return new ImportPipeline(file, dataType, 3, 4, new RatingImport());
+            default:
+                return new ImportPipeline(file, dataType, 2, 2, new ConnectionImport());
+        }
+    }
+
+    // Mensaje para el usuario con el resultado de una importación
+    public String describeImport(ImportPipeline pipeline, ImportPipeline.Result result) {
+        String label;
+        switch (pipeline.getDataType()) {
+            case "readers": label = "lectores"; break;
+            case "books": label = "libros"; break;
+            case "ratings": label = "valoraciones"; break;
+            default: label = "conexiones"; break;
+        }
+
+        String message = "✅ Se cargaron " + result.getAccepted() + " " + label + " desde " + pipeline.getFile().getName();
+        if (result.getRejected() > 0) {
+            message += "\n⚠️ " + result.getRejected() + " registros omitidos (inválidos o repetidos)";
+        }
+        if (result.isCancelled()) {
+            message += "\n⏹️ Importación cancelada; se conservan los registros ya guardados";
+        }
+        return message;
+    }
+
+    private String detectDataType(File file) throws IOException {
+        String fileName = file.getName().toLowerCase();
+
+        if (fileName.contains("lector") || fileName.contains("reader")) {
+            return "readers";
+        }
+        if (fileName.contains("libro") || fileName.contains("book")) {
+            return "books";
+        }
+        if (fileName.contains("valoracion") || fileName.contains("rating") || fileName.contains("calificacion")) {
+            return "ratings";
+        }
+        if (fileName.contains("conexion") || fileName.contains("connection")) {
+            return "connections";
+        }
+
+        // CORRECCIÓN 7: Detección por contenido (número de campos de la primera línea de datos)
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] parts = line.split(",");
+                if (parts.length == 3) {
+                    // Tercer campo numérico: valoración; texto: contraseña de un lector
+                    try {
+                        Integer.parseInt(parts[2].trim());
+                        System.out.println("🔍 Detectado como archivo de valoraciones (3 campos, tercer campo numérico)");
+                        return "ratings";
+                    } catch (NumberFormatException e) {
+                        System.out.println("🔍 Detectado como archivo de lectores (3 campos, tercer campo texto)");
+                        return "readers";
+                    }
+                } else if (parts.length == 4) {
+                    System.out.println("🔍 Detectado como archivo de valoraciones (4 campos)");
+                    return "ratings";
+                } else if (parts.length >= 5) {
+                    System.out.println("🔍 Detectado como archivo de libros (5+ campos)");
+                    return "books";
+                } else if (parts.length == 2) {
+                    System.out.println("🔍 Detectado como archivo de conexiones (2 campos)");
+                    return "connections";
+                }
+                return null;
+            }
+        }
+        return null;
+    }
     private void refreshSpecificData(String dataType) {
         try {
             switch (dataType) {
@@ -635,346 +1071,365 @@ public class Persistence {
         }
     }
 
-// ==================== NUEVOS MÉTODOS DE CARGA ====================
+// ==================== IMPORTACIÓN POR ETAPAS ====================
 
-    /**
-     * NUEVO: Carga valoraciones desde archivo externo
+    /*
+     * Cada tipo de archivo importable valida y descarta repetidos contra índices hash
+     * armados una sola vez desde la copia en memoria (en lugar de recorrer todos los
+     * libros por cada línea) y guarda cada lote con una sola apertura del archivo.
      */
-    private int loadRatingsFromExternalFile(File file) throws IOException {
-        int count = 0;
-        HashMap<String, Reader> readers = loadReaders();
-        HashMap<String, Book> books = loadBooks();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file));
-             BufferedWriter writer = getFileWriter(RATINGS_FILE, true)) {
+    // Nombre, Usuario, Contraseña; se omiten usuarios que ya existen
+    private class ReaderImport implements ImportPipeline.RecordHandler {
+        private java.util.HashSet<String> usernames;
+
+        @Override
+        public void prepare() {
+            usernames = keysOf(readersTable(), 1);
+        }
+
+        @Override
+        public String[] accept(String[] fields) {
+            if (fields[0].isEmpty() || fields[1].isEmpty() || fields[2].isEmpty() || !usernames.add(fields[1])) {
+                return null;
+            }
+            return fields;
+        }
+
+        @Override
+        public void commit(List<String[]> batch) throws IOException {
+            List<String> keys = new ArrayList<>(batch.size());
+            for (String[] row : batch) {
+                keys.add(row[1]);
+            }
+            commitRows(READERS_TABLE, READERS_FILE, readersTable(), keys, batch, batch);
+        }
+    }
+
+    // ID, Título, Autor, Año, Categoría; se omiten IDs o títulos que ya existen
+    private class BookImport implements ImportPipeline.RecordHandler {
+        private java.util.HashSet<String> ids;
+        private java.util.HashSet<String> titles;
+
+        @Override
+        public void prepare() {
+            ids = keysOf(booksTable(), 0);
+            titles = new java.util.HashSet<>();
+            for (String title : keysOf(booksTable(), 1)) {
+                titles.add(title.toLowerCase());
+            }
+        }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty() && !line.startsWith("#")) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 3) {
-                        String username = parts[0].trim();
-                        String bookTitle = parts[1].trim();
-                        String starsStr = parts[2].trim();
-                        String comment = parts.length > 3 ? parts[3].trim() : "";
+        @Override
+        public String[] accept(String[] fields) {
+            try {
+                fields[3] = String.valueOf(Integer.parseInt(fields[3]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (fields[0].isEmpty() || ids.contains(fields[0]) || !titles.add(fields[1].toLowerCase())) {
+                return null;
+            }
+            ids.add(fields[0]);
+            return fields;
+        }
 
-                        try {
-                            int stars = Integer.parseInt(starsStr);
-
-                            // Verificar que el lector existe
-                            Reader readerObj = readers.get(username);
-                            if (readerObj != null) {
-                                // Buscar el libro por título
-                                Book bookObj = findBookByTitle(bookTitle, books);
-                                if (bookObj != null) {
-                                    // CORRECCIÓN: Guardar en archivo
-                                    writer.write(username + "," + bookObj.getIdBook() + "," + stars + "," + comment);
-                                    writer.newLine();
-
-                                    // CORRECCIÓN: También agregar a la lista del reader en memoria
-                                    Rating rating = new Rating(readerObj, bookObj, stars, comment);
-                                    readerObj.getRatingsList().add(rating);
-
-                                    // CORRECCIÓN: Actualizar valoración promedio del libro
-                                    bookObj.addRating(stars);
-
-                                    count++;
-                                    System.out.println("⭐ Valoración cargada: " + username + " -> " + bookTitle + " (" + stars + "★)");
-                                } else {
-                                    System.err.println("⚠️ Libro no encontrado: " + bookTitle);
-                                }
-                            } else {
-                                System.err.println("⚠️ Lector no encontrado: " + username);
-                            }
-                        } catch (NumberFormatException e) {
-                            System.err.println("⚠️ Puntuación inválida: " + line);
-                        }
-                    }
-                }
+        @Override
+        public void commit(List<String[]> batch) throws IOException {
+            List<String> keys = new ArrayList<>(batch.size());
+            for (String[] row : batch) {
+                keys.add(row[0]);
             }
-            writer.flush();
+            commitRows(BOOKS_TABLE, BOOKS_FILE, booksTable(), keys, batch, batch);
         }
-        return count;
     }
 
-    public HashMap<String, Rating> loadRatings() {
-        HashMap<String, Rating> ratings = new HashMap<>();
-        HashMap<String, Reader> readers = loadReaders();
-        HashMap<String, Book> books = loadBooks();
+    // Usuario, Título del libro, Estrellas, Comentario; se guarda con el ID del libro
+    private class RatingImport implements ImportPipeline.RecordHandler {
+        private java.util.HashSet<String> usernames;
+        private java.util.HashMap<String, String> bookIdsByTitle;
+        private java.util.HashSet<String> ratingKeys;
+
+        @Override
+        public void prepare() {
+            usernames = keysOf(readersTable(), 1);
+            bookIdsByTitle = new java.util.HashMap<>();
+            for (String[] row : booksTable().rows()) {
+                bookIdsByTitle.putIfAbsent(row[1].toLowerCase(), row[0]);
+            }
+            ratingKeys = new java.util.HashSet<>();
+            for (String[] row : ratingsTable().rows()) {
+                ratingKeys.add(row[0] + "|" + row[1]);
+            }
+        }
 
-        try (BufferedReader reader = getFileReader(RATINGS_FILE)) {
-            String line;
-            int validCount = 0;
-            int lineNumber = 0;
+        @Override
+        public String[] accept(String[] fields) {
+            String bookId = bookIdsByTitle.get(fields[1].toLowerCase());
+            if (!usernames.contains(fields[0]) || bookId == null) {
+                return null;
+            }
+            try {
+                fields[2] = String.valueOf(Integer.parseInt(fields[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (!ratingKeys.add(fields[0] + "|" + bookId)) {
+                return null;
+            }
+            fields[1] = bookId;
+            return fields;
+        }
 
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                line = line.trim();
+        @Override
+        public void commit(List<String[]> batch) throws IOException {
+            List<String> keys = new ArrayList<>(batch.size());
+            List<String[]> rows = new ArrayList<>(batch.size());
+            for (String[] row : batch) {
+                keys.add(row[0] + "|" + row[1]);
+                rows.add(new String[]{row[0], row[1], row[2], row[3].replace(";", ",")});
+            }
+            commitRows(RATINGS_TABLE, RATINGS_FILE, ratingsTable(), keys, batch, rows);
+        }
+    }
 
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
+    // Usuario1, Usuario2; ambos lectores deben existir
+    private class ConnectionImport implements ImportPipeline.RecordHandler {
+        private java.util.HashSet<String> usernames;
 
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    String username = parts[0].trim();
-                    String bookId = parts[1].trim();
-                    String starsStr = parts[2].trim();
-                    String comment = parts.length > 3 ? parts[3].trim().replace(";", ",") : "";
+        @Override
+        public void prepare() {
+            usernames = keysOf(readersTable(), 1);
+        }
 
-                    try {
-                        int stars = Integer.parseInt(starsStr);
+        @Override
+        public String[] accept(String[] fields) {
+            return usernames.contains(fields[0]) && usernames.contains(fields[1]) ? fields : null;
+        }
 
-                        Reader readerObj = readers.get(username);
-                        Book bookObj = books.get(bookId);
+        @Override
+        public void commit(List<String[]> batch) throws IOException {
+            appendRows(CONNECTIONS_FILE, batch);
+        }
+    }
 
-                        if (readerObj != null && bookObj != null) {
-                            Rating rating = new Rating(readerObj, bookObj, stars, comment);
-                            String key = username + "|" + bookId;
+    private static java.util.HashSet<String> keysOf(DataRepository.Table table, int column) {
+        List<String[]> rows = table.rows();
+        java.util.HashSet<String> keys = new java.util.HashSet<>(rows.size() * 2);
+        for (String[] row : rows) {
+            keys.add(row[column]);
+        }
+        return keys;
+    }
 
-                            // CORRECCIÓN: Evitar duplicados
-                            if (!ratings.containsKey(key)) {
-                                ratings.put(key, rating);
-                                validCount++;
-                                System.out.println("⭐ Rating cargado: " + username + " -> " +
-                                        bookObj.getTitle() + " (" + stars + "★)");
-                            } else {
-                                System.out.println("⚠️ Rating duplicado omitido en línea " + lineNumber);
-                            }
-                        } else {
-                            System.err.println("⚠️ Datos inválidos en línea " + lineNumber + ": " +
-                                    (readerObj == null ? "Lector no encontrado: " + username : "") +
-                                    (bookObj == null ? "Libro no encontrado: " + bookId : ""));
-                        }
-                    } catch (NumberFormatException e) {
-                        System.err.println("⚠️ Puntuación inválida en línea " + lineNumber + ": " + starsStr);
-                    }
-                } else {
-                    System.err.println("⚠️ Formato inválido en línea " + lineNumber + ": " + line);
-                }
+    /**
+     * Escribe las tablas en los archivos de texto de siempre. Con el almacenamiento
+     * indexado es la forma de obtener una copia legible o de volver al modo texto.
+     */
+    public boolean exportToText() {
+        try {
+            replaceFile(ADMINS_FILE, ADMINS_HEADER, joinRows(administratorsTable().rows()));
+            replaceFile(READERS_FILE, READERS_HEADER, joinRows(readersTable().rows()));
+            replaceFile(BOOKS_FILE, BOOKS_HEADER, joinRows(booksTable().rows()));
+
+            List<String[]> ratingRows = ratingsTable().rows();
+            for (int i = 0; i < ratingRows.size(); i++) {
+                String[] row = ratingRows.get(i).clone();
+                row[3] = row[3].replace(",", ";");
+                ratingRows.set(i, row);
             }
+            replaceFile(RATINGS_FILE, RATINGS_HEADER, joinRows(ratingRows));
 
-            System.out.println("✅ Valoraciones cargadas desde archivo: " + validCount);
-
+            System.out.println("📤 Tablas exportadas a texto en " + BASE_PATH);
+            return true;
         } catch (IOException e) {
-            System.err.println("⚠️ Error leyendo valoraciones (archivo puede no existir): " + e.getMessage());
-            // Crear archivo vacío si no existe
-            createFileIfNotExists(RATINGS_FILE, "# Archivo de valoraciones - Usuario,LibroID,Estrellas,Comentario");
+            System.err.println("❌ Error exportando a texto: " + e.getMessage());
+            return false;
         }
+    }
 
-        return ratings;
+    private static List<String> joinRows(List<String[]> rows) {
+        List<String> lines = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            lines.add(String.join(",", row));
+        }
+        return lines;
     }
 
-    /**
-     * NUEVO: Método para debug de valoraciones
-     */
-    public void debugRatingsState() {
-        try {
-            System.out.println("🔍 DEBUG - Estado de valoraciones:");
-            HashMap<String, Rating> ratings = loadRatings();
+    // Guarda un lote importado (en el almacenamiento indexado o al final del archivo) y lo pasa a la copia en memoria
+    private void commitRows(String tableName, String relativePath, DataRepository.Table table,
+                            List<String> keys, List<String[]> lines, List<String[]> rows) throws IOException {
+        StorageBackend storage = storage();
+        if (storage != null) {
+            storage.putAll(tableName, keys, rows);
+        } else {
+            appendRows(relativePath, lines);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            table.put(keys.get(i), rows.get(i));
+        }
+    }
 
-            if (ratings.size() == 0) {
-                System.out.println("   - No hay valoraciones en el archivo");
-            } else {
-                LinkedList<String> keys = ratings.keySet();
-                for (int i = 0; i < keys.getSize(); i++) {
-                    Rating rating = ratings.get(keys.getAmountNodo(i));
-                    System.out.println(String.format("   - %s valoró '%s' con %d estrellas: %s",
-                            rating.getReader().getName(),
-                            rating.getBook().getTitle(),
-                            rating.getStars(),
-                            rating.getComment()));
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("❌ Error en debug de valoraciones: " + e.getMessage());
+    // Agrega un lote de filas al archivo con una sola escritura, por el mismo escritor
+    // que usan las valoraciones y conexiones sueltas
+    private void appendRows(String relativePath, List<String[]> rows) throws IOException {
+        List<String> lines = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            lines.add(String.join(",", row));
         }
+        try {
+            GroupCommitWriter.await(appender(relativePath).append(lines));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    public HashMap<String, Rating> loadRatings() {
+        HashMap<String, Reader> readers = new HashMap<>();
+        HashMap<String, Book> books = new HashMap<>();
+        HashMap<String, Rating> ratings = loadRatings(readers, books);
+        journal().applyStatuses(books);
+        return ratings;
     }
 
     /**
-     * NUEVO: Carga conexiones desde archivo externo
+     * Construye las valoraciones enlazándolas con los lectores y libros dados
+     * (por ejemplo los mapas de Library). Los que falten se crean desde la copia
+     * en memoria y se agregan a los mapas.
      */
-    private int loadConnectionsFromExternalFile(File file) throws IOException {
-        int count = 0;
-        HashMap<String, Reader> readers = loadReaders();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty() && !line.startsWith("#")) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 2) {
-                        String user1 = parts[0].trim();
-                        String user2 = parts[1].trim();
-
-                        // Verificar que ambos lectores existen
-                        if (readers.containsKey(user1) && readers.containsKey(user2)) {
-                            if (saveConnection(user1, user2)) {
-                                count++;
-                                System.out.println("🤝 Conexión cargada: " + user1 + " <-> " + user2);
-                            }
-                        } else {
-                            System.err.println("⚠️ Uno o ambos lectores no encontrados: " + user1 + ", " + user2);
-                        }
-                    }
+    public HashMap<String, Rating> loadRatings(HashMap<String, Reader> readers, HashMap<String, Book> books) {
+        List<String[]> rows = ratingsTable().rows();
+        HashMap<String, Rating> ratings = new HashMap<>(rows.size());
+        int invalidCount = 0;
+
+        for (String[] row : rows) {
+            String username = row[0];
+            String bookId = row[1];
+
+            // Solo se construyen los lectores y libros que aparecen en alguna valoración
+            Reader readerObj = readerFor(username, readers);
+            Book bookObj = bookFor(bookId, books);
+
+            if (readerObj != null && bookObj != null) {
+                Rating rating = new Rating(readerObj, bookObj, Integer.parseInt(row[2]), row[3]);
+                ratings.put(username + "|" + bookId, rating);
+            } else {
+                invalidCount++;
+                if (invalidCount <= 10) {
+                    System.err.println("⚠️ Datos inválidos en valoración " + username + "|" + bookId + ": " +
+                            (readerObj == null ? "Lector no encontrado: " + username : "") +
+                            (bookObj == null ? "Libro no encontrado: " + bookId : ""));
                 }
             }
         }
-        return count;
+
+        if (invalidCount > 10) {
+            System.err.println("⚠️ ... " + (invalidCount - 10) + " valoraciones inválidas más omitidas");
+        }
+        System.out.println("✅ Valoraciones cargadas desde archivo: " + ratings.size());
+
+        return ratings;
     }
 
     /**
-     * CORRECCIÓN 3: Método auxiliar para buscar libro por título
+     * Valoraciones en columnas (IDs codificados como enteros) para estadísticas;
+     * se reutilizan mientras la tabla de valoraciones no cambie.
      */
-    private Book findBookByTitle(String title, HashMap<String, Book> books) {
-        LinkedList<String> keys = books.keySet();
-        for (int i = 0; i < keys.getSize(); i++) {
-            Book book = books.get(keys.getAmountNodo(i));
-            if (book.getTitle().equalsIgnoreCase(title.trim())) {
-                return book;
-            }
-        }
-        return null;
+    public RatingColumnStore loadRatingColumns() {
+        ratingsTable();
+        return repository().ratingColumns();
     }
 
-// ==================== MÉTODOS DE CARGA CORREGIDOS ====================
-
     /**
-     * CORRECCIÓN 4: Método de carga de lectores mejorado (sin duplicados)
+     * Valoraciones de un solo lector, enlazadas con ese mismo objeto. Con el
+     * almacenamiento indexado es un recorrido por rango de "usuario|"; con texto
+     * se filtran las filas en memoria.
      */
-    private int loadReadersFromExternalFile(File file) throws IOException {
-        int count = 0;
-        HashMap<String, Reader> existingReaders = loadReaders();
+    public HashMap<String, Rating> loadRatingsOf(Reader reader) {
+        HashMap<String, Rating> ratings = new HashMap<>();
+        if (reader == null || reader.getUsername() == null) {
+            return ratings;
+        }
+        String username = reader.getUsername();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty() && !line.startsWith("#")) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 3) {
-                        String name = parts[0].trim();
-                        String username = parts[1].trim();
-                        String password = parts[2].trim();
-
-                        // VERIFICAR DUPLICADOS
-                        if (!existingReaders.containsKey(username)) {
-                            if (saveReader(new Reader(name, username, password))) {
-                                count++;
-                                System.out.println("👤 Lector cargado: " + name + " (" + username + ")");
-                            }
-                        } else {
-                            System.out.println("⚠️ Lector ya existe, omitido: " + username);
-                        }
-                    }
+        List<String[]> rows = null;
+        StorageBackend storage = storage();
+        if (storage != null) {
+            try {
+                ratingsTable();
+                // '|' + 1 = '}': cubre todas las claves que empiezan con "usuario|"
+                rows = storage.scan(RATINGS_TABLE, username + "|", username + "}");
+            } catch (IOException e) {
+                System.err.println("❌ Error recorriendo valoraciones de " + username + ": " + e.getMessage());
+            }
+        }
+        if (rows == null) {
+            rows = new ArrayList<>();
+            for (String[] row : ratingsTable().rows()) {
+                if (row[0].equals(username)) {
+                    rows.add(row);
                 }
             }
         }
-        return count;
-    }
-
-    /**
-     * CORRECCIÓN 5: Método de carga de libros mejorado (sin duplicados)
-     */
-    private int loadBooksFromExternalFile(File file) throws IOException {
-        int count = 0;
-        HashMap<String, Book> existingBooks = loadBooks();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty() && !line.startsWith("#")) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 5) {
-                        String id = parts[0].trim();
-                        String title = parts[1].trim();
-                        String author = parts[2].trim();
-                        String yearStr = parts[3].trim();
-                        String category = parts[4].trim();
+        HashMap<String, Book> books = new HashMap<>();
+        for (String[] row : rows) {
+            Book book = bookFor(row[1], books);
+            if (book != null) {
+                ratings.put(username + "|" + row[1], new Rating(reader, book, Integer.parseInt(row[2]), row[3]));
+            }
+        }
+        journal().applyStatuses(books);
+        return ratings;
+    }
 
-                        try {
-                            int year = Integer.parseInt(yearStr);
-
-                            // VERIFICAR DUPLICADOS POR ID Y POR TÍTULO
-                            if (!existingBooks.containsKey(id) && !bookExistsByTitle(title, existingBooks)) {
-                                Book newBook = new Book(id, title, author, year, category);
-                                if (saveBook(newBook)) {
-                                    count++;
-                                    System.out.println("📖 Libro cargado: " + title + " (" + id + ")");
-                                }
-                            } else {
-                                System.out.println("⚠️ Libro ya existe, omitido: " + title + " (ID: " + id + ")");
-                            }
-                        } catch (NumberFormatException e) {
-                            System.err.println("⚠️ Año inválido para libro: " + line);
-                        }
-                    }
-                }
+    // Lector de la copia en memoria; se reutiliza la misma instancia dentro de una carga
+    private Reader readerFor(String username, HashMap<String, Reader> created) {
+        Reader reader = created.get(username);
+        if (reader == null) {
+            String[] row = readersTable().get(username);
+            if (row != null) {
+                reader = new Reader(row[0], row[1], row[2]);
+                created.put(username, reader);
             }
         }
-        return count;
+        return reader;
     }
 
-    /**
-     * CORRECCIÓN 6: Método auxiliar para verificar si un libro existe por título
-     */
-    private boolean bookExistsByTitle(String title, HashMap<String, Book> books) {
-        LinkedList<String> keys = books.keySet();
-        for (int i = 0; i < keys.getSize(); i++) {
-            Book book = books.get(keys.getAmountNodo(i));
-            if (book.getTitle().equalsIgnoreCase(title.trim())) {
-                return true;
+    private Book bookFor(String bookId, HashMap<String, Book> created) {
+        Book book = created.get(bookId);
+        if (book == null) {
+            String[] row = booksTable().get(bookId);
+            if (row != null) {
+                book = toBook(row);
+                created.put(bookId, book);
             }
         }
-        return false;
+        return book;
     }
 
     /**
-     * CORRECCIÓN 7: Método de detección inteligente mejorado
+     * NUEVO: Método para debug de valoraciones
      */
-    private int detectAndLoadFromContent(File file) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String firstLine = reader.readLine();
-            if (firstLine != null && !firstLine.startsWith("#")) {
-                String[] parts = firstLine.split(",");
+    public void debugRatingsState() {
+        try {
+            System.out.println("🔍 DEBUG - Estado de valoraciones:");
+            HashMap<String, Rating> ratings = loadRatings();
 
-                // Detectar por número de campos y contenido
-                if (parts.length == 3) {
-                    // Podría ser lector o valoración
-                    // Verificar si el tercer campo es numérico (valoración) o texto (contraseña)
-                    try {
-                        Integer.parseInt(parts[2].trim());
-                        // Es numérico, probablemente una valoración
-                        System.out.println("🔍 Detectado como archivo de valoraciones (3 campos, tercer campo numérico)");
-                        return loadRatingsFromExternalFile(file);
-                    } catch (NumberFormatException e) {
-                        // No es numérico, probablemente un lector
-                        System.out.println("🔍 Detectado como archivo de lectores (3 campos, tercer campo texto)");
-                        return loadReadersFromExternalFile(file);
-                    }
-                }
-                else if (parts.length == 4) {
-                    // Probablemente valoración con comentario
-                    System.out.println("🔍 Detectado como archivo de valoraciones (4 campos)");
-                    return loadRatingsFromExternalFile(file);
-                }
-                else if (parts.length >= 5) {
-                    // Probablemente libros
-                    System.out.println("🔍 Detectado como archivo de libros (5+ campos)");
-                    return loadBooksFromExternalFile(file);
-                }
-                else if (parts.length == 2) {
-                    // Probablemente conexiones
-                    System.out.println("🔍 Detectado como archivo de conexiones (2 campos)");
-                    return loadConnectionsFromExternalFile(file);
+            if (ratings.size() == 0) {
+                System.out.println("   - No hay valoraciones en el archivo");
+            } else {
+                for (MapNode<String, Rating> entry : ratings.entries()) {
+                    Rating rating = entry.getValue();
+                    System.out.println(String.format("   - %s valoró '%s' con %d estrellas: %s",
+                            rating.getReader().getName(),
+                            rating.getBook().getTitle(),
+                            rating.getStars(),
+                            rating.getComment()));
                 }
             }
+        } catch (Exception e) {
+            System.err.println("❌ Error en debug de valoraciones: " + e.getMessage());
         }
-        System.out.println("⚠️ No se pudo detectar el tipo de archivo automáticamente");
-        return 0;
     }
 
     /**
@@ -986,59 +1441,29 @@ public class Persistence {
     }
 
     /**
-     * NUEVO: Método específico para actualizar solo lectores
+     * NUEVO: Método específico para actualizar solo lectores (solo lo que cambió en el archivo)
      */
     public void refreshReadersData() {
         try {
-            HashMap<String, Reader> newReaders = loadReaders();
-            Library library = Library.getInstance();
-
-            // Actualizar solo lectores
-            library.getReadersMap().clear();
-            LinkedList<String> readerKeys = newReaders.keySet();
-            for (int i = 0; i < readerKeys.getSize(); i++) {
-                String key = readerKeys.getAmountNodo(i);
-                Reader reader = newReaders.get(key);
-                reader.setLibrary(library);
-                library.getReadersMap().put(key, reader);
-            }
+            refreshFromFiles();
+            int applied = Library.getInstance().applyReaderChanges();
 
-            System.out.println("✅ Lectores actualizados: " + newReaders.size());
+            System.out.println("✅ Lectores actualizados: " + applied + " cambios aplicados");
         } catch (Exception e) {
             System.err.println("❌ Error actualizando lectores: " + e.getMessage());
         }
     }
 
     /**
-     * NUEVO: Método específico para actualizar solo libros
+     * NUEVO: Método específico para actualizar solo libros; los árboles solo se
+     * tocan para los libros que cambiaron
      */
     public void refreshBooksData() {
         try {
-            HashMap<String, Book> newBooks = loadBooks();
-            Library library = Library.getInstance();
-
-            // Actualizar solo libros
-            library.getBooks().clear();
-            LinkedList<String> bookKeys = newBooks.keySet();
-            for (int i = 0; i < bookKeys.getSize(); i++) {
-                String key = bookKeys.getAmountNodo(i);
-                Book book = newBooks.get(key);
-                library.getBooks().put(key, book);
-            }
+            refreshFromFiles();
+            int applied = Library.getInstance().applyBookChanges();
 
-            // Reconstruir árboles de búsqueda solo para libros
-            library.getTitleTree().clear();
-            library.getAuthorTree().clear();
-            library.getCategoryTree().clear();
-
-            for (int i = 0; i < bookKeys.getSize(); i++) {
-                Book book = newBooks.get(bookKeys.getAmountNodo(i));
-                library.getTitleTree().insert(book);
-                library.getAuthorTree().insert(book);
-                library.getCategoryTree().insert(book);
-            }
-
-            System.out.println("✅ Libros actualizados: " + newBooks.size());
+            System.out.println("✅ Libros actualizados: " + applied + " cambios aplicados");
         } catch (Exception e) {
             System.err.println("❌ Error actualizando libros: " + e.getMessage());
         }
@@ -1049,18 +1474,10 @@ public class Persistence {
      */
     public void refreshRatingsData() {
         try {
-            HashMap<String, Rating> newRatings = loadRatings();
-            Library library = Library.getInstance();
+            refreshFromFiles();
+            int applied = Library.getInstance().applyRatingChanges();
 
-            // Actualizar valoraciones
-            library.getRatings().clear();
-            LinkedList<String> ratingKeys = newRatings.keySet();
-            for (int i = 0; i < ratingKeys.getSize(); i++) {
-                String key = ratingKeys.getAmountNodo(i);
-                library.getRatings().put(key, newRatings.get(key));
-            }
-
-            System.out.println("✅ Valoraciones actualizadas: " + newRatings.size());
+            System.out.println("✅ Valoraciones actualizadas: " + applied + " cambios aplicados");
         } catch (Exception e) {
             System.err.println("❌ Error actualizando valoraciones: " + e.getMessage());
         }
@@ -1071,19 +1488,14 @@ public class Persistence {
      */
     public HashMap<String, LoanRecord> loadActiveLoans() {
         HashMap<String, LoanRecord> loans = new HashMap<>();
-        HashMap<String, Reader> readers = loadReaders();
-        HashMap<String, Book> books = loadBooks();
+        HashMap<String, Reader> readers = new HashMap<>();
+        HashMap<String, Book> books = new HashMap<>();
 
-        try (BufferedReader reader = getFileReader(LOANS_FILE)) {
-            String line;
+        try {
             int validCount = 0;
 
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
-
+            // Foto de Loans.txt más los registros de la bitácora
+            for (String line : journal().activeLoanLines()) {
                 String[] parts = line.split(",");
                 if (parts.length >= 4) {
                     String username = parts[0].trim();
@@ -1091,8 +1503,8 @@ public class Persistence {
                     String fechaPrestamoStr = parts[2].trim();
                     String fechaVencimientoStr = parts[3].trim();
 
-                    Reader readerObj = readers.get(username);
-                    Book bookObj = books.get(bookId);
+                    Reader readerObj = readerFor(username, readers);
+                    Book bookObj = bookFor(bookId, books);
 
                     if (readerObj != null && bookObj != null) {
                         try {
@@ -1112,54 +1524,58 @@ public class Persistence {
                 }
             }
 
+            journal().applyStatuses(books);
             System.out.println("✅ Préstamos activos cargados: " + validCount);
 
-        } catch (IOException e) {
+        } catch (IllegalStateException e) {
             System.err.println("⚠️ Error leyendo préstamos activos: " + e.getMessage());
-            createFileIfNotExists(LOANS_FILE, "# Archivo de préstamos - Usuario,LibroID,FechaPrestamo,FechaVencimiento");
         }
 
         return loans;
     }
 
     /**
-     * Elimina un préstamo (cuando se devuelve)
+     * Préstamos vigentes como líneas Usuario,LibroID,FechaPrestamo,FechaVencimiento
+     * (foto de Loans.txt más la bitácora), sin cargar lectores ni libros.
+     * Para estadísticas que solo cuentan préstamos.
      */
-    public boolean removeLoan(String username, String bookId) {
-        HashMap<String, LoanRecord> loans = loadActiveLoans();
-        String key = username + "|" + bookId;
+    public List<String> activeLoanLines() {
+        try {
+            return journal().activeLoanLines();
+        } catch (IllegalStateException e) {
+            System.err.println("❌ Error leyendo préstamos activos: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
-        if (!loans.containsKey(key)) {
-            System.err.println("❌ Préstamo no encontrado: " + key);
+    /**
+     * Indica si existe el préstamo sin cargar lectores ni libros
+     */
+    public boolean hasActiveLoan(String username, String bookId) {
+        try {
+            return journal().hasLoan(username, bookId);
+        } catch (IllegalStateException e) {
+            System.err.println("❌ Error consultando préstamo: " + e.getMessage());
             return false;
         }
+    }
 
-        loans.remove(key);
-
-        // Reescribir archivo sin el préstamo eliminado
-        try (BufferedWriter writer = getFileWriter(LOANS_FILE, false)) {
-            writer.write("# Archivo de préstamos - Usuario,LibroID,FechaPrestamo,FechaVencimiento");
-            writer.newLine();
-
-            LinkedList<String> keys = loans.keySet();
-            for (int i = 0; i < keys.getSize(); i++) {
-                String loanKey = keys.getAmountNodo(i);
-                LoanRecord loan = loans.get(loanKey);
+    /**
+     * Elimina un préstamo (cuando se devuelve). Solo agrega un registro a la bitácora.
+     */
+    public boolean removeLoan(String username, String bookId) {
+        String key = username + "|" + bookId;
 
-                String line = String.format("%s,%s,%s,%s",
-                        loan.getReader().getUsername(),
-                        loan.getBook().getIdBook(),
-                        loan.getLoanDate().toString(),
-                        loan.getDueDate().toString());
-                writer.write(line);
-                writer.newLine();
+        try {
+            if (!journal().removeLoan(username, bookId)) {
+                System.err.println("❌ Préstamo no encontrado: " + key);
+                return false;
             }
-            writer.flush();
 
             System.out.println("💾 Préstamo eliminado: " + key);
             return true;
 
-        } catch (IOException e) {
+        } catch (IOException | IllegalStateException e) {
             System.err.println("❌ Error eliminando préstamo: " + e.getMessage());
             return false;
         }
@@ -1229,9 +1645,8 @@ public class Persistence {
             if (loans.size() == 0) {
                 System.out.println("   - No hay préstamos activos");
             } else {
-                LinkedList<String> keys = loans.keySet();
-                for (int i = 0; i < keys.getSize(); i++) {
-                    LoanRecord loan = loans.get(keys.getAmountNodo(i));
+                for (MapNode<String, LoanRecord> entry : loans.entries()) {
+                    LoanRecord loan = entry.getValue();
                     System.out.println(String.format("   - %s tiene prestado: %s (ID: %s) hasta %s",
                             loan.getReader().getName(),
                             loan.getBook().getTitle(),
@@ -1314,24 +1729,22 @@ public class Persistence {
     }
 
     private boolean saveAllAdministrators(HashMap<String, Administrator> admins) {
-        try (BufferedWriter writer = getFileWriter(ADMINS_FILE, false)) {
-            writer.write("# Archivo de administradores - Nombre,Usuario,Contraseña");
-            writer.newLine();
-
-            LinkedList<String> keys = admins.keySet();
-            for (int i = 0; i < keys.getSize(); i++) {
-                String key = keys.getAmountNodo(i);
-                Administrator admin = admins.get(key);
+        try {
+            HashMap<String, String[]> rows = new HashMap<>(admins.size());
+            List<String> lines = new ArrayList<>(admins.size());
+            for (MapNode<String, Administrator> entry : admins.entries()) {
+                Administrator admin = entry.getValue();
                 if (admin != null) {
-                    String line = String.format("%s,%s,%s",
-                            admin.getName(),
-                            admin.getUsername(),
-                            admin.getPassword());
-                    writer.write(line);
-                    writer.newLine();
+                    lines.add(admin.getName() + "," + admin.getUsername() + "," + admin.getPassword());
+                    rows.put(admin.getUsername(), new String[]{admin.getName(), admin.getUsername(), admin.getPassword()});
                 }
             }
-            writer.flush();
+            if (storage() != null) {
+                storage().replaceAll(ADMINS_TABLE, rows);
+            } else {
+                replaceFile(ADMINS_FILE, ADMINS_HEADER, lines);
+            }
+            repository().administrators().applyDiff(rows);
 
             System.out.println("💾 Todos los administradores guardados");
             return true;
@@ -1349,31 +1762,16 @@ public class Persistence {
         }
 
         try {
-            HashMap<String, Book> books = loadBooks();
-
-            if (!books.containsKey(bookId.trim())) {
+            Library library = Library.getInstance();
+            if (!library.bookExists(bookId)) {
                 System.err.println("❌ Libro no encontrado para actualizar estado: " + bookId);
                 return false;
             }
 
-            // Actualizar estado en memoria
-            Book book = books.get(bookId.trim());
-            BookStatus oldStatus = book.getStatus();
-            book.setStatus(newStatus);
-
-            // Guardar todos los libros (reescribir archivo)
-            boolean saved = saveAllBooks(books);
-
-            if (saved) {
-                System.out.println("✅ Estado de libro actualizado: " + bookId +
-                        " (" + oldStatus + " → " + newStatus + ")");
-                return true;
-            } else {
-                // Rollback
-                book.setStatus(oldStatus);
-                System.err.println("❌ Error persistiendo estado de libro");
-                return false;
-            }
+            // Solo se agrega un registro a la bitácora; Books.txt no se reescribe
+            journal().setBookStatus(bookId.trim(), newStatus);
+            System.out.println("✅ Estado de libro actualizado: " + bookId + " → " + newStatus);
+            return true;
 
         } catch (Exception e) {
             System.err.println("❌ Error actualizando estado de libro: " + e.getMessage());
@@ -1382,38 +1780,43 @@ public class Persistence {
     }
 
     public boolean saveLoan(Reader reader, Book book) {
+        return awaitSaved(saveLoanAsync(reader, book), "préstamo");
+    }
+
+    /**
+     * El préstamo queda vigente en la bitácora al instante; el futuro se completa
+     * cuando el registro ya está en disco.
+     */
+    public CompletableFuture<Boolean> saveLoanAsync(Reader reader, Book book) {
         if (reader == null || book == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         // NUEVO: Verificar si ya existe el préstamo
-        HashMap<String, LoanRecord> existingLoans = loadActiveLoans();
         String loanKey = reader.getUsername() + "|" + book.getIdBook();
 
-        if (existingLoans.containsKey(loanKey)) {
-            System.out.println("⚠️ El préstamo ya existe, no se duplicará: " + loanKey);
-            return true; // No es error, simplemente ya existe
-        }
-
-        try (BufferedWriter writer = getFileWriter(LOANS_FILE, true)) {
+        try {
             java.time.LocalDate fechaPrestamo = java.time.LocalDate.now();
             java.time.LocalDate fechaVencimiento = fechaPrestamo.plusDays(14);
 
-            String line = String.format("%s,%s,%s,%s",
-                    reader.getUsername(),
-                    book.getIdBook(),
-                    fechaPrestamo.toString(),
-                    fechaVencimiento.toString());
-            writer.write(line);
-            writer.newLine();
-            writer.flush();
-
-            System.out.println("💾 Préstamo guardado: " + reader.getUsername() + " -> " + book.getTitle());
-            return true;
+            return journal().addLoanAsync(reader.getUsername(), book.getIdBook(),
+                    fechaPrestamo.toString(), fechaVencimiento.toString())
+                    .handle((added, error) -> {
+                        if (error != null) {
+                            System.err.println("❌ Error guardando préstamo: " + error.getMessage());
+                            return false;
+                        }
+                        if (!added) {
+                            System.out.println("⚠️ El préstamo ya existe, no se duplicará: " + loanKey);
+                            return true; // No es error, simplemente ya existe
+                        }
+                        System.out.println("💾 Préstamo guardado: " + reader.getUsername() + " -> " + book.getTitle());
+                        return true;
+                    });
 
-        } catch (IOException e) {
+        } catch (IllegalStateException e) {
             System.err.println("❌ Error guardando préstamo: " + e.getMessage());
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
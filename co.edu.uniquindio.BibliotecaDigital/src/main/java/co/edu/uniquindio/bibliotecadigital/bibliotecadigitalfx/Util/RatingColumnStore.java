@@ -0,0 +1,215 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Valoraciones guardadas por columnas, para estadísticas y recomendaciones.
+ *
+ * Los usuarios y los IDs de libro se guardan una sola vez en diccionarios y cada
+ * valoración queda como un índice de libro (int) y sus estrellas (byte). Las filas
+ * se agrupan por lector (como una matriz dispersa CSR): las valoraciones del
+ * lector r son las posiciones readerStart[r] .. readerStart[r + 1] - 1, así que
+ * la columna del lector no hace falta. Los comentarios van en su propia columna
+ * (null si la valoración no tiene), así que el almacén no guarda ninguna
+ * referencia a las filas de texto con que se armó.
+ *
+ * Es inmutable: se arma de nuevo cuando cambia la tabla de valoraciones
+ * (ver DataRepository.ratingColumns()).
+ */
+public class RatingColumnStore {
+    // Recorre las valoraciones de un lector sin crear objetos
+    public interface RatingVisitor {
+        void visit(int book, int stars);
+    }
+
+    private final String[] readerNames;
+    private final HashMap<String, Integer> readerIndex;
+    private final String[] bookKeys;
+    private final HashMap<String, Integer> bookIndex;
+
+    private final int[] readerStart;
+    private final int[] bookColumn;
+    private final byte[] starsColumn;
+    private final String[] commentColumn;
+
+    private RatingColumnStore(String[] readerNames, HashMap<String, Integer> readerIndex,
+                              String[] bookKeys, HashMap<String, Integer> bookIndex,
+                              int[] readerStart, int[] bookColumn, byte[] starsColumn,
+                              String[] commentColumn) {
+        this.readerNames = readerNames;
+        this.readerIndex = readerIndex;
+        this.bookKeys = bookKeys;
+        this.bookIndex = bookIndex;
+        this.readerStart = readerStart;
+        this.bookColumn = bookColumn;
+        this.starsColumn = starsColumn;
+        this.commentColumn = commentColumn;
+    }
+
+    // Arma las columnas desde filas Usuario, LibroID, Estrellas[, Comentario]
+    public static RatingColumnStore build(List<String[]> rows) {
+        int size = rows.size();
+        HashMap<String, Integer> readerIndex = new HashMap<>();
+        HashMap<String, Integer> bookIndex = new HashMap<>();
+        int[] readerOf = new int[size];
+        int[] bookOf = new int[size];
+        byte[] starsOf = new byte[size];
+        String[] commentOf = new String[size];
+
+        // Primera pasada: diccionarios y columnas en el orden de llegada
+        int valid = 0;
+        for (String[] row : rows) {
+            int stars;
+            try {
+                stars = Integer.parseInt(row[2]);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            readerOf[valid] = indexOf(readerIndex, row[0]);
+            bookOf[valid] = indexOf(bookIndex, row[1]);
+            starsOf[valid] = (byte) stars;
+            commentOf[valid] = row.length > 3 && !row[3].isEmpty() ? row[3] : null;
+            valid++;
+        }
+
+        // Segunda pasada: agrupar por lector (conteo + sumas acumuladas)
+        int readers = readerIndex.size();
+        int[] readerStart = new int[readers + 1];
+        for (int i = 0; i < valid; i++) {
+            readerStart[readerOf[i] + 1]++;
+        }
+        for (int r = 0; r < readers; r++) {
+            readerStart[r + 1] += readerStart[r];
+        }
+        int[] next = Arrays.copyOf(readerStart, readers);
+        int[] bookColumn = new int[valid];
+        byte[] starsColumn = new byte[valid];
+        String[] commentColumn = new String[valid];
+        for (int i = 0; i < valid; i++) {
+            int position = next[readerOf[i]]++;
+            bookColumn[position] = bookOf[i];
+            starsColumn[position] = starsOf[i];
+            commentColumn[position] = commentOf[i];
+        }
+
+        return new RatingColumnStore(dictionary(readerIndex), readerIndex, dictionary(bookIndex), bookIndex,
+                readerStart, bookColumn, starsColumn, commentColumn);
+    }
+
+    private static int indexOf(HashMap<String, Integer> dictionary, String key) {
+        Integer index = dictionary.get(key);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(key, index);
+        }
+        return index;
+    }
+
+    private static String[] dictionary(HashMap<String, Integer> index) {
+        String[] values = new String[index.size()];
+        for (MapNode<String, Integer> entry : index.entries()) {
+            values[entry.getValue()] = entry.getKey();
+        }
+        return values;
+    }
+
+    // ==================== CONSULTAS ====================
+
+    public int size() {
+        return bookColumn.length;
+    }
+
+    public int readerCount() {
+        return readerNames.length;
+    }
+
+    public int bookCount() {
+        return bookKeys.length;
+    }
+
+    public String readerName(int reader) {
+        return readerNames[reader];
+    }
+
+    public String bookKey(int book) {
+        return bookKeys[book];
+    }
+
+    // -1 si el lector no tiene valoraciones
+    public int readerIndex(String username) {
+        Integer index = readerIndex.get(username);
+        return index != null ? index : -1;
+    }
+
+    public int bookIndex(String bookId) {
+        Integer index = bookIndex.get(bookId);
+        return index != null ? index : -1;
+    }
+
+    public int countOf(int reader) {
+        return readerStart[reader + 1] - readerStart[reader];
+    }
+
+    public void forEachRatingOf(int reader, RatingVisitor visitor) {
+        for (int i = readerStart[reader]; i < readerStart[reader + 1]; i++) {
+            visitor.visit(bookColumn[i], starsColumn[i]);
+        }
+    }
+
+    // Cantidad de valoraciones por libro (índice del diccionario de libros)
+    public int[] countByBook() {
+        int[] counts = new int[bookKeys.length];
+        for (int book : bookColumn) {
+            counts[book]++;
+        }
+        return counts;
+    }
+
+    // Promedio de estrellas por libro; 0 si no tiene valoraciones
+    public double[] averageByBook() {
+        long[] sums = new long[bookKeys.length];
+        int[] counts = new int[bookKeys.length];
+        for (int i = 0; i < bookColumn.length; i++) {
+            sums[bookColumn[i]] += starsColumn[i];
+            counts[bookColumn[i]]++;
+        }
+        double[] averages = new double[bookKeys.length];
+        for (int b = 0; b < averages.length; b++) {
+            averages[b] = counts[b] > 0 ? (double) sums[b] / counts[b] : 0.0;
+        }
+        return averages;
+    }
+
+    // Promedio de estrellas por lector
+    public double[] averageByReader() {
+        double[] averages = new double[readerNames.length];
+        for (int r = 0; r < averages.length; r++) {
+            long sum = 0;
+            for (int i = readerStart[r]; i < readerStart[r + 1]; i++) {
+                sum += starsColumn[i];
+            }
+            int count = readerStart[r + 1] - readerStart[r];
+            averages[r] = count > 0 ? (double) sum / count : 0.0;
+        }
+        return averages;
+    }
+
+    // Comentario de una valoración ("" si no tiene)
+    public String comment(String username, String bookId) {
+        int reader = readerIndex(username);
+        int book = bookIndex(bookId);
+        if (reader < 0 || book < 0) {
+            return "";
+        }
+        for (int i = readerStart[reader]; i < readerStart[reader + 1]; i++) {
+            if (bookColumn[i] == book) {
+                return commentColumn[i] != null ? commentColumn[i] : "";
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,56 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Almacenamiento principal de las tablas (administradores, lectores, libros y
+ * valoraciones) cuando no se usan los archivos de texto.
+ *
+ * Se elige con la propiedad del sistema biblioteca.storage:
+ *  - "text" (por defecto): los archivos .txt de Archivos/ son los datos y
+ *    Persistence los escribe directamente.
+ *  - "btree": las tablas viven en Archivos/Store/library.db (árboles B+, ver
+ *    PageStore) y los cambios puntuales solo tocan las páginas afectadas. Los
+ *    .txt quedan como formato de exportación (Persistence.exportToText()).
+ *
+ * Las conexiones, préstamos y estados de libros siguen en sus archivos de siempre.
+ */
+public interface StorageBackend {
+    String PROPERTY = "biblioteca.storage";
+
+    /**
+     * Backend configurado para la carpeta de datos, o null si se usan los archivos de texto
+     */
+    static StorageBackend configured(Path baseDirectory) {
+        String mode = System.getProperty(PROPERTY, "text").trim();
+        if (mode.equalsIgnoreCase("btree")) {
+            return PageStorageBackend.forDirectory(baseDirectory);
+        }
+        if (!mode.equalsIgnoreCase("text")) {
+            System.err.println("⚠️ " + PROPERTY + "=" + mode + " no reconocido, se usan los archivos de texto");
+        }
+        return null;
+    }
+
+    // Archivo donde vive el almacenamiento (para invalidar la foto binaria si cambia)
+    Path getFile();
+
+    // Filas de la tabla por clave, o null si la tabla todavía no existe en este almacenamiento
+    HashMap<String, String[]> load(String table) throws IOException;
+
+    void put(String table, String key, String[] row) throws IOException;
+
+    // Varias filas con una sola escritura a disco
+    void putAll(String table, List<String> keys, List<String[]> rows) throws IOException;
+
+    void remove(String table, String key) throws IOException;
+
+    void replaceAll(String table, HashMap<String, String[]> rows) throws IOException;
+
+    // Filas con clave en [fromKey, toKey), en orden de clave
+    List<String[]> scan(String table, String fromKey, String toKey) throws IOException;
+}
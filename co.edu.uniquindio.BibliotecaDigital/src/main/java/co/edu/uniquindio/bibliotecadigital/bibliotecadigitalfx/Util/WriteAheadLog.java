@@ -0,0 +1,489 @@
+package co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Util;
+
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Enum.BookStatus;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Model.Book;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.HashMap;
+import co.edu.uniquindio.bibliotecadigital.bibliotecadigitalfx.Structures.Nodes.MapNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Bitácora de escritura anticipada (WAL) para préstamos y estados de libros.
+ *
+ * Cada cambio se agrega como una línea corta al final de Journal/journal.log
+ * (con su CRC) en lugar de reescribir Loans.txt o Books.txt, así que prestar o
+ * devolver cuesta lo mismo sin importar el tamaño del catálogo. El estado
+ * vigente es la foto (Loans.txt y Books/BookStatus.txt) más los registros de
+ * la bitácora aplicados en orden.
+ *
+ * Un hilo en segundo plano compacta periódicamente: escribe fotos nuevas en
+ * archivos temporales, las reemplaza con un movimiento atómico y vacía la
+ * bitácora. Si el proceso muere a mitad de una línea, esa línea se descarta
+ * al abrir; los archivos de datos nunca quedan a medio escribir.
+ *
+ * Hay una sola instancia por carpeta de datos, compartida por todos los
+ * objetos Persistence. Los registros se encolan en orden con el bloqueo de la
+ * instancia tomado y la escritura en disco la hace un GroupCommitWriter, que
+ * junta los registros que llegan a la vez en un solo write + force. El estado
+ * en memoria (con su propio bloqueo, state) cambia recién cuando el registro
+ * está en disco: lo que se consulta nunca se adelanta a lo que sobreviviría a
+ * una caída.
+ */
+public class WriteAheadLog {
+    private static final String JOURNAL_FILE = "Journal/journal.log";
+    private static final String LOANS_FILE = "Loans/Loans.txt";
+    private static final String STATUS_FILE = "Books/BookStatus.txt";
+
+    private static final String LOANS_HEADER = "# Archivo de préstamos - Usuario,LibroID,FechaPrestamo,FechaVencimiento";
+    private static final String STATUS_HEADER = "# Estados de libros distintos de AVAILABLE - LibroID,Estado";
+
+    // Tipos de registro
+    private static final String LOAN_ADDED = "L";
+    private static final String LOAN_REMOVED = "R";
+    private static final String STATUS_CHANGED = "S";
+
+    // Compactar al llegar a este número de registros o en cada intervalo si hay pendientes
+    private static final int COMPACT_THRESHOLD = 500;
+    private static final long COMPACT_INTERVAL_SECONDS = 30;
+
+    private static final ConcurrentHashMap<Path, WriteAheadLog> INSTANCES = new ConcurrentHashMap<>();
+
+    private final Path journalPath;
+    private final Path loansPath;
+    private final Path statusPath;
+
+    // Estado vigente (ya en disco): usuario|libroID -> línea de Loans.txt, y libroID -> estado
+    private final HashMap<String, String> loans = new HashMap<>();
+    private final HashMap<String, BookStatus> statuses = new HashMap<>();
+
+    /*
+     * Préstamos con registros encolados que todavía no están en disco: el estado
+     * que dejará el último (true = prestado) y cuántos faltan. Sirve para que dos
+     * pedidos seguidos del mismo préstamo no se dupliquen mientras se escribe.
+     */
+    private final HashMap<String, Boolean> pendingLoans = new HashMap<>();
+    private final HashMap<String, Integer> pendingLoanWrites = new HashMap<>();
+
+    // Protege el estado en memoria; se toma después del de la instancia, nunca al revés
+    private final Object state = new Object();
+
+    private FileChannel journal;
+    // Los registros se escriben en lote: varios préstamos simultáneos comparten un force
+    private GroupCommitWriter journalWriter;
+    private int pendingRecords;
+    private boolean compactionScheduled;
+    private final ScheduledExecutorService compactor;
+
+    private WriteAheadLog(Path baseDirectory) throws IOException {
+        this.journalPath = baseDirectory.resolve(JOURNAL_FILE);
+        this.loansPath = baseDirectory.resolve(LOANS_FILE);
+        this.statusPath = baseDirectory.resolve(STATUS_FILE);
+
+        Files.createDirectories(journalPath.getParent());
+        Files.createDirectories(loansPath.getParent());
+        Files.createDirectories(statusPath.getParent());
+
+        loadSnapshots();
+        long validLength = replayJournal();
+
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (journal.size() > validLength) {
+            // Quitar la cola dañada para que los registros nuevos no queden detrás de basura
+            System.err.println("⚠️ Bitácora con registro incompleto, se descarta la cola desde el byte " + validLength);
+            journal.truncate(validLength);
+            journal.force(true);
+        }
+        journal.position(validLength);
+        journalWriter = new GroupCommitWriter("journal.log", journal);
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfPending,
+                COMPACT_INTERVAL_SECONDS, COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        System.out.println("📒 Bitácora abierta: " + loans.size() + " préstamos activos, "
+                + pendingRecords + " registros pendientes de compactar");
+    }
+
+    // Bitácora compartida para la carpeta de datos indicada
+    public static WriteAheadLog forDirectory(Path baseDirectory) {
+        return INSTANCES.computeIfAbsent(baseDirectory.toAbsolutePath().normalize(), path -> {
+            try {
+                return new WriteAheadLog(path);
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo abrir la bitácora en " + path + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // ==================== OPERACIONES ====================
+
+    // Solo préstamos cuyo registro ya está en disco
+    public boolean hasLoan(String username, String bookId) {
+        synchronized (state) {
+            return loans.containsKey(loanKey(username, bookId));
+        }
+    }
+
+    // Si el préstamo quedará vigente una vez escritos los registros encolados
+    private boolean hasLoanAfterPending(String key) {
+        synchronized (state) {
+            Boolean pending = pendingLoans.get(key);
+            return pending != null ? pending : loans.containsKey(key);
+        }
+    }
+
+    public boolean addLoan(String username, String bookId, String loanDate, String dueDate) throws IOException {
+        return GroupCommitWriter.await(addLoanAsync(username, bookId, loanDate, dueDate));
+    }
+
+    /**
+     * El futuro se completa con true cuando el registro está en disco y el
+     * préstamo ya figura en memoria (false si el préstamo ya existía), o con
+     * error si no se pudo escribir; en ese caso la memoria no cambia.
+     */
+    public CompletableFuture<Boolean> addLoanAsync(String username, String bookId, String loanDate, String dueDate) {
+        synchronized (this) {
+            if (hasLoanAfterPending(loanKey(username, bookId))) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return append(LOAN_ADDED, username, bookId, loanDate, dueDate).thenApply(done -> true);
+        }
+    }
+
+    public boolean removeLoan(String username, String bookId) throws IOException {
+        return GroupCommitWriter.await(removeLoanAsync(username, bookId));
+    }
+
+    public CompletableFuture<Boolean> removeLoanAsync(String username, String bookId) {
+        synchronized (this) {
+            if (!hasLoanAfterPending(loanKey(username, bookId))) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return append(LOAN_REMOVED, username, bookId).thenApply(done -> true);
+        }
+    }
+
+    public void setBookStatus(String bookId, BookStatus status) throws IOException {
+        GroupCommitWriter.await(setBookStatusAsync(bookId, status));
+    }
+
+    public CompletableFuture<Void> setBookStatusAsync(String bookId, BookStatus status) {
+        synchronized (this) {
+            return append(STATUS_CHANGED, bookId, status.name());
+        }
+    }
+
+    // Líneas de préstamo vigentes (usuario,libroID,fechaPrestamo,fechaVencimiento)
+    public java.util.List<String> activeLoanLines() {
+        synchronized (state) {
+            java.util.List<String> lines = new java.util.ArrayList<>(loans.size());
+            for (MapNode<String, String> entry : loans.entries()) {
+                lines.add(entry.getValue());
+            }
+            return lines;
+        }
+    }
+
+    // Aplica los estados guardados a los libros recién cargados
+    public void applyStatuses(HashMap<String, Book> books) {
+        synchronized (state) {
+            for (MapNode<String, BookStatus> entry : statuses.entries()) {
+                Book book = books.get(entry.getKey());
+                if (book != null) {
+                    book.setStatus(entry.getValue());
+                }
+            }
+        }
+    }
+
+    // ==================== BITÁCORA ====================
+
+    /**
+     * Se llama con el bloqueo de la instancia tomado, así el orden en disco es el
+     * de llegada. El registro se aplica a la memoria cuando el escritor confirma
+     * que está en disco: las confirmaciones llegan en el mismo orden, desde el
+     * hilo del escritor, y solo toman el bloqueo state. Si la escritura falla,
+     * la memoria queda como estaba.
+     */
+    private CompletableFuture<Void> append(String type, String... fields) {
+        String key = type.equals(STATUS_CHANGED) ? null : loanKey(fields[0], fields[1]);
+        if (key != null) {
+            synchronized (state) {
+                pendingLoans.put(key, type.equals(LOAN_ADDED));
+                Integer writes = pendingLoanWrites.get(key);
+                pendingLoanWrites.put(key, writes == null ? 1 : writes + 1);
+            }
+        }
+
+        CompletableFuture<Void> written = journalWriter.append(encode(type, fields));
+        pendingRecords++;
+
+        if (pendingRecords >= COMPACT_THRESHOLD && !compactionScheduled) {
+            compactionScheduled = true;
+            compactor.execute(this::compactIfPending);
+        }
+
+        return written.whenComplete((done, error) -> {
+            synchronized (state) {
+                if (error == null) {
+                    apply(type, fields);
+                }
+                if (key != null) {
+                    int writes = pendingLoanWrites.get(key) - 1;
+                    if (writes == 0) {
+                        pendingLoanWrites.remove(key);
+                        pendingLoans.remove(key);
+                    } else {
+                        pendingLoanWrites.put(key, writes);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * TIPO|campo1|campo2...|crc32 en hexadecimal. Dentro de los campos, '|', la
+     * barra invertida y los saltos de línea se escapan con una barra invertida:
+     * un usuario o ID que los contenga no corre los campos ni parte el registro.
+     */
+    private String encode(String type, String... fields) {
+        StringBuilder record = new StringBuilder(type);
+        for (String field : fields) {
+            record.append('|');
+            escape(field, record);
+        }
+        long crc = checksum(record);
+        return record.append('|').append(Long.toHexString(crc)).toString();
+    }
+
+    private static void escape(String field, StringBuilder out) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '|':
+                case '\\':
+                    out.append('\\').append(c);
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    // Parte el cuerpo de un registro en sus campos deshaciendo los escapes de encode
+    private static java.util.List<String> split(String body) {
+        java.util.List<String> parts = new java.util.ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\') {
+                if (++i == body.length()) {
+                    throw new IllegalArgumentException("Escape incompleto");
+                }
+                char escaped = body.charAt(i);
+                current.append(escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else if (c == '|') {
+                parts.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        parts.add(current.toString());
+        return parts;
+    }
+
+    private long checksum(CharSequence text) {
+        CRC32 crc = new CRC32();
+        crc.update(text.toString().getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private void apply(String type, String[] fields) {
+        switch (type) {
+            case LOAN_ADDED:
+                loans.put(loanKey(fields[0], fields[1]), String.join(",", fields));
+                break;
+            case LOAN_REMOVED:
+                loans.remove(loanKey(fields[0], fields[1]));
+                break;
+            case STATUS_CHANGED:
+                BookStatus status = BookStatus.valueOf(fields[1]);
+                if (status == BookStatus.AVAILABLE) {
+                    statuses.remove(fields[0]);
+                } else {
+                    statuses.put(fields[0], status);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de registro desconocido: " + type);
+        }
+    }
+
+    /**
+     * Aplica los registros válidos de la bitácora y devuelve cuántos bytes ocupan.
+     * Se detiene en el primer registro incompleto o con CRC incorrecto.
+     */
+    private long replayJournal() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+
+        byte[] content = Files.readAllBytes(journalPath);
+        long validLength = 0;
+        int lineStart = 0;
+
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != '\n') {
+                continue;
+            }
+            String record = new String(content, lineStart, i - lineStart, StandardCharsets.UTF_8);
+            if (!replayRecord(record)) {
+                break;
+            }
+            lineStart = i + 1;
+            validLength = lineStart;
+            pendingRecords++;
+        }
+        return validLength;
+    }
+
+    private boolean replayRecord(String record) {
+        int crcStart = record.lastIndexOf('|');
+        if (crcStart <= 0) {
+            return false;
+        }
+
+        String body = record.substring(0, crcStart);
+        try {
+            if (Long.parseLong(record.substring(crcStart + 1), 16) != checksum(body)) {
+                return false;
+            }
+            java.util.List<String> parts = split(body);
+            String[] fields = parts.subList(1, parts.size()).toArray(new String[0]);
+            apply(parts.get(0), fields);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // ==================== FOTOS Y COMPACTACIÓN ====================
+
+    private void loadSnapshots() throws IOException {
+        if (Files.exists(loansPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(loansPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] parts = line.split(",");
+                    if (parts.length >= 4) {
+                        loans.put(loanKey(parts[0].trim(), parts[1].trim()), line);
+                    }
+                }
+            }
+        }
+
+        if (Files.exists(statusPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(statusPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] parts = line.split(",");
+                    if (parts.length >= 2) {
+                        try {
+                            statuses.put(parts[0].trim(), BookStatus.valueOf(parts[1].trim()));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("⚠️ Estado inválido en " + STATUS_FILE + ": " + line);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized void compactIfPending() {
+        compactionScheduled = false;
+        if (pendingRecords > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * Escribe fotos nuevas de préstamos y estados y vacía la bitácora.
+     * Las fotos se reemplazan de forma atómica; si el proceso muere antes de
+     * vaciar la bitácora, al abrir se vuelven a aplicar sus registros, que
+     * producen el mismo estado.
+     */
+    public synchronized boolean compact() {
+        try {
+            // Lo encolado tiene que estar en disco (y aplicado en memoria) antes de tomar la foto
+            journalWriter.flush();
+
+            java.util.List<String> loanLines = activeLoanLines();
+            java.util.List<String> statusLines;
+            synchronized (state) {
+                statusLines = new java.util.ArrayList<>(statuses.size());
+                for (MapNode<String, BookStatus> entry : statuses.entries()) {
+                    statusLines.add(entry.getKey() + "," + entry.getValue().name());
+                }
+            }
+
+            writeSnapshot(loansPath, LOANS_HEADER, loanLines);
+            writeSnapshot(statusPath, STATUS_HEADER, statusLines);
+
+            journal.truncate(0);
+            journal.position(0);
+            journal.force(true);
+
+            System.out.println("🗜️ Bitácora compactada: " + pendingRecords + " registros, "
+                    + loanLines.size() + " préstamos activos");
+            pendingRecords = 0;
+            return true;
+
+        } catch (IOException e) {
+            System.err.println("❌ Error compactando bitácora: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeSnapshot(Path target, String header, java.util.List<String> lines) throws IOException {
+        AtomicFileWriter.write(target, header, lines);
+    }
+
+    public synchronized int pendingRecords() {
+        return pendingRecords;
+    }
+
+    private static String loanKey(String username, String bookId) {
+        return username + "|" + bookId;
+    }
+}